@@ -45,4 +45,34 @@ public interface BusinesssController {
      * Displays statistical information about the registrations.
      */
     void statistics();
+    
+    /**
+     * Displays the top-K leaderboards of mountains and campuses.
+     */
+    void leaderboard();
+    
+    /**
+     * Displays the hit and miss rates of the search result cache.
+     */
+    void cacheStatistics();
+    
+    /**
+     * Searches for registrations by a name with possible typos.
+     */
+    void fuzzySearchByName();
+    
+    /**
+     * Filters registrations by campus, mountain code and phone carrier.
+     */
+    void filterByAttributes();
+    
+    /**
+     * Displays the registrations page by page in a chosen order.
+     */
+    void displaySorted();
+    
+    /**
+     * Displays the students registered in several seasons.
+     */
+    void seasonReport();
 }
@@ -1,9 +1,10 @@
 package contronller;
 
 import view.MenuView;
-import dao.MountainDAO;
-import dao.RegistrationDAO;
+import dao.DAOLoader;
+import dao.replication.ReplicationNode;
 import utils.inputter.Inputter;
+import utils.viewUtils.ResponseViewUitls;
 
 /**
  * Command Line Interface (CLI) controller for the registration management system.
@@ -11,6 +12,10 @@ import utils.inputter.Inputter;
  * This class handles user interactions by displaying a menu and mapping user inputs
  * to the corresponding business operations.
  * </p>
+ * <p>
+ * The data files are loaded in the background as soon as the controller is created, so the
+ * menu is shown immediately and only the first operation that needs the data waits for them.
+ * </p>
  * 
  * @author ho huy
  */
@@ -24,19 +29,25 @@ public class CliController {
     private MenuView mv = new MenuView();
     
     /**
-     * The Data Access Object for managing registration records.
+     * The background loader of the registration and mountain Data Access Objects.
      */
-    private RegistrationDAO rdao = new RegistrationDAO();
+    private DAOLoader loader = DAOLoader.start();
     
     /**
-     * The Data Access Object for managing mountain records.
+     * The business controller that handles registration-related operations,
+     * created on first use once the data is loaded.
      */
-    private MountainDAO mdao = new MountainDAO();
-    
+    private BusinesssController bc;
+
+    /**
+     * The menu choice that saves the data to file.
+     */
+    private static final int SAVE_CHOICE = 15;
+
     /**
-     * The business controller that handles registration-related operations.
+     * The menu choice that exits the program.
      */
-    private BusinesssController bc = new RegistrationController(rdao, mdao);
+    private static final int EXIT_CHOICE = 16;
 
     /**
      * Starts the CLI application.
@@ -51,11 +62,31 @@ public class CliController {
         do {
             mv.displayMenu();
 
-            choice = Inputter.inputChoice("menu choice", 1, 9);
+            choice = Inputter.inputChoice("menu choice", 1, EXIT_CHOICE);
             mv.displayChoice(choice);
 
             mapHandler(choice);
-        } while (choice != 9);
+        } while (choice != EXIT_CHOICE);
+    }
+
+    /**
+     * Returns the business controller, waiting for the data to be loaded on first use.
+     *
+     * @return the business controller
+     */
+    private BusinesssController controller() {
+        if (bc == null) {
+            bc = new RegistrationController(loader.registrations(), loader.mountains());
+        }
+        return bc;
+    }
+
+    /**
+     * Displays the state and lag of replication, if configured.
+     */
+    private void displayReplicationStatus() {
+        ReplicationNode node = loader.replication();
+        ResponseViewUitls.displayResponse(node == null ? "Replication is not configured." : node.getStatus());
     }
 
     /**
@@ -66,39 +97,63 @@ public class CliController {
     private void mapHandler(int input) {
         switch (input) {
             case 1:
-                bc.add();
+                controller().add();
                 break;
             case 2:
-                bc.update();
+                controller().update();
                 break;
             case 3:
-                bc.displayAll();
+                controller().displayAll();
                 break;
             case 4:
-                bc.delete();
+                controller().delete();
                 break;
             case 5:
-                bc.searchByName();
+                controller().searchByName();
                 break;
             case 6:
-                bc.searchByCampus();
+                controller().searchByCampus();
                 break;
             case 7:
-                bc.statistics();
+                controller().statistics();
+                break;
+            case 8:
+                controller().leaderboard();
                 break;
             case 9:
+                controller().cacheStatistics();
+                break;
+            case 10:
+                controller().fuzzySearchByName();
+                break;
+            case 11:
+                controller().filterByAttributes();
+                break;
+            case 12:
+                controller().displaySorted();
+                break;
+            case 13:
+                displayReplicationStatus();
+                break;
+            case 14:
+                controller().seasonReport();
+                break;
+            case EXIT_CHOICE:
                 if (!Inputter.inputConfirm("save the current changes")) {
                     System.out.println("Thank you for using the registration management program!");
                     break;
                 }
                 System.out.println("Thank you for using the registration management program!");
                 // Fall-through intended to save data before exiting
-            case 8:
-                rdao.save();
-                mdao.save();
+            case SAVE_CHOICE:
+                ReplicationNode replication = loader.replication();
+                if (replication != null ? replication.checkpoint() : loader.registrations().save()) {
+                    ResponseViewUitls.displayResponse(loader.registrations().getSaveReport());
+                }
+                loader.mountains().save();
                 break;
         }
-        if (input != 8 && input != 9) {
+        if (input != SAVE_CHOICE && input != EXIT_CHOICE) {
             mv.reminder();
         }
     }
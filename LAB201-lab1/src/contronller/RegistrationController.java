@@ -2,6 +2,14 @@ package contronller;
 
 import dao.MountainDAO;
 import dao.RegistrationDAO;
+import dao.query.BitmapAttribute;
+import dao.query.BitmapFilter;
+import dao.query.SortKey;
+import dao.season.SeasonPartitions;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import model.Registration;
 import service.ManagementService;
 import service.ModificationService;
@@ -22,6 +30,16 @@ public class RegistrationController implements BusinesssController {
 
     // Fields
 
+    /**
+     * The largest edit distance accepted by the fuzzy name search.
+     */
+    private static final int MAX_EDIT_DISTANCE = 3;
+
+    /**
+     * The largest number of registrations per page of a sorted listing.
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
     /**
      * The Registration Data Access Object.
      */
@@ -46,6 +64,11 @@ public class RegistrationController implements BusinesssController {
      * The retrieval service for searching and displaying registrations.
      */
     private RetrievalService rs;
+
+    /**
+     * The seasons of the registrations, the desk's own being pinned as the current season.
+     */
+    private SeasonPartitions seasons;
     
     // Constructor
 
@@ -61,10 +84,27 @@ public class RegistrationController implements BusinesssController {
         this.mas = new ManagementService(rdao);
         this.mos = new ModificationService(rdao);
         this.rs = new RetrievalService(rdao, mdao);
+        this.seasons = new SeasonPartitions();
+        this.seasons.pin(System.getProperty(SeasonPartitions.CURRENT_PROPERTY, SeasonPartitions.DEFAULT_CURRENT), rdao);
     }
 
     // Private Methods
 
+    /**
+     * Refuses a change when the registrations are a read-only replica.
+     *
+     * @param action the refused action, for the error message
+     * @return {@code true} if the change is refused; {@code false} if it may proceed
+     */
+    private boolean refuseReadOnly(String action) {
+        if (rdao.isReadOnly()) {
+            ResponseViewUitls.displayError(action,
+                    "This desk is a read-only replica, registrations are changed at the primary desk!");
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Prompts the user for deletion confirmation and proceeds with deletion.
      * <p>
@@ -143,6 +183,9 @@ public class RegistrationController implements BusinesssController {
      */
     @Override
     public void add() {
+        if (refuseReadOnly("add registration")) {
+            return;
+        }
         Registration registration = new Registration(
                 Inputter.inputMatchPattern("student ID", Registration.STUDENT_ID_REGEX),
                 Inputter.inputMatchPattern("student name", Registration.NAME_REGEX),
@@ -163,6 +206,9 @@ public class RegistrationController implements BusinesssController {
      */
     @Override
     public void update() {
+        if (refuseReadOnly("update registration")) {
+            return;
+        }
         String studentId = Inputter.inputMatchPattern("student ID", Registration.STUDENT_ID_REGEX);
         Registration registration = rdao.retrieve(studentId);
         
@@ -195,6 +241,9 @@ public class RegistrationController implements BusinesssController {
      */
     @Override
     public void delete() {
+        if (refuseReadOnly("delete registration")) {
+            return;
+        }
         String studentId = Inputter.inputMatchPattern("student ID", Registration.STUDENT_ID_REGEX);
         Registration prev = mas.delete(studentId);
         if (prev != null) {
@@ -214,6 +263,67 @@ public class RegistrationController implements BusinesssController {
         rs.displaySearchByName(name);
     }
 
+    /**
+     * Searches for registrations by a name with possible typos.
+     * <p>
+     * Prompts the user for a name in any capitalization and for the largest edit distance
+     * accepted, then displays the registrations of the closest names first.
+     * </p>
+     */
+    @Override
+    public void fuzzySearchByName() {
+        String name = Inputter.inputNonEmptyString("student name");
+        int maxDistance = Inputter.inputChoice("maximum edit distance", 0, MAX_EDIT_DISTANCE);
+        rs.displayFuzzySearchByName(name, maxDistance);
+    }
+
+    /**
+     * Filters registrations by campus, mountain code and phone carrier.
+     * <p>
+     * For each attribute the user picks one of the values held by the registrations,
+     * or 0 to accept any value; the chosen conditions are combined with AND.
+     * </p>
+     */
+    @Override
+    public void filterByAttributes() {
+        BitmapFilter filter = BitmapFilter.ALL;
+        for (BitmapAttribute attribute : BitmapAttribute.values()) {
+            List<String> values = new ArrayList<>(rdao.values(attribute));
+            System.out.println("0. Any " + attribute.getLabel() + ".");
+            for (int i = 0; i < values.size(); i++) {
+                System.out.println((i + 1) + ". " + values.get(i));
+            }
+            int choice = Inputter.inputChoice(attribute.getLabel(), 0, values.size());
+            if (choice > 0) {
+                filter = filter.and(attribute, values.get(choice - 1));
+            }
+        }
+        rs.displayFilterByAttributes(filter);
+    }
+
+    /**
+     * Displays the registrations page by page in a chosen order.
+     * <p>
+     * Prompts the user for the sort order, the direction and the page size, then shows one
+     * page at a time for as long as the user asks for the next one.
+     * </p>
+     */
+    @Override
+    public void displaySorted() {
+        SortKey[] keys = SortKey.values();
+        for (int i = 0; i < keys.length; i++) {
+            System.out.println((i + 1) + ". Sort by " + keys[i].getLabel() + ".");
+        }
+        SortKey key = keys[Inputter.inputChoice("sort order", 1, keys.length) - 1];
+        boolean descending = Inputter.inputBooleanAnswer("Sort in descending order?");
+        int pageSize = Inputter.inputChoice("page size", 1, MAX_PAGE_SIZE);
+        int page = 1;
+        while (rs.displayPage(key, descending, page, pageSize)
+                && Inputter.inputBooleanAnswer("Show the next page?")) {
+            page++;
+        }
+    }
+
     /**
      * Searches for registrations by campus.
      * <p>
@@ -227,10 +337,69 @@ public class RegistrationController implements BusinesssController {
     }
 
     /**
-     * Displays registration statistics.
+     * Displays registration statistics, followed by the approximate analytics of the sketches.
      */
     @Override
     public void statistics() {
         rs.displayStatistic();
+        rs.displaySketches();
+    }
+
+    /**
+     * Displays a top-K leaderboard.
+     * <p>
+     * Prompts the user to choose between the mountain leaderboard (by participants)
+     * and the campus leaderboard (by revenue), then for the number of entries to show.
+     * </p>
+     */
+    @Override
+    public void leaderboard() {
+        System.out.println("1. Most popular mountains.");
+        System.out.println("2. Campuses by revenue.");
+        int choice = Inputter.inputChoice("leaderboard", 1, 2);
+        int k = Inputter.inputChoice("number of entries", 1, Integer.MAX_VALUE);
+        if (choice == 1) {
+            rs.displayTopMountains(k);
+        } else {
+            rs.displayTopCampuses(k);
+        }
+    }
+
+    /**
+     * Displays the hit and miss rates of the search result cache.
+     */
+    @Override
+    public void cacheStatistics() {
+        rs.displayCacheStatistics();
+    }
+
+    /**
+     * Displays the students registered in several seasons.
+     * <p>
+     * Prompts the user for the least number of seasons, then scans the seasons one at a time
+     * and lists each matching student with the seasons they registered in.
+     * </p>
+     */
+    @Override
+    public void seasonReport() {
+        List<String> names = seasons.seasons();
+        System.out.println(">>Seasons: " + String.join(", ", names));
+        int minSeasons = Inputter.inputChoice("least number of seasons", 1, names.size());
+        Map<String, List<String>> students;
+        try {
+            students = seasons.studentsInSeasons(minSeasons);
+        } catch (IOException e) {
+            ResponseViewUitls.displayError("read the seasons", String.valueOf(e.getMessage()));
+            return;
+        }
+        String header = String.format(" %-10s | %-7s | %-80s ", "Student ID", "Seasons", "Season Names");
+        System.out.println(">>Display students registered in at least " + minSeasons + " season(s).");
+        System.out.println(ResponseViewUitls.header(header));
+        for (Map.Entry<String, List<String>> e : students.entrySet()) {
+            System.out.println(String.format(" %-10s | %7d | %-80s ", e.getKey(), e.getValue().size(),
+                    String.join(", ", e.getValue())));
+        }
+        System.out.println(ResponseViewUitls.line(header.length()));
+        System.out.println(students.size() + " student(s) found.");
     }
 }
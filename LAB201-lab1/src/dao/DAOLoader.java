@@ -0,0 +1,134 @@
+package dao;
+
+import dao.protocol.RegistrationServer;
+import dao.replication.Replication;
+import dao.replication.ReplicationNode;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import utils.viewUtils.ResponseViewUitls;
+
+/**
+ * Loads the data access objects in the background.
+ * <p>
+ * Both {@link RegistrationDAO} and {@link MountainDAO} read their file when constructed.
+ * {@link #start()} constructs them concurrently on daemon threads and returns at once, so the
+ * program can show its menu while the files are read. The accessors only block when the
+ * requested DAO is still loading.
+ * </p>
+ * <p>
+ * Once the registrations are loaded, replication is started on them as configured (see
+ * {@link Replication}); the registrations are only handed out after that, so a replica's DAO
+ * is never seen writable, not even when the replica fails to start. The binary protocol server
+ * is started last, as configured (see {@link RegistrationServer}).
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class DAOLoader {
+
+    /**
+     * Runs each load on its own daemon thread, so an unfinished load never keeps the program alive.
+     */
+    private static final Executor LOADER = task -> {
+        Thread thread = new Thread(task, "dao-loader");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    /**
+     * The pending or completed registration load.
+     */
+    private final CompletableFuture<RegistrationDAO> registrations;
+
+    /**
+     * The pending or completed mountain load.
+     */
+    private final CompletableFuture<MountainDAO> mountains;
+
+    /**
+     * The pending or started replication node, completing with {@code null} when not configured.
+     */
+    private final CompletableFuture<ReplicationNode> replication;
+
+    /**
+     * The pending or started protocol server, completing with {@code null} when not configured.
+     */
+    private final CompletableFuture<RegistrationServer> server;
+
+    /**
+     * Constructs a loader from the two pending loads.
+     *
+     * @param registrations the registration load
+     * @param mountains     the mountain load
+     */
+    private DAOLoader(CompletableFuture<RegistrationDAO> registrations, CompletableFuture<MountainDAO> mountains) {
+        this.registrations = registrations;
+        this.mountains = mountains;
+        this.replication = registrations.thenApply(Replication::start).exceptionally(e -> {
+            ResponseViewUitls.displayError("start replication", String.valueOf(e.getCause().getMessage()));
+            return null;
+        });
+        this.server = replication.thenCombine(mountains, (node, mdao) -> RegistrationServer.start(registrations.join(), mdao))
+                .exceptionally(e -> {
+                    ResponseViewUitls.displayError("start protocol server", String.valueOf(e.getCause().getMessage()));
+                    return null;
+                });
+    }
+
+    /**
+     * Starts loading both DAOs concurrently in the background.
+     *
+     * @return the loader tracking the two loads
+     */
+    public static DAOLoader start() {
+        return new DAOLoader(
+                CompletableFuture.supplyAsync(RegistrationDAO::new, LOADER),
+                CompletableFuture.supplyAsync(MountainDAO::new, LOADER));
+    }
+
+    /**
+     * Returns the RegistrationDAO, waiting for its load to finish if needed.
+     *
+     * @return the loaded RegistrationDAO
+     */
+    public RegistrationDAO registrations() {
+        replication.join();
+        return registrations.join();
+    }
+
+    /**
+     * Returns the replication node, waiting for the registrations to be loaded if needed.
+     *
+     * @return the running node, or {@code null} if replication is not configured or failed to start
+     */
+    public ReplicationNode replication() {
+        return replication.join();
+    }
+
+    /**
+     * Returns the protocol server, waiting for both DAOs to be loaded if needed.
+     *
+     * @return the running server, or {@code null} if it is not configured or failed to start
+     */
+    public RegistrationServer server() {
+        return server.join();
+    }
+
+    /**
+     * Returns the MountainDAO, waiting for its load to finish if needed.
+     *
+     * @return the loaded MountainDAO
+     */
+    public MountainDAO mountains() {
+        return mountains.join();
+    }
+
+    /**
+     * Checks whether both loads have finished.
+     *
+     * @return {@code true} if both DAOs are available without blocking
+     */
+    public boolean isLoaded() {
+        return replication.isDone() && mountains.isDone();
+    }
+}
@@ -6,8 +6,11 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import model.Mountain;
+import utils.jfr.DataFileEvent;
+import utils.pool.StringPool;
 
 /**
  * Data Access Object (DAO) for managing {@link Mountain} objects.
@@ -67,6 +70,8 @@ public class MountainDAO {
      * @return a list of {@link Mountain} objects, or {@code null} if an I/O error occurs
      */
     private List<Mountain> load() {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
         List<Mountain> ls = new ArrayList<>();
         String line;
 
@@ -81,8 +86,10 @@ public class MountainDAO {
                     ls.add(m);
                 }
             }
+            event.finish("MountainDAO", DataFileEvent.LOAD, Collections.singletonList(FILE_NAME), ls.size(), true);
             return ls;
         } catch (IOException e) {
+            event.finish("MountainDAO", DataFileEvent.LOAD, Collections.singletonList(FILE_NAME), 0, false);
             return null;
         }
     }
@@ -97,6 +104,8 @@ public class MountainDAO {
      * @return {@code true} if the save operation was successful; {@code false} otherwise
      */
     public boolean save() {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
         String line;
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_NAME))) {
             writer.write(Mountain.HEADER);
@@ -109,10 +118,12 @@ public class MountainDAO {
                     writer.newLine();
                 }
             }
-            return true;
         } catch (IOException e) {
+            event.finish("MountainDAO", DataFileEvent.SAVE, Collections.singletonList(FILE_NAME), 0, false);
             return false;
         }
+        event.finish("MountainDAO", DataFileEvent.SAVE, Collections.singletonList(FILE_NAME), list.size(), true);
+        return true;
     }
 
     /**
@@ -120,6 +131,7 @@ public class MountainDAO {
      * <p>
      * The input string is split using ", " as the delimiter. If the resulting array contains 3 parameters,
      * a {@link Mountain} is created with a {@code null} description; if it contains 4 parameters, the description is used.
+     * The code and province are canonicalized through {@link StringPool} so they are shared with the registrations.
      * </p>
      *
      * @param input the line of text to convert
@@ -134,9 +146,9 @@ public class MountainDAO {
         String[] params = input.split(", ");
         switch (params.length) {
             case 3:
-                return new Mountain(params[0], params[1], params[2], null);
+                return new Mountain(StringPool.canonical(params[0]), params[1], StringPool.canonical(params[2]), null);
             case 4:
-                return new Mountain(params[0], params[1], params[2], params[3]);
+                return new Mountain(StringPool.canonical(params[0]), params[1], StringPool.canonical(params[2]), params[3]);
             default:
                 return null;
         }
@@ -1,16 +1,44 @@
 package dao;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import dao.archive.RegistrationChange;
+import dao.event.RegistrationEvent;
+import dao.event.RegistrationEventBus;
+import dao.query.BitmapAttribute;
+import dao.query.BitmapFilter;
+import dao.query.BitmapIndex;
+import dao.query.QueryPlan;
+import dao.query.QueryPlanner;
+import dao.query.RegistrationField;
+import dao.query.RegistrationIndex;
+import dao.query.RegistrationQuery;
+import dao.query.SortKey;
+import dao.query.SortPermutations;
+import dao.sketch.RegistrationSketch;
+import dao.sketch.RegistrationSketches;
 import model.Registration;
+import utils.collection.BKTree;
+import utils.io.BlockFiles;
+import utils.jfr.DataFileEvent;
+import utils.text.EditDistance;
 import utils.viewUtils.ResponseViewUitls;
 
 /**
@@ -19,6 +47,22 @@ import utils.viewUtils.ResponseViewUitls;
  * This class provides methods for creating, updating, deleting, and retrieving
  * Registration records. It also handles loading from and saving to a file.
  * </p>
+ * <p>
+ * With the {@value #SHARDED_PROPERTY} system property set to {@code true}, the records are
+ * persisted in one file per campus instead (see {@link RegistrationShards}): the shards are
+ * loaded in parallel and a save only writes the campuses changed since the last save. A campus
+ * is read from its shard unless {@value #FILE_NAME} was written after it, and from the single
+ * file otherwise, so switching layouts takes one save and no campus is lost on the way. A save
+ * then removes the layout it supersedes: saving the single file deletes the shards, and once
+ * every campus has been written to its shard the single file is deleted. A DAO restricted to
+ * one campus only writes that shard and leaves the single file to the other campuses.
+ * </p>
+ * <p>
+ * Every public method holds the DAO's lock, so a replication thread can apply changes while
+ * the console reads (see {@link dao.replication.ReplicationReplica}). A read-only DAO refuses
+ * create, update and delete and only changes through {@link #apply(String, Registration)} and
+ * {@link #install(List)}.
+ * </p>
  * 
  * @author ho huy
  */
@@ -29,18 +73,282 @@ public class RegistrationDAO implements Serializable {
      */
     private static final String FILE_NAME = "Registrations.dat";
 
+    /**
+     * The system property selecting one file per campus.
+     */
+    public static final String SHARDED_PROPERTY = "data.sharded";
+
+    /**
+     * The campus this DAO is restricted to, or {@code null} for every campus.
+     */
+    private final String campus;
+
+    /**
+     * Whether the records are persisted in one file per campus.
+     */
+    private final boolean sharded;
+
+    /**
+     * The single file holding the records when they are not sharded.
+     */
+    private final String fileName;
+
+    /**
+     * The campuses changed since they were last saved, when sharded.
+     */
+    private transient Set<String> dirty = new TreeSet<>();
+
+    /**
+     * The report of the last save, or {@code null} if nothing has been saved.
+     */
+    private transient String saveReport;
+
     /**
      * The list of Registration objects.
      */
     private List<Registration> list;
 
+    /**
+     * The secondary indexes built so far over the registration list, by field.
+     * <p>
+     * Student ID, name, email and phone are kept in ordered indexes so they also answer
+     * prefix and range queries; the mountain code only takes a few values and is kept
+     * in a hash index. An index is only built when a query first needs it, so loading
+     * the file does not pay for indexes that are never used.
+     * </p>
+     */
+    private transient Map<RegistrationField, RegistrationIndex> indexes = new EnumMap<>(RegistrationField.class);
+
+    /**
+     * The distinct names indexed by edit distance, built on the first fuzzy search.
+     * <p>
+     * Names are only ever added; a name whose last registration was removed stays in the tree
+     * and is filtered out against the name index when found.
+     * </p>
+     */
+    private transient BKTree<String> nameTree;
+
+    /**
+     * The bitmap indexes over campus, mountain code and carrier, built on the first filter
+     * that needs them and then kept up to date as a listener of {@link #events}.
+     */
+    private transient BitmapIndex bitmapIndex;
+
+    /**
+     * The sorted views of the registration list, rebuilt lazily after a mutation.
+     */
+    private final transient SortPermutations sortedViews = new SortPermutations();
+
+    /**
+     * The probabilistic sketches of each campus, loaded with the list when saved beside it and
+     * otherwise built on first use, then kept up to date with every change.
+     */
+    private transient RegistrationSketches sketches;
+
+    /**
+     * The bus publishing every change of the registration list.
+     * <p>
+     * The DAO's own indexes and shard tracking are its first synchronous listener, so they are
+     * up to date before any other listener is called.
+     * </p>
+     */
+    private final transient RegistrationEventBus events = new RegistrationEventBus();
+
+    /**
+     * The generation of the registration list, incremented by every mutation.
+     * <p>
+     * Derived results stamped with an older generation are known to be stale.
+     * </p>
+     */
+    private volatile long generation;
+
+    /**
+     * Whether create, update and delete are refused, as on a replica.
+     */
+    private transient volatile boolean readOnly;
+
     /**
      * Constructs a new {@code RegistrationDAO} and initializes the registration list
      * by loading it from the file. If loading fails, a new empty list is created.
      */
     public RegistrationDAO() {
+        this((String) null);
+    }
+
+    /**
+     * Constructs a {@code RegistrationDAO} holding only the registrations of one campus,
+     * for campus-local reports.
+     * <p>
+     * Only that campus's shard is read, falling back to the single file. The DAO is always
+     * sharded, and saving it writes that campus's shard only.
+     * </p>
+     *
+     * @param campus the campus code, or {@code null} for every campus
+     */
+    public RegistrationDAO(String campus) {
+        this(campus, FILE_NAME);
+    }
+
+    /**
+     * Constructs a {@code RegistrationDAO} persisted in a file of its own, such as the
+     * partition of one season (see {@link dao.season.SeasonPartitions}).
+     * <p>
+     * The DAO is never sharded and only reads that file; a missing file gives an empty DAO.
+     * </p>
+     *
+     * @param file the file holding the registrations
+     */
+    public RegistrationDAO(File file) {
+        this(null, file.getPath());
+    }
+
+    /**
+     * Constructs a {@code RegistrationDAO} and loads its registrations.
+     *
+     * @param campus   the campus code, or {@code null} for every campus
+     * @param fileName the single file of the registrations
+     */
+    private RegistrationDAO(String campus, String fileName) {
+        this.campus = campus == null ? null : campus.toUpperCase();
+        this.fileName = fileName;
+        this.sharded = FILE_NAME.equals(fileName) && (campus != null || Boolean.getBoolean(SHARDED_PROPERTY));
         this.list = load();
         this.list = list == null ? new ArrayList<>() : list;
+        RegistrationSketches stored = new RegistrationSketches(fileName, this.campus);
+        if (stored.exists()) {
+            stored.load(this.list);
+            this.sketches = stored;
+        }
+        events.subscribe(this::maintain);
+    }
+
+    /**
+     * Keeps the indexes, the sketches and the changed campuses in step with a change of the list.
+     *
+     * @param event the change
+     */
+    private void maintain(RegistrationEvent event) {
+        if (sketches != null) {
+            sketches.onChange(event);
+        }
+        if (event.getBefore() != null) {
+            unindex(event.getBefore());
+            touch(event.getBefore());
+        }
+        if (event.getAfter() != null) {
+            index(event.getAfter());
+            touch(event.getAfter());
+        }
+    }
+
+    /**
+     * Returns the bus publishing every change of the registration list.
+     *
+     * @return the event bus
+     */
+    public RegistrationEventBus getEvents() {
+        return events;
+    }
+
+    /**
+     * Records that the campus of a registration has changes to save.
+     *
+     * @param registration the changed registration
+     */
+    private void touch(Registration registration) {
+        if (sharded) {
+            dirty.add(RegistrationShards.campusOf(registration));
+        }
+    }
+
+    /**
+     * Returns the index on a field, building it from the registration list on first use.
+     *
+     * @param field the indexed field
+     * @return the index on the field
+     */
+    private RegistrationIndex indexOn(RegistrationField field) {
+        RegistrationIndex index = indexes.get(field);
+        if (index == null) {
+            index = new RegistrationIndex(field, field != RegistrationField.MOUNTAIN_CODE);
+            for (Registration r : list) {
+                index.add(r);
+            }
+            indexes.put(field, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the bitmap indexes, building them from the registration list on first use.
+     *
+     * @return the bitmap indexes
+     */
+    private BitmapIndex bitmaps() {
+        if (bitmapIndex == null) {
+            bitmapIndex = new BitmapIndex(list);
+            events.subscribe(bitmapIndex);
+        }
+        return bitmapIndex;
+    }
+
+    /**
+     * Returns a copy of the probabilistic sketches of each campus, building them from the
+     * registration list on first use.
+     * <p>
+     * The distinct counts remember every student, email domain and phone number registered since
+     * the sketches were built; the heavy hitters only count the current registrations.
+     * </p>
+     *
+     * @return the sketches by campus code, in ascending order
+     */
+    public synchronized Map<String, RegistrationSketch> getSketches() {
+        if (sketches == null) {
+            sketches = new RegistrationSketches(fileName, campus);
+            sketches.load(list);
+        }
+        return sketches.copy();
+    }
+
+    /**
+     * Saves the sketches of the changed campuses beside the registrations, if they were built.
+     *
+     * @return {@code true} if the sketches were saved or never built; {@code false} otherwise
+     */
+    private boolean saveSketches() {
+        try {
+            if (sketches != null) {
+                sketches.save();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds a registration to every index built so far.
+     *
+     * @param registration the registration to index
+     */
+    private void index(Registration registration) {
+        for (RegistrationIndex index : indexes.values()) {
+            index.add(registration);
+        }
+        if (nameTree != null) {
+            nameTree.add(registration.getName());
+        }
+    }
+
+    /**
+     * Removes a registration from every index built so far.
+     *
+     * @param registration the registration to remove
+     */
+    private void unindex(Registration registration) {
+        for (RegistrationIndex index : indexes.values()) {
+            index.remove(registration);
+        }
     }
 
     /**
@@ -50,10 +358,18 @@ public class RegistrationDAO implements Serializable {
      * </p>
      *
      * @param registration the Registration object to add
-     * @return {@code true} if the registration was successfully added; {@code false} otherwise
+     * @return {@code true} if the registration was successfully added; {@code false} otherwise,
+     *         or if the DAO is read-only
      */
-    public boolean create(Registration registration) {
+    public synchronized boolean create(Registration registration) {
+        if (readOnly) {
+            return false;
+        }
         boolean result = list.add(registration);
+        if (result) {
+            generation++;
+            events.publish(RegistrationEvent.created(registration, generation));
+        }
         sortByStudentID();
         return result;
     }
@@ -66,11 +382,19 @@ public class RegistrationDAO implements Serializable {
      * </p>
      *
      * @param id the student ID of the Registration to delete
-     * @return the deleted Registration if removal was successful; {@code null} otherwise
+     * @return the deleted Registration if removal was successful; {@code null} otherwise,
+     *         or if the DAO is read-only
      */
-    public Registration delete(String id) {
+    public synchronized Registration delete(String id) {
+        if (readOnly) {
+            return null;
+        }
         Registration prev = retrieve(id);
         boolean check = list.removeIf(r -> r.getStudentId().equals(id));
+        if (check) {
+            generation++;
+            events.publish(RegistrationEvent.deleted(prev, generation));
+        }
         sortByStudentID();
         return check ? prev : null;
     }
@@ -78,53 +402,347 @@ public class RegistrationDAO implements Serializable {
     /**
      * Updates a Registration record by student ID.
      * <p>
-     * The method finds the Registration record with a matching student ID (ignoring the first two characters)
-     * and replaces it with the provided Registration.
+     * The method finds the Registration record with the same student ID and replaces it
+     * with the provided Registration. The indexes are refreshed, since the provided
+     * Registration may be the same object whose fields were changed in place.
+     * </p>
+     * <p>
+     * The published event carries the replaced and the replacing objects. Listeners only see the
+     * old values when the provided Registration is a new object, so callers should modify a copy.
      * </p>
      *
      * @param id the student ID of the Registration to update
      * @param registration the new Registration object to replace the existing one
-     * @return the previous Registration object if the update was successful; {@code null} otherwise
+     * @return the previous Registration object if the update was successful; {@code null} otherwise,
+     *         or if the DAO is read-only
      */
-    public Registration update(String id, Registration registration) {
+    public synchronized Registration update(String id, Registration registration) {
+        if (readOnly) {
+            return null;
+        }
         for (int i = 0; i < list.size(); i++) {
-            String idNum = list.get(i).getStudentId().substring(2);
-            if (idNum.endsWith(id.substring(2))) {
-                return list.set(i, registration);
+            if (list.get(i).getStudentId().equals(id)) {
+                Registration prev = list.set(i, registration);
+                generation++;
+                events.publish(RegistrationEvent.updated(prev, registration, generation));
+                return prev;
             }
         }
         return null;
     }
 
+    /**
+     * Applies a change made elsewhere, whether or not the DAO is read-only.
+     * <p>
+     * The registration with the given student ID is replaced by the given one, added if it is
+     * missing, or removed if the given one is {@code null}. Applying the same change twice leaves
+     * the same records, so a replica may replay changes it already holds.
+     * </p>
+     *
+     * @param studentId    the student ID of the changed registration
+     * @param registration the registration after the change, or {@code null} if it was deleted
+     */
+    public synchronized void apply(String studentId, Registration registration) {
+        Registration current = retrieve(studentId);
+        if (current == null) {
+            if (registration != null) {
+                list.add(registration);
+                generation++;
+                events.publish(RegistrationEvent.created(registration, generation));
+                sortByStudentID();
+            }
+        } else if (registration == null) {
+            list.remove(current);
+            generation++;
+            events.publish(RegistrationEvent.deleted(current, generation));
+        } else if (!sameValues(current, registration)) {
+            list.set(list.indexOf(current), registration);
+            generation++;
+            events.publish(RegistrationEvent.updated(current, registration, generation));
+        }
+    }
+
+    /**
+     * Replaces every registration by the given ones, whether or not the DAO is read-only.
+     * <p>
+     * The difference with the current records is published as one event per added, changed
+     * and removed registration, so every listener stays consistent. Unchanged registrations
+     * keep their current objects.
+     * </p>
+     *
+     * @param registrations the registrations to hold
+     */
+    public synchronized void install(List<Registration> registrations) {
+        Map<String, Registration> previous = new HashMap<>();
+        for (Registration r : list) {
+            previous.put(r.getStudentId(), r);
+        }
+        List<Registration> installed = new ArrayList<>(registrations);
+        installed.sort(Comparator.comparing(Registration::getStudentId));
+        List<Registration> befores = new ArrayList<>();
+        List<Registration> afters = new ArrayList<>();
+        for (int i = 0; i < installed.size(); i++) {
+            Registration after = installed.get(i);
+            Registration before = previous.remove(after.getStudentId());
+            if (before != null && sameValues(before, after)) {
+                installed.set(i, before);
+            } else {
+                befores.add(before);
+                afters.add(after);
+            }
+        }
+        for (Registration before : previous.values()) {
+            befores.add(before);
+            afters.add(null);
+        }
+        list = installed;
+        for (int i = 0; i < befores.size(); i++) {
+            Registration before = befores.get(i);
+            Registration after = afters.get(i);
+            generation++;
+            events.publish(before == null ? RegistrationEvent.created(after, generation)
+                    : after == null ? RegistrationEvent.deleted(before, generation)
+                    : RegistrationEvent.updated(before, after, generation));
+        }
+    }
+
+    /**
+     * Applies a patch found by {@link dao.archive.SnapshotDiff}, all or nothing.
+     * <p>
+     * Every change must find the registration it was made from: an added registration must be
+     * missing, and a removed or modified one must still hold the values it had before. If any
+     * change conflicts, nothing is applied; otherwise the patched list is installed at once, so a
+     * large patch costs one sort instead of one per added registration.
+     * </p>
+     *
+     * @param changes the changes of the patch
+     * @return the conflicting changes, empty if the patch was applied; {@code null} if the DAO is read-only
+     */
+    public synchronized List<RegistrationChange> applyPatch(List<RegistrationChange> changes) {
+        if (readOnly) {
+            return null;
+        }
+        List<RegistrationChange> conflicts = new ArrayList<>();
+        for (RegistrationChange change : changes) {
+            Registration current = retrieve(change.getStudentId());
+            boolean expected = change.getBefore() == null ? current == null
+                    : current != null && sameValues(current, change.getBefore());
+            if (!expected) {
+                conflicts.add(change);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            return conflicts;
+        }
+        Map<String, Registration> patched = new LinkedHashMap<>();
+        for (Registration r : list) {
+            patched.put(r.getStudentId(), r);
+        }
+        for (RegistrationChange change : changes) {
+            if (change.getAfter() == null) {
+                patched.remove(change.getStudentId());
+            } else {
+                patched.put(change.getStudentId(), change.getAfter());
+            }
+        }
+        install(new ArrayList<>(patched.values()));
+        return conflicts;
+    }
+
+    /**
+     * Checks whether two registrations hold the same values.
+     *
+     * @param r1 the first registration
+     * @param r2 the second registration
+     * @return {@code true} if every field and the fee are equal
+     */
+    private static boolean sameValues(Registration r1, Registration r2) {
+        return r1.getStudentId().equals(r2.getStudentId()) && r1.getName().equals(r2.getName())
+                && r1.getEmail().equals(r2.getEmail()) && r1.getPhone().equals(r2.getPhone())
+                && r1.getMountainCode().equals(r2.getMountainCode()) && r1.getFee() == r2.getFee();
+    }
+
+    /**
+     * Marks the DAO as read-only or writable.
+     *
+     * @param readOnly whether create, update and delete are refused
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Returns whether the DAO refuses create, update and delete.
+     *
+     * @return {@code true} if the DAO is read-only
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     /**
      * Retrieves a list of Registration records that satisfy the given condition.
+     * <p>
+     * A {@link RegistrationQuery} is answered by the query planner and a {@link BitmapFilter}
+     * by the bitmap indexes; any other condition is evaluated against every registration.
+     * </p>
      *
      * @param condition a {@code Predicate} defining the condition to filter registrations
      * @return a list of Registration objects that match the condition
      */
-    public List<Registration> retrieveList(Predicate<Registration> condition) {
+    public synchronized List<Registration> retrieveList(Predicate<Registration> condition) {
+        if (condition instanceof RegistrationQuery) {
+            return query((RegistrationQuery) condition);
+        }
+        if (condition instanceof BitmapFilter) {
+            return bitmaps().select((BitmapFilter) condition);
+        }
         return list.stream()
                 .filter(condition)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Retrieves the Registration records matching a structured query.
+     * <p>
+     * The query is answered from an index when one applies, and by a full scan otherwise.
+     * </p>
+     *
+     * @param query the query to answer
+     * @return a list of Registration objects that match the query, ordered by student ID
+     */
+    public synchronized List<Registration> query(RegistrationQuery query) {
+        return plan(query).execute();
+    }
+
+    /**
+     * Counts the registrations matching a filter on campus, mountain code and carrier.
+     * <p>
+     * The count is the size of the intersection of one bitmap per condition; no registration
+     * is read.
+     * </p>
+     *
+     * @param filter the filter
+     * @return the number of matching registrations
+     */
+    public synchronized int count(BitmapFilter filter) {
+        return bitmaps().count(filter);
+    }
+
+    /**
+     * Returns the values of an attribute held by at least one registration.
+     *
+     * @param attribute the attribute
+     * @return the values in ascending order
+     */
+    public synchronized Set<String> values(BitmapAttribute attribute) {
+        return bitmaps().values(attribute);
+    }
+
+    /**
+     * Executes a structured query and reports how it was answered.
+     *
+     * @param query the query to explain
+     * @return a report of the chosen plan and the number of records it examined and returned
+     */
+    public synchronized String explain(RegistrationQuery query) {
+        QueryPlan plan = plan(query);
+        plan.execute();
+        return plan.explain();
+    }
+
+    /**
+     * Chooses the plan answering a structured query.
+     *
+     * @param query the query to plan
+     * @return the chosen plan
+     */
+    private QueryPlan plan(RegistrationQuery query) {
+        return new QueryPlanner(list, this::indexOn).plan(query);
+    }
     
+    /**
+     * Finds the registered names within an edit distance of the given name.
+     * <p>
+     * The distance is the case-insensitive Levenshtein distance. The search runs over the tree of
+     * distinct names rather than over every registration, so it only compares the given name with a
+     * small part of the dictionary.
+     * </p>
+     *
+     * @param name        the name to search around
+     * @param maxDistance the largest edit distance accepted
+     * @return the matching names, closest first and then in alphabetical order
+     */
+    public synchronized List<BKTree.Match<String>> similarNames(String name, int maxDistance) {
+        RegistrationIndex names = indexOn(RegistrationField.NAME);
+        if (nameTree == null) {
+            nameTree = new BKTree<>(EditDistance::levenshteinIgnoreCase);
+            for (String key : names.keys()) {
+                nameTree.add(key);
+            }
+        }
+        List<BKTree.Match<String>> matches = nameTree.search(name, maxDistance, Comparator.naturalOrder());
+        matches.removeIf(match -> !names.keys().contains(match.getElement()));
+        return matches;
+    }
+
     /**
      * Retrieves a Registration record by student ID.
      *
      * @param studentID the student ID to search for
      * @return the Registration object with the matching student ID, or {@code null} if not found
      */
-    public Registration retrieve(String studentID) {
-        for (Registration x : list) {
-            if (x.getStudentId().equals(studentID)) {
-                return x;
-            }
-        }
-        return null;
+    public synchronized Registration retrieve(String studentID) {
+        List<Registration> found = query(RegistrationQuery.equal(RegistrationField.STUDENT_ID, studentID));
+        return found.isEmpty() ? null : found.get(0);
+    }
+    
+    /**
+     * Retrieves a page of the Registration records in the given order.
+     * <p>
+     * The order is kept as a permutation of the records, so the registration list itself stays
+     * sorted by student ID. The first page after a mutation sorts the records again; every
+     * other page only costs its own size.
+     * </p>
+     *
+     * @param key        the order of the listing
+     * @param descending whether to list the records in reverse order
+     * @param offset     the position of the first record of the page
+     * @param limit      the maximum number of records of the page
+     * @return an unmodifiable list of at most {@code limit} Registration objects
+     */
+    public synchronized List<Registration> retrievePage(SortKey key, boolean descending, int offset, int limit) {
+        return sortedViews.page(list, generation, key, descending, offset, limit);
+    }
+
+    /**
+     * Returns the time spent so far building sorted views.
+     *
+     * @return the build time in nanoseconds
+     */
+    public long getSortNanos() {
+        return sortedViews.getBuildNanos();
+    }
+
+    /**
+     * Returns the generation of the registration list.
+     * <p>
+     * The generation changes after every create, update and delete, so a result computed
+     * at one generation is still valid as long as the generation has not changed.
+     * </p>
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return generation;
     }
     
     /**
      * Retrieves all Registration records.
+     * <p>
+     * The returned list is the DAO's own; use {@link #snapshot()} when another thread may be
+     * changing the records.
+     * </p>
      *
      * @return a list of all Registration objects
      */
@@ -132,16 +750,35 @@ public class RegistrationDAO implements Serializable {
         return list;
     }
 
+    /**
+     * Copies all Registration records under the DAO's lock.
+     *
+     * @return a new list of all Registration objects
+     */
+    public synchronized List<Registration> snapshot() {
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * Returns the number of Registration records.
+     *
+     * @return the record count
+     */
+    public synchronized int size() {
+        return list.size();
+    }
+
     /**
      * Checks if a given Registration object has unique student ID, email, and phone.
      *
      * @param registration the Registration object to check for uniqueness
      * @return {@code true} if the registration is unique; {@code false} otherwise
      */
-    public boolean isUnique(Registration registration) {
-        List search = retrieveList(r -> (r.getStudentId().equals(registration.getStudentId())
-                || r.getEmail().equals(registration.getEmail())
-                || r.getPhone().equals(registration.getPhone())));
+    public synchronized boolean isUnique(Registration registration) {
+        List<Registration> search = query(RegistrationQuery.or(
+                RegistrationQuery.equal(RegistrationField.STUDENT_ID, registration.getStudentId()),
+                RegistrationQuery.equal(RegistrationField.EMAIL, registration.getEmail()),
+                RegistrationQuery.equal(RegistrationField.PHONE, registration.getPhone())));
         return search.isEmpty();
     }
     
@@ -152,46 +789,223 @@ public class RegistrationDAO implements Serializable {
      * @param value the value to check for uniqueness
      * @return {@code true} if the value is unique; {@code false} otherwise
      */
-    public boolean isUnique(int field, String value) {
+    public synchronized boolean isUnique(int field, String value) {
         switch (field) {
             case 0: // Student ID must be unique
-                return retrieveList(r -> r.getStudentId().equals(value)).isEmpty();
+                return query(RegistrationQuery.equal(RegistrationField.STUDENT_ID, value)).isEmpty();
             case 3: // Email must be unique
-                return retrieveList(r -> r.getEmail().equals(value)).isEmpty();
+                return query(RegistrationQuery.equal(RegistrationField.EMAIL, value)).isEmpty();
             case 2: // Phone must be unique
-                return retrieveList(r -> r.getPhone().equals(value)).isEmpty();
+                return query(RegistrationQuery.equal(RegistrationField.PHONE, value)).isEmpty();
             default:
                 return true;
         }
     }
     
     /**
-     * Loads the list of Registration objects from the file.
+     * Loads the list of Registration objects from the configured layout, or from the other
+     * layout when the configured one does not exist yet.
+     * <p>
+     * Deserialization bypasses the {@link Registration} constructor, so the mountain code
+     * of every loaded record is canonicalized here to share one instance per code.
+     * </p>
      *
      * @return the list of Registration objects, or {@code null} if loading fails
      */
     private List<Registration> load() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            return (List<Registration>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        List<String> files = new ArrayList<>();
+        try {
+            List<Registration> ls;
+            if (!FILE_NAME.equals(fileName)) {
+                files.add(fileName);
+                ls = loadFile(null);
+            } else if (campus != null) {
+                boolean shard = isCurrent(campus);
+                files.add(shard ? RegistrationShards.fileName(campus) : fileName);
+                ls = shard ? RegistrationShards.load(campus) : loadFile(campus);
+            } else {
+                ls = loadLayouts(files);
+            }
+            for (Registration r : ls) {
+                r.setMountainCode(r.getMountainCode());
+            }
+            event.finish("RegistrationDAO", DataFileEvent.LOAD, files, ls.size(), true);
+            return ls;
+        } catch (IOException e) {
+            event.finish("RegistrationDAO", DataFileEvent.LOAD, files, 0, false);
             return null;
         }
     }
+
+    /**
+     * Checks whether the shard of a campus holds its latest records, that is whether it exists
+     * and the single file was not written after it.
+     *
+     * @param campus the campus code
+     * @return {@code true} if the campus is to be read from its shard
+     */
+    private static boolean isCurrent(String campus) {
+        File shard = new File(RegistrationShards.fileName(campus));
+        File single = new File(FILE_NAME);
+        return shard.isFile() && (!single.isFile() || shard.lastModified() >= single.lastModified());
+    }
+
+    /**
+     * Loads every campus from the layout holding its latest records.
+     * <p>
+     * The campuses with a current shard are read from it and every other campus from the single
+     * file, so a desk half way through switching layouts still sees every campus. When sharded,
+     * the campuses read from the single file and those with an outdated shard are marked as
+     * changed, so the next save writes every campus to its shard.
+     * </p>
+     *
+     * @param files the list to add the names of the files read to
+     * @return the list of Registration objects, sorted by student ID
+     * @throws IOException if a file cannot be read, or neither layout exists
+     */
+    private List<Registration> loadLayouts(List<String> files) throws IOException {
+        Set<String> current = new HashSet<>();
+        for (String c : RegistrationShards.existing()) {
+            if (isCurrent(c)) {
+                current.add(c);
+            } else if (sharded) {
+                dirty.add(c);
+            }
+        }
+        List<Registration> ls = new ArrayList<>();
+        if (new File(FILE_NAME).isFile() || current.isEmpty()) {
+            files.add(FILE_NAME);
+            ls = loadFile(null);
+            ls.removeIf(r -> current.contains(RegistrationShards.campusOf(r)));
+            dirty.removeAll(current);
+        }
+        if (!current.isEmpty()) {
+            List<String> shards = new ArrayList<>(new TreeSet<>(current));
+            shards.forEach(c -> files.add(RegistrationShards.fileName(c)));
+            List<Registration> fromShards = RegistrationShards.loadAll(shards);
+            if (ls.isEmpty()) {
+                ls = fromShards;
+            } else {
+                ls.addAll(fromShards);
+                ls.sort(Comparator.comparing(Registration::getStudentId));
+            }
+        }
+        return ls;
+    }
+
+    /**
+     * Loads the Registration objects from the single file.
+     * <p>
+     * When sharded, every loaded campus is marked as changed so the next save writes its shard.
+     * </p>
+     *
+     * @param campus the campus to keep, or {@code null} to keep every campus
+     * @return the list of Registration objects
+     * @throws IOException if the file cannot be read
+     */
+    private List<Registration> loadFile(String campus) throws IOException {
+        List<Registration> ls;
+        try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(fileName))) {
+            @SuppressWarnings("unchecked")
+            List<Registration> read = (List<Registration>) ois.readObject();
+            ls = read;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        if (campus != null) {
+            ls.removeIf(r -> !RegistrationShards.campusOf(r).equals(campus));
+        }
+        for (Registration r : ls) {
+            touch(r);
+        }
+        if (campus != null) {
+            dirty.add(campus);
+        }
+        return ls;
+    }
     
     /**
-     * Saves the list of Registration objects to the file.
+     * Saves the list of Registration objects to the file, or the changed campuses to their
+     * shards when sharded.
+     * <p>
+     * The files are block-compressed when a level is configured, see {@link BlockFiles}. The
+     * sketches of the changed campuses, once built, are saved beside them.
+     * </p>
      *
      * @return {@code true} if the save operation was successful; {@code false} otherwise
      */
-    public boolean save() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
+    public synchronized boolean save() {
+        if (sharded) {
+            return saveShards();
+        }
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<String> files = Collections.singletonList(fileName);
+        OutputStream written;
+        try (OutputStream out = BlockFiles.openOutput(fileName);
+                ObjectOutputStream oos = new ObjectOutputStream(out)) {
             oos.writeObject(retrieveAll());
-            return true;
+            written = out;
+        } catch (IOException e) {
+            event.finish("RegistrationDAO", DataFileEvent.SAVE, files, 0, false);
+            return false;
+        }
+        saveReport = BlockFiles.report(fileName, written, System.nanoTime() - start);
+        event.finish("RegistrationDAO", DataFileEvent.SAVE, files, list.size(), true);
+        if (FILE_NAME.equals(fileName)) {
+            RegistrationShards.deleteAll();
+        }
+        return saveSketches();
+    }
+
+    /**
+     * Saves the changed campuses to their shards in parallel.
+     *
+     * @return {@code true} if every changed shard was written; {@code false} otherwise
+     */
+    private boolean saveShards() {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Set<String> changed = new TreeSet<>(dirty);
+        if (campus != null) {
+            changed.retainAll(Collections.singleton(campus));
+        }
+        List<String> files = changed.stream().map(RegistrationShards::fileName).collect(Collectors.toList());
+        int records = event.isEnabled() ? (int) list.stream().filter(r -> changed.contains(RegistrationShards.campusOf(r))).count() : 0;
+        try {
+            List<String> reports = RegistrationShards.saveAll(list, changed);
+            dirty.removeAll(changed);
+            if (campus == null && dirty.isEmpty()) {
+                // Every campus read from the single file now has its shard.
+                new File(FILE_NAME).delete();
+            }
+            StringBuilder report = new StringBuilder(String.format("Saved %d changed campus shard(s) in %,.1f ms",
+                    changed.size(), (System.nanoTime() - start) / 1e6));
+            for (String line : reports) {
+                report.append(System.lineSeparator()).append("  ").append(line);
+            }
+            saveReport = report.toString();
+            event.finish("RegistrationDAO", DataFileEvent.SAVE, files, records, true);
+            return saveSketches();
         } catch (IOException e) {
+            event.finish("RegistrationDAO", DataFileEvent.SAVE, files, 0, false);
             return false;
         }
     }
 
+    /**
+     * Returns the size, compression ratio and timings of the last save.
+     *
+     * @return the report of the last save, or {@code null} if nothing has been saved
+     */
+    public String getSaveReport() {
+        return saveReport;
+    }
+
     /**
      * Sorts the list of Registration objects by their student ID.
      */
@@ -206,7 +1020,7 @@ public class RegistrationDAO implements Serializable {
      * </p>
      */
     public void displayRegistrationHeader() {
-        System.out.println(ResponseViewUitls.header(String.format(" %-10s | %-20s | %-35s | %-15s | %-13s ",
+        ResponseViewUitls.print(ResponseViewUitls.header(String.format(" %-10s | %-20s | %-35s | %-15s | %-13s ",
                 "Student ID", "Student Name", "Student Email", "Phone Number", "Mountain Code")));
     }
     
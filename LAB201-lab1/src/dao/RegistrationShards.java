@@ -0,0 +1,207 @@
+package dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Reads and writes registrations split into one file per campus.
+ * <p>
+ * The registrations of campus {@code XX} (the first two characters of the student ID) are kept
+ * in {@code Registrations-XX.dat}, in the same format as the single {@code Registrations.dat}.
+ * Shards are independent, so they are loaded and saved in parallel, and a shard without changes
+ * does not need to be written again.
+ * </p>
+ * 
+ * @author ho huy
+ */
+final class RegistrationShards {
+
+    /**
+     * The file name prefix of every shard.
+     */
+    private static final String PREFIX = "Registrations-";
+
+    /**
+     * The file name suffix of every shard.
+     */
+    private static final String SUFFIX = ".dat";
+
+    private RegistrationShards() {
+    }
+
+    /**
+     * Returns the campus a registration belongs to.
+     *
+     * @param registration the registration
+     * @return the campus code, the first two characters of the student ID
+     */
+    static String campusOf(Registration registration) {
+        return registration.getStudentId().substring(0, 2).toUpperCase();
+    }
+
+    /**
+     * Returns the file name of a campus shard.
+     *
+     * @param campus the campus code
+     * @return the shard file name
+     */
+    static String fileName(String campus) {
+        return PREFIX + campus.toUpperCase() + SUFFIX;
+    }
+
+    /**
+     * Checks whether the shard of a campus exists.
+     *
+     * @param campus the campus code
+     * @return {@code true} if the shard file exists
+     */
+    static boolean exists(String campus) {
+        return new File(fileName(campus)).isFile();
+    }
+
+    /**
+     * Lists the campuses that have a shard in the working directory.
+     *
+     * @return the campus codes in ascending order
+     */
+    static List<String> existing() {
+        String[] names = new File(".").list((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                && name.length() == PREFIX.length() + 2 + SUFFIX.length());
+        if (names == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(names)
+                .map(name -> name.substring(PREFIX.length(), PREFIX.length() + 2))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Loads one shard.
+     *
+     * @param campus the campus code
+     * @return the registrations of the campus
+     * @throws IOException if the shard cannot be read
+     */
+    static List<Registration> load(String campus) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(fileName(campus)))) {
+            @SuppressWarnings("unchecked")
+            List<Registration> shard = (List<Registration>) ois.readObject();
+            return shard;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Deletes every shard in the working directory, once the single file supersedes them.
+     */
+    static void deleteAll() {
+        for (String campus : existing()) {
+            new File(fileName(campus)).delete();
+        }
+    }
+
+    /**
+     * Loads several shards in parallel.
+     *
+     * @param campuses the campus codes, in ascending order
+     * @return the registrations of every campus, in the order of the campuses
+     * @throws IOException if any shard cannot be read
+     */
+    static List<Registration> loadAll(List<String> campuses) throws IOException {
+        List<List<Registration>> shards;
+        try {
+            shards = campuses.parallelStream()
+                    .map(campus -> {
+                        try {
+                            return load(campus);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        List<Registration> all = new ArrayList<>(shards.stream().mapToInt(List::size).sum());
+        for (List<Registration> shard : shards) {
+            all.addAll(shard);
+        }
+        return all;
+    }
+
+    /**
+     * Writes one shard.
+     *
+     * @param campus        the campus code
+     * @param registrations the registrations of the campus
+     * @return the report of the write, see {@link BlockFiles#report}
+     * @throws IOException if the shard cannot be written
+     */
+    static String save(String campus, List<Registration> registrations) throws IOException {
+        long start = System.nanoTime();
+        String fileName = fileName(campus);
+        OutputStream written;
+        try (OutputStream out = BlockFiles.openOutput(fileName);
+                ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(registrations);
+            written = out;
+        }
+        return BlockFiles.report(fileName, written, System.nanoTime() - start);
+    }
+
+    /**
+     * Writes the shards of the given campuses in parallel.
+     * <p>
+     * A campus without registrations is written as an empty shard, so registrations deleted
+     * since the last save do not come back.
+     * </p>
+     *
+     * @param registrations the registrations of every campus
+     * @param campuses      the campuses whose shard is written
+     * @return the report of every write, one line per shard in campus order
+     * @throws IOException if any shard cannot be written
+     */
+    static List<String> saveAll(Collection<Registration> registrations, Collection<String> campuses) throws IOException {
+        if (campuses.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, List<Registration>> byCampus = new TreeMap<>();
+        for (String campus : campuses) {
+            byCampus.put(campus, new ArrayList<>());
+        }
+        for (Registration r : registrations) {
+            List<Registration> shard = byCampus.get(campusOf(r));
+            if (shard != null) {
+                shard.add(r);
+            }
+        }
+        try {
+            return byCampus.entrySet().parallelStream()
+                    .map(shard -> {
+                        try {
+                            return save(shard.getKey(), shard.getValue());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
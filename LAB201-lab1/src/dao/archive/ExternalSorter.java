@@ -0,0 +1,306 @@
+package dao.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import model.Registration;
+
+/**
+ * Sorts a stream of registrations of any length within a fixed memory budget.
+ * <p>
+ * Records are collected until their estimated footprint reaches the budget, then sorted and
+ * spilled to a temporary run file. When the input is exhausted, the runs are merged with a
+ * priority queue, {@link #getFanIn()} at a time; if there are more runs than that, intermediate
+ * merges produce longer runs first. Each open run costs a read buffer and the objects of one
+ * {@link RegistrationArchiveWriter#RESET_INTERVAL}, so the fan-in is derived from the budget too.
+ * Input that fits the budget is sorted in memory and never spilled.
+ * </p>
+ * <p>
+ * Run files are created in the given directory and deleted as soon as they are merged.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ExternalSorter {
+
+    /**
+     * The buffer size of the run files.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The estimated memory held by one open run reader or writer, in bytes.
+     */
+    static final long STREAM_BYTES = BUFFER_SIZE + RegistrationArchiveWriter.RESET_INTERVAL * 512L;
+
+    /**
+     * The largest number of runs merged at once, bounding the open files.
+     */
+    private static final int MAX_FAN_IN = 128;
+
+    /**
+     * The memory budget of the sort, in bytes.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The directory holding the run files.
+     */
+    private final File tempDir;
+
+    /**
+     * The number of runs spilled by the last sort.
+     */
+    private int runs;
+
+    /**
+     * The number of merge passes of the last sort, counting the final one.
+     */
+    private int passes;
+
+    /**
+     * The number of bytes written to run files by the last sort.
+     */
+    private long spilledBytes;
+
+    /**
+     * Constructs a sorter with a memory budget.
+     *
+     * @param memoryBudget the memory the sort may use, in bytes, at least 1 MB
+     * @param tempDir      the directory for run files, or {@code null} for the system default
+     */
+    public ExternalSorter(long memoryBudget, File tempDir) {
+        if (memoryBudget < (1 << 20)) {
+            throw new IllegalArgumentException("The memory budget must be at least 1 MB!");
+        }
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Estimates the heap footprint of a buffered registration.
+     * <p>
+     * The estimate counts the object, its four own strings at two bytes per character (the
+     * mountain code is shared) and the slots of the buffer and of the merge sort scratch array.
+     * </p>
+     *
+     * @param registration the registration
+     * @return the estimated footprint in bytes
+     */
+    public static long estimateBytes(Registration registration) {
+        long chars = registration.getStudentId().length() + registration.getName().length()
+                + registration.getEmail().length() + registration.getPhone().length();
+        return 40 + 4 * 40 + 2 * chars + 12;
+    }
+
+    /**
+     * Returns the number of runs merged at once.
+     *
+     * @return the fan-in, at least 2
+     */
+    public int getFanIn() {
+        return (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBudget / STREAM_BYTES - 1));
+    }
+
+    /**
+     * Sorts registrations into an archive.
+     *
+     * @param input the registrations to sort
+     * @param order the order of the output
+     * @param out   the archive receiving the sorted registrations, left open
+     * @return the number of registrations written
+     * @throws IOException if a run file or the output cannot be written
+     */
+    public long sort(Iterator<Registration> input, Comparator<Registration> order,
+            RegistrationArchiveWriter out) throws IOException {
+        runs = 0;
+        passes = 0;
+        spilledBytes = 0;
+        Deque<File> files = new ArrayDeque<>();
+        try {
+            long runBudget = Math.max(memoryBudget / 2, memoryBudget - 2 * STREAM_BYTES);
+            List<Registration> buffer = new ArrayList<>();
+            long used = 0;
+            while (input.hasNext()) {
+                Registration registration = input.next();
+                buffer.add(registration);
+                used += estimateBytes(registration);
+                if (used >= runBudget) {
+                    files.add(spill(buffer, order));
+                    buffer = new ArrayList<>();
+                    used = 0;
+                }
+            }
+            if (files.isEmpty()) {
+                buffer.sort(order);
+                for (Registration registration : buffer) {
+                    out.write(registration);
+                }
+                return buffer.size();
+            }
+            if (!buffer.isEmpty()) {
+                files.add(spill(buffer, order));
+            }
+            buffer = null;
+
+            int fanIn = getFanIn();
+            while (files.size() > fanIn) {
+                List<File> group = new ArrayList<>();
+                while (group.size() < fanIn && !files.isEmpty()) {
+                    group.add(files.poll());
+                }
+                File merged = newRunFile();
+                try (RegistrationArchiveWriter writer = runWriter(merged)) {
+                    merge(group, order, writer);
+                }
+                spilledBytes += merged.length();
+                files.add(merged);
+            }
+            return merge(new ArrayList<>(files), order, out);
+        } finally {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Sorts the buffered registrations and writes them to a new run file.
+     *
+     * @param buffer the registrations to spill
+     * @param order  the order of the run
+     * @return the run file
+     * @throws IOException if the run file cannot be written
+     */
+    private File spill(List<Registration> buffer, Comparator<Registration> order) throws IOException {
+        buffer.sort(order);
+        File file = newRunFile();
+        try (RegistrationArchiveWriter writer = runWriter(file)) {
+            for (Registration registration : buffer) {
+                writer.write(registration);
+            }
+        }
+        runs++;
+        spilledBytes += file.length();
+        return file;
+    }
+
+    /**
+     * Merges sorted run files into an archive and deletes them.
+     *
+     * @param files the run files to merge
+     * @param order the order of the runs
+     * @param out   the archive receiving the merged registrations
+     * @return the number of registrations written
+     * @throws IOException if a run cannot be read or the output cannot be written
+     */
+    private long merge(List<File> files, Comparator<Registration> order, RegistrationArchiveWriter out) throws IOException {
+        passes++;
+        List<RegistrationArchiveReader> readers = new ArrayList<>();
+        // Ties are broken by run index, so equal records keep their input order.
+        PriorityQueue<Head> heads = new PriorityQueue<>((h1, h2) -> {
+            int c = order.compare(h1.registration, h2.registration);
+            return c != 0 ? c : Integer.compare(h1.run, h2.run);
+        });
+        long count = 0;
+        try {
+            for (File file : files) {
+                RegistrationArchiveReader reader = new RegistrationArchiveReader(
+                        new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+                readers.add(reader);
+                if (reader.hasNext()) {
+                    heads.add(new Head(reader.next(), readers.size() - 1));
+                }
+            }
+            while (!heads.isEmpty()) {
+                Head head = heads.poll();
+                out.write(head.registration);
+                count++;
+                RegistrationArchiveReader reader = readers.get(head.run);
+                if (reader.hasNext()) {
+                    head.registration = reader.next();
+                    heads.add(head);
+                }
+            }
+        } finally {
+            for (RegistrationArchiveReader reader : readers) {
+                reader.close();
+            }
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates an empty run file.
+     *
+     * @return the run file
+     * @throws IOException if the file cannot be created
+     */
+    private File newRunFile() throws IOException {
+        return File.createTempFile("registrations-run-", ".tmp", tempDir);
+    }
+
+    /**
+     * Opens an uncompressed archive writer on a run file.
+     *
+     * @param file the run file
+     * @return the writer of the run
+     * @throws IOException if the file cannot be opened
+     */
+    private static RegistrationArchiveWriter runWriter(File file) throws IOException {
+        return new RegistrationArchiveWriter(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    /**
+     * Returns the number of runs spilled by the last sort.
+     *
+     * @return the run count, 0 if the input fit the budget
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns the number of merge passes of the last sort.
+     *
+     * @return the pass count, 0 if the input fit the budget
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * Returns the number of bytes written to run files by the last sort.
+     *
+     * @return the spilled bytes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * The current record of a run during a merge.
+     */
+    private static class Head {
+        private Registration registration;
+        private final int run;
+
+        Head(Registration registration, int run) {
+            this.registration = registration;
+            this.run = run;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package dao.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Reads back, one at a time, the registrations written by a {@link RegistrationArchiveWriter}.
+ * <p>
+ * Only the next record is held, so an archive of any size is read in constant memory. The
+ * mountain code of every record is canonicalized as {@code RegistrationDAO} does when loading.
+ * Read errors surface from the iterator methods as {@link UncheckedIOException}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationArchiveReader implements Iterator<Registration>, Closeable {
+
+    /**
+     * The object stream of the archive.
+     */
+    private final ObjectInputStream ois;
+
+    /**
+     * The record read ahead, or {@code null} at the end of the archive.
+     */
+    private Registration next;
+
+    /**
+     * The number of records returned.
+     */
+    private long count;
+
+    /**
+     * Constructs a reader over a stream, checking the archive header and reading the first record.
+     *
+     * @param in the stream holding the archive
+     * @throws IOException if the stream is not an archive or cannot be read
+     */
+    public RegistrationArchiveReader(InputStream in) throws IOException {
+        this.ois = new ObjectInputStream(in);
+        if (ois.readInt() != RegistrationArchiveWriter.MAGIC) {
+            ois.close();
+            throw new IOException("Not a registration archive!");
+        }
+        this.next = readNext();
+    }
+
+    /**
+     * Opens an archive file for reading, inflating it if it is block-compressed.
+     *
+     * @param fileName the archive file to read
+     * @return the reader of the archive
+     * @throws IOException if the file is not an archive or cannot be opened
+     */
+    public static RegistrationArchiveReader open(String fileName) throws IOException {
+        return new RegistrationArchiveReader(BlockFiles.openInput(fileName));
+    }
+
+    /**
+     * Reads the next record of the stream.
+     *
+     * @return the next registration, or {@code null} at the end of the archive
+     * @throws IOException if the stream cannot be read
+     */
+    private Registration readNext() throws IOException {
+        try {
+            Registration registration = (Registration) ois.readObject();
+            if (registration != null) {
+                registration.setMountainCode(registration.getMountainCode());
+            }
+            return registration;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Corrupted registration archive!", e);
+        }
+    }
+
+    /**
+     * Returns whether the archive has more registrations.
+     *
+     * @return {@code true} if {@link #next()} returns a registration
+     */
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * Returns the next registration of the archive.
+     *
+     * @return the next registration
+     * @throws NoSuchElementException if the archive is exhausted
+     * @throws UncheckedIOException if the record after it cannot be read
+     */
+    @Override
+    public Registration next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        Registration current = next;
+        try {
+            next = readNext();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count++;
+        return current;
+    }
+
+    /**
+     * Returns the number of registrations returned so far.
+     *
+     * @return the record count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Closes the archive.
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        ois.close();
+    }
+}
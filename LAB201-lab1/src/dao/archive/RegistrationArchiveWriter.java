@@ -0,0 +1,100 @@
+package dao.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Writes registrations one at a time into an archive that can be read back as a stream.
+ * <p>
+ * {@code Registrations.dat} holds the whole list as one serialized object, so it can only be read
+ * whole. An archive is an object stream starting with {@link #MAGIC} and holding one registration
+ * per object, ended by {@code null}. The stream is reset every {@value #RESET_INTERVAL} records so
+ * neither the writer nor the reader keeps references to the records already passed.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationArchiveWriter implements Closeable {
+
+    /**
+     * The first int of every archive.
+     */
+    public static final int MAGIC = 0x52454741;
+
+    /**
+     * The number of records after which the object stream forgets the objects written.
+     */
+    public static final int RESET_INTERVAL = 256;
+
+    /**
+     * The object stream of the archive.
+     */
+    private final ObjectOutputStream oos;
+
+    /**
+     * The number of records written.
+     */
+    private long count;
+
+    /**
+     * Constructs a writer over a stream and writes the archive header.
+     *
+     * @param out the stream receiving the archive
+     * @throws IOException if the header cannot be written
+     */
+    public RegistrationArchiveWriter(OutputStream out) throws IOException {
+        this.oos = new ObjectOutputStream(out);
+        oos.writeInt(MAGIC);
+    }
+
+    /**
+     * Opens an archive file for writing, block-compressed if a level is configured.
+     *
+     * @param fileName the archive file to write
+     * @return the writer of the archive
+     * @throws IOException if the file cannot be created
+     */
+    public static RegistrationArchiveWriter open(String fileName) throws IOException {
+        return new RegistrationArchiveWriter(BlockFiles.openOutput(fileName));
+    }
+
+    /**
+     * Appends a registration to the archive.
+     *
+     * @param registration the registration to write
+     * @throws IOException if the registration cannot be written
+     */
+    public void write(Registration registration) throws IOException {
+        oos.writeObject(registration);
+        if (++count % RESET_INTERVAL == 0) {
+            oos.reset();
+        }
+    }
+
+    /**
+     * Returns the number of registrations written.
+     *
+     * @return the record count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the end marker and closes the archive.
+     *
+     * @throws IOException if the archive cannot be completed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            oos.writeObject(null);
+        } finally {
+            oos.close();
+        }
+    }
+}
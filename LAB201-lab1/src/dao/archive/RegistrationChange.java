@@ -0,0 +1,125 @@
+package dao.archive;
+
+import dao.event.RegistrationEvent;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import model.Registration;
+
+/**
+ * One difference between two snapshots of the registrations, as found by {@link SnapshotDiff}.
+ * <p>
+ * A change holds the registration before and after it: an added registration has no before, a
+ * removed one has no after. A patch is a sequence of changes, written by a
+ * {@link RegistrationPatchWriter} and applied with {@link dao.RegistrationDAO#applyPatch(List)}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationChange implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The registration before the change, or {@code null} if it was added.
+     */
+    private final Registration before;
+
+    /**
+     * The registration after the change, or {@code null} if it was removed.
+     */
+    private final Registration after;
+
+    /**
+     * Constructs a change.
+     *
+     * @param before the registration before the change, or {@code null} if it was added
+     * @param after  the registration after the change, or {@code null} if it was removed
+     * @throws IllegalArgumentException if both are {@code null}
+     */
+    public RegistrationChange(Registration before, Registration after) {
+        if (before == null && after == null) {
+            throw new IllegalArgumentException("A change needs a registration before or after it!");
+        }
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return {@code CREATED} for an added registration, {@code DELETED} for a removed one,
+     *         {@code UPDATED} otherwise
+     */
+    public RegistrationEvent.Type getType() {
+        return before == null ? RegistrationEvent.Type.CREATED
+                : after == null ? RegistrationEvent.Type.DELETED : RegistrationEvent.Type.UPDATED;
+    }
+
+    /**
+     * Returns the student ID of the changed registration.
+     *
+     * @return the student ID
+     */
+    public String getStudentId() {
+        return before != null ? before.getStudentId() : after.getStudentId();
+    }
+
+    /**
+     * Returns the registration before the change.
+     *
+     * @return the registration, or {@code null} if it was added
+     */
+    public Registration getBefore() {
+        return before;
+    }
+
+    /**
+     * Returns the registration after the change.
+     *
+     * @return the registration, or {@code null} if it was removed
+     */
+    public Registration getAfter() {
+        return after;
+    }
+
+    /**
+     * Lists the fields that differ between the registration before and after the change.
+     *
+     * @return the changes of each field, such as {@code name: "A" -> "B"}; empty unless updated
+     */
+    public List<String> getFieldChanges() {
+        List<String> fields = new ArrayList<>();
+        if (before != null && after != null) {
+            addFieldChange(fields, "name", before.getName(), after.getName());
+            addFieldChange(fields, "email", before.getEmail(), after.getEmail());
+            addFieldChange(fields, "phone", before.getPhone(), after.getPhone());
+            addFieldChange(fields, "mountain code", before.getMountainCode(), after.getMountainCode());
+        }
+        return fields;
+    }
+
+    private static void addFieldChange(List<String> fields, String field, String before, String after) {
+        if (!before.equals(after)) {
+            fields.add(field + ": \"" + before + "\" -> \"" + after + "\"");
+        }
+    }
+
+    /**
+     * Describes the change on one line, starting with {@code +}, {@code -} or {@code ~}.
+     *
+     * @return the description
+     */
+    @Override
+    public String toString() {
+        switch (getType()) {
+            case CREATED:
+                return "+ " + after.getStudentId() + " " + after.getName() + ", " + after.getEmail() + ", "
+                        + after.getPhone() + ", mountain " + after.getMountainCode();
+            case DELETED:
+                return "- " + before.getStudentId() + " " + before.getName();
+            default:
+                return "~ " + before.getStudentId() + " " + String.join("; ", getFieldChanges());
+        }
+    }
+}
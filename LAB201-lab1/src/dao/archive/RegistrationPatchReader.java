@@ -0,0 +1,132 @@
+package dao.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Reads back, one at a time, the changes written by a {@link RegistrationPatchWriter}.
+ * <p>
+ * Read errors surface from the iterator methods as {@link UncheckedIOException}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationPatchReader implements Iterator<RegistrationChange>, Closeable {
+
+    /**
+     * The object stream of the patch.
+     */
+    private final ObjectInputStream ois;
+
+    /**
+     * The change read ahead, or {@code null} at the end of the patch.
+     */
+    private RegistrationChange next;
+
+    /**
+     * Constructs a reader over a stream, checking the patch header and reading the first change.
+     *
+     * @param in the stream holding the patch
+     * @throws IOException if the stream is not a patch or cannot be read
+     */
+    public RegistrationPatchReader(InputStream in) throws IOException {
+        this.ois = new ObjectInputStream(in);
+        if (ois.readInt() != RegistrationPatchWriter.MAGIC) {
+            ois.close();
+            throw new IOException("Not a registration patch!");
+        }
+        this.next = readNext();
+    }
+
+    /**
+     * Opens a patch file for reading, inflating it if it is block-compressed.
+     *
+     * @param fileName the patch file to read
+     * @return the reader of the patch
+     * @throws IOException if the file is not a patch or cannot be opened
+     */
+    public static RegistrationPatchReader open(String fileName) throws IOException {
+        return new RegistrationPatchReader(BlockFiles.openInput(fileName));
+    }
+
+    /**
+     * Reads a whole patch file.
+     *
+     * @param fileName the patch file to read
+     * @return the changes of the patch, in order
+     * @throws IOException if the file is not a patch or cannot be read
+     */
+    public static List<RegistrationChange> readAll(String fileName) throws IOException {
+        List<RegistrationChange> changes = new ArrayList<>();
+        try (RegistrationPatchReader reader = open(fileName)) {
+            while (reader.hasNext()) {
+                changes.add(reader.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return changes;
+    }
+
+    /**
+     * Reads the next change of the stream, canonicalizing the mountain codes it holds.
+     *
+     * @return the next change, or {@code null} at the end of the patch
+     * @throws IOException if the stream cannot be read
+     */
+    private RegistrationChange readNext() throws IOException {
+        try {
+            RegistrationChange change = (RegistrationChange) ois.readObject();
+            if (change != null) {
+                for (Registration r : new Registration[]{change.getBefore(), change.getAfter()}) {
+                    if (r != null) {
+                        r.setMountainCode(r.getMountainCode());
+                    }
+                }
+            }
+            return change;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Corrupted registration patch!", e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * Returns the next change of the patch.
+     *
+     * @return the next change
+     * @throws NoSuchElementException if the patch is exhausted
+     * @throws UncheckedIOException if the change after it cannot be read
+     */
+    @Override
+    public RegistrationChange next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        RegistrationChange current = next;
+        try {
+            next = readNext();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ois.close();
+    }
+}
@@ -0,0 +1,93 @@
+package dao.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import utils.io.BlockFiles;
+
+/**
+ * Writes the changes between two snapshots into a patch, one change at a time.
+ * <p>
+ * A patch is laid out like an archive (see {@link RegistrationArchiveWriter}): an object stream
+ * starting with {@link #MAGIC}, holding one {@link RegistrationChange} per object and ended by
+ * {@code null}, reset regularly so a patch of any size is written and read in constant memory.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationPatchWriter implements Closeable {
+
+    /**
+     * The header identifying a patch, {@code "REGP"}.
+     */
+    public static final int MAGIC = 0x52454750;
+
+    /**
+     * The object stream of the patch.
+     */
+    private final ObjectOutputStream oos;
+
+    /**
+     * The number of changes written.
+     */
+    private long count;
+
+    /**
+     * Constructs a writer over a stream and writes the patch header.
+     *
+     * @param out the stream receiving the patch
+     * @throws IOException if the header cannot be written
+     */
+    public RegistrationPatchWriter(OutputStream out) throws IOException {
+        this.oos = new ObjectOutputStream(out);
+        oos.writeInt(MAGIC);
+    }
+
+    /**
+     * Opens a patch file for writing, block-compressed when a level is configured.
+     *
+     * @param fileName the patch file to write
+     * @return the writer of the patch
+     * @throws IOException if the file cannot be created
+     */
+    public static RegistrationPatchWriter open(String fileName) throws IOException {
+        return new RegistrationPatchWriter(BlockFiles.openOutput(fileName));
+    }
+
+    /**
+     * Writes one change.
+     *
+     * @param change the change to write
+     * @throws IOException if the change cannot be written
+     */
+    public void write(RegistrationChange change) throws IOException {
+        oos.writeObject(change);
+        if (++count % RegistrationArchiveWriter.RESET_INTERVAL == 0) {
+            oos.reset();
+        }
+    }
+
+    /**
+     * Returns the number of changes written so far.
+     *
+     * @return the change count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Ends the patch and closes the stream.
+     *
+     * @throws IOException if the end marker cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            oos.writeObject(null);
+        } finally {
+            oos.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package dao.archive;
+
+import dao.query.SortKey;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Finds the changes between two snapshots of the registrations by merging them in student ID order.
+ * <p>
+ * Both snapshots are read as streams sorted by student ID and walked side by side: an ID only in
+ * the old snapshot was removed, an ID only in the new one was added, and an ID in both was modified
+ * if any field differs. Sorted snapshots are compared in one linear pass holding a single record of
+ * each. {@link #open(String)} turns any snapshot into such a stream: an archive is streamed as is,
+ * or through an {@link ExternalSorter} if it is not sorted, and a {@code Registrations.dat} file,
+ * which can only be read whole, is spilled to a temporary archive so the two snapshots are never
+ * held together.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class SnapshotDiff {
+
+    /**
+     * The order of the compared streams.
+     */
+    private static final Comparator<Registration> ORDER = SortKey.STUDENT_ID.comparator();
+
+    /**
+     * A snapshot streamed in student ID order, deleting its temporary archive when closed.
+     */
+    public static final class Snapshot implements Iterator<Registration>, Closeable {
+
+        /**
+         * The reader of the sorted archive.
+         */
+        private final RegistrationArchiveReader reader;
+
+        /**
+         * The temporary archive, or {@code null} if the snapshot is read in place.
+         */
+        private final File temporary;
+
+        private Snapshot(RegistrationArchiveReader reader, File temporary) {
+            this.reader = reader;
+            this.temporary = temporary;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return reader.hasNext();
+        }
+
+        @Override
+        public Registration next() {
+            return reader.next();
+        }
+
+        /**
+         * Closes the archive and deletes it if it is temporary.
+         *
+         * @throws IOException if the archive cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } finally {
+                if (temporary != null) {
+                    temporary.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * The sorter of the archives that are not sorted yet.
+     */
+    private final ExternalSorter sorter;
+
+    /**
+     * The directory of the temporary archives, or {@code null} for the system default.
+     */
+    private final File tempDir;
+
+    /**
+     * The numbers of registrations added, removed, modified and unchanged by the last diff.
+     */
+    private long added, removed, modified, unchanged;
+
+    /**
+     * Constructs a diff sorting unsorted snapshots within a memory budget.
+     *
+     * @param memoryBudget the memory the sort of one snapshot may use, in bytes, at least 1 MB
+     * @param tempDir      the directory for temporary archives, or {@code null} for the system default
+     */
+    public SnapshotDiff(long memoryBudget, File tempDir) {
+        this.sorter = new ExternalSorter(memoryBudget, tempDir);
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Checks in one streaming pass whether an archive is sorted by student ID.
+     *
+     * @param fileName the archive
+     * @return {@code true} if every student ID is greater than the previous one
+     * @throws IOException if the file is not an archive or cannot be read
+     */
+    private static boolean isSorted(String fileName) throws IOException {
+        try (RegistrationArchiveReader reader = RegistrationArchiveReader.open(fileName)) {
+            Registration previous = null;
+            while (reader.hasNext()) {
+                Registration current = reader.next();
+                if (previous != null && ORDER.compare(previous, current) >= 0) {
+                    return false;
+                }
+                previous = current;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Opens a snapshot, an archive or a {@code Registrations.dat} file, as a stream sorted by student ID.
+     *
+     * @param fileName the snapshot
+     * @return the sorted stream, to close once read
+     * @throws IOException if the file is neither an archive nor a registration file, or cannot be read
+     */
+    public Snapshot open(String fileName) throws IOException {
+        boolean sorted;
+        try {
+            sorted = isSorted(fileName);
+        } catch (IOException notArchive) {
+            return spill(fileName);
+        }
+        if (sorted) {
+            return new Snapshot(RegistrationArchiveReader.open(fileName), null);
+        }
+        File temporary = File.createTempFile("snapshot", ".arc", tempDir);
+        try (RegistrationArchiveReader reader = RegistrationArchiveReader.open(fileName);
+                RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(temporary.getPath())) {
+            sorter.sort(reader, ORDER, writer);
+        } catch (IOException | RuntimeException e) {
+            temporary.delete();
+            throw e;
+        }
+        return new Snapshot(RegistrationArchiveReader.open(temporary.getPath()), temporary);
+    }
+
+    /**
+     * Reads a {@code Registrations.dat} file whole, sorts it and spills it to a temporary archive.
+     *
+     * @param fileName the registration file
+     * @return the stream of the temporary archive
+     * @throws IOException if the file cannot be read or the archive written
+     */
+    @SuppressWarnings("unchecked")
+    private Snapshot spill(String fileName) throws IOException {
+        List<Registration> registrations;
+        try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(fileName))) {
+            registrations = (List<Registration>) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(fileName + " is neither an archive nor a registration file!", e);
+        }
+        registrations.sort(ORDER);
+        File temporary = File.createTempFile("snapshot", ".arc", tempDir);
+        try (RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(temporary.getPath())) {
+            for (Registration registration : registrations) {
+                writer.write(registration);
+            }
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        return new Snapshot(RegistrationArchiveReader.open(temporary.getPath()), temporary);
+    }
+
+    /**
+     * Returns the next registration of a sorted stream, checking the order.
+     *
+     * @param stream   the stream
+     * @param previous the registration returned before, or {@code null}
+     * @return the next registration, or {@code null} at the end of the stream
+     * @throws IllegalArgumentException if the stream is not sorted by student ID or repeats an ID
+     */
+    private static Registration advance(Iterator<Registration> stream, Registration previous) {
+        if (!stream.hasNext()) {
+            return null;
+        }
+        Registration next = stream.next();
+        if (previous != null && ORDER.compare(previous, next) >= 0) {
+            throw new IllegalArgumentException("The snapshot is not sorted by student ID at " + next.getStudentId());
+        }
+        return next;
+    }
+
+    /**
+     * Merges two snapshots sorted by student ID and reports their differences in that order.
+     *
+     * @param before  the old snapshot, sorted by student ID
+     * @param after   the new snapshot, sorted by student ID
+     * @param changes receives every added, removed and modified registration
+     * @throws IllegalArgumentException if a snapshot is not sorted by student ID or repeats an ID
+     */
+    public void diff(Iterator<Registration> before, Iterator<Registration> after, Consumer<RegistrationChange> changes) {
+        added = removed = modified = unchanged = 0;
+        Registration old = advance(before, null);
+        Registration current = advance(after, null);
+        while (old != null || current != null) {
+            int order = old == null ? 1 : current == null ? -1 : ORDER.compare(old, current);
+            if (order < 0) {
+                changes.accept(new RegistrationChange(old, null));
+                removed++;
+                old = advance(before, old);
+            } else if (order > 0) {
+                changes.accept(new RegistrationChange(null, current));
+                added++;
+                current = advance(after, current);
+            } else {
+                RegistrationChange change = new RegistrationChange(old, current);
+                if (change.getFieldChanges().isEmpty()) {
+                    unchanged++;
+                } else {
+                    changes.accept(change);
+                    modified++;
+                }
+                old = advance(before, old);
+                current = advance(after, current);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of registrations added by the last diff.
+     *
+     * @return the added count
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the number of registrations removed by the last diff.
+     *
+     * @return the removed count
+     */
+    public long getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns the number of registrations modified by the last diff.
+     *
+     * @return the modified count
+     */
+    public long getModified() {
+        return modified;
+    }
+
+    /**
+     * Returns the number of registrations left unchanged by the last diff.
+     *
+     * @return the unchanged count
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+}
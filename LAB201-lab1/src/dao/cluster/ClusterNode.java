@@ -0,0 +1,240 @@
+package dao.cluster;
+
+import dao.RegistrationDAO;
+import dao.query.RegistrationField;
+import dao.query.RegistrationQuery;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import model.Registration;
+
+/**
+ * A cluster node: serves the requests of a {@link ClusterRouter} on its own {@link RegistrationDAO}.
+ * <p>
+ * Each node process runs in its own directory and holds the registrations the ring assigns to
+ * it, in that directory's {@code Registrations.dat}. Every connection is served on its own
+ * thread; the DAO's lock orders concurrent requests.
+ * </p>
+ * <p>
+ * The node listens on the loopback address unless another one is given, since the requests
+ * are not authenticated. Requests are deserialized through {@link #REQUEST_FILTER}, which only
+ * admits the classes of a {@link ClusterRequest} and its arguments.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar dao.cluster.ClusterNode <port> [bind address]}; the
+ * node prints {@code READY <port>} once it accepts connections.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ClusterNode implements Closeable {
+
+    /**
+     * The classes a request may be made of: the request, its operation, ring ranges,
+     * registrations, lists of them, and the numbers and strings of the other arguments.
+     */
+    static final ObjectInputFilter REQUEST_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=8;dao.cluster.ClusterRequest;dao.cluster.ClusterRequest$Op;dao.cluster.HashRing$Range;"
+            + "model.Registration;java.util.ArrayList;java.lang.Enum;java.lang.Number;java.lang.Integer;"
+            + "java.lang.Object;!*");
+
+    /**
+     * The registrations held by this node.
+     */
+    private final RegistrationDAO rdao;
+
+    /**
+     * The socket accepting the router's connections.
+     */
+    private final ServerSocket server;
+
+    /**
+     * Whether the node has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Starts a node serving a DAO on the loopback address.
+     *
+     * @param rdao the registrations of the node
+     * @param port the port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    public ClusterNode(RegistrationDAO rdao, int port) throws IOException {
+        this(rdao, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Starts a node serving a DAO.
+     *
+     * @param rdao    the registrations of the node
+     * @param address the address to listen on
+     * @param port    the port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    public ClusterNode(RegistrationDAO rdao, InetAddress address, int port) throws IOException {
+        this.rdao = rdao;
+        this.server = new ServerSocket(port, 0, address);
+    }
+
+    /**
+     * Accepts connections until the node is closed.
+     */
+    public void serve() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "cluster-node-" + socket.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // Closing the server socket ends the loop.
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until it is closed.
+     *
+     * @param socket the connection
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            oos.flush();
+            ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(s.getInputStream()));
+            ois.setObjectInputFilter(REQUEST_FILTER);
+            while (!closed) {
+                ClusterRequest request = (ClusterRequest) ois.readObject();
+                Object result;
+                try {
+                    result = handle(request);
+                } catch (RuntimeException e) {
+                    result = e;
+                }
+                oos.writeObject(result);
+                oos.reset();
+                oos.flush();
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // The router disconnected.
+        }
+    }
+
+    /**
+     * Performs one request on the node's registrations.
+     *
+     * @param request the request
+     * @return the result of the operation
+     */
+    @SuppressWarnings("unchecked")
+    Object handle(ClusterRequest request) {
+        switch (request.getOp()) {
+            case CREATE:
+                return rdao.create((Registration) request.arg(0));
+            case UPDATE:
+                return rdao.update((String) request.arg(0), (Registration) request.arg(1));
+            case DELETE:
+                return rdao.delete((String) request.arg(0));
+            case RETRIEVE:
+                return rdao.retrieve((String) request.arg(0));
+            case UNIQUE:
+                return rdao.isUnique((Integer) request.arg(0), (String) request.arg(1));
+            case SEARCH_NAME:
+                return new ArrayList<>(rdao.query(RegistrationQuery.equal(RegistrationField.NAME, (String) request.arg(0))));
+            case SEARCH_CAMPUS:
+                return new ArrayList<>(rdao.query(RegistrationQuery.prefix(RegistrationField.STUDENT_ID, (String) request.arg(0))));
+            case STATISTICS:
+                PartialStatistics statistics = new PartialStatistics();
+                for (Registration r : rdao.snapshot()) {
+                    statistics.add(r);
+                }
+                return statistics;
+            case COPY:
+                return extract((List<HashRing.Range>) request.arg(0), false);
+            case EXTRACT:
+                return extract((List<HashRing.Range>) request.arg(0), true);
+            case INGEST:
+                synchronized (rdao) {
+                    List<Registration> merged = rdao.snapshot();
+                    merged.addAll((List<Registration>) request.arg(0));
+                    rdao.install(merged);
+                    return rdao.size();
+                }
+            case SIZE:
+                return rdao.size();
+            case SAVE:
+                return rdao.save();
+            case SHUTDOWN:
+                close();
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + request.getOp());
+        }
+    }
+
+    /**
+     * Returns the registrations whose student ID hashes into the given ranges.
+     *
+     * @param ranges the ranges handed over to another node
+     * @param remove whether the registrations are removed from this node
+     * @return the registrations in the ranges
+     */
+    private ArrayList<Registration> extract(List<HashRing.Range> ranges, boolean remove) {
+        synchronized (rdao) {
+            ArrayList<Registration> moved = new ArrayList<>();
+            List<Registration> kept = new ArrayList<>();
+            for (Registration r : rdao.snapshot()) {
+                long position = HashRing.hash(r.getStudentId().toUpperCase());
+                boolean leaving = false;
+                for (HashRing.Range range : ranges) {
+                    if (range.contains(position)) {
+                        leaving = true;
+                        break;
+                    }
+                }
+                (leaving ? moved : kept).add(r);
+            }
+            if (remove && !moved.isEmpty()) {
+                rdao.install(kept);
+            }
+            return moved;
+        }
+    }
+
+    /**
+     * Stops accepting connections; served connections end with their next request.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    /**
+     * Runs a node on the registrations of the current directory.
+     *
+     * @param args the port to listen on, then optionally the address to bind instead of loopback
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        ClusterNode node = new ClusterNode(new RegistrationDAO(), address, port);
+        System.out.println("READY " + port);
+        node.serve();
+    }
+}
@@ -0,0 +1,94 @@
+package dao.cluster;
+
+import java.io.Serializable;
+
+/**
+ * A request sent by the {@link ClusterRouter} to a {@link ClusterNode}.
+ * <p>
+ * The node answers every request with one object: the result of the operation, or the
+ * exception that made it fail.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class ClusterRequest implements Serializable {
+
+    /**
+     * The serialization version of the format.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The operations of a node, with their arguments and results.
+     */
+    public enum Op {
+        /** Registration to add; returns whether it was added. */
+        CREATE,
+        /** Student ID and replacing registration; returns the replaced one or {@code null}. */
+        UPDATE,
+        /** Student ID; returns the deleted registration or {@code null}. */
+        DELETE,
+        /** Student ID; returns the registration or {@code null}. */
+        RETRIEVE,
+        /** Field number and value as in {@code RegistrationDAO.isUnique(int, String)}; returns whether no local record has it. */
+        UNIQUE,
+        /** Student name; returns the local registrations with that name. */
+        SEARCH_NAME,
+        /** Campus code; returns the local registrations of that campus. */
+        SEARCH_CAMPUS,
+        /** No argument; returns the local {@link PartialStatistics}. */
+        STATISTICS,
+        /** List of ring ranges; returns the local registrations hashed into them and keeps them. */
+        COPY,
+        /** List of ring ranges; removes and returns the local registrations hashed into them. */
+        EXTRACT,
+        /** List of registrations; adds them and returns the new local count. */
+        INGEST,
+        /** No argument; returns the local count. */
+        SIZE,
+        /** No argument; saves the local registrations and returns whether it succeeded. */
+        SAVE,
+        /** No argument; stops the node. */
+        SHUTDOWN
+    }
+
+    /**
+     * The requested operation.
+     */
+    private final Op op;
+
+    /**
+     * The arguments of the operation.
+     */
+    private final Object[] args;
+
+    /**
+     * Constructs a request.
+     *
+     * @param op   the operation
+     * @param args the arguments of the operation
+     */
+    public ClusterRequest(Op op, Object... args) {
+        this.op = op;
+        this.args = args;
+    }
+
+    /**
+     * Returns the requested operation.
+     *
+     * @return the operation
+     */
+    public Op getOp() {
+        return op;
+    }
+
+    /**
+     * Returns an argument of the operation.
+     *
+     * @param index the position of the argument
+     * @return the argument
+     */
+    public Object arg(int index) {
+        return args[index];
+    }
+}
@@ -0,0 +1,439 @@
+package dao.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import model.Registration;
+
+/**
+ * Routes registration operations to the {@link ClusterNode}s owning them on a {@link HashRing}.
+ * <p>
+ * A registration lives on the node its student ID hashes to, so create, update, delete and
+ * retrieve by ID reach exactly one node. Searches by name or campus, the uniqueness of emails
+ * and phones, and statistics are sent to every node in parallel and their partial results are
+ * merged. Adding a node moves only the registrations of the ring arcs it takes over.
+ * </p>
+ * <p>
+ * The method names follow {@code RegistrationDAO}, whose callers can be moved to the router
+ * one by one. A node that cannot be reached makes the call fail with an
+ * {@link UncheckedIOException}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ClusterRouter implements Closeable {
+
+    /**
+     * The number of registrations sent to a node per bulk load request.
+     */
+    private static final int LOAD_CHUNK = 10_000;
+
+    /**
+     * The ring assigning student IDs to node IDs.
+     */
+    private HashRing ring;
+
+    /**
+     * The connections to the nodes by node ID, in the order the nodes were added.
+     */
+    private final Map<String, NodeClient> clients = new LinkedHashMap<>();
+
+    /**
+     * The threads sending scatter-gather requests.
+     */
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "cluster-router");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a router with no nodes.
+     *
+     * @param virtualNodes the number of virtual nodes per node on the ring
+     */
+    public ClusterRouter(int virtualNodes) {
+        this.ring = new HashRing(virtualNodes);
+    }
+
+    /**
+     * Constructs a router with no nodes and {@link HashRing#DEFAULT_VIRTUAL_NODES}.
+     */
+    public ClusterRouter() {
+        this(HashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Adds a node to the cluster and moves to it the registrations of the arcs it now owns.
+     * <p>
+     * Each batch is copied from its current owner, ingested by the new node, and only then
+     * removed from the owner. If any step fails, the batches already removed are ingested back
+     * by their owners, the new node is emptied as far as it can be reached, and the cluster keeps
+     * its previous ring.
+     * </p>
+     *
+     * @param id   the node ID on the ring
+     * @param host the host of the node
+     * @param port the port of the node
+     * @return the number of registrations moved to the new node
+     * @throws IOException if a node cannot be reached
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int addNode(String id, String host, int port) throws IOException {
+        if (clients.containsKey(id)) {
+            throw new IllegalArgumentException("Node " + id + " is already in the cluster");
+        }
+        NodeClient client = new NodeClient(id, host, port);
+        HashRing next = ring.copy();
+        next.add(id);
+
+        Map<String, ArrayList<HashRing.Range>> handedOver = new HashMap<>();
+        if (!ring.getNodes().isEmpty()) {
+            for (HashRing.Range range : next.rangesOf(id)) {
+                handedOver.computeIfAbsent(ring.ownerOf(range.getTo()), k -> new ArrayList<>()).add(range);
+            }
+        }
+        int moved = 0;
+        Map<NodeClient, List<Registration>> removed = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, ArrayList<HashRing.Range>> e : handedOver.entrySet()) {
+                NodeClient source = clients.get(e.getKey());
+                List<Registration> registrations = (List<Registration>) source.call(ClusterRequest.Op.COPY, e.getValue());
+                if (!registrations.isEmpty()) {
+                    client.call(ClusterRequest.Op.INGEST, registrations);
+                    removed.put(source, (List<Registration>) source.call(ClusterRequest.Op.EXTRACT, e.getValue()));
+                }
+                moved += registrations.size();
+            }
+        } catch (IOException e) {
+            rollBack(client, next.rangesOf(id), removed, e);
+            throw e;
+        }
+        clients.put(id, client);
+        ring = next;
+        return moved;
+    }
+
+    /**
+     * Undoes a failed {@link #addNode}: gives the removed batches back to their owners, then
+     * empties and disconnects the new node.
+     *
+     * @param client  the new node
+     * @param ranges  the ranges the new node would have owned
+     * @param removed the batches removed from each owner
+     * @param failure the failure of the move, to which further failures are added as suppressed
+     */
+    private static void rollBack(NodeClient client, List<HashRing.Range> ranges,
+            Map<NodeClient, List<Registration>> removed, IOException failure) {
+        for (Map.Entry<NodeClient, List<Registration>> e : removed.entrySet()) {
+            try {
+                e.getKey().call(ClusterRequest.Op.INGEST, e.getValue());
+            } catch (IOException ex) {
+                failure.addSuppressed(ex);
+            }
+        }
+        try {
+            client.call(ClusterRequest.Op.EXTRACT, new ArrayList<>(ranges));
+        } catch (IOException ex) {
+            // The new node is not in the ring, so whatever it still holds is never read.
+        }
+        try {
+            client.close();
+        } catch (IOException ex) {
+            // Already disconnected.
+        }
+    }
+
+    /**
+     * Returns the connection to the node owning a student ID.
+     *
+     * @param studentId the student ID
+     * @return the owning node
+     */
+    private synchronized NodeClient ownerOf(String studentId) {
+        if (clients.isEmpty()) {
+            throw new IllegalStateException("The cluster has no nodes");
+        }
+        return clients.get(ring.nodeFor(studentId.toUpperCase()));
+    }
+
+    /**
+     * Sends a request to one node, turning a failure into an unchecked exception.
+     *
+     * @param client the node
+     * @param op     the operation
+     * @param args   the arguments of the operation
+     * @return the result of the operation
+     */
+    private static Object call(NodeClient client, ClusterRequest.Op op, Object... args) {
+        try {
+            return client.call(op, args);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot reach node " + client.getId(), e);
+        }
+    }
+
+    /**
+     * Sends a request to every node in parallel and collects the results.
+     *
+     * @param op   the operation
+     * @param args the arguments of the operation
+     * @return the result of every node, in the order the nodes were added
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> scatter(ClusterRequest.Op op, Object... args) {
+        List<Future<Object>> futures = new ArrayList<>();
+        for (NodeClient client : nodes()) {
+            futures.add(pool.submit(() -> call(client, op, args)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<Object> future : futures) {
+            try {
+                results.add((T) future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the nodes", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the connections to the current nodes.
+     *
+     * @return a copy of the node connections
+     */
+    private synchronized List<NodeClient> nodes() {
+        return new ArrayList<>(clients.values());
+    }
+
+    /**
+     * Merges the registration lists of the nodes in student ID order.
+     *
+     * @param parts the lists returned by the nodes
+     * @return the merged list
+     */
+    private static List<Registration> merge(List<List<Registration>> parts) {
+        List<Registration> merged = new ArrayList<>();
+        for (List<Registration> part : parts) {
+            merged.addAll(part);
+        }
+        merged.sort(Comparator.comparing(Registration::getStudentId));
+        return merged;
+    }
+
+    /**
+     * Loads registrations into an empty or running cluster, in bulk per node.
+     *
+     * @param registrations the registrations to load
+     * @return the number of registrations held by the cluster afterwards
+     */
+    public int load(List<Registration> registrations) {
+        Map<NodeClient, List<Registration>> batches = new HashMap<>();
+        for (Registration r : registrations) {
+            NodeClient owner = ownerOf(r.getStudentId());
+            List<Registration> batch = batches.computeIfAbsent(owner, k -> new ArrayList<>());
+            batch.add(r);
+            if (batch.size() == LOAD_CHUNK) {
+                call(owner, ClusterRequest.Op.INGEST, new ArrayList<>(batch));
+                batch.clear();
+            }
+        }
+        for (Map.Entry<NodeClient, List<Registration>> e : batches.entrySet()) {
+            if (!e.getValue().isEmpty()) {
+                call(e.getKey(), ClusterRequest.Op.INGEST, e.getValue());
+            }
+        }
+        return size();
+    }
+
+    /**
+     * Creates a registration on its owning node.
+     *
+     * @param registration the registration to create
+     * @return {@code true} if it was created
+     */
+    public boolean create(Registration registration) {
+        return (Boolean) call(ownerOf(registration.getStudentId()), ClusterRequest.Op.CREATE, registration);
+    }
+
+    /**
+     * Updates a registration on its owning node.
+     *
+     * @param id           the student ID
+     * @param registration the new registration
+     * @return the previous registration, or {@code null} if there was none
+     */
+    public Registration update(String id, Registration registration) {
+        return (Registration) call(ownerOf(id), ClusterRequest.Op.UPDATE, id, registration);
+    }
+
+    /**
+     * Deletes a registration from its owning node.
+     *
+     * @param id the student ID
+     * @return the deleted registration, or {@code null} if there was none
+     */
+    public Registration delete(String id) {
+        return (Registration) call(ownerOf(id), ClusterRequest.Op.DELETE, id);
+    }
+
+    /**
+     * Retrieves a registration from its owning node.
+     *
+     * @param studentID the student ID
+     * @return the registration, or {@code null} if there is none
+     */
+    public Registration retrieve(String studentID) {
+        return (Registration) call(ownerOf(studentID), ClusterRequest.Op.RETRIEVE, studentID);
+    }
+
+    /**
+     * Checks if a particular field value is unique in the cluster.
+     * <p>
+     * Student IDs are checked on their owning node only; emails and phones on every node.
+     * </p>
+     *
+     * @param field the field index to check (0 for student ID, 3 for email, 2 for phone)
+     * @param value the value to check for uniqueness
+     * @return {@code true} if the value is unique; {@code false} otherwise
+     */
+    public boolean isUnique(int field, String value) {
+        if (field == 0) {
+            return (Boolean) call(ownerOf(value), ClusterRequest.Op.UNIQUE, field, value);
+        }
+        for (Boolean unique : this.<Boolean>scatter(ClusterRequest.Op.UNIQUE, field, value)) {
+            if (!unique) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a registration has a unique student ID, email, and phone in the cluster.
+     *
+     * @param registration the registration to check
+     * @return {@code true} if the registration is unique; {@code false} otherwise
+     */
+    public boolean isUnique(Registration registration) {
+        return isUnique(0, registration.getStudentId())
+                && isUnique(3, registration.getEmail())
+                && isUnique(2, registration.getPhone());
+    }
+
+    /**
+     * Searches every node for registrations with a name.
+     *
+     * @param name the student name
+     * @return the matching registrations in student ID order
+     */
+    public List<Registration> searchByName(String name) {
+        return merge(scatter(ClusterRequest.Op.SEARCH_NAME, name));
+    }
+
+    /**
+     * Searches every node for registrations of a campus.
+     *
+     * @param campus the campus code
+     * @return the matching registrations in student ID order
+     */
+    public List<Registration> searchByCampus(String campus) {
+        return merge(scatter(ClusterRequest.Op.SEARCH_CAMPUS, campus));
+    }
+
+    /**
+     * Computes the statistics of the cluster from the partial statistics of every node.
+     *
+     * @return the merged statistics
+     */
+    public PartialStatistics gatherStatistics() {
+        PartialStatistics total = new PartialStatistics();
+        for (PartialStatistics part : this.<PartialStatistics>scatter(ClusterRequest.Op.STATISTICS)) {
+            total.merge(part);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of registrations held by each node.
+     *
+     * @return the sizes by node ID, in the order the nodes were added
+     */
+    public synchronized Map<String, Integer> sizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        List<Integer> results = scatter(ClusterRequest.Op.SIZE);
+        int i = 0;
+        for (String id : clients.keySet()) {
+            sizes.put(id, results.get(i++));
+        }
+        return sizes;
+    }
+
+    /**
+     * Returns the number of registrations in the cluster.
+     *
+     * @return the total number of registrations
+     */
+    public int size() {
+        int size = 0;
+        for (Integer part : this.<Integer>scatter(ClusterRequest.Op.SIZE)) {
+            size += part;
+        }
+        return size;
+    }
+
+    /**
+     * Saves the registrations of every node to its own files.
+     *
+     * @return {@code true} if every node saved successfully
+     */
+    public boolean save() {
+        boolean saved = true;
+        for (Boolean part : this.<Boolean>scatter(ClusterRequest.Op.SAVE)) {
+            saved &= part;
+        }
+        return saved;
+    }
+
+    /**
+     * Returns the ring assigning student IDs to node IDs.
+     *
+     * @return a copy of the ring
+     */
+    public synchronized HashRing getRing() {
+        return ring.copy();
+    }
+
+    /**
+     * Stops every node and closes the connections.
+     */
+    @Override
+    public synchronized void close() {
+        for (NodeClient client : clients.values()) {
+            try {
+                client.call(ClusterRequest.Op.SHUTDOWN);
+                client.close();
+            } catch (IOException e) {
+                // The node is already gone.
+            }
+        }
+        clients.clear();
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,226 @@
+package dao.cluster;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A consistent-hash ring mapping student IDs to cluster nodes.
+ * <p>
+ * Each node is placed on a 64-bit ring at {@link #getVirtualNodes()} positions, and a key belongs
+ * to the node at the first position at or after the key's hash, wrapping around. Many virtual
+ * nodes per node spread the keys evenly, and adding a node only takes over the arcs just before
+ * its own positions, about {@code 1 / (N + 1)} of the keys, each from a single previous owner.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class HashRing {
+
+    /**
+     * The default number of positions of each node.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * The number of positions of each node.
+     */
+    private final int virtualNodes;
+
+    /**
+     * The node at each position of the ring.
+     */
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * The nodes on the ring.
+     */
+    private final Set<String> nodes = new TreeSet<>();
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param virtualNodes the number of positions of each node, at least 1
+     */
+    public HashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("The number of virtual nodes must be at least 1!");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Hashes a string to a position on the ring.
+     * <p>
+     * FNV-1a over the characters, followed by the MurmurHash3 finalizer so that similar
+     * student IDs land far apart.
+     * </p>
+     *
+     * @param key the string to hash
+     * @return the 64-bit position
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Places a node on the ring.
+     *
+     * @param node the node ID
+     * @return {@code true} if the node was added; {@code false} if it was already on the ring
+     */
+    public boolean add(String node) {
+        if (!nodes.add(node)) {
+            return false;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.putIfAbsent(hash(node + "#" + i), node);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of this ring.
+     *
+     * @return a ring with the same nodes
+     */
+    public HashRing copy() {
+        HashRing copy = new HashRing(virtualNodes);
+        copy.ring.putAll(ring);
+        copy.nodes.addAll(nodes);
+        return copy;
+    }
+
+    /**
+     * Returns the node owning a position.
+     *
+     * @param position the position on the ring
+     * @return the node at the first position at or after it, or {@code null} if the ring is empty
+     */
+    public String ownerOf(long position) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(position);
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Returns the node owning a key.
+     *
+     * @param key the key, a student ID
+     * @return the owning node, or {@code null} if the ring is empty
+     */
+    public String nodeFor(String key) {
+        return ownerOf(hash(key));
+    }
+
+    /**
+     * Returns the arcs of the ring owned by a node.
+     *
+     * @param node the node ID
+     * @return the arcs ending at each position of the node
+     */
+    public List<Range> rangesOf(String node) {
+        List<Range> ranges = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : ring.entrySet()) {
+            if (entry.getValue().equals(node)) {
+                Long previous = ring.lowerKey(entry.getKey());
+                ranges.add(new Range(previous != null ? previous : ring.lastKey(), entry.getKey()));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the nodes on the ring.
+     *
+     * @return the node IDs in order
+     */
+    public Set<String> getNodes() {
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    /**
+     * Returns the number of positions of each node.
+     *
+     * @return the virtual node count
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * An arc of the ring, from an exclusive to an inclusive position, possibly wrapping around.
+     */
+    public static final class Range implements Serializable {
+
+        /**
+     * The serialization version of the format.
+     */
+    private static final long serialVersionUID = 1L;
+
+        /**
+         * The position just before the arc.
+         */
+        private final long from;
+
+        /**
+         * The last position of the arc.
+         */
+        private final long to;
+
+        /**
+         * Constructs an arc; equal ends denote the whole ring.
+         *
+         * @param from the position just before the arc
+         * @param to   the last position of the arc
+         */
+        public Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Checks whether a position lies on the arc.
+         *
+         * @param position the position
+         * @return {@code true} if the position is on the arc
+         */
+        public boolean contains(long position) {
+            if (from < to) {
+                return from < position && position <= to;
+            }
+            return from == to || position > from || position <= to;
+        }
+
+        /**
+         * Returns the last position of the arc.
+         *
+         * @return the inclusive end
+         */
+        public long getTo() {
+            return to;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + from + ", " + to + "]";
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package dao.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+
+/**
+ * The router's connection to one {@link ClusterNode}, sending one request at a time.
+ * 
+ * @author ho huy
+ */
+final class NodeClient implements Closeable {
+
+    /**
+     * The node ID on the ring.
+     */
+    private final String id;
+
+    /**
+     * The connection to the node.
+     */
+    private final Socket socket;
+
+    /**
+     * The request stream.
+     */
+    private final ObjectOutputStream oos;
+
+    /**
+     * The response stream.
+     */
+    private final ObjectInputStream ois;
+
+    /**
+     * Connects to a node.
+     *
+     * @param id   the node ID on the ring
+     * @param host the host of the node
+     * @param port the port of the node
+     * @throws IOException if the node cannot be reached
+     */
+    NodeClient(String id, String host, int port) throws IOException {
+        this.id = id;
+        this.socket = new Socket(host, port);
+        this.oos = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        oos.flush();
+        this.ois = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Sends a request and waits for its result.
+     *
+     * @param op   the operation
+     * @param args the arguments of the operation
+     * @return the result of the operation
+     * @throws IOException if the node cannot be reached or the operation failed on the node
+     */
+    synchronized Object call(ClusterRequest.Op op, Object... args) throws IOException {
+        oos.writeObject(new ClusterRequest(op, args));
+        oos.reset();
+        oos.flush();
+        Object result;
+        try {
+            result = ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        if (result instanceof Throwable) {
+            throw new IOException("Node " + id + " failed to " + op, (Throwable) result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node ID on the ring.
+     *
+     * @return the node ID
+     */
+    String getId() {
+        return id;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,113 @@
+package dao.cluster;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import model.CampusStatistic;
+import model.Mountain;
+import model.Registration;
+import model.Statistic;
+
+/**
+ * Participant counts and fee totals by mountain and by campus, for a part of the registrations.
+ * <p>
+ * Each node aggregates its own registrations, and the router merges the parts, so statistics
+ * are computed where the data lives and only a few numbers per node travel.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class PartialStatistics implements Serializable {
+
+    /**
+     * The serialization version of the format.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The participants and total fee by mountain code.
+     */
+    private final HashMap<String, double[]> mountains = new HashMap<>();
+
+    /**
+     * The participants and total fee by campus code.
+     */
+    private final HashMap<String, double[]> campuses = new HashMap<>();
+
+    /**
+     * Counts one registration.
+     *
+     * @param registration the registration
+     */
+    public void add(Registration registration) {
+        add(mountains, registration.getMountainCode(), 1, registration.getFee());
+        add(campuses, registration.getStudentId().substring(0, 2), 1, registration.getFee());
+    }
+
+    /**
+     * Adds the counts of another part.
+     *
+     * @param other the other part
+     */
+    public void merge(PartialStatistics other) {
+        for (Map.Entry<String, double[]> e : other.mountains.entrySet()) {
+            add(mountains, e.getKey(), e.getValue()[0], e.getValue()[1]);
+        }
+        for (Map.Entry<String, double[]> e : other.campuses.entrySet()) {
+            add(campuses, e.getKey(), e.getValue()[0], e.getValue()[1]);
+        }
+    }
+
+    /**
+     * Adds participants and fees to the total of a key.
+     *
+     * @param totals       the totals to update
+     * @param key          the mountain or campus code
+     * @param participants the participants to add
+     * @param fee          the fees to add
+     */
+    private static void add(Map<String, double[]> totals, String key, double participants, double fee) {
+        double[] total = totals.computeIfAbsent(key, k -> new double[2]);
+        total[0] += participants;
+        total[1] += fee;
+    }
+
+    /**
+     * Returns the statistics of every known mountain, as {@code StatisticsView} does.
+     *
+     * @param mountainList the known mountains, in display order
+     * @return the statistics by mountain code
+     */
+    public LinkedHashMap<String, Statistic> toStatistics(List<Mountain> mountainList) {
+        LinkedHashMap<String, Statistic> result = new LinkedHashMap<>();
+        for (Mountain m : mountainList) {
+            Statistic s = new Statistic(m.getCode());
+            double[] total = mountains.get(m.getCode());
+            if (total != null) {
+                s.setParticipants((int) total[0]);
+                s.setTotalPrice(total[1]);
+            }
+            result.put(m.getCode(), s);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statistics of every campus with registrations.
+     *
+     * @return the statistics by campus code, in campus order
+     */
+    public LinkedHashMap<String, CampusStatistic> toCampusStatistics() {
+        LinkedHashMap<String, CampusStatistic> result = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> e : new TreeMap<>(campuses).entrySet()) {
+            CampusStatistic c = new CampusStatistic(e.getKey());
+            c.setParticipants((int) e.getValue()[0]);
+            c.setTotalPrice(e.getValue()[1]);
+            result.put(e.getKey(), c);
+        }
+        return result;
+    }
+}
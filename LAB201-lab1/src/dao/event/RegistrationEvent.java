@@ -0,0 +1,132 @@
+package dao.event;
+
+import model.Registration;
+
+/**
+ * A change made to the registration list by {@code RegistrationDAO}.
+ * <p>
+ * A created event only has the new registration, a deleted event only has the old one, and an
+ * updated event has both: the registration that was replaced and the one replacing it.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class RegistrationEvent {
+
+    /**
+     * The kinds of change.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+
+    /**
+     * The registration before the change, or {@code null} for a creation.
+     */
+    private final Registration before;
+
+    /**
+     * The registration after the change, or {@code null} for a deletion.
+     */
+    private final Registration after;
+
+    /**
+     * The generation of the registration list once the change was made.
+     */
+    private final long generation;
+
+    /**
+     * Constructs an event.
+     *
+     * @param type       the kind of change
+     * @param before     the registration before the change, or {@code null} for a creation
+     * @param after      the registration after the change, or {@code null} for a deletion
+     * @param generation the generation of the registration list once the change was made
+     */
+    private RegistrationEvent(Type type, Registration before, Registration after, long generation) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+        this.generation = generation;
+    }
+
+    /**
+     * Creates a creation event.
+     *
+     * @param created    the created registration
+     * @param generation the generation once the registration was added
+     * @return the event
+     */
+    public static RegistrationEvent created(Registration created, long generation) {
+        return new RegistrationEvent(Type.CREATED, null, created, generation);
+    }
+
+    /**
+     * Creates an update event.
+     *
+     * @param before     the replaced registration
+     * @param after      the replacing registration
+     * @param generation the generation once the registration was replaced
+     * @return the event
+     */
+    public static RegistrationEvent updated(Registration before, Registration after, long generation) {
+        return new RegistrationEvent(Type.UPDATED, before, after, generation);
+    }
+
+    /**
+     * Creates a deletion event.
+     *
+     * @param deleted    the deleted registration
+     * @param generation the generation once the registration was removed
+     * @return the event
+     */
+    public static RegistrationEvent deleted(Registration deleted, long generation) {
+        return new RegistrationEvent(Type.DELETED, deleted, null, generation);
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the registration before the change.
+     *
+     * @return the old registration, or {@code null} for a creation
+     */
+    public Registration getBefore() {
+        return before;
+    }
+
+    /**
+     * Returns the registration after the change.
+     *
+     * @return the new registration, or {@code null} for a deletion
+     */
+    public Registration getAfter() {
+        return after;
+    }
+
+    /**
+     * Returns the generation of the registration list once the change was made.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + (after != null ? after.getStudentId() : before.getStudentId()) + " @" + generation;
+    }
+}
@@ -0,0 +1,123 @@
+package dao.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Delivers the changes of the registration list to its listeners.
+ * <p>
+ * A synchronous listener runs on the mutating thread before the mutation returns, so it sees every
+ * change in order and is up to date as soon as the DAO call completes. An asynchronous listener has
+ * its own daemon thread: it still receives the changes in order, but later, and it must not rely on
+ * the current state of the DAO.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationEventBus {
+
+    /**
+     * Delivers events to a listener on its own daemon thread.
+     */
+    private static final class AsyncListener implements RegistrationListener {
+
+        /**
+         * The listener receiving the events.
+         */
+        private final RegistrationListener target;
+
+        /**
+         * The single thread delivering the events in order.
+         */
+        private final ExecutorService thread = Executors.newSingleThreadExecutor(task -> {
+            Thread t = new Thread(task, "registration-listener");
+            t.setDaemon(true);
+            return t;
+        });
+
+        AsyncListener(RegistrationListener target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onChange(RegistrationEvent event) {
+            thread.execute(() -> target.onChange(event));
+        }
+    }
+
+    /**
+     * The subscribed listeners, in subscription order.
+     */
+    private final List<RegistrationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Subscribes a listener called on the mutating thread.
+     *
+     * @param listener the listener
+     * @return the subscription, to pass to {@link #unsubscribe(RegistrationListener)}
+     */
+    public RegistrationListener subscribe(RegistrationListener listener) {
+        listeners.add(listener);
+        return listener;
+    }
+
+    /**
+     * Subscribes a listener called on its own daemon thread.
+     *
+     * @param listener the listener
+     * @return the subscription, to pass to {@link #unsubscribe(RegistrationListener)}
+     */
+    public RegistrationListener subscribeAsync(RegistrationListener listener) {
+        return subscribe(new AsyncListener(listener));
+    }
+
+    /**
+     * Cancels a subscription. Events already queued for an asynchronous listener are still delivered.
+     *
+     * @param subscription the value returned when subscribing
+     * @return {@code true} if the subscription was active
+     */
+    public boolean unsubscribe(RegistrationListener subscription) {
+        boolean removed = listeners.remove(subscription);
+        if (removed && subscription instanceof AsyncListener) {
+            ((AsyncListener) subscription).thread.shutdown();
+        }
+        return removed;
+    }
+
+    /**
+     * Delivers an event to every listener, in subscription order.
+     * <p>
+     * A failing listener does not prevent the others from receiving the event; the first failure
+     * is rethrown once every listener has been called.
+     * </p>
+     *
+     * @param event the change
+     */
+    public void publish(RegistrationEvent event) {
+        RuntimeException failure = null;
+        for (RegistrationListener listener : listeners) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the number of subscribed listeners.
+     *
+     * @return the listener count
+     */
+    public int size() {
+        return listeners.size();
+    }
+}
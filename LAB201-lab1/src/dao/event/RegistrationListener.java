@@ -0,0 +1,17 @@
+package dao.event;
+
+/**
+ * Receives the changes made to the registration list.
+ * 
+ * @author ho huy
+ */
+@FunctionalInterface
+public interface RegistrationListener {
+
+    /**
+     * Handles a change.
+     *
+     * @param event the change
+     */
+    void onChange(RegistrationEvent event);
+}
@@ -0,0 +1,318 @@
+package dao.integrity;
+
+import dao.query.RegistrationField;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import model.Mountain;
+import model.Registration;
+import utils.inputter.Validators;
+
+/**
+ * Checks the integrity of a registration file in parallel, and repairs it.
+ * <p>
+ * The records are split into ranges checked on every core. A first pass checks each record on
+ * its own: missing fields, the patterns of {@link untils.acceptable.RegistrationAcceptable},
+ * the mountain code against the mountains, and the stored fee against
+ * {@link Registration#computeFee(String)}. It also records, for every student ID, email and
+ * phone number, the lowest offset holding it; a second pass then reports each record repeating
+ * a value held at a lower offset. Both passes are linear and the result does not depend on how
+ * the ranges are scheduled.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class IntegrityScanner {
+
+    /**
+     * The fields that must be unique, in the order of {@link #DUPLICATES}.
+     */
+    private static final RegistrationField[] UNIQUE = {
+        RegistrationField.STUDENT_ID, RegistrationField.EMAIL, RegistrationField.PHONE};
+
+    /**
+     * The violation of a repeated value of each field of {@link #UNIQUE}.
+     */
+    private static final Violation.Kind[] DUPLICATES = {
+        Violation.Kind.DUPLICATE_ID, Violation.Kind.DUPLICATE_EMAIL, Violation.Kind.DUPLICATE_PHONE};
+
+    /**
+     * The largest difference between a stored and a computed fee still accepted.
+     */
+    private static final double FEE_TOLERANCE = 0.005;
+
+    /**
+     * The number of ranges per core, so a slow range does not leave the other cores idle.
+     */
+    private static final int RANGES_PER_CORE = 4;
+
+    /**
+     * The repaired records of a file and the records left out.
+     */
+    public static final class Repair {
+
+        /**
+         * The records kept, in file order.
+         */
+        private final List<Registration> records;
+
+        /**
+         * Why each left-out record was rejected, by offset.
+         */
+        private final List<Violation> rejected;
+
+        /**
+         * The number of records kept after a fix.
+         */
+        private final int fixed;
+
+        private Repair(List<Registration> records, List<Violation> rejected, int fixed) {
+            this.records = records;
+            this.rejected = rejected;
+            this.fixed = fixed;
+        }
+
+        /**
+         * Returns the records kept, in file order.
+         *
+         * @return the repaired records
+         */
+        public List<Registration> getRecords() {
+            return records;
+        }
+
+        /**
+         * Returns why each left-out record was rejected.
+         *
+         * @return one violation per rejected record, by offset
+         */
+        public List<Violation> getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Returns the number of records kept after a fix of their fee or mountain code.
+         *
+         * @return the fixed count
+         */
+        public int getFixed() {
+            return fixed;
+        }
+    }
+
+    /**
+     * The codes of the mountains.
+     */
+    private final Set<String> mountainCodes = new HashSet<>();
+
+    /**
+     * Constructs a scanner checking mountain codes against the given mountains.
+     *
+     * @param mountains the mountains
+     */
+    public IntegrityScanner(Collection<Mountain> mountains) {
+        for (Mountain m : mountains) {
+            mountainCodes.add(m.getCode());
+        }
+    }
+
+    /**
+     * Splits the offsets of the records into ranges, several per core.
+     *
+     * @param size the number of records
+     * @return the bounds of the ranges, from 0 to {@code size}
+     */
+    private static int[] ranges(int size) {
+        int count = Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors() * RANGES_PER_CORE));
+        int[] bounds = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = (int) ((long) size * i / count);
+        }
+        return bounds;
+    }
+
+    /**
+     * Runs a check over every range in parallel and gathers the violations in offset order.
+     */
+    private static List<Violation> inParallel(int[] bounds, RangeCheck check) {
+        return IntStream.range(0, bounds.length - 1).parallel()
+                .mapToObj(i -> check.run(bounds[i], bounds[i + 1]))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A check of the records of one range.
+     */
+    @FunctionalInterface
+    private interface RangeCheck {
+        List<Violation> run(int from, int to);
+    }
+
+    /**
+     * Checks every record and reports all the violations.
+     *
+     * @param records the records of the file, in file order
+     * @return the violations, ordered by offset then kind
+     */
+    public List<Violation> scan(List<Registration> records) {
+        int[] bounds = ranges(records.size());
+        List<ConcurrentHashMap<String, Integer>> first = new ArrayList<>();
+        for (int f = 0; f < UNIQUE.length; f++) {
+            first.add(new ConcurrentHashMap<>(records.size() * 4 / 3 + 1));
+        }
+        List<Violation> violations = new ArrayList<>(inParallel(bounds, (from, to) -> {
+            List<Violation> found = new ArrayList<>();
+            for (int offset = from; offset < to; offset++) {
+                Registration r = records.get(offset);
+                checkRecord(offset, r, found);
+                for (int f = 0; r != null && f < UNIQUE.length; f++) {
+                    String value = UNIQUE[f].valueOf(r);
+                    if (value != null) {
+                        first.get(f).merge(value, offset, Math::min);
+                    }
+                }
+            }
+            return found;
+        }));
+        violations.addAll(inParallel(bounds, (from, to) -> {
+            List<Violation> found = new ArrayList<>();
+            for (int offset = from; offset < to; offset++) {
+                Registration r = records.get(offset);
+                for (int f = 0; r != null && f < UNIQUE.length; f++) {
+                    String value = UNIQUE[f].valueOf(r);
+                    Integer owner = value == null ? null : first.get(f).get(value);
+                    if (owner != null && owner != offset) {
+                        found.add(new Violation(offset, r.getStudentId(), DUPLICATES[f],
+                                "The " + UNIQUE[f].getLabel() + " [" + value + "] is already held by record #" + owner + "."));
+                    }
+                }
+            }
+            return found;
+        }));
+        Collections.sort(violations);
+        return violations;
+    }
+
+    /**
+     * Checks one record on its own.
+     *
+     * @param offset     the position of the record
+     * @param r          the record, possibly {@code null}
+     * @param violations receives the violations found
+     */
+    private void checkRecord(int offset, Registration r, List<Violation> violations) {
+        if (r == null) {
+            violations.add(new Violation(offset, null, Violation.Kind.MISSING, "The record is missing."));
+            return;
+        }
+        if (r.getStudentId() == null || r.getName() == null || r.getEmail() == null
+                || r.getPhone() == null || r.getMountainCode() == null) {
+            violations.add(new Violation(offset, r.getStudentId(), Violation.Kind.MISSING, "The record has a missing field."));
+            return;
+        }
+        for (String error : Validators.validate(r)) {
+            violations.add(new Violation(offset, r.getStudentId(), Violation.Kind.FORMAT, error));
+        }
+        if (!mountainCodes.contains(r.getMountainCode())) {
+            violations.add(new Violation(offset, r.getStudentId(), Violation.Kind.UNKNOWN_MOUNTAIN,
+                    "The mountain code [" + r.getMountainCode() + "] is not in the mountain list."));
+        }
+        double fee = Registration.computeFee(r.getPhone());
+        if (Math.abs(r.getFee() - fee) > FEE_TOLERANCE) {
+            violations.add(new Violation(offset, r.getStudentId(), Violation.Kind.FEE_MISMATCH,
+                    String.format("The fee %,.2f should be %,.2f.", r.getFee(), fee)));
+        }
+    }
+
+    /**
+     * Returns the mountain code a hand edit most likely meant, such as {@code " 01"} for {@code "1"}.
+     *
+     * @param code the mountain code of a record
+     * @return the code of a mountain, or {@code null} if none matches
+     */
+    private String mountainOf(String code) {
+        if (mountainCodes.contains(code)) {
+            return code;
+        }
+        String trimmed = code.trim().replaceFirst("^0+(?=.)", "");
+        return mountainCodes.contains(trimmed) ? trimmed : null;
+    }
+
+    /**
+     * Repairs the records: fees are recomputed, mountain codes with stray spaces or zeros fixed,
+     * and the records that stay invalid or repeat a unique value of an earlier kept record are
+     * left out.
+     * <p>
+     * The records themselves are not changed; a fixed record is a new registration.
+     * </p>
+     *
+     * @param records the records of the file, in file order
+     * @return the records kept and the reasons of the records left out
+     */
+    public Repair repair(List<Registration> records) {
+        int[] bounds = ranges(records.size());
+        Registration[] repaired = new Registration[records.size()];
+        List<Violation> rejected = new ArrayList<>(inParallel(bounds, (from, to) -> {
+            List<Violation> found = new ArrayList<>();
+            for (int offset = from; offset < to; offset++) {
+                Registration r = records.get(offset);
+                List<Violation> violations = new ArrayList<>();
+                checkRecord(offset, r, violations);
+                String code = r == null || r.getMountainCode() == null ? null : mountainOf(r.getMountainCode());
+                Violation reason = null;
+                for (Violation v : violations) {
+                    boolean fixable = v.getKind() == Violation.Kind.FEE_MISMATCH
+                            || v.getKind() == Violation.Kind.UNKNOWN_MOUNTAIN && code != null;
+                    if (!fixable) {
+                        reason = v;
+                        break;
+                    }
+                }
+                if (reason != null) {
+                    found.add(reason);
+                } else {
+                    repaired[offset] = violations.isEmpty() ? r
+                            : new Registration(r.getStudentId(), r.getName(), r.getEmail(), r.getPhone(), code);
+                }
+            }
+            return found;
+        }));
+        List<Set<String>> seen = new ArrayList<>();
+        for (int f = 0; f < UNIQUE.length; f++) {
+            seen.add(new HashSet<>());
+        }
+        List<Registration> kept = new ArrayList<>(records.size());
+        int fixed = 0;
+        for (int offset = 0; offset < repaired.length; offset++) {
+            Registration r = repaired[offset];
+            if (r == null) {
+                continue;
+            }
+            Violation duplicate = null;
+            for (int f = 0; f < UNIQUE.length && duplicate == null; f++) {
+                if (seen.get(f).contains(UNIQUE[f].valueOf(r))) {
+                    duplicate = new Violation(offset, r.getStudentId(), DUPLICATES[f],
+                            "The " + UNIQUE[f].getLabel() + " [" + UNIQUE[f].valueOf(r) + "] is already kept.");
+                }
+            }
+            if (duplicate != null) {
+                rejected.add(duplicate);
+                continue;
+            }
+            for (int f = 0; f < UNIQUE.length; f++) {
+                seen.get(f).add(UNIQUE[f].valueOf(r));
+            }
+            kept.add(r);
+            fixed += r != records.get(offset) ? 1 : 0;
+        }
+        Collections.sort(rejected);
+        return new Repair(kept, rejected, fixed);
+    }
+}
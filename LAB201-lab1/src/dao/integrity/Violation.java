@@ -0,0 +1,131 @@
+package dao.integrity;
+
+/**
+ * One integrity violation found by an {@link IntegrityScanner}.
+ * 
+ * @author ho huy
+ */
+public class Violation implements Comparable<Violation> {
+
+    /**
+     * The kinds of violation, in the order they are reported for one record.
+     */
+    public enum Kind {
+        /**
+         * The record is missing or has a missing field.
+         */
+        MISSING,
+        /**
+         * A field does not match its pattern in {@link untils.acceptable.RegistrationAcceptable}.
+         */
+        FORMAT,
+        /**
+         * The mountain code is not one of the mountains.
+         */
+        UNKNOWN_MOUNTAIN,
+        /**
+         * The student ID of an earlier record is repeated.
+         */
+        DUPLICATE_ID,
+        /**
+         * The email of an earlier record is repeated.
+         */
+        DUPLICATE_EMAIL,
+        /**
+         * The phone number of an earlier record is repeated.
+         */
+        DUPLICATE_PHONE,
+        /**
+         * The stored fee is not the fee computed from the phone number.
+         */
+        FEE_MISMATCH
+    }
+
+    /**
+     * The position of the record in the file, from 0.
+     */
+    private final int offset;
+
+    /**
+     * The student ID of the record, or {@code null} if it has none.
+     */
+    private final String studentId;
+
+    /**
+     * The kind of violation.
+     */
+    private final Kind kind;
+
+    /**
+     * The description of the violation.
+     */
+    private final String message;
+
+    /**
+     * Constructs a violation.
+     *
+     * @param offset    the position of the record in the file
+     * @param studentId the student ID of the record, or {@code null}
+     * @param kind      the kind of violation
+     * @param message   the description of the violation
+     */
+    public Violation(int offset, String studentId, Kind kind, String message) {
+        this.offset = offset;
+        this.studentId = studentId;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    /**
+     * Returns the position of the record in the file, from 0.
+     *
+     * @return the position of the record in the file, from 0
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the student ID of the record, or {@code null} if it has none.
+     *
+     * @return the student ID of the record, or {@code null} if it has none
+     */
+    public String getStudentId() {
+        return studentId;
+    }
+
+    /**
+     * Returns the kind of violation.
+     *
+     * @return the kind of violation
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the description of the violation.
+     *
+     * @return the description of the violation
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Orders violations by offset, then by kind.
+     *
+     * @param other the violation to compare with
+     * @return a negative, zero or positive number as this one comes first, equal or last
+     */
+    @Override
+    public int compareTo(Violation other) {
+        int order = Integer.compare(offset, other.offset);
+        return order != 0 ? order : kind.compareTo(other.kind);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%-9d %-10s %-16s %s", offset, studentId, kind, message);
+    }
+}
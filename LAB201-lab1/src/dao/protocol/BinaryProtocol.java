@@ -0,0 +1,276 @@
+package dao.protocol;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import model.Registration;
+
+/**
+ * The constants and codecs of the length-prefixed binary registration protocol.
+ * <p>
+ * Every message is a frame: a 4-byte length counting the bytes that follow it, a 4-byte request
+ * ID chosen by the client and a 2-byte unsigned operation count, followed by that many
+ * operations. The server answers each request frame with one response frame carrying the same
+ * request ID and one result per operation, in order, so a client may send many frames before
+ * reading the first response.
+ * </p>
+ * <ul>
+ *   <li>{@link #OP_ADD}: a registration; answers a status.</li>
+ *   <li>{@link #OP_RETRIEVE}: a student ID; answers a status and, if found, the registration.</li>
+ *   <li>{@link #OP_UPDATE}: a student ID and the new registration; answers a status and, if
+ *       updated, the previous registration.</li>
+ *   <li>{@link #OP_DELETE}: a student ID; answers a status and, if deleted, the registration.</li>
+ *   <li>{@link #OP_STATISTICS}: no argument; answers a status, the mountain count and each
+ *       mountain's code, participants and total fee, then the same for the campuses.</li>
+ * </ul>
+ * <p>
+ * Strings are a 2-byte unsigned length and UTF-8 bytes; a registration is its student ID,
+ * name, email, phone and mountain code, the fee being computed on decoding. Integers are
+ * big-endian.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class BinaryProtocol {
+
+    /**
+     * The operation adding a registration.
+     */
+    public static final byte OP_ADD = 1;
+
+    /**
+     * The operation retrieving a registration by student ID.
+     */
+    public static final byte OP_RETRIEVE = 2;
+
+    /**
+     * The operation replacing a registration by student ID.
+     */
+    public static final byte OP_UPDATE = 3;
+
+    /**
+     * The operation deleting a registration by student ID.
+     */
+    public static final byte OP_DELETE = 4;
+
+    /**
+     * The operation reading the statistics by mountain and by campus.
+     */
+    public static final byte OP_STATISTICS = 5;
+
+    /**
+     * The operation succeeded.
+     */
+    public static final byte STATUS_OK = 0;
+
+    /**
+     * No registration has the student ID.
+     */
+    public static final byte STATUS_NOT_FOUND = 1;
+
+    /**
+     * The student ID, email or phone is already registered.
+     */
+    public static final byte STATUS_DUPLICATE = 2;
+
+    /**
+     * A field of the registration does not match its format, or the mountain is unknown.
+     */
+    public static final byte STATUS_INVALID = 3;
+
+    /**
+     * The registrations are a read-only replica.
+     */
+    public static final byte STATUS_READ_ONLY = 4;
+
+    /**
+     * The operation code is unknown or the operation is truncated; the remaining operations of
+     * the frame are not executed and answer this status too.
+     */
+    public static final byte STATUS_MALFORMED = 5;
+
+    /**
+     * The bytes of the request ID and operation count following the frame length.
+     */
+    public static final int HEADER_BYTES = 6;
+
+    /**
+     * The largest frame accepted, length excluded.
+     */
+    public static final int MAX_FRAME_BYTES = 16 << 20;
+
+    /**
+     * The largest number of operations in one frame.
+     */
+    public static final int MAX_OPERATIONS = 0xFFFF;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer the buffer positioned at the string
+     * @return the string
+     * @throws BufferUnderflowException if the buffer holds fewer bytes than the string length
+     */
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Reads a registration.
+     *
+     * @param buffer the buffer positioned at the registration
+     * @return the registration
+     */
+    public static Registration getRegistration(ByteBuffer buffer) {
+        return new Registration(getString(buffer), getString(buffer), getString(buffer), getString(buffer),
+                getString(buffer));
+    }
+
+    /**
+     * A frame being written into a growing buffer.
+     */
+    public static final class FrameBuilder {
+
+        /**
+         * The buffer holding the frame, its length left blank until {@link #finish()}.
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * The position of the operation count.
+         */
+        private int countPosition;
+
+        /**
+         * The number of operations or results written.
+         */
+        private int count;
+
+        /**
+         * Starts a frame.
+         *
+         * @param requestId the request ID of the frame
+         * @param capacity  the initial capacity in bytes
+         */
+        public FrameBuilder(int requestId, int capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, 4 + HEADER_BYTES));
+            buffer.putInt(0).putInt(requestId);
+            countPosition = buffer.position();
+            buffer.putShort((short) 0);
+        }
+
+        /**
+         * Makes room for more bytes, doubling the buffer when full.
+         *
+         * @param bytes the number of bytes about to be written
+         */
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        /**
+         * Starts the next operation or result.
+         *
+         * @param code the operation code or the status
+         * @return this builder
+         * @throws IllegalStateException if the frame already holds {@link #MAX_OPERATIONS}
+         */
+        public FrameBuilder begin(byte code) {
+            if (count == MAX_OPERATIONS) {
+                throw new IllegalStateException("A frame holds at most " + MAX_OPERATIONS + " operations");
+            }
+            count++;
+            ensure(1);
+            buffer.put(code);
+            return this;
+        }
+
+        /**
+         * Writes an integer.
+         *
+         * @param value the integer
+         * @return this builder
+         */
+        public FrameBuilder putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        /**
+         * Writes a double.
+         *
+         * @param value the double
+         * @return this builder
+         */
+        public FrameBuilder putDouble(double value) {
+            ensure(8);
+            buffer.putDouble(value);
+            return this;
+        }
+
+        /**
+         * Writes a string.
+         *
+         * @param value the string
+         * @return this builder
+         * @throws IllegalArgumentException if the string is longer than 65,535 bytes in UTF-8
+         */
+        public FrameBuilder putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("String of " + bytes.length + " bytes is too long");
+            }
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length).put(bytes);
+            return this;
+        }
+
+        /**
+         * Writes a registration.
+         *
+         * @param registration the registration
+         * @return this builder
+         */
+        public FrameBuilder putRegistration(Registration registration) {
+            return putString(registration.getStudentId()).putString(registration.getName())
+                    .putString(registration.getEmail()).putString(registration.getPhone())
+                    .putString(registration.getMountainCode());
+        }
+
+        /**
+         * Returns the number of operations or results written.
+         *
+         * @return the operation count
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Completes the frame.
+         *
+         * @return the frame, ready to be written to a channel
+         */
+        public ByteBuffer finish() {
+            buffer.putInt(0, buffer.position() - 4);
+            buffer.putShort(countPosition, (short) count);
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package dao.protocol;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import model.CampusStatistic;
+import model.Registration;
+import model.Statistic;
+
+/**
+ * A blocking client of the {@link BinaryProtocol}, for kiosks and partner systems.
+ * <p>
+ * Operations are batched in a {@link Request}; {@link #send(Request)} writes it without waiting,
+ * so several requests may be in flight, and {@link #receive()} reads the results of the oldest
+ * one. A client is meant for one thread.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationClient implements Closeable {
+
+    /**
+     * The connection to the server.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The bytes read and not yet decoded, in write mode.
+     */
+    private ByteBuffer in = ByteBuffer.allocate(64 << 10);
+
+    /**
+     * The requests sent and not yet answered, oldest first.
+     */
+    private final ArrayDeque<Request> inFlight = new ArrayDeque<>();
+
+    /**
+     * The request ID of the next request.
+     */
+    private int nextRequestId;
+
+    /**
+     * A batch of operations sent in one frame.
+     */
+    public final class Request {
+
+        /**
+         * The frame of the operations.
+         */
+        private final BinaryProtocol.FrameBuilder frame;
+
+        /**
+         * The operation codes, to decode the results.
+         */
+        private final List<Byte> ops = new ArrayList<>();
+
+        /**
+         * The request ID of the frame.
+         */
+        private final int requestId;
+
+        /**
+         * The time the request was sent, in nanoseconds.
+         */
+        private long sentNanos;
+
+        private Request(int requestId) {
+            this.requestId = requestId;
+            this.frame = new BinaryProtocol.FrameBuilder(requestId, 256);
+        }
+
+        /**
+         * Starts an operation.
+         */
+        private Request begin(byte op) {
+            frame.begin(op);
+            ops.add(op);
+            return this;
+        }
+
+        /**
+         * Adds a registration.
+         *
+         * @param registration the registration to add
+         * @return this request
+         */
+        public Request add(Registration registration) {
+            begin(BinaryProtocol.OP_ADD).frame.putRegistration(registration);
+            return this;
+        }
+
+        /**
+         * Retrieves a registration.
+         *
+         * @param studentId the student ID
+         * @return this request
+         */
+        public Request retrieve(String studentId) {
+            begin(BinaryProtocol.OP_RETRIEVE).frame.putString(studentId);
+            return this;
+        }
+
+        /**
+         * Replaces a registration.
+         *
+         * @param studentId    the student ID
+         * @param registration the new registration, with the same student ID
+         * @return this request
+         */
+        public Request update(String studentId, Registration registration) {
+            begin(BinaryProtocol.OP_UPDATE).frame.putString(studentId).putRegistration(registration);
+            return this;
+        }
+
+        /**
+         * Deletes a registration.
+         *
+         * @param studentId the student ID
+         * @return this request
+         */
+        public Request delete(String studentId) {
+            begin(BinaryProtocol.OP_DELETE).frame.putString(studentId);
+            return this;
+        }
+
+        /**
+         * Reads the statistics by mountain and by campus.
+         *
+         * @return this request
+         */
+        public Request statistics() {
+            return begin(BinaryProtocol.OP_STATISTICS);
+        }
+
+        /**
+         * Returns the number of operations in the request.
+         *
+         * @return the operation count
+         */
+        public int size() {
+            return ops.size();
+        }
+
+        /**
+         * Returns the request ID of the frame.
+         *
+         * @return the request ID
+         */
+        public int getRequestId() {
+            return requestId;
+        }
+
+        /**
+         * Returns the time the request was sent.
+         *
+         * @return the {@link System#nanoTime()} of sending
+         */
+        public long getSentNanos() {
+            return sentNanos;
+        }
+    }
+
+    /**
+     * The result of one operation.
+     */
+    public static final class Result {
+
+        /**
+         * The status, one of the {@code BinaryProtocol.STATUS_} constants.
+         */
+        private final byte status;
+
+        /**
+         * The registration returned, if any.
+         */
+        private Registration registration;
+
+        /**
+         * The statistics by mountain, for a statistics operation.
+         */
+        private LinkedHashMap<String, Statistic> statistics;
+
+        /**
+         * The statistics by campus, for a statistics operation.
+         */
+        private LinkedHashMap<String, CampusStatistic> campusStatistics;
+
+        private Result(byte status) {
+            this.status = status;
+        }
+
+        /**
+         * Returns the status of the operation.
+         *
+         * @return one of the {@code BinaryProtocol.STATUS_} constants
+         */
+        public byte getStatus() {
+            return status;
+        }
+
+        /**
+         * Checks whether the operation succeeded.
+         *
+         * @return {@code true} if the status is {@link BinaryProtocol#STATUS_OK}
+         */
+        public boolean isOk() {
+            return status == BinaryProtocol.STATUS_OK;
+        }
+
+        /**
+         * Returns the registration retrieved, replaced or deleted.
+         *
+         * @return the registration, or {@code null}
+         */
+        public Registration getRegistration() {
+            return registration;
+        }
+
+        /**
+         * Returns the statistics by mountain of a statistics operation.
+         *
+         * @return the statistics by mountain code, or {@code null}
+         */
+        public LinkedHashMap<String, Statistic> getStatistics() {
+            return statistics;
+        }
+
+        /**
+         * Returns the statistics by campus of a statistics operation.
+         *
+         * @return the statistics by campus code, or {@code null}
+         */
+        public LinkedHashMap<String, CampusStatistic> getCampusStatistics() {
+            return campusStatistics;
+        }
+    }
+
+    /**
+     * Connects to a server.
+     *
+     * @param host the host of the server
+     * @param port the port of the server
+     * @throws IOException if the server cannot be reached
+     */
+    public RegistrationClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Starts a new request.
+     *
+     * @return an empty request
+     */
+    public Request newRequest() {
+        return new Request(nextRequestId++);
+    }
+
+    /**
+     * Sends a request without waiting for its results.
+     *
+     * @param request the request
+     * @throws IOException if the connection failed
+     */
+    public void send(Request request) throws IOException {
+        ByteBuffer frame = request.frame.finish();
+        request.sentNanos = System.nanoTime();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        inFlight.add(request);
+    }
+
+    /**
+     * Returns the number of requests sent and not yet received.
+     *
+     * @return the requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Waits for the results of the oldest request in flight.
+     *
+     * @param results the list receiving one result per operation, in order
+     * @return the request, its results being read into {@code results}
+     * @throws IOException if the connection failed or the response does not match the request
+     */
+    public Request receive(List<Result> results) throws IOException {
+        Request request = inFlight.poll();
+        if (request == null) {
+            throw new IllegalStateException("No request in flight");
+        }
+        ByteBuffer frame = readFrame();
+        int requestId = frame.getInt();
+        int count = frame.getShort() & 0xFFFF;
+        if (requestId != request.requestId || count != request.ops.size()) {
+            throw new IOException("Response " + requestId + " of " + count + " results does not answer request "
+                    + request.requestId + " of " + request.ops.size() + " operations");
+        }
+        for (byte op : request.ops) {
+            results.add(decode(op, frame));
+        }
+        return request;
+    }
+
+    /**
+     * Reads the next frame.
+     *
+     * @return the frame, length excluded
+     */
+    private ByteBuffer readFrame() throws IOException {
+        while (true) {
+            in.flip();
+            if (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length < BinaryProtocol.HEADER_BYTES || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (in.remaining() >= 4 + length) {
+                    ByteBuffer frame = ByteBuffer.allocate(length);
+                    in.position(in.position() + 4);
+                    int limit = in.limit();
+                    in.limit(in.position() + length);
+                    frame.put(in).flip();
+                    in.limit(limit);
+                    in.compact();
+                    return frame;
+                }
+                if (in.capacity() < 4 + length) {
+                    ByteBuffer grown = ByteBuffer.allocate(4 + length);
+                    grown.put(in);
+                    in = grown;
+                    continue;
+                }
+            }
+            in.compact();
+            if (channel.read(in) < 0) {
+                throw new EOFException("The server closed the connection");
+            }
+        }
+    }
+
+    /**
+     * Decodes the result of one operation.
+     *
+     * @param op    the operation code
+     * @param frame the frame positioned at the result
+     * @return the result
+     */
+    private static Result decode(byte op, ByteBuffer frame) {
+        Result result = new Result(frame.get());
+        if (!result.isOk()) {
+            return result;
+        }
+        switch (op) {
+            case BinaryProtocol.OP_RETRIEVE:
+            case BinaryProtocol.OP_UPDATE:
+            case BinaryProtocol.OP_DELETE:
+                result.registration = BinaryProtocol.getRegistration(frame);
+                break;
+            case BinaryProtocol.OP_STATISTICS:
+                result.statistics = new LinkedHashMap<>();
+                for (int i = frame.getInt(); i > 0; i--) {
+                    Statistic s = new Statistic(BinaryProtocol.getString(frame));
+                    s.setParticipants(frame.getInt());
+                    s.setTotalPrice(frame.getDouble());
+                    result.statistics.put(s.getMountainCode(), s);
+                }
+                result.campusStatistics = new LinkedHashMap<>();
+                for (int i = frame.getInt(); i > 0; i--) {
+                    CampusStatistic s = new CampusStatistic(BinaryProtocol.getString(frame));
+                    s.setParticipants(frame.getInt());
+                    s.setTotalPrice(frame.getDouble());
+                    result.campusStatistics.put(s.getCampus(), s);
+                }
+                break;
+            default:
+                break;
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
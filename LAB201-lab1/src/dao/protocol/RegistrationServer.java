@@ -0,0 +1,557 @@
+package dao.protocol;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import model.CampusStatistic;
+import model.Mountain;
+import model.Registration;
+import model.Statistic;
+import service.StatisticsView;
+import utils.audit.AuditRecord;
+import utils.audit.AuditTrail;
+import utils.inputter.Validators;
+
+/**
+ * A non-blocking server answering the {@link BinaryProtocol} on a {@link RegistrationDAO}.
+ * <p>
+ * One selector thread accepts the connections, reads every complete frame available on a
+ * connection, executes its operations and queues the response frame. A client may therefore
+ * pipeline frames and batch operations in a frame; each frame is answered in order. A
+ * connection whose client does not read its responses stops being read once
+ * {@value #MAX_PENDING_BYTES} bytes are queued for it.
+ * </p>
+ * <p>
+ * The operations run on the selector thread: every DAO method holds the DAO's lock anyway, so
+ * a worker pool would only add hand-offs. Adds and updates are validated like the desk
+ * validates its input, and checked for unique fields under the DAO's lock. Every add, update
+ * and delete is recorded in the {@link AuditTrail}, as the same change made at the desk is.
+ * </p>
+ * <p>
+ * The protocol is not authenticated, so the server listens on the loopback address unless
+ * {@value #BIND_PROPERTY} names another one.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationServer implements Closeable {
+
+    /**
+     * The system property holding the port to serve on; without it, no server is started.
+     */
+    public static final String PORT_PROPERTY = "protocol.port";
+
+    /**
+     * The system property holding the address to serve on, the loopback address by default.
+     */
+    public static final String BIND_PROPERTY = "protocol.bind";
+
+    /**
+     * The bytes queued for a connection above which its requests are no longer read.
+     */
+    private static final int MAX_PENDING_BYTES = 4 << 20;
+
+    /**
+     * The initial size of a connection's read buffer.
+     */
+    private static final int READ_BUFFER_BYTES = 64 << 10;
+
+    /**
+     * The registrations served.
+     */
+    private final RegistrationDAO rdao;
+
+    /**
+     * The codes of the known mountains.
+     */
+    private final Set<String> mountainCodes = new HashSet<>();
+
+    /**
+     * The statistics kept up to date with the registrations.
+     */
+    private final StatisticsView statistics;
+
+    /**
+     * The audit trail recording the changes.
+     */
+    private final AuditTrail audit;
+
+    /**
+     * The selector of the listening socket and the connections.
+     */
+    private final Selector selector;
+
+    /**
+     * The listening socket.
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * The number of frames answered.
+     */
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * The number of operations executed.
+     */
+    private final AtomicLong operations = new AtomicLong();
+
+    /**
+     * Whether the server has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The state of one client connection.
+     */
+    private static final class Connection {
+
+        /**
+         * The bytes read and not yet executed, in write mode.
+         */
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+
+        /**
+         * The response frames not yet written.
+         */
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+
+        /**
+         * The number of bytes in {@link #out}.
+         */
+        long pending;
+    }
+
+    /**
+     * Starts a server on a port of the loopback address, recording the changes in the shared
+     * audit trail.
+     *
+     * @param rdao the registrations to serve
+     * @param mdao the known mountains
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public RegistrationServer(RegistrationDAO rdao, MountainDAO mdao, int port) throws IOException {
+        this(rdao, mdao, InetAddress.getLoopbackAddress(), port, AuditTrail.shared());
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param rdao    the registrations to serve
+     * @param mdao    the known mountains
+     * @param address the address to listen on
+     * @param port    the port to listen on, 0 for any free port
+     * @param audit   the audit trail recording the changes
+     * @throws IOException if the port cannot be bound
+     */
+    public RegistrationServer(RegistrationDAO rdao, MountainDAO mdao, InetAddress address, int port,
+            AuditTrail audit) throws IOException {
+        this.rdao = rdao;
+        this.audit = audit;
+        for (Mountain m : mdao.retrieveAll()) {
+            mountainCodes.add(m.getCode());
+        }
+        this.statistics = new StatisticsView(rdao, mdao);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(address, port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        Thread thread = new Thread(this::run, "protocol-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts a server as configured by {@value #PORT_PROPERTY} and {@value #BIND_PROPERTY}.
+     *
+     * @param rdao the registrations to serve
+     * @param mdao the known mountains
+     * @return the running server, or {@code null} if no port is configured
+     * @throws UncheckedIOException if the port cannot be bound
+     */
+    public static RegistrationServer start(RegistrationDAO rdao, MountainDAO mdao) {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) {
+            return null;
+        }
+        try {
+            String bind = System.getProperty(BIND_PROPERTY);
+            InetAddress address = bind == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+            return new RegistrationServer(rdao, mdao, address, port, AuditTrail.shared());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serves the connections until the server is closed.
+     */
+    private void run() {
+        while (!closed) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                break;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        if (key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // A failure of one connection must not stop the selector thread.
+                    disconnect(key);
+                }
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            disconnect(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    /**
+     * Accepts a pending connection.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    /**
+     * Closes a connection.
+     *
+     * @param key the key of the connection
+     */
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    /**
+     * Reads from a connection and answers every complete frame read.
+     *
+     * @param key the key of the connection
+     * @throws IOException if the connection failed or sent a frame of an invalid length
+     */
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(connection.in) < 0) {
+            disconnect(key);
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length < BinaryProtocol.HEADER_BYTES || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                if (in.capacity() < 4 + length) {
+                    ByteBuffer grown = ByteBuffer.allocate(4 + length);
+                    grown.put(in);
+                    connection.in = grown;
+                    in = grown;
+                    in.flip();
+                }
+                break;
+            }
+            ByteBuffer frame = in.duplicate();
+            frame.position(in.position() + 4).limit(in.position() + 4 + length);
+            in.position(in.position() + 4 + length);
+            ByteBuffer response = execute(frame.slice());
+            connection.out.add(response);
+            connection.pending += response.remaining();
+        }
+        in.compact();
+        write(key);
+    }
+
+    /**
+     * Writes the queued responses of a connection as far as the socket accepts them, and
+     * selects the events the connection waits for next.
+     *
+     * @param key the key of the connection
+     * @throws IOException if the connection failed
+     */
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        while (!connection.out.isEmpty()) {
+            ByteBuffer head = connection.out.peek();
+            connection.pending -= channel.write(head);
+            if (head.hasRemaining()) {
+                break;
+            }
+            connection.out.poll();
+        }
+        int ops = 0;
+        if (connection.pending < MAX_PENDING_BYTES) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (!connection.out.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Executes the operations of a request frame.
+     *
+     * @param frame the frame, length excluded
+     * @return the response frame
+     */
+    private ByteBuffer execute(ByteBuffer frame) {
+        int requestId = frame.getInt();
+        int count = frame.getShort() & 0xFFFF;
+        BinaryProtocol.FrameBuilder response = new BinaryProtocol.FrameBuilder(requestId, 16 + 8 * count);
+        boolean malformed = false;
+        for (int i = 0; i < count; i++) {
+            if (!malformed) {
+                try {
+                    executeOperation(frame, response);
+                    continue;
+                } catch (RuntimeException e) {
+                    // Truncated, unknown or otherwise undecodable: answered, never thrown at the selector.
+                    malformed = true;
+                }
+            }
+            response.begin(BinaryProtocol.STATUS_MALFORMED);
+        }
+        frames.incrementAndGet();
+        operations.addAndGet(count);
+        return response.finish();
+    }
+
+    /**
+     * Executes one operation and writes its result.
+     * <p>
+     * The operation is fully decoded before its result is started, so a truncated operation
+     * leaves no partial result behind.
+     * </p>
+     *
+     * @param frame    the frame positioned at the operation
+     * @param response the response frame
+     * @throws BufferUnderflowException if the operation is truncated
+     * @throws IllegalArgumentException if the operation code is unknown
+     */
+    private void executeOperation(ByteBuffer frame, BinaryProtocol.FrameBuilder response) {
+        byte op = frame.get();
+        switch (op) {
+            case BinaryProtocol.OP_ADD:
+                response.begin(add(BinaryProtocol.getRegistration(frame)));
+                return;
+            case BinaryProtocol.OP_RETRIEVE:
+                answer(response, rdao.retrieve(BinaryProtocol.getString(frame)), BinaryProtocol.STATUS_NOT_FOUND);
+                return;
+            case BinaryProtocol.OP_UPDATE: {
+                String id = BinaryProtocol.getString(frame);
+                Registration registration = BinaryProtocol.getRegistration(frame);
+                update(response, id, registration);
+                return;
+            }
+            case BinaryProtocol.OP_DELETE: {
+                String id = BinaryProtocol.getString(frame);
+                if (rdao.isReadOnly()) {
+                    response.begin(BinaryProtocol.STATUS_READ_ONLY);
+                    return;
+                }
+                Registration deleted = rdao.delete(id);
+                if (deleted != null) {
+                    audit.record(AuditRecord.Operation.DELETE, deleted.getStudentId(), null, AuditTrail.describe(deleted), null);
+                }
+                answer(response, deleted, BinaryProtocol.STATUS_NOT_FOUND);
+                return;
+            }
+            case BinaryProtocol.OP_STATISTICS:
+                putStatistics(response);
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + op);
+        }
+    }
+
+    /**
+     * Writes a registration result, or a failure status when there is no registration.
+     *
+     * @param response     the response frame
+     * @param registration the registration, or {@code null}
+     * @param failure      the status when there is no registration
+     */
+    private static void answer(BinaryProtocol.FrameBuilder response, Registration registration, byte failure) {
+        if (registration == null) {
+            response.begin(failure);
+        } else {
+            response.begin(BinaryProtocol.STATUS_OK).putRegistration(registration);
+        }
+    }
+
+    /**
+     * Checks the format of every field of a registration and that its mountain exists.
+     *
+     * @param registration the registration to check
+     * @return {@code true} if the registration is valid
+     */
+    private boolean isValid(Registration registration) {
+        return mountainCodes.contains(registration.getMountainCode()) && Validators.validate(registration).isEmpty();
+    }
+
+    /**
+     * Adds a registration with unique fields.
+     *
+     * @param registration the registration to add
+     * @return the status of the operation
+     */
+    private byte add(Registration registration) {
+        if (!isValid(registration)) {
+            return BinaryProtocol.STATUS_INVALID;
+        }
+        synchronized (rdao) {
+            if (rdao.isReadOnly()) {
+                return BinaryProtocol.STATUS_READ_ONLY;
+            }
+            if (!rdao.isUnique(registration)) {
+                return BinaryProtocol.STATUS_DUPLICATE;
+            }
+            if (!rdao.create(registration)) {
+                return BinaryProtocol.STATUS_INVALID;
+            }
+        }
+        audit.record(AuditRecord.Operation.ADD, registration.getStudentId(), null, null, AuditTrail.describe(registration));
+        return BinaryProtocol.STATUS_OK;
+    }
+
+    /**
+     * Replaces a registration, keeping its student ID and the email and phone unique.
+     *
+     * @param response     the response frame
+     * @param id           the student ID
+     * @param registration the new registration, with the same student ID
+     */
+    private void update(BinaryProtocol.FrameBuilder response, String id, Registration registration) {
+        if (!registration.getStudentId().equalsIgnoreCase(id) || !isValid(registration)) {
+            response.begin(BinaryProtocol.STATUS_INVALID);
+            return;
+        }
+        Registration replaced;
+        synchronized (rdao) {
+            if (rdao.isReadOnly()) {
+                response.begin(BinaryProtocol.STATUS_READ_ONLY);
+                return;
+            }
+            Registration previous = rdao.retrieve(id);
+            if (previous == null) {
+                response.begin(BinaryProtocol.STATUS_NOT_FOUND);
+                return;
+            }
+            if (!previous.getEmail().equalsIgnoreCase(registration.getEmail()) && !rdao.isUnique(3, registration.getEmail())
+                    || !previous.getPhone().equals(registration.getPhone()) && !rdao.isUnique(2, registration.getPhone())) {
+                response.begin(BinaryProtocol.STATUS_DUPLICATE);
+                return;
+            }
+            replaced = rdao.update(previous.getStudentId(), registration);
+        }
+        if (replaced != null) {
+            audit.record(AuditRecord.Operation.UPDATE, replaced.getStudentId(), null, AuditTrail.describe(replaced),
+                    AuditTrail.describe(registration));
+        }
+        answer(response, replaced, BinaryProtocol.STATUS_NOT_FOUND);
+    }
+
+    /**
+     * Writes the statistics by mountain and by campus.
+     *
+     * @param response the response frame
+     */
+    private void putStatistics(BinaryProtocol.FrameBuilder response) {
+        Map<String, Statistic> mountains = statistics.getStatistics();
+        Map<String, CampusStatistic> campuses = statistics.getCampusStatistics();
+        response.begin(BinaryProtocol.STATUS_OK).putInt(mountains.size());
+        for (Statistic s : mountains.values()) {
+            response.putString(s.getMountainCode()).putInt(s.getParticipants()).putDouble(s.getTotalPrice());
+        }
+        response.putInt(campuses.size());
+        for (CampusStatistic s : campuses.values()) {
+            response.putString(s.getCampus()).putInt(s.getParticipants()).putDouble(s.getTotalPrice());
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of frames answered.
+     *
+     * @return the frame count
+     */
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * Returns the number of operations executed.
+     *
+     * @return the operation count
+     */
+    public long getOperations() {
+        return operations.get();
+    }
+
+    /**
+     * Stops the server; the selector thread closes every connection on its way out.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        rdao.getEvents().unsubscribe(statistics);
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,97 @@
+package dao.query;
+
+import java.util.function.Function;
+import model.Registration;
+import utils.inputter.Validators;
+
+/**
+ * Enumerates the low-cardinality {@link Registration} attributes kept in a {@link BitmapIndex}.
+ * 
+ * @author ho huy
+ */
+public enum BitmapAttribute {
+
+    /**
+     * The campus, the two-letter prefix of the student ID.
+     */
+    CAMPUS("campus", r -> r.getStudentId().substring(0, 2).toUpperCase()),
+
+    /**
+     * The registered mountain code.
+     */
+    MOUNTAIN_CODE("mountain code", Registration::getMountainCode),
+
+    /**
+     * The phone carrier class: {@value #VIETTEL}, {@value #VNPT} or {@value #OTHER}.
+     */
+    CARRIER("carrier", BitmapAttribute::carrierOf);
+
+    /**
+     * The carrier class of Viettel phone numbers.
+     */
+    public static final String VIETTEL = "Viettel";
+
+    /**
+     * The carrier class of VNPT phone numbers.
+     */
+    public static final String VNPT = "VNPT";
+
+    /**
+     * The carrier class of every other phone number.
+     */
+    public static final String OTHER = "Other";
+
+    /**
+     * The display name of the attribute.
+     */
+    private final String label;
+
+    /**
+     * The accessor reading the attribute value from a registration.
+     */
+    private final Function<Registration, String> accessor;
+
+    /**
+     * Constructs an attribute with its display name and accessor.
+     *
+     * @param label    the display name of the attribute
+     * @param accessor the function reading the attribute value
+     */
+    BitmapAttribute(String label, Function<Registration, String> accessor) {
+        this.label = label;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Classifies the phone number of a registration by carrier.
+     *
+     * @param registration the registration to classify
+     * @return {@link #VIETTEL}, {@link #VNPT} or {@link #OTHER}
+     */
+    private static String carrierOf(Registration registration) {
+        String phone = registration.getPhone();
+        if (Validators.matches(phone, Registration.VIETTEL_PHONE_REGEX)) {
+            return VIETTEL;
+        }
+        return Validators.matches(phone, Registration.VNPT_PHONE_REGEX) ? VNPT : OTHER;
+    }
+
+    /**
+     * Reads the value of this attribute from the given registration.
+     *
+     * @param registration the registration to read
+     * @return the attribute value
+     */
+    public String valueOf(Registration registration) {
+        return accessor.apply(registration);
+    }
+
+    /**
+     * Returns the display name of the attribute.
+     *
+     * @return the display name
+     */
+    public String getLabel() {
+        return label;
+    }
+}
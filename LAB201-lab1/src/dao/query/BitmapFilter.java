@@ -0,0 +1,107 @@
+package dao.query;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import model.Registration;
+
+/**
+ * A conjunction of equality conditions on {@link BitmapAttribute}s, answered by a {@link BitmapIndex}.
+ * <p>
+ * Filters are immutable: {@link #and(BitmapAttribute, String)} returns a new filter. The filter
+ * without conditions matches every registration.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class BitmapFilter implements Predicate<Registration> {
+
+    /**
+     * The filter without conditions.
+     */
+    public static final BitmapFilter ALL = new BitmapFilter(new EnumMap<>(BitmapAttribute.class));
+
+    /**
+     * The required value of each constrained attribute.
+     */
+    private final EnumMap<BitmapAttribute, String> conditions;
+
+    private BitmapFilter(EnumMap<BitmapAttribute, String> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Creates a filter with one condition.
+     *
+     * @param attribute the attribute
+     * @param value     the required value
+     * @return the filter
+     */
+    public static BitmapFilter where(BitmapAttribute attribute, String value) {
+        return ALL.and(attribute, value);
+    }
+
+    /**
+     * Returns this filter with one more condition, replacing any condition on the same attribute.
+     *
+     * @param attribute the attribute
+     * @param value     the required value
+     * @return the new filter
+     */
+    public BitmapFilter and(BitmapAttribute attribute, String value) {
+        EnumMap<BitmapAttribute, String> copy = new EnumMap<>(conditions);
+        copy.put(attribute, value);
+        return new BitmapFilter(copy);
+    }
+
+    /**
+     * Returns the conditions of the filter.
+     *
+     * @return an unmodifiable view of the required value of each constrained attribute
+     */
+    public Map<BitmapAttribute, String> getConditions() {
+        return Collections.unmodifiableMap(conditions);
+    }
+
+    /**
+     * Evaluates the filter on one registration, without an index.
+     *
+     * @param registration the registration to test
+     * @return {@code true} if every condition holds
+     */
+    @Override
+    public boolean test(Registration registration) {
+        for (Map.Entry<BitmapAttribute, String> condition : conditions.entrySet()) {
+            if (!condition.getValue().equals(condition.getKey().valueOf(registration))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BitmapFilter && conditions.equals(((BitmapFilter) o).conditions);
+    }
+
+    @Override
+    public int hashCode() {
+        return conditions.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (conditions.isEmpty()) {
+            return "all";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<BitmapAttribute, String> condition : conditions.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(" AND ");
+            }
+            sb.append(condition.getKey().getLabel()).append(" = ").append(condition.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,194 @@
+package dao.query;
+
+import dao.event.RegistrationEvent;
+import dao.event.RegistrationListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import model.Registration;
+import utils.collection.RoaringBitmap;
+
+/**
+ * Bitmap indexes over the low-cardinality registration attributes.
+ * <p>
+ * Every indexed registration gets an ordinal, and each value of each {@link BitmapAttribute} has a
+ * compressed {@link RoaringBitmap} of the ordinals holding it. A {@link BitmapFilter} is answered by
+ * intersecting one bitmap per condition, so counting never touches the registrations themselves.
+ * Ordinals of deleted registrations are reused by later ones.
+ * </p>
+ * <p>
+ * The index follows the changes of the registration list as a {@link RegistrationListener}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class BitmapIndex implements RegistrationListener {
+
+    /**
+     * The registrations by ordinal, {@code null} for a free ordinal.
+     */
+    private final List<Registration> records = new ArrayList<>();
+
+    /**
+     * The ordinal of each indexed registration.
+     */
+    private final IdentityHashMap<Registration, Integer> ordinals = new IdentityHashMap<>();
+
+    /**
+     * The ordinals freed by removals, reused before new ones.
+     */
+    private final Deque<Integer> free = new ArrayDeque<>();
+
+    /**
+     * The ordinals of every indexed registration.
+     */
+    private final RoaringBitmap live = new RoaringBitmap();
+
+    /**
+     * The bitmap of each value of each attribute.
+     */
+    private final EnumMap<BitmapAttribute, Map<String, RoaringBitmap>> bitmaps = new EnumMap<>(BitmapAttribute.class);
+
+    /**
+     * Constructs the index over the given registrations.
+     *
+     * @param registrations the registrations to index
+     */
+    public BitmapIndex(Collection<Registration> registrations) {
+        for (BitmapAttribute attribute : BitmapAttribute.values()) {
+            bitmaps.put(attribute, new HashMap<>());
+        }
+        for (Registration r : registrations) {
+            add(r);
+        }
+    }
+
+    /**
+     * Adds a registration to the index.
+     *
+     * @param registration the registration to add
+     */
+    public synchronized void add(Registration registration) {
+        if (ordinals.containsKey(registration)) {
+            return;
+        }
+        int ordinal;
+        if (free.isEmpty()) {
+            ordinal = records.size();
+            records.add(registration);
+        } else {
+            ordinal = free.pop();
+            records.set(ordinal, registration);
+        }
+        ordinals.put(registration, ordinal);
+        live.add(ordinal);
+        for (Map.Entry<BitmapAttribute, Map<String, RoaringBitmap>> attribute : bitmaps.entrySet()) {
+            attribute.getValue()
+                    .computeIfAbsent(attribute.getKey().valueOf(registration), value -> new RoaringBitmap())
+                    .add(ordinal);
+        }
+    }
+
+    /**
+     * Removes a registration from the index.
+     * <p>
+     * The ordinal is cleared from every bitmap holding it rather than from the bitmaps of the current
+     * values, so a registration changed in place is still removed correctly.
+     * </p>
+     *
+     * @param registration the registration to remove
+     */
+    public synchronized void remove(Registration registration) {
+        Integer ordinal = ordinals.remove(registration);
+        if (ordinal == null) {
+            return;
+        }
+        records.set(ordinal, null);
+        free.push(ordinal);
+        live.remove(ordinal);
+        for (Map<String, RoaringBitmap> values : bitmaps.values()) {
+            values.values().removeIf(bitmap -> {
+                bitmap.remove(ordinal);
+                return bitmap.getCardinality() == 0;
+            });
+        }
+    }
+
+    @Override
+    public void onChange(RegistrationEvent event) {
+        if (event.getBefore() != null) {
+            remove(event.getBefore());
+        }
+        if (event.getAfter() != null) {
+            add(event.getAfter());
+        }
+    }
+
+    /**
+     * Collects the bitmaps to intersect for a filter.
+     *
+     * @param filter the filter
+     * @return the bitmaps, or {@code null} if a condition matches nothing
+     */
+    private RoaringBitmap[] bitmapsOf(BitmapFilter filter) {
+        Map<BitmapAttribute, String> conditions = filter.getConditions();
+        if (conditions.isEmpty()) {
+            return new RoaringBitmap[]{live};
+        }
+        RoaringBitmap[] result = new RoaringBitmap[conditions.size()];
+        int i = 0;
+        for (Map.Entry<BitmapAttribute, String> condition : conditions.entrySet()) {
+            result[i] = bitmaps.get(condition.getKey()).get(condition.getValue());
+            if (result[i++] == null) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the registrations matching a filter, without materializing them.
+     *
+     * @param filter the filter
+     * @return the number of matching registrations
+     */
+    public synchronized int count(BitmapFilter filter) {
+        RoaringBitmap[] sets = bitmapsOf(filter);
+        return sets == null ? 0 : (int) RoaringBitmap.andCardinality(sets);
+    }
+
+    /**
+     * Retrieves the registrations matching a filter.
+     *
+     * @param filter the filter
+     * @return a new list of the matching registrations, ordered by student ID
+     */
+    public synchronized List<Registration> select(BitmapFilter filter) {
+        List<Registration> result = new ArrayList<>();
+        RoaringBitmap[] sets = bitmapsOf(filter);
+        if (sets != null) {
+            RoaringBitmap.and(sets).forEach(ordinal -> result.add(records.get(ordinal)));
+        }
+        result.sort(Comparator.comparing(Registration::getStudentId));
+        return result;
+    }
+
+    /**
+     * Returns the indexed values of an attribute.
+     *
+     * @param attribute the attribute
+     * @return the values held by at least one registration, in ascending order
+     */
+    public synchronized Set<String> values(BitmapAttribute attribute) {
+        return new TreeSet<>(bitmaps.get(attribute).keySet());
+    }
+}
@@ -0,0 +1,75 @@
+package dao.query;
+
+import java.util.List;
+import model.Registration;
+
+/**
+ * An executable strategy chosen by the {@link QueryPlanner} to answer a {@link RegistrationQuery}.
+ * <p>
+ * A plan counts the records it examines while executing, so that {@link #explain()}
+ * can report both the chosen strategy and its actual cost.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public abstract class QueryPlan {
+
+    /**
+     * The number of records examined by the last execution.
+     */
+    protected int rowsExamined;
+
+    /**
+     * The number of records returned by the last execution.
+     */
+    protected int rowsReturned;
+
+    /**
+     * Executes the plan.
+     *
+     * @return the registrations matching the query
+     */
+    public abstract List<Registration> execute();
+
+    /**
+     * Estimates the number of records the plan will examine, without executing it.
+     *
+     * @return the estimated examined record count
+     */
+    public abstract int estimate();
+
+    /**
+     * Describes the strategy of the plan.
+     *
+     * @return a one-line description of the plan
+     */
+    public abstract String describe();
+
+    /**
+     * Returns the number of records examined by the last execution.
+     *
+     * @return the examined record count
+     */
+    public int getRowsExamined() {
+        return rowsExamined;
+    }
+
+    /**
+     * Returns the number of records returned by the last execution.
+     *
+     * @return the returned record count
+     */
+    public int getRowsReturned() {
+        return rowsReturned;
+    }
+
+    /**
+     * Returns a report of the plan and the cost of its last execution.
+     *
+     * @return the plan description followed by the examined and returned record counts
+     */
+    public String explain() {
+        return String.format("Plan          : %s%nRows examined : %d%nRows returned : %d",
+                describe(), rowsExamined, rowsReturned);
+    }
+}
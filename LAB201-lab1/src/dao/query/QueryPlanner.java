@@ -0,0 +1,260 @@
+package dao.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import model.Registration;
+
+/**
+ * Chooses how a {@link RegistrationQuery} is answered.
+ * <p>
+ * A criterion on an indexed field is answered by an index lookup. An AND query is
+ * answered from its most selective indexed child and filtered by the remaining criteria.
+ * An OR query is answered by the union of its children's lookups when every child can use
+ * an index. Any other query falls back to a full scan of the store.
+ * </p>
+ * <p>
+ * Every plan returns the matching registrations in the order of the store, that is, by
+ * student ID.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class QueryPlanner {
+
+    /**
+     * The order of the registration store.
+     */
+    private static final Comparator<Registration> STORE_ORDER =
+            (r1, r2) -> r1.getStudentId().compareTo(r2.getStudentId());
+
+    /**
+     * The registration store scanned when no index applies.
+     */
+    private final List<Registration> store;
+
+    /**
+     * The source of the index on each field, returning {@code null} for unindexed fields.
+     */
+    private final Function<RegistrationField, RegistrationIndex> indexes;
+
+    /**
+     * Constructs a planner over the given store and indexes.
+     *
+     * @param store   the registration store
+     * @param indexes the source of the index on each field, returning {@code null} for unindexed fields
+     */
+    public QueryPlanner(List<Registration> store, Function<RegistrationField, RegistrationIndex> indexes) {
+        this.store = store;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Chooses a plan for the given query.
+     *
+     * @param query the query to answer
+     * @return the chosen plan
+     */
+    public QueryPlan plan(RegistrationQuery query) {
+        QueryPlan plan = planIndexed(query);
+        return plan == null ? new ScanPlan(store, query) : plan;
+    }
+
+    /**
+     * Chooses an index-based plan for the given query.
+     *
+     * @param query the query to answer
+     * @return an index-based plan, or {@code null} if the query cannot use an index
+     */
+    private QueryPlan planIndexed(RegistrationQuery query) {
+        if (query instanceof RegistrationQuery.Criterion) {
+            RegistrationQuery.Criterion criterion = (RegistrationQuery.Criterion) query;
+            RegistrationIndex index = indexes.apply(criterion.getField());
+            return index != null && index.supports(criterion) ? new IndexPlan(index, criterion) : null;
+        }
+
+        RegistrationQuery.Composite composite = (RegistrationQuery.Composite) query;
+        if (composite.isConjunction()) {
+            QueryPlan best = null;
+            for (RegistrationQuery child : composite.getChildren()) {
+                QueryPlan plan = planIndexed(child);
+                if (plan != null && (best == null || plan.estimate() < best.estimate())) {
+                    best = plan;
+                }
+            }
+            return best == null ? null : new FilterPlan(best, query);
+        }
+
+        List<QueryPlan> plans = new ArrayList<>();
+        for (RegistrationQuery child : composite.getChildren()) {
+            QueryPlan plan = planIndexed(child);
+            if (plan == null) {
+                return null;
+            }
+            plans.add(plan);
+        }
+        return new UnionPlan(plans);
+    }
+
+    /**
+     * A plan that tests every registration of the store.
+     */
+    private static class ScanPlan extends QueryPlan {
+
+        private final List<Registration> store;
+        private final RegistrationQuery query;
+
+        ScanPlan(List<Registration> store, RegistrationQuery query) {
+            this.store = store;
+            this.query = query;
+        }
+
+        @Override
+        public List<Registration> execute() {
+            List<Registration> result = new ArrayList<>();
+            for (Registration r : store) {
+                if (query.test(r)) {
+                    result.add(r);
+                }
+            }
+            rowsExamined = store.size();
+            rowsReturned = result.size();
+            return result;
+        }
+
+        @Override
+        public int estimate() {
+            return store.size();
+        }
+
+        @Override
+        public String describe() {
+            return "FULL SCAN filter " + query;
+        }
+    }
+
+    /**
+     * A plan that answers a single criterion from an index.
+     */
+    private static class IndexPlan extends QueryPlan {
+
+        private final RegistrationIndex index;
+        private final RegistrationQuery.Criterion criterion;
+
+        IndexPlan(RegistrationIndex index, RegistrationQuery.Criterion criterion) {
+            this.index = index;
+            this.criterion = criterion;
+        }
+
+        @Override
+        public List<Registration> execute() {
+            List<Registration> result = index.lookup(criterion);
+            if (index.getField() != RegistrationField.STUDENT_ID) {
+                Collections.sort(result, STORE_ORDER);
+            }
+            rowsExamined = result.size();
+            rowsReturned = result.size();
+            return result;
+        }
+
+        @Override
+        public int estimate() {
+            return index.estimate(criterion);
+        }
+
+        @Override
+        public String describe() {
+            return "INDEX LOOKUP " + criterion;
+        }
+    }
+
+    /**
+     * A plan that filters the result of another plan by the full query.
+     */
+    private static class FilterPlan extends QueryPlan {
+
+        private final QueryPlan source;
+        private final RegistrationQuery query;
+
+        FilterPlan(QueryPlan source, RegistrationQuery query) {
+            this.source = source;
+            this.query = query;
+        }
+
+        @Override
+        public List<Registration> execute() {
+            List<Registration> result = new ArrayList<>();
+            for (Registration r : source.execute()) {
+                if (query.test(r)) {
+                    result.add(r);
+                }
+            }
+            rowsExamined = source.getRowsExamined();
+            rowsReturned = result.size();
+            return result;
+        }
+
+        @Override
+        public int estimate() {
+            return source.estimate();
+        }
+
+        @Override
+        public String describe() {
+            return source.describe() + " -> FILTER " + query;
+        }
+    }
+
+    /**
+     * A plan that merges the results of several index-based plans.
+     */
+    private static class UnionPlan extends QueryPlan {
+
+        private final List<QueryPlan> sources;
+
+        UnionPlan(List<QueryPlan> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public List<Registration> execute() {
+            Map<Registration, Boolean> seen = new IdentityHashMap<>();
+            List<Registration> result = new ArrayList<>();
+            int examined = 0;
+            for (QueryPlan source : sources) {
+                for (Registration r : source.execute()) {
+                    if (seen.put(r, Boolean.TRUE) == null) {
+                        result.add(r);
+                    }
+                }
+                examined += source.getRowsExamined();
+            }
+            Collections.sort(result, STORE_ORDER);
+            rowsExamined = examined;
+            rowsReturned = result.size();
+            return result;
+        }
+
+        @Override
+        public int estimate() {
+            int total = 0;
+            for (QueryPlan source : sources) {
+                total += source.estimate();
+            }
+            return total;
+        }
+
+        @Override
+        public String describe() {
+            StringBuilder sb = new StringBuilder("UNION [");
+            for (int i = 0; i < sources.size(); i++) {
+                sb.append(i > 0 ? "; " : "").append(sources.get(i).describe());
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
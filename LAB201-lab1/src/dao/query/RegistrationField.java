@@ -0,0 +1,77 @@
+package dao.query;
+
+import java.util.function.Function;
+import model.Registration;
+
+/**
+ * Enumerates the {@link Registration} fields that can be used in a {@link RegistrationQuery}.
+ * 
+ * @author ho huy
+ */
+public enum RegistrationField {
+
+    /**
+     * The student ID of the registration.
+     */
+    STUDENT_ID("student id", Registration::getStudentId),
+
+    /**
+     * The student name of the registration.
+     */
+    NAME("name", Registration::getName),
+
+    /**
+     * The email address of the registration.
+     */
+    EMAIL("email", Registration::getEmail),
+
+    /**
+     * The phone number of the registration.
+     */
+    PHONE("phone", Registration::getPhone),
+
+    /**
+     * The mountain code of the registration.
+     */
+    MOUNTAIN_CODE("mountain code", Registration::getMountainCode);
+
+    /**
+     * The display name of the field.
+     */
+    private final String label;
+
+    /**
+     * The accessor reading the field value from a registration.
+     */
+    private final Function<Registration, String> accessor;
+
+    /**
+     * Constructs a field with its display name and accessor.
+     *
+     * @param label    the display name of the field
+     * @param accessor the function reading the field value
+     */
+    RegistrationField(String label, Function<Registration, String> accessor) {
+        this.label = label;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Reads the value of this field from the given registration.
+     *
+     * @param registration the registration to read
+     * @return the field value
+     */
+    public String valueOf(Registration registration) {
+        return accessor.apply(registration);
+    }
+
+    /**
+     * Returns the display name of the field.
+     *
+     * @return the display name
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,241 @@
+package dao.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import model.Registration;
+
+/**
+ * A secondary index over one {@link RegistrationField}.
+ * <p>
+ * A hash index answers equality lookups only; an ordered index is backed by a
+ * {@link TreeMap} and also answers prefix and range lookups. Since registrations are
+ * modified in place through their setters, the index remembers the key each record
+ * was indexed under, so a record can be removed even after its field has changed.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationIndex {
+
+    /**
+     * The indexed field.
+     */
+    private final RegistrationField field;
+
+    /**
+     * Whether the index keeps its keys sorted.
+     */
+    private final boolean ordered;
+
+    /**
+     * The index entries, mapping each key to the registrations holding it.
+     */
+    private final Map<String, List<Registration>> entries;
+
+    /**
+     * The key each registration is currently indexed under.
+     */
+    private final Map<Registration, String> indexedKeys = new IdentityHashMap<>();
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param field   the field to index
+     * @param ordered {@code true} for an ordered index supporting prefix and range lookups
+     */
+    public RegistrationIndex(RegistrationField field, boolean ordered) {
+        this.field = field;
+        this.ordered = ordered;
+        this.entries = ordered ? new TreeMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Returns the indexed field.
+     *
+     * @return the field
+     */
+    public RegistrationField getField() {
+        return field;
+    }
+
+    /**
+     * Returns whether the index is ordered.
+     *
+     * @return {@code true} if the index supports prefix and range lookups
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Checks whether the index can answer the given criterion.
+     *
+     * @param criterion the criterion to answer
+     * @return {@code true} if the criterion is on this field and its operator is supported
+     */
+    public boolean supports(RegistrationQuery.Criterion criterion) {
+        return criterion.getField() == field
+                && (ordered || criterion.getOperator() == RegistrationQuery.Operator.EQUAL);
+    }
+
+    /**
+     * Adds a registration to the index.
+     *
+     * @param registration the registration to add
+     */
+    public void add(Registration registration) {
+        String key = field.valueOf(registration);
+        if (key == null) {
+            return;
+        }
+        List<Registration> bucket = entries.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            entries.put(key, bucket);
+        }
+        bucket.add(registration);
+        indexedKeys.put(registration, key);
+    }
+
+    /**
+     * Removes a registration from the index, using the key it was indexed under.
+     *
+     * @param registration the registration to remove
+     */
+    public void remove(Registration registration) {
+        String key = indexedKeys.remove(registration);
+        if (key == null) {
+            return;
+        }
+        List<Registration> bucket = entries.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == registration) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Re-indexes a registration whose field may have changed.
+     *
+     * @param registration the registration to re-index
+     */
+    public void refresh(Registration registration) {
+        remove(registration);
+        add(registration);
+    }
+
+    /**
+     * Removes every entry from the index.
+     */
+    public void clear() {
+        entries.clear();
+        indexedKeys.clear();
+    }
+
+    /**
+     * Returns the number of distinct keys in the index.
+     *
+     * @return the number of keys
+     */
+    public int keyCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the distinct keys of the index.
+     *
+     * @return a view of the indexed keys
+     */
+    public Collection<String> keys() {
+        return entries.keySet();
+    }
+
+    /**
+     * Looks up the registrations matching a supported criterion.
+     *
+     * @param criterion the criterion to answer
+     * @return a new list of the matching registrations
+     * @throws IllegalArgumentException if the index does not support the criterion
+     */
+    public List<Registration> lookup(RegistrationQuery.Criterion criterion) {
+        if (!supports(criterion)) {
+            throw new IllegalArgumentException("Index on " + field.getLabel() + " cannot answer " + criterion);
+        }
+        List<Registration> result = new ArrayList<>();
+        if (criterion.getOperator() == RegistrationQuery.Operator.EQUAL) {
+            List<Registration> bucket = entries.get(criterion.getValue());
+            if (bucket != null) {
+                result.addAll(bucket);
+            }
+            return result;
+        }
+        for (List<Registration> bucket : subMap(criterion).values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the number of registrations matching a supported criterion.
+     * <p>
+     * Equality lookups are exact and cost O(1); prefix and range estimates walk the
+     * covered keys without copying any registration.
+     * </p>
+     *
+     * @param criterion the criterion to answer
+     * @return the number of registrations the lookup would return
+     */
+    public int estimate(RegistrationQuery.Criterion criterion) {
+        if (criterion.getOperator() == RegistrationQuery.Operator.EQUAL) {
+            List<Registration> bucket = entries.get(criterion.getValue());
+            return bucket == null ? 0 : bucket.size();
+        }
+        int count = 0;
+        for (List<Registration> bucket : subMap(criterion).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the portion of an ordered index covered by a prefix or range criterion.
+     *
+     * @param criterion the prefix or range criterion
+     * @return a view of the matching entries
+     */
+    private NavigableMap<String, List<Registration>> subMap(RegistrationQuery.Criterion criterion) {
+        NavigableMap<String, List<Registration>> sorted = (NavigableMap<String, List<Registration>>) entries;
+        if (criterion.getOperator() == RegistrationQuery.Operator.PREFIX) {
+            String prefix = criterion.getValue();
+            return sorted.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+        String from = criterion.getValue();
+        String to = criterion.getUpper();
+        if (from != null && to != null) {
+            return from.compareTo(to) > 0
+                    ? new TreeMap<String, List<Registration>>()
+                    : sorted.subMap(from, true, to, true);
+        }
+        if (from != null) {
+            return sorted.tailMap(from, true);
+        }
+        if (to != null) {
+            return sorted.headMap(to, true);
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,283 @@
+package dao.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import model.Registration;
+
+/**
+ * A structured query over {@link Registration} records.
+ * <p>
+ * Unlike an opaque {@link Predicate}, a query exposes its criteria so that the
+ * {@link QueryPlanner} can answer it from an index instead of scanning every record.
+ * Queries are built from equality, prefix and range criteria on a {@link RegistrationField}
+ * and combined with {@link #and(RegistrationQuery...)} and {@link #or(RegistrationQuery...)}.
+ * </p>
+ * <p>
+ * Queries are immutable and compare by value, so they can be used as cache keys.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public abstract class RegistrationQuery implements Predicate<Registration> {
+
+    /**
+     * The comparison operators supported by a {@link Criterion}.
+     */
+    public enum Operator {
+        /** The field value equals the operand. */
+        EQUAL,
+        /** The field value starts with the operand. */
+        PREFIX,
+        /** The field value lies between the two operands (inclusive). */
+        RANGE
+    }
+
+    /**
+     * Creates an equality criterion.
+     *
+     * @param field the field to compare
+     * @param value the expected value
+     * @return the query matching registrations whose field equals {@code value}
+     */
+    public static RegistrationQuery equal(RegistrationField field, String value) {
+        return new Criterion(field, Operator.EQUAL, value, null);
+    }
+
+    /**
+     * Creates a prefix criterion.
+     *
+     * @param field  the field to compare
+     * @param prefix the expected prefix
+     * @return the query matching registrations whose field starts with {@code prefix}
+     */
+    public static RegistrationQuery prefix(RegistrationField field, String prefix) {
+        return new Criterion(field, Operator.PREFIX, prefix, null);
+    }
+
+    /**
+     * Creates a range criterion with inclusive bounds.
+     *
+     * @param field the field to compare
+     * @param from  the lower bound, or {@code null} for no lower bound
+     * @param to    the upper bound, or {@code null} for no upper bound
+     * @return the query matching registrations whose field lies between the bounds
+     */
+    public static RegistrationQuery range(RegistrationField field, String from, String to) {
+        return new Criterion(field, Operator.RANGE, from, to);
+    }
+
+    /**
+     * Combines queries so that all of them must match.
+     *
+     * @param queries the queries to combine
+     * @return the conjunction of the queries
+     */
+    public static RegistrationQuery and(RegistrationQuery... queries) {
+        return new Composite(true, Arrays.asList(queries));
+    }
+
+    /**
+     * Combines queries so that at least one of them must match.
+     *
+     * @param queries the queries to combine
+     * @return the disjunction of the queries
+     */
+    public static RegistrationQuery or(RegistrationQuery... queries) {
+        return new Composite(false, Arrays.asList(queries));
+    }
+
+    /**
+     * A single comparison between a field and one or two operands.
+     */
+    public static final class Criterion extends RegistrationQuery {
+
+        private final RegistrationField field;
+        private final Operator operator;
+        private final String value;
+        private final String upper;
+
+        /**
+         * Constructs a criterion.
+         *
+         * @param field    the field to compare
+         * @param operator the comparison operator
+         * @param value    the operand, or the lower bound of a range
+         * @param upper    the upper bound of a range, {@code null} otherwise
+         */
+        private Criterion(RegistrationField field, Operator operator, String value, String upper) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+            this.upper = upper;
+        }
+
+        /**
+         * Returns the compared field.
+         *
+         * @return the field
+         */
+        public RegistrationField getField() {
+            return field;
+        }
+
+        /**
+         * Returns the comparison operator.
+         *
+         * @return the operator
+         */
+        public Operator getOperator() {
+            return operator;
+        }
+
+        /**
+         * Returns the operand, or the lower bound of a range.
+         *
+         * @return the operand
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the upper bound of a range.
+         *
+         * @return the upper bound, or {@code null}
+         */
+        public String getUpper() {
+            return upper;
+        }
+
+        @Override
+        public boolean test(Registration registration) {
+            String actual = field.valueOf(registration);
+            if (actual == null) {
+                return false;
+            }
+            switch (operator) {
+                case EQUAL:
+                    return actual.equals(value);
+                case PREFIX:
+                    return actual.startsWith(value);
+                case RANGE:
+                    return (value == null || actual.compareTo(value) >= 0)
+                            && (upper == null || actual.compareTo(upper) <= 0);
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Criterion)) {
+                return false;
+            }
+            Criterion other = (Criterion) obj;
+            return field == other.field
+                    && operator == other.operator
+                    && Objects.equals(value, other.value)
+                    && Objects.equals(upper, other.upper);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, operator, value, upper);
+        }
+
+        @Override
+        public String toString() {
+            switch (operator) {
+                case EQUAL:
+                    return field.getLabel() + " = '" + value + "'";
+                case PREFIX:
+                    return field.getLabel() + " starts with '" + value + "'";
+                default:
+                    return field.getLabel() + " between '" + (value == null ? "" : value)
+                            + "' and '" + (upper == null ? "" : upper) + "'";
+            }
+        }
+    }
+
+    /**
+     * A combination of queries joined with AND or OR.
+     */
+    public static final class Composite extends RegistrationQuery {
+
+        private final boolean conjunction;
+        private final List<RegistrationQuery> children;
+
+        /**
+         * Constructs a composite query.
+         *
+         * @param conjunction {@code true} for AND, {@code false} for OR
+         * @param children    the combined queries
+         */
+        private Composite(boolean conjunction, List<RegistrationQuery> children) {
+            this.conjunction = conjunction;
+            this.children = Collections.unmodifiableList(new ArrayList<>(children));
+        }
+
+        /**
+         * Returns whether the children are joined with AND.
+         *
+         * @return {@code true} for AND, {@code false} for OR
+         */
+        public boolean isConjunction() {
+            return conjunction;
+        }
+
+        /**
+         * Returns the combined queries.
+         *
+         * @return an unmodifiable list of the children
+         */
+        public List<RegistrationQuery> getChildren() {
+            return children;
+        }
+
+        @Override
+        public boolean test(Registration registration) {
+            for (RegistrationQuery child : children) {
+                if (child.test(registration) != conjunction) {
+                    return !conjunction;
+                }
+            }
+            return conjunction;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Composite)) {
+                return false;
+            }
+            Composite other = (Composite) obj;
+            return conjunction == other.conjunction && children.equals(other.children);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Boolean.hashCode(conjunction) + children.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("(");
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0) {
+                    sb.append(conjunction ? " AND " : " OR ");
+                }
+                sb.append(children.get(i));
+            }
+            return sb.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dao.query;
+
+import java.util.Comparator;
+import model.Registration;
+
+/**
+ * Enumerates the orders in which registration listings can be sorted.
+ * <p>
+ * Every order breaks ties by student ID, which is unique, so each key defines one total order
+ * and a page of a listing is always the same for the same data.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public enum SortKey {
+
+    /**
+     * By student ID, the order of the registration list itself.
+     */
+    STUDENT_ID("student ID", Comparator.comparing(Registration::getStudentId)),
+
+    /**
+     * By student name.
+     */
+    NAME("name", Comparator.comparing(Registration::getName)),
+
+    /**
+     * By email address.
+     */
+    EMAIL("email", Comparator.comparing(Registration::getEmail)),
+
+    /**
+     * By mountain code, in numeric order.
+     */
+    MOUNTAIN_CODE("mountain code", Comparator.comparingInt(r -> Integer.parseInt(r.getMountainCode()))),
+
+    /**
+     * By registration fee.
+     */
+    FEE("fee", Comparator.comparingDouble(Registration::getFee));
+
+    /**
+     * The display name of the order.
+     */
+    private final String label;
+
+    /**
+     * The comparator of the order, ties broken by student ID.
+     */
+    private final Comparator<Registration> comparator;
+
+    /**
+     * Constructs a sort key with its display name and primary comparator.
+     *
+     * @param label   the display name of the order
+     * @param primary the comparator on the sorted field
+     */
+    SortKey(String label, Comparator<Registration> primary) {
+        this.label = label;
+        this.comparator = primary.thenComparing(Registration::getStudentId);
+    }
+
+    /**
+     * Returns the comparator of the order.
+     *
+     * @return the comparator, ties broken by student ID
+     */
+    public Comparator<Registration> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the display name of the order.
+     *
+     * @return the display name
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,151 @@
+package dao.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import model.Registration;
+
+/**
+ * Sorted views of the registration list kept as permutation arrays.
+ * <p>
+ * The views share one snapshot of the registrations taken at a given generation of the list.
+ * For each {@link SortKey} the view is an {@code int[]} holding the snapshot positions in sorted
+ * order, built the first time that order is asked for and reused until the generation changes.
+ * The snapshot itself is never reordered, so building a view leaves the registration list as it
+ * is, and once built, a page of any size {@code k} costs O(k) in either direction.
+ * </p>
+ * <p>
+ * From {@value #PARALLEL_THRESHOLD} registrations on, permutations are sorted with
+ * {@link Arrays#parallelSort(Object[], Comparator)}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class SortPermutations {
+
+    /**
+     * The number of registrations from which permutations are sorted in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * The registrations at the generation the permutations were built for.
+     */
+    private Registration[] snapshot = new Registration[0];
+
+    /**
+     * The generation of the snapshot, or -1 before the first snapshot.
+     */
+    private long generation = -1;
+
+    /**
+     * The permutations built so far for the snapshot, by key.
+     */
+    private final Map<SortKey, int[]> permutations = new EnumMap<>(SortKey.class);
+
+    /**
+     * The total time spent building permutations, in nanoseconds.
+     */
+    private long buildNanos;
+
+    /**
+     * Returns a page of the registrations in the given order.
+     * <p>
+     * When the list has changed since the last call, the snapshot is retaken and every
+     * permutation is dropped; the permutation of the key is then built if it is missing.
+     * </p>
+     *
+     * @param list       the registration list, read only when the generation changed
+     * @param generation the current generation of the list
+     * @param key        the order of the listing
+     * @param descending whether to walk the order backwards
+     * @param offset     the position of the first registration of the page
+     * @param limit      the maximum number of registrations of the page
+     * @return an unmodifiable list of at most {@code limit} registrations
+     */
+    public synchronized List<Registration> page(List<Registration> list, long generation,
+            SortKey key, boolean descending, int offset, int limit) {
+        int[] order = permutation(list, generation, key);
+        int from = Math.max(0, offset);
+        int to = (int) Math.min(order.length, (long) from + Math.max(0, limit));
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<Registration> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(snapshot[order[descending ? order.length - 1 - i : i]]);
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    /**
+     * Returns the permutation of a key, retaking the snapshot or sorting as needed.
+     *
+     * @param list       the registration list
+     * @param generation the current generation of the list
+     * @param key        the order of the permutation
+     * @return the snapshot positions in sorted order
+     */
+    private int[] permutation(List<Registration> list, long generation, SortKey key) {
+        if (generation != this.generation) {
+            snapshot = list.toArray(new Registration[0]);
+            permutations.clear();
+            this.generation = generation;
+        }
+        int[] order = permutations.get(key);
+        if (order == null) {
+            long start = System.nanoTime();
+            order = sort(snapshot, key);
+            buildNanos += System.nanoTime() - start;
+            permutations.put(key, order);
+        }
+        return order;
+    }
+
+    /**
+     * Sorts the positions of an array of registrations without moving the registrations.
+     *
+     * @param registrations the registrations to sort
+     * @param key           the order to sort by
+     * @return the positions of the registrations in sorted order
+     */
+    private static int[] sort(Registration[] registrations, SortKey key) {
+        Integer[] positions = new Integer[registrations.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        Comparator<Integer> byKey = (a, b) -> key.comparator().compare(registrations[a], registrations[b]);
+        if (positions.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(positions, byKey);
+        } else {
+            Arrays.sort(positions, byKey);
+        }
+        int[] order = new int[positions.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = positions[i];
+        }
+        return order;
+    }
+
+    /**
+     * Returns the number of registrations in the current snapshot.
+     *
+     * @return the snapshot size
+     */
+    public synchronized int size() {
+        return snapshot.length;
+    }
+
+    /**
+     * Returns the total time spent building permutations.
+     *
+     * @return the build time in nanoseconds
+     */
+    public synchronized long getBuildNanos() {
+        return buildNanos;
+    }
+}
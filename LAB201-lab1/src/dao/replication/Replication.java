@@ -0,0 +1,99 @@
+package dao.replication;
+
+import dao.RegistrationDAO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+
+/**
+ * Starts replication of a {@link RegistrationDAO} as configured by system properties.
+ * <p>
+ * With {@value #ROLE_PROPERTY}{@code =primary} the DAO stays writable and ships its changes to
+ * the replicas connecting on port {@value #PORT_PROPERTY} (default {@value #DEFAULT_PORT}) of
+ * address {@value #BIND_PROPERTY} (default loopback, so only local replicas can connect). With
+ * {@value #ROLE_PROPERTY}{@code =replica} the DAO becomes read-only and follows the primary at
+ * {@value #PRIMARY_PROPERTY} (default {@code localhost:}{@value #DEFAULT_PORT}). Without the
+ * property, nothing is replicated. A replica's DAO is made read-only before anything else, so
+ * a replica that fails to start never accepts writes that the primary would not have.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class Replication {
+
+    /**
+     * The system property selecting the role, {@code primary} or {@code replica}.
+     */
+    public static final String ROLE_PROPERTY = "replication.role";
+
+    /**
+     * The system property holding the port the primary listens on.
+     */
+    public static final String PORT_PROPERTY = "replication.port";
+
+    /**
+     * The system property holding the address the primary listens on.
+     */
+    public static final String BIND_PROPERTY = "replication.bind";
+
+    /**
+     * The system property holding the {@code host:port} of the primary a replica follows.
+     */
+    public static final String PRIMARY_PROPERTY = "replication.primary";
+
+    /**
+     * The system property holding the number of changes the primary keeps for catching up.
+     */
+    public static final String LOG_CAPACITY_PROPERTY = "replication.log.capacity";
+
+    /**
+     * The system property holding the seconds between two checkpoints of a replica, 0 for none.
+     */
+    public static final String CHECKPOINT_PROPERTY = "replication.checkpoint.seconds";
+
+    /**
+     * The default port of the primary.
+     */
+    public static final int DEFAULT_PORT = 7070;
+
+    private Replication() {
+    }
+
+    /**
+     * Starts the configured side of replication for a DAO.
+     *
+     * @param rdao the DAO to replicate
+     * @return the running node, or {@code null} if replication is not configured
+     * @throws UncheckedIOException if the primary cannot listen on its port
+     * @throws IllegalArgumentException if the configured role or primary address is invalid
+     */
+    public static ReplicationNode start(RegistrationDAO rdao) {
+        String role = System.getProperty(ROLE_PROPERTY);
+        if (role == null) {
+            return null;
+        }
+        switch (role) {
+            case "primary":
+                try {
+                    String bind = System.getProperty(BIND_PROPERTY);
+                    InetAddress address = bind == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+                    return new ReplicationPrimary(rdao, address, Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT),
+                            Integer.getInteger(LOG_CAPACITY_PROPERTY, ReplicationPrimary.DEFAULT_LOG_CAPACITY));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            case "replica":
+                rdao.setReadOnly(true);
+                String primary = System.getProperty(PRIMARY_PROPERTY, "localhost:" + DEFAULT_PORT);
+                int colon = primary.lastIndexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("The primary address must be host:port!");
+                }
+                return new ReplicationReplica(rdao, primary.substring(0, colon),
+                        Integer.parseInt(primary.substring(colon + 1)),
+                        Integer.getInteger(CHECKPOINT_PROPERTY, ReplicationReplica.DEFAULT_CHECKPOINT_SECONDS));
+            default:
+                throw new IllegalArgumentException("Unknown replication role " + role + "!");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package dao.replication;
+
+import java.io.Serializable;
+import java.util.List;
+import model.Registration;
+
+/**
+ * A message exchanged between a primary and a replica.
+ * <p>
+ * A replica opens the connection with {@link Kind#HELLO}, giving the epoch and generation it holds.
+ * The primary answers with a {@link Kind#SNAPSHOT} when the replica cannot be caught up from the
+ * log, then sends every later {@link Kind#CHANGE} in generation order, and a
+ * {@link Kind#HEARTBEAT} whenever nothing changed for a while.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class ReplicationMessage implements Serializable {
+
+    /**
+     * The serialization version of the message format.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of messages.
+     */
+    public enum Kind {
+        HELLO, SNAPSHOT, CHANGE, HEARTBEAT
+    }
+
+    /**
+     * The kind of the message.
+     */
+    private final Kind kind;
+
+    /**
+     * The epoch of the primary, identifying one run of its generation counter.
+     */
+    private final long epoch;
+
+    /**
+     * The generation the message brings the replica to, or holds.
+     */
+    private final long generation;
+
+    /**
+     * The primary's clock when the change was made or the message was sent, in milliseconds.
+     */
+    private final long timestamp;
+
+    /**
+     * The student ID of a changed registration.
+     */
+    private final String studentId;
+
+    /**
+     * The registration after a change, {@code null} for a deletion.
+     */
+    private final Registration registration;
+
+    /**
+     * The registrations of a snapshot.
+     */
+    private final List<Registration> registrations;
+
+    /**
+     * Constructs a message; use the factory of its kind.
+     */
+    private ReplicationMessage(Kind kind, long epoch, long generation, long timestamp,
+            String studentId, Registration registration, List<Registration> registrations) {
+        this.kind = kind;
+        this.epoch = epoch;
+        this.generation = generation;
+        this.timestamp = timestamp;
+        this.studentId = studentId;
+        this.registration = registration;
+        this.registrations = registrations;
+    }
+
+    /**
+     * Creates the opening message of a replica.
+     *
+     * @param epoch      the epoch of the data the replica holds, 0 if none
+     * @param generation the last generation the replica applied
+     * @return the message
+     */
+    public static ReplicationMessage hello(long epoch, long generation) {
+        return new ReplicationMessage(Kind.HELLO, epoch, generation, System.currentTimeMillis(), null, null, null);
+    }
+
+    /**
+     * Creates a snapshot of every registration at a generation.
+     *
+     * @param epoch         the epoch of the primary
+     * @param generation    the generation of the snapshot
+     * @param registrations the registrations at that generation
+     * @return the message
+     */
+    public static ReplicationMessage snapshot(long epoch, long generation, List<Registration> registrations) {
+        return new ReplicationMessage(Kind.SNAPSHOT, epoch, generation, System.currentTimeMillis(), null, null, registrations);
+    }
+
+    /**
+     * Creates the record of one change.
+     *
+     * @param epoch        the epoch of the primary
+     * @param generation   the generation of the change
+     * @param studentId    the student ID of the changed registration
+     * @param registration the registration after the change, or {@code null} for a deletion
+     * @return the message
+     */
+    public static ReplicationMessage change(long epoch, long generation, String studentId, Registration registration) {
+        return new ReplicationMessage(Kind.CHANGE, epoch, generation, System.currentTimeMillis(), studentId, registration, null);
+    }
+
+    /**
+     * Creates a heartbeat carrying the latest generation of the primary.
+     *
+     * @param epoch      the epoch of the primary
+     * @param generation the latest generation of the primary
+     * @return the message
+     */
+    public static ReplicationMessage heartbeat(long epoch, long generation) {
+        return new ReplicationMessage(Kind.HEARTBEAT, epoch, generation, System.currentTimeMillis(), null, null, null);
+    }
+
+    /**
+     * Returns the kind of the message.
+     *
+     * @return the message kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the epoch of the primary, or of the replica's data for a hello.
+     *
+     * @return the epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the generation the message brings the replica to, or holds.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the primary's clock when the change was made or the message was sent.
+     *
+     * @return the timestamp in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the student ID of the changed registration.
+     *
+     * @return the student ID, or {@code null} if the message is not a change
+     */
+    public String getStudentId() {
+        return studentId;
+    }
+
+    /**
+     * Returns the registration after the change.
+     *
+     * @return the registration, or {@code null} for a deletion
+     */
+    public Registration getRegistration() {
+        return registration;
+    }
+
+    /**
+     * Returns the registrations of the snapshot.
+     *
+     * @return the registrations, or {@code null} if the message is not a snapshot
+     */
+    public List<Registration> getRegistrations() {
+        return registrations;
+    }
+}
@@ -0,0 +1,31 @@
+package dao.replication;
+
+import java.io.Closeable;
+
+/**
+ * A running side of registration replication, either the primary or a replica.
+ * 
+ * @author ho huy
+ */
+public interface ReplicationNode extends Closeable {
+
+    /**
+     * Saves the local registrations together with whatever the node needs to resume after a restart.
+     *
+     * @return {@code true} if the save was successful; {@code false} otherwise
+     */
+    boolean checkpoint();
+
+    /**
+     * Describes the state of the node for display, including the replication lag.
+     *
+     * @return a multi-line status report
+     */
+    String getStatus();
+
+    /**
+     * Stops the node and releases its connections.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,386 @@
+package dao.replication;
+
+import dao.RegistrationDAO;
+import dao.event.RegistrationEvent;
+import dao.event.RegistrationListener;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import model.Registration;
+
+/**
+ * The primary side of replication: ships every change of a {@link RegistrationDAO} to its replicas.
+ * <p>
+ * The primary listens to the DAO's events and keeps the last changes in an ordered mutation log
+ * of bounded capacity. Each connected replica gets a sender thread that starts from the
+ * generation the replica reports: if the log still holds every later change the replica is
+ * caught up from the log tail, otherwise it first receives a snapshot of every registration.
+ * Changes are then streamed as they are made, with a heartbeat when the DAO is idle so replicas
+ * can tell how far behind they are.
+ * </p>
+ * <p>
+ * Generations restart from zero when the program restarts, so every run draws a new epoch and a
+ * replica reporting another epoch always gets a snapshot.
+ * </p>
+ * <p>
+ * The primary listens on the loopback address unless another one is given, since replicas are
+ * not authenticated. The hello of a replica is deserialized through {@link #HELLO_FILTER}, which
+ * only admits a {@link ReplicationMessage}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ReplicationPrimary implements ReplicationNode, RegistrationListener {
+
+    /**
+     * The default number of changes kept in the log.
+     */
+    public static final int DEFAULT_LOG_CAPACITY = 100_000;
+
+    /**
+     * The longest time without a message to a replica, in milliseconds.
+     */
+    static final long HEARTBEAT_MILLIS = 500;
+
+    /**
+     * The number of messages after which a sender's object stream forgets the objects written.
+     */
+    private static final int RESET_INTERVAL = 256;
+
+    /**
+     * The classes the hello of a replica may be made of: the message and its kind.
+     */
+    static final ObjectInputFilter HELLO_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=4;dao.replication.ReplicationMessage;dao.replication.ReplicationMessage$Kind;java.lang.Enum;!*");
+
+    /**
+     * The replicated DAO.
+     */
+    private final RegistrationDAO rdao;
+
+    /**
+     * The epoch of this run of the primary, never 0.
+     */
+    private final long epoch;
+
+    /**
+     * The maximum number of changes kept in the log.
+     */
+    private final int capacity;
+
+    /**
+     * The last changes, in generation order.
+     */
+    private final ArrayDeque<ReplicationMessage> log = new ArrayDeque<>();
+
+    /**
+     * The latest generation of the DAO.
+     */
+    private long latest;
+
+    /**
+     * The socket accepting replicas.
+     */
+    private final ServerSocket server;
+
+    /**
+     * The connected replicas.
+     */
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The number of snapshots sent since the start.
+     */
+    private final AtomicLong snapshots = new AtomicLong();
+
+    /**
+     * Whether the primary has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Starts a primary for a DAO and listens for replicas on the loopback address.
+     *
+     * @param rdao     the DAO to replicate
+     * @param port     the port to listen on
+     * @param capacity the number of changes kept for catching up, at least 1
+     * @throws IOException if the port cannot be bound
+     */
+    public ReplicationPrimary(RegistrationDAO rdao, int port, int capacity) throws IOException {
+        this(rdao, InetAddress.getLoopbackAddress(), port, capacity);
+    }
+
+    /**
+     * Starts a primary for a DAO and listens for replicas.
+     *
+     * @param rdao     the DAO to replicate
+     * @param address  the address to listen on
+     * @param port     the port to listen on
+     * @param capacity the number of changes kept for catching up, at least 1
+     * @throws IOException if the port cannot be bound
+     */
+    public ReplicationPrimary(RegistrationDAO rdao, InetAddress address, int port, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The log capacity must be at least 1!");
+        }
+        this.rdao = rdao;
+        this.capacity = capacity;
+        long drawn = new SecureRandom().nextLong();
+        this.epoch = drawn == 0 ? 1 : drawn;
+        this.server = new ServerSocket(port, 0, address);
+        synchronized (rdao) {
+            latest = rdao.getGeneration();
+            rdao.getEvents().subscribe(this);
+        }
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Appends a change of the DAO to the log and wakes the senders.
+     *
+     * @param event the change
+     */
+    @Override
+    public synchronized void onChange(RegistrationEvent event) {
+        Registration changed = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        log.add(ReplicationMessage.change(epoch, event.getGeneration(), changed.getStudentId(), event.getAfter()));
+        latest = event.getGeneration();
+        while (log.size() > capacity) {
+            log.poll();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the changes after a generation.
+     *
+     * @param cursor the last generation the replica holds
+     * @return the later changes in order, empty if there are none, or {@code null} if the log
+     *         no longer holds all of them
+     */
+    private synchronized List<ReplicationMessage> after(long cursor) {
+        if (cursor == latest) {
+            return Collections.emptyList();
+        }
+        if (cursor > latest || log.isEmpty() || cursor < log.peekFirst().getGeneration() - 1) {
+            return null;
+        }
+        List<ReplicationMessage> batch = new ArrayList<>();
+        Iterator<ReplicationMessage> it = log.descendingIterator();
+        while (it.hasNext()) {
+            ReplicationMessage message = it.next();
+            if (message.getGeneration() <= cursor) {
+                break;
+            }
+            batch.add(message);
+        }
+        Collections.reverse(batch);
+        return batch;
+    }
+
+    /**
+     * Waits until a change follows a generation or the heartbeat interval elapses.
+     *
+     * @param cursor the last generation the replica holds
+     * @return the result of {@link #after(long)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private synchronized List<ReplicationMessage> await(long cursor) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + HEARTBEAT_MILLIS;
+        long remaining;
+        while (latest == cursor && !closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+        return after(cursor);
+    }
+
+    /**
+     * Returns the latest generation of the DAO.
+     *
+     * @return the latest generation
+     */
+    private synchronized long latest() {
+        return latest;
+    }
+
+    /**
+     * Accepts replicas until the primary is closed.
+     */
+    private void accept() {
+        while (!closed) {
+            try {
+                Session session = new Session(server.accept());
+                sessions.add(session);
+                Thread sender = new Thread(session, "replication-sender-" + session.socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                // Closing the server socket ends the loop; other failures only lose one replica.
+            }
+        }
+    }
+
+    /**
+     * Saves the DAO; the log only lives as long as the program.
+     *
+     * @return {@code true} if the save was successful; {@code false} otherwise
+     */
+    @Override
+    public boolean checkpoint() {
+        return rdao.save();
+    }
+
+    /**
+     * Describes the log and the connected replicas.
+     *
+     * @return the status report
+     */
+    @Override
+    public synchronized String getStatus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Primary on port %d, epoch %016x: generation %d, log holds %,d of %,d changes",
+                server.getLocalPort(), epoch, latest, log.size(), capacity));
+        if (!log.isEmpty()) {
+            sb.append(String.format(" (from generation %d)", log.peekFirst().getGeneration()));
+        }
+        sb.append(String.format(", %d snapshots sent.", snapshots.get()));
+        sb.append(String.format("%nReplicas connected: %d", sessions.size()));
+        for (Session session : sessions) {
+            sb.append(String.format("%n  %s sent up to generation %d (%d behind)",
+                    session.socket.getRemoteSocketAddress(), session.cursor, latest - session.cursor));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of connected replicas.
+     *
+     * @return the replica count
+     */
+    public int getReplicaCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of snapshots sent since the start.
+     *
+     * @return the snapshot count
+     */
+    public long getSnapshots() {
+        return snapshots.get();
+    }
+
+    /**
+     * Stops accepting replicas, disconnects the connected ones and stops following the DAO.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        rdao.getEvents().unsubscribe(this);
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        for (Session session : sessions) {
+            session.close();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * The connection to one replica and the loop sending it changes.
+     */
+    private class Session implements Runnable {
+
+        private final Socket socket;
+
+        private volatile long cursor;
+
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Sends a snapshot of the DAO.
+         *
+         * @param oos the stream to the replica
+         * @return the generation of the snapshot
+         * @throws IOException if the snapshot cannot be sent
+         */
+        private long sendSnapshot(ObjectOutputStream oos) throws IOException {
+            List<Registration> registrations;
+            long generation;
+            synchronized (rdao) {
+                registrations = rdao.snapshot();
+                generation = rdao.getGeneration();
+            }
+            oos.writeObject(ReplicationMessage.snapshot(epoch, generation, registrations));
+            oos.reset();
+            snapshots.incrementAndGet();
+            return generation;
+        }
+
+        @Override
+        public void run() {
+            try (Socket s = socket;
+                    ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+                oos.flush();
+                ObjectInputStream ois = new ObjectInputStream(s.getInputStream());
+                ois.setObjectInputFilter(HELLO_FILTER);
+                ReplicationMessage hello = (ReplicationMessage) ois.readObject();
+                cursor = hello.getGeneration();
+                List<ReplicationMessage> batch = hello.getEpoch() == epoch ? after(cursor) : null;
+                int sent = 0;
+                while (!closed) {
+                    if (batch == null) {
+                        cursor = sendSnapshot(oos);
+                    } else if (batch.isEmpty()) {
+                        oos.writeObject(ReplicationMessage.heartbeat(epoch, latest()));
+                    } else {
+                        for (ReplicationMessage message : batch) {
+                            oos.writeObject(message);
+                            if (++sent % RESET_INTERVAL == 0) {
+                                oos.reset();
+                            }
+                        }
+                        cursor = batch.get(batch.size() - 1).getGeneration();
+                    }
+                    oos.flush();
+                    batch = await(cursor);
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                // The replica went away; it reconnects and resumes from its own generation.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                sessions.remove(this);
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+}
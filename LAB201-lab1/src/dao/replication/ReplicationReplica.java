@@ -0,0 +1,339 @@
+package dao.replication;
+
+import dao.RegistrationDAO;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Properties;
+
+/**
+ * The replica side of replication: keeps a read-only {@link RegistrationDAO} in step with a primary.
+ * <p>
+ * A background thread connects to the primary, reports the epoch and generation it holds, and
+ * applies the snapshot and changes it receives, so the console keeps answering queries from
+ * the local registrations while they change. When the connection drops it reconnects and
+ * resumes from the last applied generation.
+ * </p>
+ * <p>
+ * A checkpoint saves the registrations and then records the epoch and generation they hold in
+ * {@value #STATE_FILE}, so after a restart the replica only needs the changes made since. The
+ * generation is recorded after the save, so the saved data may already hold the first changes
+ * replayed after a restart; applying a change is idempotent, so that is harmless.
+ * </p>
+ * <p>
+ * The lag is reported both in changes (the primary's latest generation, as last heard, minus the
+ * applied one) and in milliseconds (the time between a change on the primary and its application
+ * here, which is meaningful when both run on the same machine or synchronized clocks).
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ReplicationReplica implements ReplicationNode {
+
+    /**
+     * The default seconds between two automatic checkpoints.
+     */
+    public static final int DEFAULT_CHECKPOINT_SECONDS = 30;
+
+    /**
+     * The file recording the epoch and generation of the saved registrations.
+     */
+    public static final String STATE_FILE = "Replication.state";
+
+    /**
+     * The time to wait before reconnecting, in milliseconds.
+     */
+    private static final long RETRY_MILLIS = 1000;
+
+    /**
+     * The longest silence of the primary before the connection is considered lost, in milliseconds.
+     */
+    private static final int READ_TIMEOUT_MILLIS = (int) (10 * ReplicationPrimary.HEARTBEAT_MILLIS);
+
+    /**
+     * The replicated DAO, read-only for the console.
+     */
+    private final RegistrationDAO rdao;
+
+    /**
+     * The host of the primary.
+     */
+    private final String host;
+
+    /**
+     * The port of the primary.
+     */
+    private final int port;
+
+    /**
+     * The time between two automatic checkpoints in milliseconds, 0 for none.
+     */
+    private final long checkpointMillis;
+
+    /**
+     * The epoch of the local registrations, 0 before the first snapshot.
+     */
+    private volatile long epoch;
+
+    /**
+     * The last generation applied.
+     */
+    private volatile long applied;
+
+    /**
+     * The latest generation of the primary, as last heard.
+     */
+    private volatile long primaryGeneration;
+
+    /**
+     * The delay between the last applied change on the primary and its application here, in milliseconds.
+     */
+    private volatile long lagMillis;
+
+    /**
+     * The local time the primary was last heard from, 0 if never.
+     */
+    private volatile long lastContact;
+
+    /**
+     * The local time of the last checkpoint.
+     */
+    private volatile long lastCheckpoint = System.currentTimeMillis();
+
+    /**
+     * The number of snapshots applied since the start.
+     */
+    private volatile long snapshots;
+
+    /**
+     * The number of changes applied since the start.
+     */
+    private volatile long changes;
+
+    /**
+     * Whether the replica is connected to the primary.
+     */
+    private volatile boolean connected;
+
+    /**
+     * Whether the replica has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The current connection to the primary, or {@code null}.
+     */
+    private volatile Socket socket;
+
+    /**
+     * Starts following a primary, making the DAO read-only.
+     *
+     * @param rdao              the DAO to keep in step
+     * @param host              the host of the primary
+     * @param port              the port of the primary
+     * @param checkpointSeconds the seconds between two automatic checkpoints, 0 for none
+     */
+    public ReplicationReplica(RegistrationDAO rdao, String host, int port, int checkpointSeconds) {
+        this.rdao = rdao;
+        this.host = host;
+        this.port = port;
+        this.checkpointMillis = checkpointSeconds * 1000L;
+        rdao.setReadOnly(true);
+        readState();
+        Thread follower = new Thread(this::follow, "replication-replica");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    /**
+     * Reads the epoch and generation of the saved registrations, if they were recorded.
+     */
+    private void readState() {
+        Properties state = new Properties();
+        try (InputStream in = new FileInputStream(STATE_FILE)) {
+            state.load(in);
+            epoch = Long.parseLong(state.getProperty("epoch", "0"));
+            applied = Long.parseLong(state.getProperty("generation", "0"));
+        } catch (IOException | NumberFormatException e) {
+            epoch = 0;
+            applied = 0;
+        }
+    }
+
+    /**
+     * Connects to the primary and applies what it sends, reconnecting until closed.
+     */
+    private void follow() {
+        while (!closed) {
+            try (Socket s = new Socket(host, port)) {
+                socket = s;
+                s.setSoTimeout(READ_TIMEOUT_MILLIS);
+                ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                oos.writeObject(ReplicationMessage.hello(epoch, applied));
+                oos.flush();
+                ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(s.getInputStream()));
+                connected = true;
+                while (!closed) {
+                    apply((ReplicationMessage) ois.readObject());
+                    if (checkpointMillis > 0 && System.currentTimeMillis() - lastCheckpoint >= checkpointMillis) {
+                        checkpoint();
+                    }
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                // The primary is down or unreachable; retry below.
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies one message of the primary.
+     *
+     * @param message the message
+     */
+    private void apply(ReplicationMessage message) {
+        long now = System.currentTimeMillis();
+        lastContact = now;
+        switch (message.getKind()) {
+            case SNAPSHOT:
+                rdao.install(message.getRegistrations());
+                epoch = message.getEpoch();
+                applied = message.getGeneration();
+                primaryGeneration = message.getGeneration();
+                lagMillis = now - message.getTimestamp();
+                snapshots++;
+                break;
+            case CHANGE:
+                rdao.apply(message.getStudentId(), message.getRegistration());
+                applied = message.getGeneration();
+                primaryGeneration = Math.max(primaryGeneration, applied);
+                lagMillis = now - message.getTimestamp();
+                changes++;
+                break;
+            case HEARTBEAT:
+                primaryGeneration = message.getGeneration();
+                if (applied >= primaryGeneration) {
+                    lagMillis = 0;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Saves the registrations, then records the epoch and generation they hold.
+     *
+     * @return {@code true} if both were saved; {@code false} otherwise
+     */
+    @Override
+    public boolean checkpoint() {
+        synchronized (rdao) {
+            long savedEpoch = epoch;
+            long savedGeneration = applied;
+            if (!rdao.save()) {
+                return false;
+            }
+            Properties state = new Properties();
+            state.setProperty("epoch", Long.toString(savedEpoch));
+            state.setProperty("generation", Long.toString(savedGeneration));
+            try (OutputStream out = new FileOutputStream(STATE_FILE)) {
+                state.store(out, "Replication state of the saved registrations");
+            } catch (IOException e) {
+                return false;
+            }
+            lastCheckpoint = System.currentTimeMillis();
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of changes the replica is behind the primary, as last heard.
+     *
+     * @return the lag in changes
+     */
+    public long getLagGenerations() {
+        return Math.max(0, primaryGeneration - applied);
+    }
+
+    /**
+     * Returns the delay between the last applied change on the primary and its application here.
+     *
+     * @return the lag in milliseconds, 0 when caught up
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Returns the last generation applied.
+     *
+     * @return the applied generation
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * Returns the number of snapshots applied since the start.
+     *
+     * @return the snapshot count
+     */
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Returns whether the replica is connected to the primary.
+     *
+     * @return {@code true} if connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Describes the connection, the applied generation and the lag.
+     *
+     * @return the status report
+     */
+    @Override
+    public String getStatus() {
+        long contact = lastContact;
+        return String.format("Replica of %s:%d, %s (last contact %s), epoch %016x.%n"
+                + "Applied generation %d of %d: lag %d changes, %d ms; %d snapshots and %d changes applied.",
+                host, port, connected ? "connected" : "disconnected",
+                contact == 0 ? "never" : (System.currentTimeMillis() - contact) + " ms ago", epoch,
+                applied, primaryGeneration, getLagGenerations(), lagMillis, snapshots, changes);
+    }
+
+    /**
+     * Stops following the primary; the DAO stays read-only.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+}
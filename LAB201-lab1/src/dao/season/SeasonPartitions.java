@@ -0,0 +1,398 @@
+package dao.season;
+
+import dao.RegistrationDAO;
+import dao.archive.ExternalSorter;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Manages the registrations of several seasons, one {@link RegistrationDAO} partition per season.
+ * <p>
+ * Season {@code name} is kept in {@code Seasons/name.dat}, in the format of
+ * {@code Registrations.dat}. A partition is only loaded on its first access. When the loaded
+ * partitions are estimated to hold more than the memory budget, the least recently used ones
+ * are saved if changed and dropped, until the budget is met or only the partition just
+ * accessed is left. The footprint of a season is estimated from its registrations when it is
+ * loaded; indexes later built by its queries are not counted. The desk's own registrations may
+ * be pinned as a season: a pinned partition is never evicted nor saved here.
+ * </p>
+ * <p>
+ * Cross-season reports visit the seasons one at a time with {@link #scan(String, Consumer)}: a
+ * season not loaded is read from its file and dropped after the visit, without evicting the
+ * loaded ones, so a report over every season never holds more than one unloaded season.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class SeasonPartitions {
+
+    /**
+     * The directory holding the season files.
+     */
+    public static final String DIRECTORY = "Seasons";
+
+    /**
+     * The system property holding the memory budget of the loaded partitions, in megabytes.
+     */
+    public static final String BUDGET_PROPERTY = "seasons.memory.mb";
+
+    /**
+     * The default memory budget, in megabytes.
+     */
+    public static final int DEFAULT_BUDGET_MB = 256;
+
+    /**
+     * The system property naming the season of the desk's own registrations.
+     */
+    public static final String CURRENT_PROPERTY = "season.current";
+
+    /**
+     * The default name of the season of the desk's own registrations.
+     */
+    public static final String DEFAULT_CURRENT = "current";
+
+    /**
+     * The file name suffix of every season.
+     */
+    private static final String SUFFIX = ".dat";
+
+    /**
+     * The accepted season names, so a name is always a plain file name.
+     */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]*");
+
+    /**
+     * A loaded season.
+     */
+    private static final class Partition {
+
+        /**
+         * The registrations of the season.
+         */
+        final RegistrationDAO rdao;
+
+        /**
+         * The estimated heap footprint of the registrations, in bytes.
+         */
+        final long bytes;
+
+        /**
+         * Whether the partition belongs to its caller and is never evicted nor saved.
+         */
+        final boolean pinned;
+
+        /**
+         * The generation of the DAO when it was last loaded or saved.
+         */
+        long savedGeneration;
+
+        Partition(RegistrationDAO rdao, long bytes, boolean pinned) {
+            this.rdao = rdao;
+            this.bytes = bytes;
+            this.pinned = pinned;
+            this.savedGeneration = rdao.getGeneration();
+        }
+    }
+
+    /**
+     * The directory holding the season files.
+     */
+    private final File directory;
+
+    /**
+     * The estimated footprint above which partitions are evicted, in bytes.
+     */
+    private final long budget;
+
+    /**
+     * The loaded partitions, least recently used first.
+     */
+    private final LinkedHashMap<String, Partition> loaded = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The estimated footprint of the loaded partitions, in bytes.
+     */
+    private long residentBytes;
+
+    /**
+     * The number of partitions loaded from their file.
+     */
+    private int loads;
+
+    /**
+     * The number of partitions evicted.
+     */
+    private int evictions;
+
+    /**
+     * Constructs the partitions of a directory.
+     *
+     * @param directory the directory holding the season files
+     * @param budget    the estimated footprint above which partitions are evicted, in bytes
+     */
+    public SeasonPartitions(File directory, long budget) {
+        this.directory = directory;
+        this.budget = budget;
+    }
+
+    /**
+     * Constructs the partitions of {@value #DIRECTORY} with the budget of {@value #BUDGET_PROPERTY}.
+     */
+    public SeasonPartitions() {
+        this(new File(DIRECTORY), Integer.getInteger(BUDGET_PROPERTY, DEFAULT_BUDGET_MB) * (1L << 20));
+    }
+
+    /**
+     * Returns the file of a season.
+     *
+     * @param season the season name
+     * @return the season file
+     * @throws IllegalArgumentException if the name is not a plain file name
+     */
+    private File fileOf(String season) {
+        if (!NAME.matcher(season).matches()) {
+            throw new IllegalArgumentException("Invalid season name " + season + "!");
+        }
+        return new File(directory, season + SUFFIX);
+    }
+
+    /**
+     * Estimates the heap footprint of the registrations of a DAO.
+     *
+     * @param rdao the DAO
+     * @return the estimated footprint in bytes
+     */
+    private static long estimate(RegistrationDAO rdao) {
+        long bytes = 0;
+        for (Registration r : rdao.retrieveAll()) {
+            bytes += ExternalSorter.estimateBytes(r);
+        }
+        return bytes;
+    }
+
+    /**
+     * Lists the seasons with a file or pinned, in name order.
+     *
+     * @return the season names
+     */
+    public synchronized List<String> seasons() {
+        TreeSet<String> names = new TreeSet<>(loaded.keySet());
+        String[] files = directory.list((dir, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            for (String file : files) {
+                String name = file.substring(0, file.length() - SUFFIX.length());
+                if (NAME.matcher(name).matches()) {
+                    names.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Makes the DAO of the desk a season, kept loaded and left for its owner to save.
+     *
+     * @param season the season name
+     * @param rdao   the registrations of the season
+     */
+    public synchronized void pin(String season, RegistrationDAO rdao) {
+        fileOf(season);
+        Partition previous = loaded.put(season, new Partition(rdao, estimate(rdao), true));
+        if (previous != null) {
+            residentBytes -= previous.bytes;
+        }
+        residentBytes += loaded.get(season).bytes;
+        evict(season);
+    }
+
+    /**
+     * Returns the registrations of a season, loading them on first access.
+     * <p>
+     * A season without a file starts empty; its file is written when it is saved or evicted
+     * with registrations.
+     * </p>
+     *
+     * @param season the season name
+     * @return the registrations of the season
+     * @throws IllegalArgumentException if the name is not a plain file name
+     */
+    public synchronized RegistrationDAO season(String season) {
+        Partition partition = loaded.get(season);
+        if (partition == null) {
+            RegistrationDAO rdao = new RegistrationDAO(fileOf(season));
+            partition = new Partition(rdao, estimate(rdao), false);
+            loaded.put(season, partition);
+            residentBytes += partition.bytes;
+            loads++;
+            evict(season);
+        }
+        return partition.rdao;
+    }
+
+    /**
+     * Evicts the least recently used partitions while the loaded ones exceed the budget.
+     *
+     * @param keep the season just accessed, never evicted
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Partition>> it = loaded.entrySet().iterator();
+        while (residentBytes > budget && it.hasNext()) {
+            Map.Entry<String, Partition> e = it.next();
+            Partition partition = e.getValue();
+            if (partition.pinned || e.getKey().equals(keep)) {
+                continue;
+            }
+            if (!save(e.getKey(), partition)) {
+                continue; // keeps the changes rather than losing them
+            }
+            it.remove();
+            residentBytes -= partition.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Saves a partition if it changed since it was loaded or last saved.
+     *
+     * @param season    the season name
+     * @param partition the partition
+     * @return {@code true} if the partition has no unsaved changes left
+     */
+    private boolean save(String season, Partition partition) {
+        long generation = partition.rdao.getGeneration();
+        if (generation == partition.savedGeneration) {
+            return true;
+        }
+        directory.mkdirs();
+        if (!partition.rdao.save()) {
+            return false;
+        }
+        partition.savedGeneration = generation;
+        return true;
+    }
+
+    /**
+     * Saves every loaded, unpinned season with changes.
+     *
+     * @return {@code true} if every changed season was written
+     */
+    public synchronized boolean saveAll() {
+        boolean saved = true;
+        for (Map.Entry<String, Partition> e : loaded.entrySet()) {
+            if (!e.getValue().pinned) {
+                saved &= save(e.getKey(), e.getValue());
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Visits every registration of a season without making it resident.
+     * <p>
+     * A loaded season is visited from a snapshot of its DAO; any other season is read from its
+     * file and dropped afterwards.
+     * </p>
+     *
+     * @param season  the season name
+     * @param visitor the visitor of each registration
+     * @throws IOException if the season file cannot be read
+     */
+    public void scan(String season, Consumer<Registration> visitor) throws IOException {
+        List<Registration> registrations;
+        synchronized (this) {
+            Partition partition = loaded.get(season);
+            registrations = partition == null ? null : partition.rdao.snapshot();
+        }
+        if (registrations == null) {
+            File file = fileOf(season);
+            if (!file.isFile()) {
+                return;
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(file.getPath()))) {
+                @SuppressWarnings("unchecked")
+                List<Registration> read = (List<Registration>) ois.readObject();
+                registrations = read;
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+        for (Registration r : registrations) {
+            visitor.accept(r);
+        }
+    }
+
+    /**
+     * Finds the students registered in at least a number of seasons.
+     * <p>
+     * Students are told apart by student ID; the seasons are scanned one at a time.
+     * </p>
+     *
+     * @param minSeasons the least number of seasons
+     * @return the seasons of each matching student, by student ID in ascending order
+     * @throws IOException if a season file cannot be read
+     */
+    public Map<String, List<String>> studentsInSeasons(int minSeasons) throws IOException {
+        Map<String, List<String>> seasonsByStudent = new HashMap<>();
+        for (String season : seasons()) {
+            scan(season, r -> seasonsByStudent
+                    .computeIfAbsent(r.getStudentId().toUpperCase(), k -> new ArrayList<>(2)).add(season));
+        }
+        Map<String, List<String>> result = new TreeMap<>();
+        for (Map.Entry<String, List<String>> e : seasonsByStudent.entrySet()) {
+            if (e.getValue().size() >= minSeasons) {
+                result.put(e.getKey(), Collections.unmodifiableList(e.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the seasons loaded, least recently used first.
+     *
+     * @return the loaded season names
+     */
+    public synchronized List<String> getLoaded() {
+        return new ArrayList<>(loaded.keySet());
+    }
+
+    /**
+     * Returns the estimated footprint of the loaded seasons.
+     *
+     * @return the footprint in bytes
+     */
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Returns the number of seasons loaded from their file so far.
+     *
+     * @return the load count
+     */
+    public synchronized int getLoads() {
+        return loads;
+    }
+
+    /**
+     * Returns the number of seasons evicted so far.
+     *
+     * @return the eviction count
+     */
+    public synchronized int getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,182 @@
+package dao.sketch;
+
+import dao.cluster.HashRing;
+import java.io.Serializable;
+
+/**
+ * A Count-Min sketch estimating how often each key was counted.
+ * <p>
+ * Each of the {@code depth} rows of {@code width} counters is indexed by its own hash of the key,
+ * and a key's estimate is the smallest of its counters. Collisions only add, so the estimate never
+ * falls below the true count, and exceeds it by at most {@code e / width} times the total count
+ * with probability {@code 1 - e^-depth}. Counts may be decremented as long as no true count goes
+ * negative. Sketches of the same dimensions merge by adding their counters.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class CountMinSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of counters per row: an error of 0.13% of the total count.
+     */
+    public static final int DEFAULT_WIDTH = 2048;
+
+    /**
+     * The default number of rows: a confidence of 98.2%.
+     */
+    public static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * The number of counters per row.
+     */
+    private final int width;
+
+    /**
+     * The number of rows.
+     */
+    private final int depth;
+
+    /**
+     * The counters, row after row.
+     */
+    private final long[] counters;
+
+    /**
+     * The sum of every count.
+     */
+    private long total;
+
+    /**
+     * Constructs an empty sketch of the default dimensions.
+     */
+    public CountMinSketch() {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param width the number of counters per row
+     * @param depth the number of rows
+     * @throws IllegalArgumentException if a dimension is not positive
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("The dimensions must be positive: " + width + "x" + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    /**
+     * Constructs a copy of a sketch.
+     *
+     * @param other the sketch to copy
+     */
+    public CountMinSketch(CountMinSketch other) {
+        this.width = other.width;
+        this.depth = other.depth;
+        this.counters = other.counters.clone();
+        this.total = other.total;
+    }
+
+    /**
+     * Returns the counter of a key in a row, deriving the row hashes from one 64-bit hash.
+     *
+     * @param hash the hash of the key
+     * @param row  the row
+     * @return the index of the counter
+     */
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + Math.floorMod(h1 + row * h2, width);
+    }
+
+    /**
+     * Adds to the count of a key.
+     *
+     * @param key   the key, compared by its characters
+     * @param delta the amount to add, negative to remove counted occurrences
+     */
+    public void add(String key, long delta) {
+        long hash = HashRing.hash(key);
+        for (int row = 0; row < depth; row++) {
+            counters[index(hash, row)] += delta;
+        }
+        total += delta;
+    }
+
+    /**
+     * Estimates the count of a key.
+     *
+     * @param key the key
+     * @return the estimate, never below the true count
+     */
+    public long estimate(String key) {
+        long hash = HashRing.hash(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[index(hash, row)]);
+        }
+        return Math.max(0, min);
+    }
+
+    /**
+     * Merges the counts of another sketch into this one.
+     *
+     * @param other a sketch of the same dimensions
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge " + other.width + "x" + other.depth
+                    + " into " + width + "x" + depth);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Returns the sum of every count.
+     *
+     * @return the total count
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the most an estimate exceeds the true count, with the probability of
+     * {@link #confidence()}.
+     *
+     * @return the error bound, {@code e / width} times the total count
+     */
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    /**
+     * Returns the probability that an estimate stays within {@link #errorBound()}.
+     *
+     * @return the confidence, {@code 1 - e^-depth}
+     */
+    public double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    /**
+     * Returns the number of bytes of the counters.
+     *
+     * @return the size of the sketch in bytes
+     */
+    public int sizeInBytes() {
+        return counters.length * Long.BYTES;
+    }
+}
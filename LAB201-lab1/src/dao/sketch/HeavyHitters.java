@@ -0,0 +1,134 @@
+package dao.sketch;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import utils.collection.TopK;
+
+/**
+ * The most frequent keys of a stream, counted in a {@link CountMinSketch}.
+ * <p>
+ * The sketch cannot list its keys, so a bounded set of candidates is kept beside it: a new key
+ * replaces the candidate with the smallest estimate once its own estimate is larger. Merging adds
+ * the sketches and keeps the best of both candidate sets.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class HeavyHitters implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of candidates kept.
+     */
+    public static final int DEFAULT_CANDIDATES = 32;
+
+    /**
+     * The counts of every key.
+     */
+    private final CountMinSketch sketch;
+
+    /**
+     * The largest number of candidates kept.
+     */
+    private final int capacity;
+
+    /**
+     * The keys that may be among the most frequent.
+     */
+    private final Set<String> candidates;
+
+    /**
+     * Constructs an empty tracker of the default dimensions.
+     */
+    public HeavyHitters() {
+        this.sketch = new CountMinSketch();
+        this.capacity = DEFAULT_CANDIDATES;
+        this.candidates = new LinkedHashSet<>();
+    }
+
+    /**
+     * Constructs a copy of a tracker.
+     *
+     * @param other the tracker to copy
+     */
+    public HeavyHitters(HeavyHitters other) {
+        this.sketch = new CountMinSketch(other.sketch);
+        this.capacity = other.capacity;
+        this.candidates = new LinkedHashSet<>(other.candidates);
+    }
+
+    /**
+     * Adds to the count of a key, making it a candidate when it is frequent enough.
+     *
+     * @param key   the key
+     * @param delta the amount to add, negative to remove counted occurrences
+     */
+    public void add(String key, long delta) {
+        sketch.add(key, delta);
+        if (delta <= 0 || candidates.contains(key)) {
+            return;
+        }
+        if (candidates.size() < capacity) {
+            candidates.add(key);
+            return;
+        }
+        String weakest = null;
+        long weakestCount = Long.MAX_VALUE;
+        for (String candidate : candidates) {
+            long count = sketch.estimate(candidate);
+            if (count < weakestCount) {
+                weakest = candidate;
+                weakestCount = count;
+            }
+        }
+        if (sketch.estimate(key) > weakestCount) {
+            candidates.remove(weakest);
+            candidates.add(key);
+        }
+    }
+
+    /**
+     * Merges the counts and candidates of another tracker into this one.
+     *
+     * @param other a tracker of the same dimensions
+     */
+    public void merge(HeavyHitters other) {
+        sketch.merge(other.sketch);
+        candidates.addAll(other.candidates);
+        if (candidates.size() > capacity) {
+            List<String> kept = top(capacity);
+            candidates.clear();
+            candidates.addAll(kept);
+        }
+    }
+
+    /**
+     * Returns the candidates with the largest estimates.
+     *
+     * @param k the number of keys
+     * @return at most {@code k} keys, most frequent first
+     */
+    public List<String> top(int k) {
+        List<String> keys = new ArrayList<>();
+        for (String key : TopK.select(candidates, k, Comparator.comparingLong(sketch::estimate))) {
+            if (sketch.estimate(key) > 0) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the sketch counting every key.
+     *
+     * @return the Count-Min sketch
+     */
+    public CountMinSketch getSketch() {
+        return sketch;
+    }
+}
@@ -0,0 +1,144 @@
+package dao.sketch;
+
+import dao.cluster.HashRing;
+import java.io.Serializable;
+
+/**
+ * A HyperLogLog estimate of the number of distinct keys added.
+ * <p>
+ * The first {@code precision} bits of the 64-bit hash of a key select a register, which keeps the
+ * longest run of leading zeros seen in the remaining bits. With {@code m = 2^precision} registers
+ * of one byte each, the relative standard error is {@code 1.04 / sqrt(m)}: 0.81% for the default
+ * precision of 14, in 16 KB whatever the number of keys. Keys cannot be removed, so the estimate
+ * counts every key ever added. Two sketches of the same precision merge by keeping the larger
+ * register, giving exactly the sketch of the union.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class HyperLogLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default precision, the number of hash bits selecting a register.
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    /**
+     * The number of hash bits selecting a register.
+     */
+    private final int precision;
+
+    /**
+     * The longest run of leading zeros plus one seen by each register.
+     */
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty sketch of the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param precision the number of hash bits selecting a register, from 4 to 18
+     * @throws IllegalArgumentException if the precision is out of range
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("The precision must be from 4 to 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Constructs a copy of a sketch.
+     *
+     * @param other the sketch to copy
+     */
+    public HyperLogLog(HyperLogLog other) {
+        this.precision = other.precision;
+        this.registers = other.registers.clone();
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key the key, compared by its characters
+     */
+    public void add(String key) {
+        long hash = HashRing.hash(key);
+        int index = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        int rank = rest == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Merges the keys of another sketch into this one.
+     *
+     * @param other a sketch of the same precision
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct keys added.
+     * <p>
+     * Small cardinalities, while some registers are still empty, use linear counting instead.
+     * </p>
+     *
+     * @return the estimated number of distinct keys
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns the relative standard error of the estimate.
+     *
+     * @return the standard error, as a fraction of the estimate
+     */
+    public double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Returns the number of bytes of the registers.
+     *
+     * @return the size of the sketch in bytes
+     */
+    public int sizeInBytes() {
+        return registers.length;
+    }
+}
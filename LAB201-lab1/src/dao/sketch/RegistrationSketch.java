@@ -0,0 +1,170 @@
+package dao.sketch;
+
+import java.io.Serializable;
+import model.Registration;
+
+/**
+ * The probabilistic sketches of the registrations of one campus.
+ * <p>
+ * Students, email domains and phone numbers are counted in {@link HyperLogLog} sketches, which
+ * remember every value ever registered; mountain codes and email domains are counted in
+ * {@link HeavyHitters}, which follow the current registrations. The sketches of several campuses
+ * merge into the sketches of their union.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The distinct student IDs.
+     */
+    private final HyperLogLog students;
+
+    /**
+     * The distinct email domains.
+     */
+    private final HyperLogLog emailDomains;
+
+    /**
+     * The distinct phone numbers.
+     */
+    private final HyperLogLog phones;
+
+    /**
+     * The registrations per mountain code.
+     */
+    private final HeavyHitters mountains;
+
+    /**
+     * The registrations per email domain.
+     */
+    private final HeavyHitters domainCounts;
+
+    /**
+     * Constructs empty sketches.
+     */
+    public RegistrationSketch() {
+        this.students = new HyperLogLog();
+        this.emailDomains = new HyperLogLog();
+        this.phones = new HyperLogLog();
+        this.mountains = new HeavyHitters();
+        this.domainCounts = new HeavyHitters();
+    }
+
+    /**
+     * Constructs a copy of sketches.
+     *
+     * @param other the sketches to copy
+     */
+    public RegistrationSketch(RegistrationSketch other) {
+        this.students = new HyperLogLog(other.students);
+        this.emailDomains = new HyperLogLog(other.emailDomains);
+        this.phones = new HyperLogLog(other.phones);
+        this.mountains = new HeavyHitters(other.mountains);
+        this.domainCounts = new HeavyHitters(other.domainCounts);
+    }
+
+    /**
+     * Returns the domain of an email address, in lower case.
+     *
+     * @param email the email address
+     * @return the part after the last {@code @}
+     */
+    static String domainOf(String email) {
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase();
+    }
+
+    /**
+     * Counts a registration.
+     *
+     * @param registration the added registration
+     */
+    public void add(Registration registration) {
+        String domain = domainOf(registration.getEmail());
+        students.add(registration.getStudentId().toUpperCase());
+        emailDomains.add(domain);
+        phones.add(registration.getPhone());
+        mountains.add(registration.getMountainCode(), 1);
+        domainCounts.add(domain, 1);
+    }
+
+    /**
+     * Stops counting a registration in the heavy hitters; the distinct counts keep it.
+     *
+     * @param registration the removed registration
+     */
+    public void remove(Registration registration) {
+        mountains.add(registration.getMountainCode(), -1);
+        domainCounts.add(domainOf(registration.getEmail()), -1);
+    }
+
+    /**
+     * Merges the sketches of another campus into these.
+     *
+     * @param other the sketches to merge
+     */
+    public void merge(RegistrationSketch other) {
+        students.merge(other.students);
+        emailDomains.merge(other.emailDomains);
+        phones.merge(other.phones);
+        mountains.merge(other.mountains);
+        domainCounts.merge(other.domainCounts);
+    }
+
+    /**
+     * Returns the number of current registrations counted.
+     *
+     * @return the registrations added and not removed
+     */
+    public long getRegistrations() {
+        return mountains.getSketch().getTotal();
+    }
+
+    /**
+     * Returns the distinct student IDs.
+     *
+     * @return the sketch of the student IDs
+     */
+    public HyperLogLog getStudents() {
+        return students;
+    }
+
+    /**
+     * Returns the distinct email domains.
+     *
+     * @return the sketch of the email domains
+     */
+    public HyperLogLog getEmailDomains() {
+        return emailDomains;
+    }
+
+    /**
+     * Returns the distinct phone numbers.
+     *
+     * @return the sketch of the phone numbers
+     */
+    public HyperLogLog getPhones() {
+        return phones;
+    }
+
+    /**
+     * Returns the registrations per mountain code.
+     *
+     * @return the mountain heavy hitters
+     */
+    public HeavyHitters getMountains() {
+        return mountains;
+    }
+
+    /**
+     * Returns the registrations per email domain.
+     *
+     * @return the email domain heavy hitters
+     */
+    public HeavyHitters getEmailDomainCounts() {
+        return domainCounts;
+    }
+}
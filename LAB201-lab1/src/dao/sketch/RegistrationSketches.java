@@ -0,0 +1,220 @@
+package dao.sketch;
+
+import dao.event.RegistrationEvent;
+import dao.event.RegistrationListener;
+import dao.query.BitmapAttribute;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * The {@link RegistrationSketch} of each campus, kept beside a registration file.
+ * <p>
+ * The sketches of campus {@code XX} of {@code Registrations.dat} are saved in
+ * {@code Registrations-XX.sketch}, next to the campus shard, and a save only writes the campuses
+ * changed since the last one. On loading, the sketches of a campus whose registration count no
+ * longer matches the data are rebuilt from the registrations, losing only the history of the
+ * removed ones.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RegistrationSketches implements RegistrationListener {
+
+    /**
+     * The file name suffix of the sketches.
+     */
+    public static final String SUFFIX = ".sketch";
+
+    /**
+     * The registration file the sketches are kept beside.
+     */
+    private final String dataFile;
+
+    /**
+     * The campus the sketches are restricted to, or {@code null} for every campus.
+     */
+    private final String campus;
+
+    /**
+     * The sketches of each campus.
+     */
+    private final Map<String, RegistrationSketch> campuses = new TreeMap<>();
+
+    /**
+     * The campuses changed since they were last saved.
+     */
+    private final Set<String> changed = new TreeSet<>();
+
+    /**
+     * Constructs empty sketches kept beside a registration file.
+     *
+     * @param dataFile the registration file
+     * @param campus   the campus to keep, or {@code null} for every campus
+     */
+    public RegistrationSketches(String dataFile, String campus) {
+        this.dataFile = dataFile;
+        this.campus = campus == null ? null : campus.toUpperCase();
+    }
+
+    /**
+     * Returns the file holding the sketches of a campus.
+     *
+     * @param dataFile the registration file
+     * @param campus   the campus code
+     * @return the sketch file, beside the registration file
+     */
+    public static File fileOf(String dataFile, String campus) {
+        String base = dataFile.endsWith(".dat") ? dataFile.substring(0, dataFile.length() - 4) : dataFile;
+        return new File(base + "-" + campus.toUpperCase() + SUFFIX);
+    }
+
+    /**
+     * Lists the campuses having a sketch file beside the registration file.
+     *
+     * @return the campus codes in ascending order
+     */
+    private Set<String> stored() {
+        File data = new File(dataFile).getAbsoluteFile();
+        String base = fileOf(data.getName(), "").getName();
+        String prefix = base.substring(0, base.length() - SUFFIX.length());
+        Set<String> found = new TreeSet<>();
+        String[] names = data.getParentFile().list();
+        for (String name : names == null ? new String[0] : names) {
+            if (name.startsWith(prefix) && name.endsWith(SUFFIX)
+                    && name.length() == prefix.length() + 2 + SUFFIX.length()) {
+                String code = name.substring(prefix.length(), prefix.length() + 2);
+                if (campus == null || campus.equals(code)) {
+                    found.add(code);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks whether any sketch has been saved beside the registration file.
+     *
+     * @return {@code true} if a sketch file exists
+     */
+    public boolean exists() {
+        return !stored().isEmpty();
+    }
+
+    /**
+     * Loads the saved sketches and rebuilds those of the campuses not matching the registrations.
+     *
+     * @param registrations the current registrations
+     * @return the campuses rebuilt from the registrations
+     */
+    public Set<String> load(List<Registration> registrations) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Registration r : registrations) {
+            counts.merge(BitmapAttribute.CAMPUS.valueOf(r), 1L, Long::sum);
+        }
+        campuses.clear();
+        for (String code : stored()) {
+            try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(fileOf(dataFile, code).getPath()))) {
+                RegistrationSketch sketch = (RegistrationSketch) ois.readObject();
+                if (sketch.getRegistrations() == counts.getOrDefault(code, 0L)) {
+                    campuses.put(code, sketch);
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                // rebuilt below
+            }
+        }
+        Set<String> rebuilt = new TreeSet<>();
+        for (String code : counts.keySet()) {
+            if (!campuses.containsKey(code) && (campus == null || campus.equals(code))) {
+                campuses.put(code, new RegistrationSketch());
+                rebuilt.add(code);
+            }
+        }
+        for (Registration r : registrations) {
+            String code = BitmapAttribute.CAMPUS.valueOf(r);
+            if (rebuilt.contains(code)) {
+                campuses.get(code).add(r);
+            }
+        }
+        changed.addAll(rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * Returns the sketches of the campus of a registration, creating them if needed.
+     *
+     * @param registration the registration
+     * @return the sketches of its campus
+     */
+    private RegistrationSketch of(Registration registration) {
+        String code = BitmapAttribute.CAMPUS.valueOf(registration);
+        changed.add(code);
+        return campuses.computeIfAbsent(code, c -> new RegistrationSketch());
+    }
+
+    /**
+     * Counts the change in the sketches of the campuses concerned.
+     *
+     * @param event the change
+     */
+    @Override
+    public void onChange(RegistrationEvent event) {
+        if (event.getBefore() != null) {
+            of(event.getBefore()).remove(event.getBefore());
+        }
+        if (event.getAfter() != null) {
+            of(event.getAfter()).add(event.getAfter());
+        }
+    }
+
+    /**
+     * Saves the sketches of the campuses changed since the last save.
+     *
+     * @throws IOException if a sketch file cannot be written
+     */
+    public void save() throws IOException {
+        for (String code : new TreeSet<>(changed)) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(BlockFiles.openOutput(fileOf(dataFile, code).getPath()))) {
+                oos.writeObject(campuses.get(code));
+            }
+            changed.remove(code);
+        }
+    }
+
+    /**
+     * Returns a copy of the sketches of each campus.
+     *
+     * @return the sketches by campus code, in ascending order
+     */
+    public Map<String, RegistrationSketch> copy() {
+        Map<String, RegistrationSketch> copy = new TreeMap<>();
+        for (Map.Entry<String, RegistrationSketch> e : campuses.entrySet()) {
+            copy.put(e.getKey(), new RegistrationSketch(e.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Merges the sketches of several campuses.
+     *
+     * @param sketches the sketches to merge
+     * @return new sketches of the union
+     */
+    public static RegistrationSketch merge(Iterable<RegistrationSketch> sketches) {
+        RegistrationSketch merged = new RegistrationSketch();
+        for (RegistrationSketch sketch : sketches) {
+            merged.merge(sketch);
+        }
+        return merged;
+    }
+}
@@ -1,11 +1,14 @@
 package main;
 
 import contronller.CliController;
+import utils.jfr.FlightRecording;
 
 /**
  * The entry point for the registration management application.
  * <p>
- * This class initializes the CLI controller and starts the application.
+ * This class initializes the CLI controller and starts the application. The flight recording
+ * is started first when asked for with {@code -Djfr.record=<file>}, so it covers the loading
+ * of the data files; see {@link FlightRecording}.
  * </p>
  * 
  * @author ho huy
@@ -15,7 +18,7 @@ public class Main {
     /**
      * The CLI controller used to interact with the user.
      */
-    private static CliController cc = new CliController();
+    private static CliController cc;
 
     /**
      * The main method that serves as the entry point of the application.
@@ -23,6 +26,8 @@ public class Main {
      * @param args the command-line arguments (not used)
      */
     public static void main(String[] args) {
+        FlightRecording.startIfRequested();
+        cc = new CliController();
         cc.start();
     }
 }
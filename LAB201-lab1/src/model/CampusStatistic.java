@@ -0,0 +1,116 @@
+package model;
+
+/**
+ * Represents statistics for the registrations of a campus.
+ * <p>
+ * This class stores the campus code (the two-letter prefix of the student ID),
+ * the number of registered students and the total revenue collected from them.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class CampusStatistic {
+    private String campus;
+    private int participants;
+    private double totalPrice;
+
+    /**
+     * Constructs a new CampusStatistic object with the specified campus code.
+     * <p>
+     * Initializes the number of participants to 0 and the total price to 0.0.
+     * </p>
+     *
+     * @param campus the campus code
+     */
+    public CampusStatistic(String campus) {
+        this.campus = campus;
+        this.participants = 0;
+        this.totalPrice = 0.0;
+    }
+
+    /**
+     * Returns the campus code.
+     *
+     * @return the campus code as a String
+     */
+    public String getCampus() {
+        return campus;
+    }
+
+    /**
+     * Returns the number of participants.
+     *
+     * @return the number of participants
+     */
+    public int getParticipants() {
+        return participants;
+    }
+
+    /**
+     * Returns the total price accumulated.
+     *
+     * @return the total price as a double
+     */
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * Sets the number of participants.
+     *
+     * @param participants the new participant count
+     */
+    public void setParticipants(int participants) {
+        this.participants = participants;
+    }
+
+    /**
+     * Sets the total registration fee.
+     *
+     * @param totalPrice the new total price
+     */
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    /**
+     * Updates the statistics by incrementing the participant count and adding a fee.
+     *
+     * @param fee the registration fee to add to the total price
+     */
+    public void update(double fee) {
+        this.participants += 1;
+        this.totalPrice += fee;
+    }
+
+    /**
+     * Reverts an earlier update by decrementing the participant count and subtracting a fee.
+     *
+     * @param fee the registration fee to subtract from the total price
+     */
+    public void revert(double fee) {
+        this.participants -= 1;
+        this.totalPrice -= fee;
+    }
+
+    /**
+     * Returns a formatted string representation of the campus statistic.
+     *
+     * @return a formatted string representing the statistic
+     */
+    @Override
+    public String toString() {
+        return String.format("            %2s | %12d | %,14.0f ",
+                campus, participants, totalPrice);
+    }
+
+    /**
+     * Returns a header string for displaying the campus statistics table.
+     *
+     * @return a formatted header string with column titles for campus,
+     *         participants, and total price
+     */
+    public static String header() {
+        return String.format(" %-13s | %-11s | %-14s ", "Campus", "Participants", "Total Revenue");
+    }
+}
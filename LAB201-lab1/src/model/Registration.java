@@ -2,6 +2,8 @@ package model;
 
 import java.io.Serializable;
 import untils.acceptable.RegistrationAcceptable;
+import utils.inputter.Validators;
+import utils.pool.StringPool;
 
 /**
  * Represents a registration record for a student.
@@ -19,6 +21,12 @@ import untils.acceptable.RegistrationAcceptable;
  */
 public class Registration implements Serializable, RegistrationAcceptable {
 
+    /**
+     * The serialization version, pinned to the value of the original class layout
+     * so that existing data files stay readable.
+     */
+    private static final long serialVersionUID = 2907927028143003104L;
+
     // Fields
 
     /**
@@ -67,7 +75,7 @@ public class Registration implements Serializable, RegistrationAcceptable {
         this.name = name;
         this.email = email;
         this.phone = phone;
-        this.mountainCode = mountainCode;
+        this.mountainCode = StringPool.canonical(mountainCode);
         this.fee = computeFee(phone);
     }
 
@@ -167,11 +175,14 @@ public class Registration implements Serializable, RegistrationAcceptable {
 
     /**
      * Sets the mountain code associated with the registration.
+     * <p>
+     * The code is canonicalized through {@link StringPool} since it only takes a few distinct values.
+     * </p>
      *
      * @param mountainCode the new mountain code
      */
     public void setMountainCode(String mountainCode) {
-        this.mountainCode = mountainCode;
+        this.mountainCode = StringPool.canonical(mountainCode);
     }
 
     /**
@@ -209,15 +220,16 @@ public class Registration implements Serializable, RegistrationAcceptable {
      * <p>
      * A base fee of 6,000,000.0 is applied. If the phone number matches either the Viettel or VNPT
      * phone number regex patterns, a discount of 35% is applied. Otherwise, the base fee is charged.
+     * The patterns are compiled once, by {@link Validators}.
      * </p>
      *
      * @param phone the student's phone number
      * @return the computed fee as a {@code double}
      */
-    private double computeFee(String phone) {
+    public static double computeFee(String phone) {
         double base = 6_000_000.0;
         double discount = 0.35;
-        if (!phone.matches(VIETTEL_PHONE_REGEX) && !phone.matches(VNPT_PHONE_REGEX)) {
+        if (!Validators.matches(phone, VIETTEL_PHONE_REGEX) && !Validators.matches(phone, VNPT_PHONE_REGEX)) {
             return base;
         }
         return base * (1 - discount);
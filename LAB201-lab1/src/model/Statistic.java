@@ -91,6 +91,16 @@ public class Statistic {
         this.participants += 1;
         this.totalPrice += fee;
     }
+
+    /**
+     * Reverts an earlier update by decrementing the participant count and subtracting a fee.
+     *
+     * @param fee the registration fee to subtract from the total price
+     */
+    public void revert(double fee) {
+        this.participants -= 1;
+        this.totalPrice -= fee;
+    }
     
     /**
      * Returns a formatted string representation of the statistic.
@@ -2,6 +2,8 @@ package service;
 
 import dao.RegistrationDAO;
 import model.Registration;
+import utils.audit.AuditRecord;
+import utils.audit.AuditTrail;
 import utils.viewUtils.ResponseViewUitls;
 
 /**
@@ -10,6 +12,7 @@ import utils.viewUtils.ResponseViewUitls;
  * This class manages the addition, deletion, and confirmation of deletion for
  * registration records. It utilizes a {@code RegistrationDAO} to persist the
  * registrations and uses {@code ResponseViewUitls} to display messages to the user.
+ * Every successful change is recorded in an {@link AuditTrail}.
  * </p>
  * 
  * @author ho huy
@@ -22,12 +25,29 @@ public class ManagementService {
     private RegistrationDAO rdao;
 
     /**
-     * Constructs a new {@code ManagementService} with the specified {@code RegistrationDAO}.
+     * The audit trail recording the changes.
+     */
+    private AuditTrail audit;
+
+    /**
+     * Constructs a new {@code ManagementService} with the specified {@code RegistrationDAO},
+     * recording the changes in the shared audit trail.
      *
      * @param rdao the {@code RegistrationDAO} to be used for registration operations
      */
     public ManagementService(RegistrationDAO rdao) {
+        this(rdao, AuditTrail.shared());
+    }
+
+    /**
+     * Constructs a new {@code ManagementService} recording the changes in the given audit trail.
+     *
+     * @param rdao  the {@code RegistrationDAO} to be used for registration operations
+     * @param audit the audit trail recording the changes
+     */
+    public ManagementService(RegistrationDAO rdao, AuditTrail audit) {
         this.rdao = rdao;
+        this.audit = audit;
     }
 
     /**
@@ -50,6 +70,8 @@ public class ManagementService {
         }
 
         if (rdao.create(registration)) {
+            audit.record(AuditRecord.Operation.ADD, registration.getStudentId(), null, null,
+                    AuditTrail.describe(registration));
             ResponseViewUitls.displayResponse(
                     "Create student with id[" + registration.getStudentId() + "] successfully!");
             return true;
@@ -80,7 +102,7 @@ public class ManagementService {
                     "Student ID [" + studentId + "] does not exist!");
             return null;
         }
-        
+        audit.record(AuditRecord.Operation.DELETE, prev.getStudentId(), null, AuditTrail.describe(prev), null);
         return prev;
     }
     
@@ -104,6 +126,7 @@ public class ManagementService {
             ResponseViewUitls.displayResponse(
                     "Undo student with id[" + prev.getStudentId() + "] successfully!");
             rdao.create(prev);
+            audit.record(AuditRecord.Operation.RESTORE, prev.getStudentId(), null, null, AuditTrail.describe(prev));
         }
         return true;
     }
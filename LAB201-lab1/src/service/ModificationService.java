@@ -2,13 +2,16 @@ package service;
 
 import dao.RegistrationDAO;
 import model.Registration;
+import utils.audit.AuditRecord;
+import utils.audit.AuditTrail;
 import utils.viewUtils.ResponseViewUitls;
 
 /**
  * Provides services for modifying registration records.
  * <p>
  * This service supports updating specific fields of a {@link Registration} record.
- * It validates uniqueness constraints before applying updates.
+ * It validates uniqueness constraints before applying updates, and records every
+ * successful update in an {@link AuditTrail}.
  * </p>
  * 
  * @author ho huy
@@ -21,19 +24,42 @@ public class ModificationService {
     private RegistrationDAO rdao;
 
     /**
-     * Constructs a new {@code ModificationService} with the specified {@code RegistrationDAO}.
+     * The audit trail recording the updates.
+     */
+    private AuditTrail audit;
+
+    /**
+     * The names of the fields recorded in the audit trail, by update choice.
+     */
+    private static final String[] FIELDS = {null, "name", "phone", "email", "mountain code"};
+
+    /**
+     * Constructs a new {@code ModificationService} with the specified {@code RegistrationDAO},
+     * recording the updates in the shared audit trail.
      *
      * @param rdao the registration DAO used to manage registration records
      */
     public ModificationService(RegistrationDAO rdao) {
+        this(rdao, AuditTrail.shared());
+    }
+
+    /**
+     * Constructs a new {@code ModificationService} recording the updates in the given audit trail.
+     *
+     * @param rdao  the registration DAO used to manage registration records
+     * @param audit the audit trail recording the updates
+     */
+    public ModificationService(RegistrationDAO rdao, AuditTrail audit) {
         this.rdao = rdao;
+        this.audit = audit;
     }
 
     /**
      * Updates the specified field of a registration record.
      * <p>
      * The method updates the registration based on the given choice and value.
-     * It first attempts to set the new data using {@link #setUpdateData(int, String, Registration)}.
+     * It first attempts to set the new data on a copy of the registration using
+     * {@link #setUpdateData(int, String, Registration)}, so the DAO can publish both the old and the new values.
      * If the new value violates uniqueness constraints, an error is displayed and the update fails.
      * Otherwise, the registration is updated in the DAO.
      * </p>
@@ -50,7 +76,7 @@ public class ModificationService {
      * @return {@code true} if the update was successful; {@code false} otherwise
      */
     public boolean update(int choice, String value, Registration registration) {
-        registration = setUpdateData(choice, value, registration);
+        registration = setUpdateData(choice, value, copy(registration));
         if (registration == null) {
             ResponseViewUitls.displayError(
                     "update student",
@@ -58,7 +84,10 @@ public class ModificationService {
             return false;
         }
         
-        if (rdao.update(registration.getStudentId(), registration) != null) {
+        Registration prev = rdao.update(registration.getStudentId(), registration);
+        if (prev != null) {
+            audit.record(AuditRecord.Operation.UPDATE, registration.getStudentId(), FIELDS[choice],
+                    fieldValue(choice, prev), value);
             ResponseViewUitls.displayResponse(
                     "Update student with id [" + registration.getStudentId() + "] successfully!");
             return true;
@@ -70,6 +99,39 @@ public class ModificationService {
         }
     }
 
+    /**
+     * Returns the value of the field an update choice changes.
+     *
+     * @param choice       the update choice, from 1 to 4
+     * @param registration the registration to read
+     * @return the value of the field
+     */
+    private static String fieldValue(int choice, Registration registration) {
+        switch (choice) {
+            case 1:
+                return registration.getName();
+            case 2:
+                return registration.getPhone();
+            case 3:
+                return registration.getEmail();
+            default:
+                return registration.getMountainCode();
+        }
+    }
+
+    /**
+     * Copies a registration record, keeping its fee.
+     *
+     * @param registration the record to copy
+     * @return a new record with the same values
+     */
+    private Registration copy(Registration registration) {
+        Registration copy = new Registration(registration.getStudentId(), registration.getName(),
+                registration.getEmail(), registration.getPhone(), registration.getMountainCode());
+        copy.setFee(registration.getFee());
+        return copy;
+    }
+
     /**
      * Sets the update data for the registration record.
      * <p>
@@ -2,12 +2,32 @@ package service;
 
 import dao.MountainDAO;
 import dao.RegistrationDAO;
+import dao.query.BitmapFilter;
+import dao.query.RegistrationField;
+import dao.query.RegistrationQuery;
+import dao.query.SortKey;
+import dao.sketch.CountMinSketch;
+import dao.sketch.HeavyHitters;
+import dao.sketch.HyperLogLog;
+import dao.sketch.RegistrationSketch;
+import dao.sketch.RegistrationSketches;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
-import model.Mountain;
+import java.util.Map;
+import java.util.function.Supplier;
+import model.CampusStatistic;
 import model.Registration;
 import model.Statistic;
+import utils.collection.BKTree;
+import utils.collection.GenerationCache;
+import utils.collection.TopK;
+import utils.jfr.ServiceEvent;
 import utils.viewUtils.ResponseViewUitls;
 
 /**
@@ -17,10 +37,31 @@ import utils.viewUtils.ResponseViewUitls;
  * including filtering by student name or campus and generating statistics
  * based on mountain registrations.
  * </p>
+ * <p>
+ * Search results are kept in a bounded LRU cache stamped with the generation of the
+ * {@link RegistrationDAO}, so repeated requests are answered without rescanning the
+ * registrations until the next mutation. Statistics are kept in a {@link StatisticsView}
+ * that follows every mutation instead of being recomputed.
+ * </p>
  * 
  * @author ho huy
  */
 public class RetrievalService {
+
+    /**
+     * The default number of results kept in the cache.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 128;
+
+    /**
+     * The cache key prefix of fuzzy name searches.
+     */
+    private static final String SIMILAR_NAMES_KEY = "similar names";
+
+    /**
+     * The number of heavy hitters displayed per kind.
+     */
+    private static final int HEAVY_HITTERS = 5;
     
     /**
      * The Registration Data Access Object.
@@ -33,14 +74,75 @@ public class RetrievalService {
     private MountainDAO mdao;
 
     /**
-     * Constructs a new {@code RetrievalService} with the specified DAOs.
+     * The cache of search results, keyed by query.
+     */
+    private GenerationCache<Object, Object> cache;
+
+    /**
+     * The materialized statistics, or {@code null} until first needed.
+     */
+    private StatisticsView statistics;
+
+    /**
+     * Constructs a new {@code RetrievalService} with the specified DAOs and the default cache capacity.
      *
      * @param rdao the RegistrationDAO instance
      * @param mdao the MountainDAO instance
      */
     public RetrievalService(RegistrationDAO rdao, MountainDAO mdao) {
+        this(rdao, mdao, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code RetrievalService} with the specified DAOs and cache capacity.
+     *
+     * @param rdao          the RegistrationDAO instance
+     * @param mdao          the MountainDAO instance
+     * @param cacheCapacity the maximum number of results kept in the cache
+     */
+    public RetrievalService(RegistrationDAO rdao, MountainDAO mdao, int cacheCapacity) {
         this.rdao = rdao;
         this.mdao = mdao;
+        this.cache = new GenerationCache<>(cacheCapacity);
+    }
+
+    /**
+     * Returns the cached result for a key, computing and caching it on a miss.
+     * <p>
+     * The generation is read before computing, so a result racing with a mutation is
+     * stamped with the older generation and will not be served afterwards. Every lookup is
+     * recorded as a {@link ServiceEvent}, telling cache hits from computed searches.
+     * </p>
+     *
+     * @param <V>     the type of the result
+     * @param key     the cache key
+     * @param compute the function computing the result
+     * @return the cached or freshly computed result
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V cached(Object key, Supplier<V> compute) {
+        ServiceEvent event = new ServiceEvent();
+        event.begin();
+        long generation = rdao.getGeneration();
+        V value = (V) cache.get(key, generation);
+        boolean hit = value != null;
+        if (!hit) {
+            value = compute.get();
+            cache.put(key, generation, value);
+        }
+        event.finish("RetrievalService", ServiceEvent.SEARCH, key,
+                value instanceof Collection ? ((Collection<?>) value).size() : 1, hit);
+        return value;
+    }
+
+    /**
+     * Retrieves the registrations matching a query, using the cache.
+     *
+     * @param query the query to answer
+     * @return an unmodifiable list of the matching registrations
+     */
+    public List<Registration> search(RegistrationQuery query) {
+        return cached(query, () -> Collections.unmodifiableList(rdao.query(query)));
     }
     
     /**
@@ -56,47 +158,113 @@ public class RetrievalService {
         rdao.displayRegistrationHeader();
         if (list != null && !list.isEmpty()) {
             for (Registration registration : list) {
-                System.out.println(registration);
+                ResponseViewUitls.print(registration);
             }
         } else {
             String na = "N/A";
-            System.out.println(String.format(
+            ResponseViewUitls.print(String.format(
                     " %-10s | %-20s | %-35s | %-15s | %-13s ", 
                     na, na, na, na, na));
         }
     }
     
     /**
-     * Computes registration statistics aggregated by mountain.
+     * Retrieves the registration statistics aggregated by mountain.
      * <p>
-     * This method creates a mapping of mountain codes to their corresponding
-     * {@link Statistic} objects. It initializes statistics for each mountain and
-     * updates them based on the registration fees.
+     * The statistics come from a {@link StatisticsView} kept up to date by the changes of the
+     * registration list, so they are not recomputed after a mutation.
      * </p>
      *
      * @return a {@link HashMap} mapping mountain codes to their {@link Statistic} objects
      */
     private HashMap<String, Statistic> getStatistics() {
-        LinkedHashMap<String, Statistic> statisticsList = new LinkedHashMap<>();
+        return view().getStatistics();
+    }
+    
+    /**
+     * Retrieves the registration statistics aggregated by campus.
+     * <p>
+     * The campus of a registration is the two-letter prefix of its student ID.
+     * </p>
+     *
+     * @return a {@link LinkedHashMap} mapping campus codes to their {@link CampusStatistic} objects,
+     *         in the order the campuses were first counted
+     */
+    private LinkedHashMap<String, CampusStatistic> getCampusStatistics() {
+        return view().getCampusStatistics();
+    }
 
-        for (Mountain m : mdao.retrieveAll()) {
-            statisticsList.put(m.getCode(), new Statistic(m.getCode()));
-        }
-        
-        for (Registration r : rdao.retrieveAll()) {
-            Statistic s = statisticsList.get(r.getMountainCode());
-            if (s != null) {
-                s.update(r.getFee());
-            }
+    /**
+     * Returns the materialized statistics, computing them on first use.
+     *
+     * @return the statistics view following the registration DAO
+     */
+    private synchronized StatisticsView view() {
+        if (statistics == null) {
+            statistics = new StatisticsView(rdao, mdao);
         }
-        return statisticsList;
+        return statistics;
+    }
+    
+    /**
+     * Retrieves the most popular mountains.
+     * <p>
+     * Mountains are ranked by number of participants, then by total price. Only a
+     * bounded heap of {@code k} entries is kept, so the selection costs O(n log K).
+     * </p>
+     *
+     * @param k the number of mountains to return
+     * @return a list of at most {@code k} {@link Statistic} objects, most popular first
+     */
+    public List<Statistic> getTopMountains(int k) {
+        return TopK.select(getStatistics().values(), k,
+                Comparator.comparingInt(Statistic::getParticipants)
+                        .thenComparingDouble(Statistic::getTotalPrice));
+    }
+    
+    /**
+     * Retrieves the campuses with the highest revenue.
+     * <p>
+     * Campuses are ranked by total price, then by number of participants, using a
+     * bounded heap of {@code k} entries.
+     * </p>
+     *
+     * @param k the number of campuses to return
+     * @return a list of at most {@code k} {@link CampusStatistic} objects, highest revenue first
+     */
+    public List<CampusStatistic> getTopCampuses(int k) {
+        return TopK.select(getCampusStatistics().values(), k,
+                Comparator.comparingDouble(CampusStatistic::getTotalPrice)
+                        .thenComparingInt(CampusStatistic::getParticipants));
     }
     
     /**
      * Displays all registration records.
      */
     public void displayAll() {
-        displayList(rdao.retrieveAll());
+        displayList(rdao.snapshot());
+    }
+    
+    /**
+     * Displays one page of the registration records in the given order.
+     * <p>
+     * The pages are cut from a sorted view kept by the {@link RegistrationDAO}, so only the
+     * first page after a mutation pays for sorting.
+     * </p>
+     *
+     * @param key        the order of the listing
+     * @param descending whether to list the records in reverse order
+     * @param page       the page number, starting at 1
+     * @param pageSize   the number of records per page
+     * @return {@code true} if there are more records after this page; {@code false} otherwise
+     */
+    public boolean displayPage(SortKey key, boolean descending, int page, int pageSize) {
+        int total = rdao.size();
+        int pages = Math.max(1, (total + pageSize - 1) / pageSize);
+        ResponseViewUitls.print(String.format(">>Display registration list sorted by %s%s, page %d of %d.",
+                key.getLabel(), descending ? " (descending)" : "", page, pages));
+        displayList(rdao.retrievePage(key, descending, (page - 1) * pageSize, pageSize));
+        return page < pages;
     }
     
     /**
@@ -109,8 +277,58 @@ public class RetrievalService {
      * @param name the student name to filter by
      */
     public void displaySearchByName(String name) {
-        System.out.println(">>Display registration list filter by name [" + name + "].");
-        displayList(rdao.retrieveList(r -> r.getName().equals(name)));
+        ResponseViewUitls.print(">>Display registration list filter by name [" + name + "].");
+        displayList(search(RegistrationQuery.equal(RegistrationField.NAME, name)));
+    }
+    
+    /**
+     * Retrieves the registered names within an edit distance of a name, using the cache.
+     *
+     * @param name        the name to search around, in any capitalization
+     * @param maxDistance the largest edit distance accepted
+     * @return an unmodifiable list of the matching names, closest first
+     */
+    public List<BKTree.Match<String>> searchSimilarNames(String name, int maxDistance) {
+        return cached(Arrays.asList(SIMILAR_NAMES_KEY, name.toLowerCase(), maxDistance),
+                () -> Collections.unmodifiableList(rdao.similarNames(name, maxDistance)));
+    }
+
+    /**
+     * Displays registration records whose student name is close to the given name.
+     * <p>
+     * It prints the matching names ranked by edit distance with their number of registrations,
+     * then displays the registrations of those names in the same order.
+     * </p>
+     *
+     * @param name        the name to search around, in any capitalization
+     * @param maxDistance the largest edit distance accepted
+     */
+    public void displayFuzzySearchByName(String name, int maxDistance) {
+        ResponseViewUitls.print(">>Display registration list filter by names within distance " + maxDistance
+                + " of [" + name + "].");
+        List<Registration> found = new ArrayList<>();
+        for (BKTree.Match<String> match : searchSimilarNames(name, maxDistance)) {
+            List<Registration> registrations = search(RegistrationQuery.equal(RegistrationField.NAME, match.getElement()));
+            ResponseViewUitls.print(String.format("  Distance %d : %-20s (%d registrations)",
+                    match.getDistance(), match.getElement(), registrations.size()));
+            found.addAll(registrations);
+        }
+        displayList(found);
+    }
+    
+    /**
+     * Displays the registrations matching a filter on campus, mountain code and carrier.
+     * <p>
+     * The number of matches is counted from the bitmap indexes before the matching
+     * registrations are listed.
+     * </p>
+     *
+     * @param filter the filter to apply
+     */
+    public void displayFilterByAttributes(BitmapFilter filter) {
+        ResponseViewUitls.print(">>Display registration list filter by [" + filter + "].");
+        ResponseViewUitls.print("Matching registrations: " + rdao.count(filter));
+        displayList(cached(filter, () -> Collections.unmodifiableList(rdao.retrieveList(filter))));
     }
     
     /**
@@ -123,8 +341,8 @@ public class RetrievalService {
      * @param campus the campus code to filter by
      */
     public void displaySearchByCampus(String campus) {
-        System.out.println(">>Display registration list filter by campus [" + campus + "].");
-        displayList(rdao.retrieveList(r -> r.getStudentId().startsWith(campus)));
+        ResponseViewUitls.print(">>Display registration list filter by campus [" + campus + "].");
+        displayList(search(RegistrationQuery.prefix(RegistrationField.STUDENT_ID, campus)));
     }
     
     /**
@@ -135,11 +353,131 @@ public class RetrievalService {
      * </p>
      */
     public void displayStatistic() {
+        ServiceEvent event = new ServiceEvent();
+        event.begin();
+        boolean materialized = statistics != null;
         HashMap<String, Statistic> list = getStatistics();
-        System.out.println(ResponseViewUitls.header(Statistic.header()));
+        event.finish("RetrievalService", ServiceEvent.STATISTICS, "mountains", list.size(), materialized);
+        ResponseViewUitls.print(ResponseViewUitls.header(Statistic.header()));
         for (Statistic s : list.values()) {
-            System.out.println(s);
+            ResponseViewUitls.print(s);
+        }
+        ResponseViewUitls.print(ResponseViewUitls.line(Statistic.header().length()));
+    }
+    
+    /**
+     * Displays the approximate analytics of the probabilistic sketches.
+     * <p>
+     * The distinct students, email domains and phone numbers are shown per campus and for the
+     * merged campuses, within two standard errors; the most registered mountains and email
+     * domains are shown with the most their estimate may exceed the true count.
+     * </p>
+     */
+    public void displaySketches() {
+        ServiceEvent event = new ServiceEvent();
+        event.begin();
+        Map<String, RegistrationSketch> campuses = rdao.getSketches();
+        RegistrationSketch merged = RegistrationSketches.merge(campuses.values());
+        event.finish("RetrievalService", ServiceEvent.SKETCHES, "campuses", campuses.size(), false);
+        String header = String.format(" %-6s | %-24s | %-24s | %-24s ",
+                "Campus", "Distinct students", "Distinct email domains", "Distinct phones");
+        ResponseViewUitls.print(">>Approximate distinct counts (HyperLogLog, +/- 2 standard errors).");
+        ResponseViewUitls.print(ResponseViewUitls.header(header));
+        for (Map.Entry<String, RegistrationSketch> e : campuses.entrySet()) {
+            displayDistinct(e.getKey(), e.getValue());
+        }
+        displayDistinct("All", merged);
+        ResponseViewUitls.print(ResponseViewUitls.line(header.length()));
+
+        CountMinSketch counts = merged.getMountains().getSketch();
+        header = String.format(" %-13s | %-30s | %12s | %12s ", "Kind", "Value", "Estimate", "Overcount");
+        ResponseViewUitls.print(String.format(">>Heavy hitters (Count-Min, overcount at most shown with %.1f%% confidence).",
+                counts.confidence() * 100));
+        ResponseViewUitls.print(ResponseViewUitls.header(header));
+        displayHeavyHitters("Mountain code", merged.getMountains());
+        displayHeavyHitters("Email domain", merged.getEmailDomainCounts());
+        ResponseViewUitls.print(ResponseViewUitls.line(header.length()));
+    }
+
+    /**
+     * Displays the distinct counts of one row of {@link #displaySketches()}.
+     *
+     * @param label  the campus code, or the label of the merged campuses
+     * @param sketch the sketches of the row
+     */
+    private void displayDistinct(String label, RegistrationSketch sketch) {
+        ResponseViewUitls.print(String.format(" %-6s | %-24s | %-24s | %-24s ", label,
+                formatDistinct(sketch.getStudents()), formatDistinct(sketch.getEmailDomains()),
+                formatDistinct(sketch.getPhones())));
+    }
+
+    /**
+     * Formats a distinct count with its error bound.
+     *
+     * @param sketch the sketch of the distinct values
+     * @return the estimate and two standard errors
+     */
+    private static String formatDistinct(HyperLogLog sketch) {
+        long estimate = sketch.estimate();
+        return String.format("%,d +/- %,d", estimate, Math.round(2 * sketch.standardError() * estimate));
+    }
+
+    /**
+     * Displays the most frequent values of one kind of {@link #displaySketches()}.
+     *
+     * @param kind    the label of the values
+     * @param hitters the counts of the values
+     */
+    private void displayHeavyHitters(String kind, HeavyHitters hitters) {
+        CountMinSketch counts = hitters.getSketch();
+        for (String value : hitters.top(HEAVY_HITTERS)) {
+            ResponseViewUitls.print(String.format(" %-13s | %-30s | %,12d | %,12d ", kind, value,
+                    counts.estimate(value), counts.errorBound()));
         }
-        System.out.println(ResponseViewUitls.line(Statistic.header().length()));
+    }
+
+    /**
+     * Displays the {@code k} most popular mountains.
+     *
+     * @param k the number of mountains to display
+     */
+    public void displayTopMountains(int k) {
+        ResponseViewUitls.print(">>Display top " + k + " mountains by participants.");
+        ResponseViewUitls.print(ResponseViewUitls.header(Statistic.header()));
+        for (Statistic s : getTopMountains(k)) {
+            ResponseViewUitls.print(s);
+        }
+        ResponseViewUitls.print(ResponseViewUitls.line(Statistic.header().length()));
+    }
+    
+    /**
+     * Displays the {@code k} campuses with the highest revenue.
+     *
+     * @param k the number of campuses to display
+     */
+    public void displayTopCampuses(int k) {
+        ResponseViewUitls.print(">>Display top " + k + " campuses by revenue.");
+        ResponseViewUitls.print(ResponseViewUitls.header(CampusStatistic.header()));
+        for (CampusStatistic s : getTopCampuses(k)) {
+            ResponseViewUitls.print(s);
+        }
+        ResponseViewUitls.print(ResponseViewUitls.line(CampusStatistic.header().length()));
+    }
+    
+    /**
+     * Displays the size and the hit and miss rates of the result cache.
+     */
+    public void displayCacheStatistics() {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        double hitRate = cache.getHitRate();
+        ResponseViewUitls.print(String.format(
+                "Cache entries : %d / %d\n"
+                + "Hits          : %d\n"
+                + "Misses        : %d\n"
+                + "Hit rate      : %.1f%%\n"
+                + "Miss rate     : %.1f%%",
+                cache.size(), cache.getCapacity(), hits, misses,
+                hitRate * 100, (hits + misses == 0 ? 0.0 : 1 - hitRate) * 100));
     }
 }
@@ -0,0 +1,163 @@
+package service;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.event.RegistrationEvent;
+import dao.event.RegistrationListener;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import model.CampusStatistic;
+import model.Mountain;
+import model.Registration;
+import model.Statistic;
+
+/**
+ * Per-mountain and per-campus statistics kept up to date from the changes of the registration list.
+ * <p>
+ * The statistics are computed once from every registration, then every created, updated or deleted
+ * registration only adjusts the one or two entries it belongs to, instead of recomputing them all.
+ * The view listens synchronously, so it is current as soon as a DAO mutation returns.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class StatisticsView implements RegistrationListener {
+
+    /**
+     * The statistics by mountain code, one per known mountain in mountain order.
+     */
+    private final LinkedHashMap<String, Statistic> mountains = new LinkedHashMap<>();
+
+    /**
+     * The statistics by campus code, for campuses with at least one registration.
+     */
+    private final LinkedHashMap<String, CampusStatistic> campuses = new LinkedHashMap<>();
+
+    /**
+     * Computes the statistics from every registration and subscribes to later changes.
+     *
+     * @param rdao the registration DAO to follow
+     * @param mdao the mountain DAO listing the mountains
+     */
+    public StatisticsView(RegistrationDAO rdao, MountainDAO mdao) {
+        this(Collections.<Registration>emptyList(), mdao.retrieveAll());
+        // The DAO publishes under its lock, so no change slips between the scan and the subscription.
+        synchronized (rdao) {
+            for (Registration r : rdao.retrieveAll()) {
+                add(r);
+            }
+            rdao.getEvents().subscribe(this);
+        }
+    }
+
+    /**
+     * Computes the statistics from the given registrations, without following any change.
+     * <p>
+     * The registrations are visited once and not kept, so they may be streamed from an archive
+     * larger than the heap (see {@link dao.archive.RegistrationArchiveReader}).
+     * </p>
+     *
+     * @param registrations the registrations to aggregate
+     * @param mountainList  the known mountains
+     */
+    public StatisticsView(Iterable<Registration> registrations, List<Mountain> mountainList) {
+        for (Mountain m : mountainList) {
+            mountains.put(m.getCode(), new Statistic(m.getCode()));
+        }
+        for (Registration r : registrations) {
+            add(r);
+        }
+    }
+
+    /**
+     * Returns the campus of a registration.
+     *
+     * @param registration the registration
+     * @return the two-letter prefix of the student ID
+     */
+    private static String campusOf(Registration registration) {
+        return registration.getStudentId().substring(0, 2);
+    }
+
+    /**
+     * Counts a registration.
+     *
+     * @param registration the registration to count
+     */
+    private void add(Registration registration) {
+        Statistic s = mountains.get(registration.getMountainCode());
+        if (s != null) {
+            s.update(registration.getFee());
+        }
+        String campus = campusOf(registration);
+        CampusStatistic c = campuses.get(campus);
+        if (c == null) {
+            c = new CampusStatistic(campus);
+            campuses.put(campus, c);
+        }
+        c.update(registration.getFee());
+    }
+
+    /**
+     * Stops counting a registration, dropping its campus once the campus is empty.
+     *
+     * @param registration the registration to remove
+     */
+    private void remove(Registration registration) {
+        Statistic s = mountains.get(registration.getMountainCode());
+        if (s != null) {
+            s.revert(registration.getFee());
+        }
+        String campus = campusOf(registration);
+        CampusStatistic c = campuses.get(campus);
+        if (c != null) {
+            c.revert(registration.getFee());
+            if (c.getParticipants() == 0) {
+                campuses.remove(campus);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onChange(RegistrationEvent event) {
+        if (event.getBefore() != null) {
+            remove(event.getBefore());
+        }
+        if (event.getAfter() != null) {
+            add(event.getAfter());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the statistics by mountain.
+     *
+     * @return the statistics by mountain code, in mountain order
+     */
+    public synchronized LinkedHashMap<String, Statistic> getStatistics() {
+        LinkedHashMap<String, Statistic> copy = new LinkedHashMap<>();
+        for (Statistic s : mountains.values()) {
+            Statistic c = new Statistic(s.getMountainCode());
+            c.setParticipants(s.getParticipants());
+            c.setTotalPrice(s.getTotalPrice());
+            copy.put(c.getMountainCode(), c);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a snapshot of the statistics by campus.
+     *
+     * @return the statistics by campus code
+     */
+    public synchronized LinkedHashMap<String, CampusStatistic> getCampusStatistics() {
+        LinkedHashMap<String, CampusStatistic> copy = new LinkedHashMap<>();
+        for (CampusStatistic s : campuses.values()) {
+            CampusStatistic c = new CampusStatistic(s.getCampus());
+            c.setParticipants(s.getParticipants());
+            c.setTotalPrice(s.getTotalPrice());
+            copy.put(c.getCampus(), c);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,173 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.archive.ExternalSorter;
+import dao.archive.RegistrationArchiveReader;
+import dao.archive.RegistrationArchiveWriter;
+import dao.query.SortKey;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import model.CampusStatistic;
+import model.Registration;
+import model.Statistic;
+import service.StatisticsView;
+import utils.viewUtils.ResponseViewUitls;
+
+/**
+ * Command line tool processing registration archives offline, without loading them whole.
+ * <p>
+ * Commands, run in the directory holding the data files:
+ * </p>
+ * <ul>
+ *   <li>{@code export <archive>}: writes the registrations of {@code Registrations.dat} into an archive,</li>
+ *   <li>{@code sort <input> <output> [memory MB]}: sorts an archive by student ID with an
+ *       {@link ExternalSorter} bounded by the given memory (default 64 MB),</li>
+ *   <li>{@code stats <archive>}: aggregates the mountain and campus statistics in one streaming
+ *       pass against the mountains of {@code MountainList.csv}.</li>
+ * </ul>
+ * <p>
+ * Each command reports its time and the peak heap used. Archives of any size are generated with
+ * the {@code -a} option of {@link DataGenerator}; with {@code -Xmx} set a little above the sort
+ * budget, the commands show that the heap does not grow with the input.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ArchiveTool <command> <arguments>}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ArchiveTool {
+
+    /**
+     * The default memory budget of the sort, in megabytes.
+     */
+    private static final int DEFAULT_MEMORY_MB = 64;
+
+    /**
+     * Resets the peak usage of every heap pool.
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the peak usage of every heap pool, an upper bound of the peak heap.
+     *
+     * @return the peak heap in megabytes
+     */
+    private static double peakHeapMB() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Writes the registrations of {@code Registrations.dat} into an archive.
+     *
+     * @param archive the archive to write
+     * @throws IOException if the archive cannot be written
+     */
+    private static void export(String archive) throws IOException {
+        RegistrationDAO rdao = new RegistrationDAO();
+        try (RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(archive)) {
+            for (Registration registration : rdao.retrieveAll()) {
+                writer.write(registration);
+            }
+            System.out.println(String.format("Exported %,d registrations to %s.", writer.getCount(), archive));
+        }
+    }
+
+    /**
+     * Sorts an archive by student ID within a memory budget.
+     *
+     * @param input    the archive to sort
+     * @param output   the sorted archive to write
+     * @param memoryMB the memory budget in megabytes
+     * @throws IOException if an archive or run file cannot be read or written
+     */
+    private static void sort(String input, String output, int memoryMB) throws IOException {
+        File tempDir = new File(output).getAbsoluteFile().getParentFile();
+        ExternalSorter sorter = new ExternalSorter(memoryMB * 1024L * 1024L, tempDir);
+        long count;
+        try (RegistrationArchiveReader reader = RegistrationArchiveReader.open(input);
+                RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(output)) {
+            count = sorter.sort(reader, SortKey.STUDENT_ID.comparator(), writer);
+        }
+        System.out.println(String.format("Sorted %,d registrations into %s: %d runs (%,.1f MB spilled),"
+                + " %d merge passes of up to %d runs.", count, output, sorter.getRuns(),
+                sorter.getSpilledBytes() / (1024.0 * 1024.0), sorter.getPasses(), sorter.getFanIn()));
+    }
+
+    /**
+     * Aggregates the statistics of an archive in one streaming pass and displays them.
+     *
+     * @param archive the archive to aggregate
+     * @throws IOException if the archive cannot be read
+     */
+    private static void stats(String archive) throws IOException {
+        StatisticsView view;
+        long count;
+        try (RegistrationArchiveReader reader = RegistrationArchiveReader.open(archive)) {
+            view = new StatisticsView(() -> reader, new MountainDAO().retrieveAll());
+            count = reader.getCount();
+        }
+        System.out.println(String.format(">>Statistics of %,d registrations in %s.", count, archive));
+        System.out.println(ResponseViewUitls.header(Statistic.header()));
+        for (Statistic s : view.getStatistics().values()) {
+            System.out.println(s);
+        }
+        System.out.println(ResponseViewUitls.line(Statistic.header().length()));
+        System.out.println(ResponseViewUitls.header(CampusStatistic.header()));
+        for (CampusStatistic s : view.getCampusStatistics().values()) {
+            System.out.println(s);
+        }
+        System.out.println(ResponseViewUitls.line(CampusStatistic.header().length()));
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args the command and its arguments
+     * @throws IOException if an archive cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ArchiveTool export <archive> | sort <input> <output> [memory MB] | stats <archive>");
+            return;
+        }
+        resetPeakHeap();
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "export":
+                export(args[1]);
+                break;
+            case "sort":
+                if (args.length < 3) {
+                    System.out.println("Missing output archive.");
+                    return;
+                }
+                sort(args[1], args[2], args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MEMORY_MB);
+                break;
+            case "stats":
+                stats(args[1]);
+                break;
+            default:
+                System.out.println("Unknown command " + args[0]);
+                return;
+        }
+        System.out.println(String.format("Done in %,.1f ms, peak heap %,.1f MB.",
+                (System.nanoTime() - start) / 1e6, peakHeapMB()));
+    }
+}
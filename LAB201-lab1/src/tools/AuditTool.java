@@ -0,0 +1,256 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import utils.audit.AuditLogReader;
+import utils.audit.AuditRecord;
+import utils.audit.AuditTrail;
+
+/**
+ * Command line tool reading the audit trail and checking its writer.
+ * <p>
+ * Commands, run in the directory of the desk:
+ * </p>
+ * <ul>
+ *   <li>{@code read [--dir directory] [--id studentId] [--from time] [--to time]}: lists the
+ *       records of the trail (default directory {@value AuditTrail#DEFAULT_DIRECTORY}), oldest
+ *       first, keeping those of a student ID and those from and before the given local times,
+ *       written as {@code 2026-10-18T09:30} or with seconds,</li>
+ *   <li>{@code check [threads] [records]}: records from several threads, first at a pace where
+ *       every record must be written and read back in order, then in a burst overflowing the
+ *       buffer and a trail of small files, where the files must stay within their caps; both
+ *       report the time spent recording. Last, a trail whose directory cannot be created must
+ *       refuse and count every record.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.AuditTool <command> <arguments>}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class AuditTool {
+
+    /**
+     * The pause of a paced recording thread.
+     */
+    private static final long PAUSE_NANOS = 100_000;
+
+    /**
+     * Parses a local time into milliseconds since the epoch.
+     */
+    private static long millisOf(String time) {
+        return LocalDateTime.parse(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Lists the records of the trail matching the options.
+     *
+     * @param args the options
+     * @throws IOException if a log file cannot be read
+     */
+    private static void read(String[] args) throws IOException {
+        File directory = new File(AuditTrail.DEFAULT_DIRECTORY);
+        Predicate<AuditRecord> filter = r -> true;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--dir":
+                    directory = new File(value);
+                    break;
+                case "--id":
+                    filter = filter.and(r -> r.getStudentId().equalsIgnoreCase(value));
+                    break;
+                case "--from":
+                    long from = millisOf(value);
+                    filter = filter.and(r -> r.getTime() >= from);
+                    break;
+                case "--to":
+                    long to = millisOf(value);
+                    filter = filter.and(r -> r.getTime() < to);
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        AtomicLong matched = new AtomicLong();
+        long read = AuditLogReader.read(directory, filter, r -> {
+            matched.incrementAndGet();
+            System.out.println(r);
+        });
+        System.out.println(String.format("%,d of %,d records in %d file(s) of %s.", matched.get(), read,
+                AuditLogReader.files(directory).size(), directory));
+    }
+
+    /**
+     * Records from several threads, pausing every few records, and waits for the writer.
+     *
+     * @param trail      the trail to record into
+     * @param threads    the number of recording threads
+     * @param records    the number of records per thread
+     * @param pauseEvery the number of records between two short pauses, 0 for none
+     * @return the average time spent in {@link AuditTrail#record}, in nanoseconds
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static double record(AuditTrail trail, int threads, int records, int pauseEvery) throws InterruptedException {
+        AtomicLong recordNanos = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String id = String.format("SE%06d", t);
+            Thread worker = new Thread(() -> {
+                long nanos = 0;
+                for (int i = 0; i < records; i++) {
+                    String value = String.valueOf(i);
+                    long start = System.nanoTime();
+                    trail.record(AuditRecord.Operation.UPDATE, id, "name", "Before", value);
+                    nanos += System.nanoTime() - start;
+                    if (pauseEvery > 0 && i % pauseEvery == pauseEvery - 1) {
+                        LockSupport.parkNanos(PAUSE_NANOS);
+                    }
+                }
+                recordNanos.addAndGet(nanos);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        trail.close();
+        long total = (long) threads * records;
+        if (trail.getWritten() + trail.getDropped() != total) {
+            throw new IllegalStateException(String.format("%,d written and %,d dropped of %,d records",
+                    trail.getWritten(), trail.getDropped(), total));
+        }
+        return recordNanos.get() / (double) total;
+    }
+
+    /**
+     * Reads a trail back, checking that the records of each thread are in order.
+     *
+     * @param dir     the directory of the trail
+     * @param threads the number of recording threads
+     * @return the number of records read
+     * @throws IOException if a log file cannot be read
+     */
+    private static long readBack(File dir, int threads) throws IOException {
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        return AuditLogReader.read(dir, r -> true, r -> {
+            int thread = Integer.parseInt(r.getStudentId().substring(2));
+            int i = Integer.parseInt(r.getAfter());
+            if (i <= last[thread]) {
+                throw new IllegalStateException("Record " + i + " of thread " + thread + " out of order");
+            }
+            last[thread] = i;
+        });
+    }
+
+    /**
+     * Deletes the files of a trail.
+     */
+    private static void clear(File dir) {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Checks the trail at a desk's pace, where nothing may be lost, then under a burst
+     * overflowing both the buffer and the files, and last with a trail that cannot write.
+     *
+     * @param threads the number of recording threads
+     * @param records the number of records per thread
+     * @throws IOException if a log file cannot be read
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void check(int threads, int records) throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("audit").toFile();
+        try {
+            long total = (long) threads * records;
+            AuditTrail trail = new AuditTrail(dir, 1 << 20, 64, AuditTrail.DEFAULT_CAPACITY, "check");
+            long start = System.nanoTime();
+            double nanos = record(trail, threads, records, 1);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            long read = readBack(dir, threads);
+            if (trail.getDropped() != 0 || read != total) {
+                throw new IllegalStateException(String.format("Paced: %,d dropped, %,d of %,d read back",
+                        trail.getDropped(), read, total));
+            }
+            System.out.println(String.format("Paced: %d threads recorded %,d records in %,d ms at %,.0f ns per record;"
+                    + " all written (%d rotations) and read back in order.", threads, total, millis, nanos,
+                    trail.getRotations()));
+
+            clear(dir);
+            long fileCap = 64 * 1024;
+            int files = 4;
+            trail = new AuditTrail(dir, fileCap, files, AuditTrail.DEFAULT_CAPACITY, "check");
+            nanos = record(trail, threads, records, 0);
+            long kept = readBack(dir, threads);
+            long bytes = 0;
+            for (File file : AuditLogReader.files(dir)) {
+                if (file.length() > fileCap) {
+                    throw new IllegalStateException(file + " exceeds its cap: " + file.length() + " bytes");
+                }
+                bytes += file.length();
+            }
+            if (AuditLogReader.files(dir).size() > files) {
+                throw new IllegalStateException("More than " + files + " log files kept");
+            }
+            System.out.println(String.format("Burst: %,.0f ns per record; %,d written, %,d dropped (buffer full),"
+                    + " %d rotations; the %d kept files hold the newest %,d records in %,d bytes, in order.",
+                    nanos, trail.getWritten(), trail.getDropped(), trail.getRotations(),
+                    AuditLogReader.files(dir).size(), kept, bytes));
+
+            File blocked = new File(dir, "blocked");
+            blocked.createNewFile();
+            trail = new AuditTrail(blocked, fileCap, files, AuditTrail.DEFAULT_CAPACITY, "check");
+            for (int i = 0; i < 1000 && !trail.isFailed(); i++) {
+                Thread.sleep(1);
+            }
+            record(trail, threads, records / 10, 0);
+            if (!trail.isFailed() || trail.getWritten() != 0 || trail.getDropped() != (long) threads * (records / 10)) {
+                throw new IllegalStateException(String.format("Failed trail: %,d written, %,d dropped",
+                        trail.getWritten(), trail.getDropped()));
+            }
+            System.out.println(String.format("Failed: a trail that cannot write refused and counted all %,d records.",
+                    trail.getDropped()));
+            System.out.println("OK: recording never waits, the trail rotates within its caps, reads back in order"
+                    + " and counts what it cannot write.");
+        } finally {
+            clear(dir);
+            dir.delete();
+        }
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args the command and its arguments
+     * @throws IOException if a log file cannot be read
+     * @throws InterruptedException if interrupted while checking
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String command = args.length > 0 ? args[0] : "read";
+        switch (command) {
+            case "read":
+                read(args);
+                break;
+            case "check":
+                check(args.length > 1 ? Integer.parseInt(args[1]) : 4, args.length > 2 ? Integer.parseInt(args[2]) : 50_000);
+                break;
+            default:
+                System.out.println("Usage: AuditTool read [--dir directory] [--id studentId] [--from time] [--to time]"
+                        + " | check [threads] [records]");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package tools;
+
+import dao.RegistrationDAO;
+import dao.query.BitmapAttribute;
+import dao.query.BitmapFilter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import utils.collection.RoaringBitmap;
+
+/**
+ * Command line tool comparing bitmap index counts with predicate scans.
+ * <p>
+ * The tool first checks {@link RoaringBitmap} against {@link BitSet} on random sets of every
+ * density. Then, over the {@code Registrations.dat} of the current directory, it counts every
+ * combination of one campus, one mountain code and one carrier both with the bitmap indexes of
+ * {@link RegistrationDAO} and with a scan of the registrations, checks that the counts agree and
+ * reports the average time of each.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.BitmapBenchmark}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class BitmapBenchmark {
+
+    /**
+     * Checks the bitmap operations against {@link BitSet}.
+     */
+    private static void checkBitmaps() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] densities = {10, 1_000, 20_000, 60_000};
+        for (int a : densities) {
+            for (int b : densities) {
+                BitSet expectedA = new BitSet();
+                BitSet expectedB = new BitSet();
+                RoaringBitmap actualA = new RoaringBitmap();
+                RoaringBitmap actualB = new RoaringBitmap();
+                for (int i = 0; i < a * 4; i++) {
+                    int x = random.nextInt(4 << 16);
+                    expectedA.set(x);
+                    actualA.add(x);
+                }
+                for (int i = 0; i < b * 4; i++) {
+                    int x = random.nextInt(4 << 16);
+                    expectedB.set(x);
+                    actualB.add(x);
+                }
+                for (int i = 0; i < a; i++) {
+                    int x = random.nextInt(4 << 16);
+                    expectedA.clear(x);
+                    actualA.remove(x);
+                }
+                BitSet expected = (BitSet) expectedA.clone();
+                expected.and(expectedB);
+                BitSet actual = new BitSet();
+                RoaringBitmap.and(actualA, actualB).forEach(actual::set);
+                if (actualA.getCardinality() != expectedA.cardinality()
+                        || RoaringBitmap.andCardinality(actualA, actualB) != expected.cardinality()
+                        || !actual.equals(expected)) {
+                    throw new IllegalStateException("Bitmap mismatch at densities " + a + " and " + b);
+                }
+            }
+        }
+        System.out.println("RoaringBitmap matches BitSet.");
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        checkBitmaps();
+        RegistrationDAO rdao = new RegistrationDAO();
+        long start = System.nanoTime();
+        rdao.count(BitmapFilter.ALL);
+        System.out.println(String.format("Bitmap indexes over %,d registrations built in %,.1f ms",
+                rdao.retrieveAll().size(), (System.nanoTime() - start) / 1e6));
+
+        List<BitmapFilter> filters = new ArrayList<>();
+        for (String campus : rdao.values(BitmapAttribute.CAMPUS)) {
+            for (String mountain : rdao.values(BitmapAttribute.MOUNTAIN_CODE)) {
+                for (String carrier : rdao.values(BitmapAttribute.CARRIER)) {
+                    filters.add(BitmapFilter.where(BitmapAttribute.CAMPUS, campus)
+                            .and(BitmapAttribute.MOUNTAIN_CODE, mountain)
+                            .and(BitmapAttribute.CARRIER, carrier));
+                }
+            }
+        }
+        long bitmapNanos = 0;
+        long scanNanos = 0;
+        long total = 0;
+        for (BitmapFilter filter : filters) {
+            start = System.nanoTime();
+            int counted = rdao.count(filter);
+            bitmapNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            long scanned = rdao.retrieveAll().stream().filter(filter::test).count();
+            scanNanos += System.nanoTime() - start;
+            if (counted != scanned) {
+                throw new IllegalStateException(filter + ": bitmap counted " + counted + ", scan counted " + scanned);
+            }
+            total += counted;
+        }
+        System.out.println(String.format("%d filters, %,d matches in total, counts agree.", filters.size(), total));
+        System.out.println(String.format("Average bitmap count : %,10.3f ms", bitmapNanos / 1e6 / filters.size()));
+        System.out.println(String.format("Average scan count   : %,10.3f ms", scanNanos / 1e6 / filters.size()));
+    }
+}
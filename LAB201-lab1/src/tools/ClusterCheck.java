@@ -0,0 +1,300 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.cluster.ClusterNode;
+import dao.cluster.ClusterRouter;
+import dao.cluster.HashRing;
+import dao.cluster.PartialStatistics;
+import dao.query.RegistrationField;
+import dao.query.RegistrationQuery;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import model.Mountain;
+import model.Registration;
+import service.StatisticsView;
+
+/**
+ * Command line tool checking the consistent-hash cluster with several node JVMs on one machine.
+ * <p>
+ * Run in a directory holding the data files, the tool starts {@link ClusterNode} JVMs, each in
+ * its own temporary directory with no registrations, and loads the registrations of the current
+ * directory through a {@link ClusterRouter}. It checks that:
+ * </p>
+ * <ul>
+ *   <li>uniqueness checks, searches by name and campus and the statistics of the cluster match
+ *       a local {@code RegistrationDAO} holding every registration,</li>
+ *   <li>routed creates, updates and deletes keep matching the local DAO, reporting the
+ *       throughput of single-node and scatter-gather calls,</li>
+ *   <li>adding a node moves only the registrations of the arcs it takes over, about
+ *       {@code 1 / (nodes + 1)} of them, and every query still matches afterwards.</li>
+ * </ul>
+ * <p>
+ * The data files of the current directory are only read, never saved.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ClusterCheck [nodes] [mutations] [port]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ClusterCheck {
+
+    /**
+     * The number of sampled names, campuses, emails and phones compared per check.
+     */
+    private static final int SAMPLES = 200;
+
+    /**
+     * The campuses of the registrations created by the check.
+     */
+    private static final String[] CAMPUSES = {"SE", "HE", "DE", "QE", "CE"};
+
+    /**
+     * A node JVM serving on a port from its own directory.
+     */
+    private static class Node {
+        private final File dir;
+        private final int port;
+        private final Process process;
+
+        Node(File dir, int port) throws IOException {
+            this.dir = dir;
+            this.port = port;
+            this.process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                    "-cp", System.getProperty("java.class.path"), ClusterNode.class.getName(), String.valueOf(port))
+                    .directory(dir).redirectErrorStream(true).start();
+            BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line;
+            while ((line = out.readLine()) != null && !line.startsWith("READY")) {
+                // Skip the output of the DAO loading an empty directory.
+            }
+            if (line == null) {
+                throw new IOException("Node in " + dir + " exited before accepting connections");
+            }
+            Thread drain = new Thread(() -> {
+                try {
+                    while (out.readLine() != null) {
+                        // Keep the pipe from filling up.
+                    }
+                } catch (IOException e) {
+                    // The node exited.
+                }
+            });
+            drain.setDaemon(true);
+            drain.start();
+        }
+
+        void destroy() {
+            process.destroy();
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /**
+     * Starts a node JVM in a new temporary directory holding the mountain list.
+     *
+     * @param port the port of the node
+     * @return the started node
+     */
+    private static Node startNode(int port) throws IOException {
+        File dir = Files.createTempDirectory("cluster-").toFile();
+        Files.copy(new File("MountainList.csv").toPath(), new File(dir, "MountainList.csv").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        return new Node(dir, port);
+    }
+
+    /**
+     * Fails the check when two values differ.
+     */
+    private static void expect(Object expected, Object actual, String what) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(what + ": expected " + expected + " but the cluster returned " + actual);
+        }
+    }
+
+    /**
+     * Compares the cluster with the local DAO on sampled queries and the statistics.
+     *
+     * @return the number of queries compared
+     */
+    private static int compare(RegistrationDAO rdao, ClusterRouter router, List<Mountain> mountains,
+            SplittableRandom random) {
+        List<Registration> all = rdao.snapshot();
+        expect(all.size(), router.size(), "size");
+        int queries = 1;
+        for (int i = 0; i < SAMPLES && !all.isEmpty(); i++) {
+            Registration r = all.get(random.nextInt(all.size()));
+            expect(describe(rdao.retrieve(r.getStudentId())), describe(router.retrieve(r.getStudentId())), "retrieve " + r.getStudentId());
+            expect(rdao.isUnique(3, r.getEmail()), router.isUnique(3, r.getEmail()), "unique email " + r.getEmail());
+            expect(rdao.isUnique(2, r.getPhone()), router.isUnique(2, r.getPhone()), "unique phone " + r.getPhone());
+            expect(ids(rdao.query(RegistrationQuery.equal(RegistrationField.NAME, r.getName()))),
+                    ids(router.searchByName(r.getName())), "search name " + r.getName());
+            queries += 4;
+        }
+        for (String campus : CAMPUSES) {
+            expect(ids(rdao.query(RegistrationQuery.prefix(RegistrationField.STUDENT_ID, campus))),
+                    ids(router.searchByCampus(campus)), "search campus " + campus);
+            queries++;
+        }
+        StatisticsView local = new StatisticsView(all, mountains);
+        PartialStatistics gathered = router.gatherStatistics();
+        expect(local.getStatistics().toString(), gathered.toStatistics(mountains).toString(), "mountain statistics");
+        expect(local.getCampusStatistics().toString(), gathered.toCampusStatistics().toString(), "campus statistics");
+        return queries + 2;
+    }
+
+    /**
+     * Describes every field of a registration, as registrations are copied between JVMs.
+     */
+    private static String describe(Registration r) {
+        return r == null ? "none" : r.getStudentId() + '|' + r.getName() + '|' + r.getEmail() + '|' + r.getPhone()
+                + '|' + r.getMountainCode() + '|' + r.getFee();
+    }
+
+    /**
+     * Returns the student IDs of a list of registrations, in order.
+     */
+    private static List<String> ids(List<Registration> registrations) {
+        List<String> ids = new ArrayList<>(registrations.size());
+        for (Registration r : registrations) {
+            ids.add(r.getStudentId());
+        }
+        return ids;
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the number of nodes (default 3), of mutations (default 2,000) and the first port (default 7171)
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int mutations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 7171;
+
+        RegistrationDAO rdao = new RegistrationDAO();
+        List<Mountain> mountains = new MountainDAO().retrieveAll();
+        SplittableRandom random = new SplittableRandom(42);
+        List<Node> nodes = new ArrayList<>();
+        ClusterRouter router = new ClusterRouter();
+        try {
+            for (int i = 0; i < count; i++) {
+                Node node = startNode(port + i);
+                nodes.add(node);
+                router.addNode("node-" + i, "localhost", node.port);
+            }
+            long start = System.nanoTime();
+            router.load(rdao.snapshot());
+            System.out.println(String.format("Loaded %,d registrations into %d nodes in %,d ms: %s",
+                    rdao.size(), count, (System.nanoTime() - start) / 1_000_000, router.sizes()));
+            System.out.println(String.format("%,d queries match the local DAO.",
+                    compare(rdao, router, mountains, random)));
+
+            long localNanos = 0;
+            long routedNanos = 0;
+            for (int step = 1; step <= mutations; step++) {
+                long[] nanos = mutate(rdao, router, mountains, random, step);
+                localNanos += nanos[0];
+                routedNanos += nanos[1];
+            }
+            System.out.println(String.format("%,d routed changes in %,d ms (%,.0f calls/s; local DAO %,d ms); %,d queries match.",
+                    mutations, routedNanos / 1_000_000, mutations * 1e9 / Math.max(1, routedNanos), localNanos / 1_000_000,
+                    compare(rdao, router, mountains, random)));
+
+            start = System.nanoTime();
+            for (int i = 0; i < SAMPLES; i++) {
+                router.isUnique(3, "nobody" + i + "@fpt.edu.vn");
+            }
+            System.out.println(String.format("Scatter-gather email check across %d nodes: %,.0f us each.",
+                    count, (System.nanoTime() - start) / 1e3 / SAMPLES));
+
+            Map<String, Integer> sizes = router.sizes();
+            HashRing oldRing = router.getRing();
+            Node added = startNode(port + count);
+            nodes.add(added);
+            start = System.nanoTime();
+            int moved = router.addNode("node-" + count, "localhost", added.port);
+            long rebalanceMillis = (System.nanoTime() - start) / 1_000_000;
+            HashRing newRing = router.getRing();
+            int expected = 0;
+            for (Registration r : rdao.snapshot()) {
+                String id = r.getStudentId().toUpperCase();
+                String oldOwner = oldRing.nodeFor(id);
+                String newOwner = newRing.nodeFor(id);
+                if (!oldOwner.equals(newOwner)) {
+                    expect("node-" + count, newOwner, "new owner of " + id);
+                    expected++;
+                }
+            }
+            expect(expected, moved, "registrations moved");
+            Map<String, Integer> resized = router.sizes();
+            for (Map.Entry<String, Integer> e : sizes.entrySet()) {
+                if (resized.get(e.getKey()) > e.getValue()) {
+                    throw new IllegalStateException("Node " + e.getKey() + " gained registrations when a node was added");
+                }
+            }
+            System.out.println(String.format("Added a node in %,d ms: moved %,d of %,d registrations (%.1f%%, ideal %.1f%%): %s",
+                    rebalanceMillis, moved, rdao.size(), 100.0 * moved / Math.max(1, rdao.size()),
+                    100.0 / (count + 1), resized));
+            System.out.println(String.format("%,d queries match the local DAO after rebalancing.",
+                    compare(rdao, router, mountains, random)));
+            System.out.println("OK: the cluster matches the local DAO.");
+        } finally {
+            router.close();
+            for (Node node : nodes) {
+                node.destroy();
+            }
+        }
+    }
+
+    /**
+     * Applies the same random create, update or delete to the local DAO and through the router.
+     *
+     * @return the time spent by the local DAO and by the router, in nanoseconds
+     */
+    private static long[] mutate(RegistrationDAO rdao, ClusterRouter router, List<Mountain> mountains,
+            SplittableRandom random, int step) {
+        List<Registration> all = rdao.retrieveAll();
+        String mountain = mountains.get(random.nextInt(mountains.size())).getCode();
+        int kind = all.isEmpty() ? 0 : random.nextInt(3);
+        long[] nanos = new long[2];
+        long start = System.nanoTime();
+        if (kind == 0) {
+            Registration r = new Registration(CAMPUSES[random.nextInt(CAMPUSES.length)] + (900_000 + step),
+                    "Check Name " + (char) ('A' + step % 26), "check" + step + "@fpt.edu.vn",
+                    (random.nextBoolean() ? "090" : "077") + (9_000_000 + step), mountain);
+            boolean created = rdao.create(r);
+            nanos[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            expect(created, router.create(r), "create " + r.getStudentId());
+        } else if (kind == 1) {
+            Registration old = all.get(random.nextInt(all.size()));
+            Registration copy = new Registration(old.getStudentId(), old.getName(), old.getEmail(),
+                    random.nextBoolean() ? old.getPhone() : "086" + (8_000_000 + step), mountain);
+            rdao.update(copy.getStudentId(), copy);
+            nanos[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            expect(describe(old), describe(router.update(copy.getStudentId(), copy)), "update " + copy.getStudentId());
+        } else {
+            String id = all.get(random.nextInt(all.size())).getStudentId();
+            Registration deleted = rdao.delete(id);
+            nanos[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            expect(describe(deleted), describe(router.delete(id)), "delete " + id);
+        }
+        nanos[1] = System.nanoTime() - start;
+        return nanos;
+    }
+}
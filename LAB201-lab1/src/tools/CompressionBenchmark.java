@@ -0,0 +1,82 @@
+package tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import utils.io.BlockDeflaterOutputStream;
+import utils.io.BlockFiles;
+import utils.io.BlockInflaterInputStream;
+
+/**
+ * Command line tool helping to choose the deflate level of block-compressed data files.
+ * <p>
+ * The tool reads a data file (inflating it first if it is already compressed), then for every
+ * level compresses it in memory with {@link BlockDeflaterOutputStream} and inflates it back with
+ * {@link BlockInflaterInputStream}, reporting the compressed size, the ratio and both timings.
+ * Pass the chosen level to the programs with {@code -D}{@value BlockFiles#LEVEL_PROPERTY}.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.CompressionBenchmark [file] [block size]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class CompressionBenchmark {
+
+    /**
+     * Reads a whole stream.
+     *
+     * @param in the stream to read
+     * @return the bytes read
+     * @throws IOException if the stream cannot be read
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the data file (default {@code Registrations.dat}) and the block size in bytes
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        String fileName = args.length > 0 ? args[0] : "Registrations.dat";
+        int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : BlockDeflaterOutputStream.DEFAULT_BLOCK_SIZE;
+        byte[] raw;
+        try (InputStream in = BlockFiles.openInput(fileName)) {
+            raw = readAll(in);
+        }
+        System.out.println(String.format("%s: %,d bytes, blocks of %,d bytes", fileName, raw.length, blockSize));
+        System.out.println(String.format(" %-5s | %15s | %7s | %12s | %12s ", "Level", "Compressed", "Ratio", "Deflate", "Inflate"));
+        for (int level = 0; level <= 9; level++) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(raw.length / 2);
+            long start = System.nanoTime();
+            BlockDeflaterOutputStream out = new BlockDeflaterOutputStream(buffer, level, blockSize);
+            out.write(raw);
+            out.close();
+            long deflate = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            byte[] back;
+            try (InputStream in = new BlockInflaterInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+                back = readAll(in);
+            }
+            long inflate = System.nanoTime() - start;
+            if (back.length != raw.length) {
+                throw new IOException("Round trip lost data at level " + level);
+            }
+            System.out.println(String.format(" %5d | %,15d | %6.1f%% | %,9.1f ms | %,9.1f ms ",
+                    level, out.getStoredBytes(), out.getRatio() * 100, deflate / 1e6, inflate / 1e6));
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package tools;
+
+import dao.archive.RegistrationArchiveWriter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import model.Mountain;
+import model.Registration;
+import untils.acceptable.RegistrationAcceptable;
+
+/**
+ * Command line tool generating synthetic data files for the registration management program.
+ * <p>
+ * The tool writes a {@code Registrations.dat} and a {@code MountainList.csv} in the exact formats
+ * read by {@code RegistrationDAO} and {@code MountainDAO}. Every generated registration satisfies
+ * the patterns of {@link RegistrationAcceptable}, and student IDs, emails and phone numbers are unique.
+ * </p>
+ * <p>
+ * Generation is split into fixed-size chunks, each with its own random stream derived from the seed,
+ * so the chunks run in parallel while the output only depends on the seed and the arguments.
+ * The serialized file itself is a single object stream and is written sequentially.
+ * </p>
+ * <p>
+ * With {@code -a}, the registrations are streamed into a registration archive of that name
+ * instead (see {@link RegistrationArchiveWriter}), so any count can be generated in bounded memory.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.DataGenerator [-n count] [-m mountains] [-s seed] [-o directory] [-a archive]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class DataGenerator {
+
+    /**
+     * The campus prefixes, in student ID order.
+     */
+    private static final String[] CAMPUSES = {"CE", "DE", "HE", "QE", "SE"};
+
+    /**
+     * The maximum number of registrations, bounded by the six digits of a student ID per campus.
+     */
+    public static final int MAX_REGISTRATIONS = CAMPUSES.length * 1_000_000;
+
+    /**
+     * The number of registrations generated by each parallel task.
+     */
+    private static final int CHUNK_SIZE = 65_536;
+
+    private static final String[] LAST_NAMES = {
+        "Nguyen", "Tran", "Le", "Pham", "Hoang", "Huynh", "Phan", "Vu", "Vo", "Dang", "Bui", "Do", "Ho", "Ngo", "Duong", "Ly"
+    };
+
+    private static final String[] MIDDLE_NAMES = {
+        "Van", "Thi", "Minh", "Duc", "Ngoc", "Thanh", "Huu", "Gia", "Bao", "Quoc"
+    };
+
+    private static final String[] FIRST_NAMES = {
+        "An", "Binh", "Chau", "Dung", "Giang", "Ha", "Hieu", "Huy", "Khanh", "Lan", "Linh", "Long",
+        "Mai", "Nam", "Nhi", "Phuc", "Quan", "Son", "Tam", "Thao", "Trang", "Tuan", "Viet", "Yen"
+    };
+
+    private static final String[] DOMAINS = {
+        "fpt.edu.vn", "gmail.com", "outlook.com", "yahoo.com", "hotmail.com"
+    };
+
+    /**
+     * Phone prefixes by carrier class: Viettel, VNPT and other carriers.
+     */
+    private static final String[][] PHONE_PREFIXES = {
+        {"032", "033", "034", "035", "036", "037", "038", "039", "086", "096", "097", "098"},
+        {"081", "082", "083", "084", "085"},
+        {"070", "076", "077", "078", "079", "090", "093", "089", "056", "058"}
+    };
+
+    private static final String[] PROVINCES = {
+        "Lao Cai", "Son La", "Hue", "Ninh Thuan", "Phu Yen", "Kon Tum", "Lam Dong", "An Giang",
+        "Vung Tau", "Khanh Hoa", "Ha Giang", "Cao Bang", "Quang Nam", "Gia Lai", "Dak Lak"
+    };
+
+    /**
+     * Generates the given number of registrations.
+     * <p>
+     * Registration {@code i} takes its campus from {@code i % 5} and its six-digit number from
+     * {@code i / 5}, and the last seven digits of its phone number from {@code i}, which makes the
+     * student ID, email and phone unique. The returned list is sorted by student ID, as
+     * {@code RegistrationDAO} keeps it.
+     * </p>
+     *
+     * @param count     the number of registrations, at most {@link #MAX_REGISTRATIONS}
+     * @param mountains the number of mountains the registrations may refer to
+     * @param seed      the seed of the random streams
+     * @return the generated registrations
+     */
+    public static List<Registration> generateRegistrations(int count, int mountains, long seed) {
+        if (count < 0 || count > MAX_REGISTRATIONS) {
+            throw new IllegalArgumentException("The number of registrations must be between 0 and " + MAX_REGISTRATIONS + "!");
+        }
+        String[] codes = new String[mountains];
+        for (int i = 0; i < mountains; i++) {
+            codes[i] = String.valueOf(i + 1);
+        }
+
+        Registration[] out = new Registration[count];
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + chunk);
+            int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                out[i] = registration(i, codes, random);
+            }
+        });
+        Arrays.parallelSort(out, (r1, r2) -> r1.getStudentId().compareTo(r2.getStudentId()));
+        return new ArrayList<>(Arrays.asList(out));
+    }
+
+    /**
+     * Generates registration number {@code i}.
+     *
+     * @param i      the registration number
+     * @param codes  the mountain codes to choose from
+     * @param random the random stream of the current chunk
+     * @return the generated registration
+     */
+    private static Registration registration(int i, String[] codes, SplittableRandom random) {
+        String studentId = CAMPUSES[i % CAMPUSES.length] + digits(i / CAMPUSES.length, 6);
+        String first = pick(FIRST_NAMES, random);
+        String last = pick(LAST_NAMES, random);
+        String name = random.nextInt(3) == 0
+                ? last + " " + first
+                : last + " " + pick(MIDDLE_NAMES, random) + " " + first;
+        String email = (first + "." + last).toLowerCase() + i + "@" + pick(DOMAINS, random);
+        String phone = pick(PHONE_PREFIXES[random.nextInt(PHONE_PREFIXES.length)], random) + digits(i, 7);
+        return new Registration(studentId, name, email, phone, pick(codes, random));
+    }
+
+    /**
+     * Generates the given number of mountains.
+     * <p>
+     * The first mountains reuse the names of the shipped catalog's provinces; codes run from 1 to {@code count}.
+     * </p>
+     *
+     * @param count the number of mountains
+     * @return the generated mountains
+     */
+    public static List<Mountain> generateMountains(int count) {
+        List<Mountain> list = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String province = PROVINCES[(i - 1) % PROVINCES.length];
+            list.add(new Mountain(String.valueOf(i), "Mountain " + toLetters(i), province, province));
+        }
+        return list;
+    }
+
+    /**
+     * Writes registrations in the format of {@code Registrations.dat}.
+     *
+     * @param list the registrations to write
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeRegistrations(List<Registration> list, File file) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            oos.writeObject(list);
+        }
+    }
+
+    /**
+     * Generates registrations straight into an archive, without holding them in memory.
+     * <p>
+     * The archive holds the same registrations as {@link #generateRegistrations(int, int, long)}
+     * for the same arguments, in generation order rather than sorted by student ID.
+     * </p>
+     *
+     * @param count     the number of registrations, at most {@link #MAX_REGISTRATIONS}
+     * @param mountains the number of mountains the registrations may refer to
+     * @param seed      the seed of the random streams
+     * @param file      the destination archive
+     * @throws IOException if the archive cannot be written
+     */
+    public static void writeArchive(int count, int mountains, long seed, File file) throws IOException {
+        if (count < 0 || count > MAX_REGISTRATIONS) {
+            throw new IllegalArgumentException("The number of registrations must be between 0 and " + MAX_REGISTRATIONS + "!");
+        }
+        String[] codes = new String[mountains];
+        for (int i = 0; i < mountains; i++) {
+            codes[i] = String.valueOf(i + 1);
+        }
+        try (RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(file.getPath())) {
+            int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + chunk);
+                int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+                for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                    writer.write(registration(i, codes, random));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes mountains in the format of {@code MountainList.csv}.
+     *
+     * @param list the mountains to write
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeMountains(List<Mountain> list, File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(Mountain.HEADER);
+            writer.newLine();
+            for (Mountain m : list) {
+                writer.write(String.format("%s, %s, %s, %s", m.getCode(), m.getMountain(), m.getProvince(), m.getDescription()));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Picks a random element of an array.
+     */
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Formats a non-negative number with leading zeros, without the cost of {@link String#format}.
+     */
+    private static String digits(int value, int width) {
+        char[] out = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Converts a positive number to a capitalized word, so generated mountain names contain no digits.
+     */
+    private static String toLetters(int n) {
+        StringBuilder sb = new StringBuilder();
+        while (n > 0) {
+            n--;
+            sb.append((char) ('a' + n % 26));
+            n /= 26;
+        }
+        sb.reverse();
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+
+    /**
+     * Runs the generator.
+     *
+     * @param args {@code -n} number of registrations (default 1,000,000), {@code -m} number of mountains
+     *             (default 13), {@code -s} seed (default 42), {@code -o} output directory (default current)
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 1_000_000;
+        int mountains = 13;
+        long seed = 42;
+        File dir = new File(".");
+        String archive = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-n":
+                    count = Integer.parseInt(args[i + 1].replace("_", ""));
+                    break;
+                case "-m":
+                    mountains = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-s":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "-o":
+                    dir = new File(args[i + 1]);
+                    break;
+                case "-a":
+                    archive = args[i + 1];
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        dir.mkdirs();
+
+        long start = System.nanoTime();
+        if (archive != null) {
+            writeArchive(count, mountains, seed, new File(dir, archive));
+            writeMountains(generateMountains(mountains), new File(dir, "MountainList.csv"));
+            System.out.println(String.format("Generated %,d registrations over %d mountains into archive %s in %,d ms.",
+                    count, mountains, archive, (System.nanoTime() - start) / 1_000_000));
+            return;
+        }
+        List<Registration> registrations = generateRegistrations(count, mountains, seed);
+        long generated = System.nanoTime();
+        writeRegistrations(registrations, new File(dir, "Registrations.dat"));
+        writeMountains(generateMountains(mountains), new File(dir, "MountainList.csv"));
+        long written = System.nanoTime();
+
+        System.out.println(String.format("Generated %,d registrations over %d mountains in %,d ms, written in %,d ms.",
+                count, mountains, (generated - start) / 1_000_000, (written - generated) / 1_000_000));
+    }
+}
@@ -0,0 +1,279 @@
+package tools;
+
+import dao.RegistrationDAO;
+import dao.archive.RegistrationArchiveWriter;
+import dao.archive.RegistrationChange;
+import dao.archive.RegistrationPatchReader;
+import dao.archive.RegistrationPatchWriter;
+import dao.archive.SnapshotDiff;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import model.Registration;
+
+/**
+ * Command line tool comparing two snapshots of the registrations and applying the differences.
+ * <p>
+ * Commands, run in the directory holding the data files:
+ * </p>
+ * <ul>
+ *   <li>{@code diff <old> <new> [patch] [memory MB]}: lists the registrations added ({@code +}),
+ *       removed ({@code -}) and modified ({@code ~}, field by field) between two snapshots, each
+ *       a {@code Registrations.dat} file or an archive, and optionally writes them as a patch;
+ *       unsorted archives are sorted within the given memory (default 64 MB),</li>
+ *   <li>{@code apply <patch>}: applies a patch to {@code Registrations.dat} and saves it, unless
+ *       a change conflicts with the current registrations,</li>
+ *   <li>{@code check [changes]}: changes a copy of {@code Registrations.dat} at random, diffs it
+ *       against the original and checks that the patch turns the original into the copy.</li>
+ * </ul>
+ * <p>
+ * Each command reports its time and the peak heap used.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.DiffTool <command> <arguments>}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class DiffTool {
+
+    /**
+     * The default memory budget of the sort of an unsorted archive, in megabytes.
+     */
+    private static final int DEFAULT_MEMORY_MB = 64;
+
+    /**
+     * Resets the peak usage of every heap pool.
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the peak usage of every heap pool, an upper bound of the peak heap.
+     *
+     * @return the peak heap in megabytes
+     */
+    private static double peakHeapMB() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Diffs two snapshots, passing every change to a consumer and optionally writing a patch.
+     *
+     * @param before   the old snapshot
+     * @param after    the new snapshot
+     * @param patch    the patch to write, or {@code null}
+     * @param memoryMB the memory budget of a sort in megabytes
+     * @param changes  receives every change
+     * @return the diff, holding the counts of the changes
+     * @throws IOException if a snapshot cannot be read or the patch written
+     */
+    private static SnapshotDiff diff(String before, String after, String patch, int memoryMB,
+            Consumer<RegistrationChange> changes) throws IOException {
+        File tempDir = new File(patch != null ? patch : after).getAbsoluteFile().getParentFile();
+        SnapshotDiff diff = new SnapshotDiff(memoryMB * 1024L * 1024L, tempDir);
+        try (SnapshotDiff.Snapshot old = diff.open(before);
+                SnapshotDiff.Snapshot current = diff.open(after);
+                RegistrationPatchWriter writer = patch != null ? RegistrationPatchWriter.open(patch) : null) {
+            diff.diff(old, current, change -> {
+                changes.accept(change);
+                if (writer != null) {
+                    try {
+                        writer.write(change);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return diff;
+    }
+
+    /**
+     * Displays the differences between two snapshots and optionally writes them as a patch.
+     *
+     * @param before   the old snapshot
+     * @param after    the new snapshot
+     * @param patch    the patch to write, or {@code null}
+     * @param memoryMB the memory budget of a sort in megabytes
+     * @throws IOException if a snapshot cannot be read or the patch written
+     */
+    private static void diff(String before, String after, String patch, int memoryMB) throws IOException {
+        SnapshotDiff diff = diff(before, after, patch, memoryMB, System.out::println);
+        System.out.println(String.format("%,d added, %,d removed, %,d modified, %,d unchanged%s.",
+                diff.getAdded(), diff.getRemoved(), diff.getModified(), diff.getUnchanged(),
+                patch != null ? "; patch written to " + patch : ""));
+    }
+
+    /**
+     * Applies a patch to the registrations of the working directory and saves them.
+     *
+     * @param patch the patch to apply
+     * @throws IOException if the patch cannot be read
+     */
+    private static void apply(String patch) throws IOException {
+        List<RegistrationChange> changes = RegistrationPatchReader.readAll(patch);
+        RegistrationDAO rdao = new RegistrationDAO();
+        List<RegistrationChange> conflicts = rdao.applyPatch(changes);
+        if (!conflicts.isEmpty()) {
+            System.out.println(String.format("%,d of %,d changes conflict with the registrations, nothing applied:",
+                    conflicts.size(), changes.size()));
+            for (RegistrationChange conflict : conflicts) {
+                System.out.println(conflict);
+            }
+            return;
+        }
+        if (!rdao.save()) {
+            System.out.println("The patched registrations could not be saved.");
+            return;
+        }
+        System.out.println(String.format("Applied %,d changes, %,d registrations saved.", changes.size(), rdao.size()));
+    }
+
+    /**
+     * Describes a registration by its values, for comparisons.
+     */
+    private static String describe(Registration r) {
+        return r.getStudentId() + "|" + r.getName() + "|" + r.getEmail() + "|" + r.getPhone() + "|" + r.getMountainCode();
+    }
+
+    /**
+     * Changes a copy of the registrations at random and checks the diff and the patch.
+     *
+     * @param count the number of changes of each kind
+     * @throws IOException if a temporary file cannot be written
+     */
+    private static void check(int count) throws IOException {
+        List<Registration> original = new RegistrationDAO().snapshot();
+        List<Registration> changed = new ArrayList<>(original);
+        Random random = new Random(46);
+        Collections.shuffle(changed, random);
+        int removed = Math.min(count, changed.size() / 3);
+        int modified = Math.min(count, changed.size() / 3);
+        changed.subList(0, removed).clear();
+        for (int i = 0; i < modified; i++) {
+            Registration r = changed.get(i);
+            changed.set(i, new Registration(r.getStudentId(), r.getName(), "diff" + random.nextInt(1_000_000) + "@fpt.edu.vn",
+                    r.getPhone(), r.getMountainCode().equals("1") ? "2" : "1"));
+        }
+        for (int i = 0; i < count; i++) {
+            changed.add(new Registration(String.format("CE%06d", 999_999 - i), "Diff Check", "diff.check" + i + "@fpt.edu.vn",
+                    String.format("09%08d", i), "3"));
+        }
+
+        File dir = Files.createTempDirectory("diff").toFile();
+        File archive = new File(dir, "changed.arc");
+        File patch = new File(dir, "changes.patch");
+        File data = new File(dir, "Registrations.dat");
+        try {
+            try (RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(archive.getPath())) {
+                for (Registration r : changed) {
+                    writer.write(r);
+                }
+            }
+            long start = System.nanoTime();
+            long[] printed = new long[1];
+            SnapshotDiff diff = diff("Registrations.dat", archive.getPath(), patch.getPath(), DEFAULT_MEMORY_MB,
+                    change -> printed[0]++);
+            System.out.println(String.format("Diffed %,d against %,d registrations (unsorted archive) in %,d ms:"
+                    + " %,d added, %,d removed, %,d modified, %,d unchanged; patch of %,d bytes.",
+                    original.size(), changed.size(), (System.nanoTime() - start) / 1_000_000, diff.getAdded(),
+                    diff.getRemoved(), diff.getModified(), diff.getUnchanged(), patch.length()));
+
+            RegistrationDAO rdao = new RegistrationDAO(data);
+            rdao.install(original);
+            start = System.nanoTime();
+            List<RegistrationChange> conflicts = rdao.applyPatch(RegistrationPatchReader.readAll(patch.getPath()));
+            if (!conflicts.isEmpty()) {
+                throw new IllegalStateException(conflicts.size() + " changes conflict with the original registrations");
+            }
+            List<String> expected = new ArrayList<>();
+            for (Registration r : changed) {
+                expected.add(describe(r));
+            }
+            Collections.sort(expected);
+            List<String> actual = new ArrayList<>();
+            for (Registration r : rdao.snapshot()) {
+                actual.add(describe(r));
+            }
+            Collections.sort(actual);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("The patched registrations differ from the changed copy");
+            }
+            System.out.println(String.format("Patch applied in %,d ms and gives the changed copy.",
+                    (System.nanoTime() - start) / 1_000_000));
+            if (rdao.applyPatch(RegistrationPatchReader.readAll(patch.getPath())).isEmpty() && diff.getAdded() + diff.getRemoved() > 0) {
+                throw new IllegalStateException("The patch was applied twice");
+            }
+            System.out.println("Applying the patch again is refused as conflicting.");
+            System.out.println("OK: the diff finds every change and its patch applies.");
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args the command and its arguments
+     * @throws IOException if a snapshot or patch cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: DiffTool diff <old> <new> [patch] [memory MB] | apply <patch> | check [changes]");
+            return;
+        }
+        resetPeakHeap();
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "diff":
+                if (args.length < 3) {
+                    System.out.println("Missing snapshot to compare.");
+                    return;
+                }
+                diff(args[1], args[2], args.length > 3 ? args[3] : null,
+                        args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MEMORY_MB);
+                break;
+            case "apply":
+                if (args.length < 2) {
+                    System.out.println("Missing patch to apply.");
+                    return;
+                }
+                apply(args[1]);
+                break;
+            case "check":
+                check(args.length > 1 ? Integer.parseInt(args[1]) : 1_000);
+                break;
+            default:
+                System.out.println("Unknown command " + args[0]);
+                return;
+        }
+        System.out.println(String.format("Done in %,.1f ms, peak heap %,.1f MB.",
+                (System.nanoTime() - start) / 1e6, peakHeapMB()));
+    }
+}
@@ -0,0 +1,164 @@
+package tools;
+
+import dao.RegistrationDAO;
+import dao.query.BitmapFilter;
+import dao.query.RegistrationField;
+import dao.query.RegistrationQuery;
+import dao.query.SortKey;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import model.Registration;
+
+/**
+ * Command line tool guarding the heap footprint of the registrations against regressions.
+ * <p>
+ * The tool writes generated registrations to a temporary file, loads them through a
+ * {@link RegistrationDAO} and then builds its lazy structures one after the other. After each
+ * step it measures the heap retained since the previous one, once the garbage collector has
+ * settled, and divides it by the number of entries the step holds:
+ * </p>
+ * <ul>
+ *   <li><b>registrations</b>: the loaded list of {@link Registration} objects,</li>
+ *   <li><b>field indexes</b>: the index on every {@link RegistrationField},</li>
+ *   <li><b>bitmap indexes</b>: the bitmaps on campus, mountain code and carrier,</li>
+ *   <li><b>sorted views</b>: the permutation of every {@link SortKey},</li>
+ *   <li><b>name tree</b>: the tree of the fuzzy search, per distinct name.</li>
+ * </ul>
+ * <p>
+ * Each step has a budget in bytes per entry, set about 15% above the largest footprint
+ * measured between 200,000 and one million registrations; a step over its budget fails the
+ * check, so a change that makes the records or their structures heavier is noticed. Hash
+ * tables grow by doubling, so other sizes may differ by a few bytes per entry. The figures are
+ * steadier with a single-threaded collector, for instance {@code -XX:+UseSerialGC}.
+ * </p>
+ * <p>
+ * Usage: {@code java -Xmx2g -cp LAB201-lab1.jar tools.FootprintCheck [registrations]}
+ * </p>
+ *
+ * @author ho huy
+ */
+public class FootprintCheck {
+
+    /**
+     * The number of mountains the registrations refer to.
+     */
+    private static final int MOUNTAINS = 13;
+
+    /**
+     * The largest number of collections run to let the heap settle.
+     */
+    private static final int MAX_COLLECTIONS = 8;
+
+    /**
+     * The names of the steps.
+     */
+    private static final String[] STEPS = {"registrations", "field indexes", "bitmap indexes", "sorted views", "name tree"};
+
+    /**
+     * The budget of each step, in bytes per entry.
+     */
+    private static final int[] BUDGETS = {313, 437, 52, 28, 217};
+
+    /**
+     * Returns the heap in use once the garbage collector has settled.
+     *
+     * @return the used heap in bytes
+     */
+    private static long settledHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < MAX_COLLECTIONS; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used - used / 1000) {
+                return Math.min(now, used);
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the number of registrations (default 1,000,000)
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        File file = Files.createTempFile("footprint-", ".dat").toFile();
+        try {
+            List<Registration> generated = DataGenerator.generateRegistrations(count, MOUNTAINS, 42);
+            Set<String> names = new HashSet<>();
+            for (Registration r : generated) {
+                names.add(r.getName());
+            }
+            int[] entries = {count, count, count, count, names.size()};
+            DataGenerator.writeRegistrations(generated, file);
+            generated = null;
+            names = null;
+            String name = "Nguyen Van An";
+            long before = settledHeap();
+            RegistrationDAO rdao = new RegistrationDAO(file);
+            long[] retained = new long[STEPS.length];
+            for (int step = 0; step < STEPS.length; step++) {
+                switch (step) {
+                    case 1:
+                        for (RegistrationField field : RegistrationField.values()) {
+                            rdao.query(RegistrationQuery.equal(field, name));
+                        }
+                        break;
+                    case 2:
+                        rdao.count(BitmapFilter.ALL);
+                        break;
+                    case 3:
+                        for (SortKey key : SortKey.values()) {
+                            rdao.retrievePage(key, false, 0, 1);
+                        }
+                        break;
+                    case 4:
+                        rdao.similarNames(name, 1);
+                        break;
+                    default:
+                        break;
+                }
+                long after = settledHeap();
+                retained[step] = after - before;
+                before = after;
+            }
+            if (rdao.size() != count) {
+                throw new IllegalStateException("The DAO loaded " + rdao.size() + " registrations instead of " + count);
+            }
+
+            System.out.println(String.format("Heap retained by %,d registrations of %,d distinct names:", count, entries[4]));
+            String header = String.format(" %-14s | %12s | %12s | %11s | %8s | %-6s ", "Structure", "Retained MB", "Entries", "Bytes/entry", "Budget", "Status");
+            System.out.println(header);
+            List<String> regressions = new ArrayList<>();
+            long total = 0;
+            for (int step = 0; step < STEPS.length; step++) {
+                double perEntry = retained[step] / (double) entries[step];
+                boolean over = perEntry > BUDGETS[step];
+                if (over) {
+                    regressions.add(String.format("%s %.1f > %d bytes/entry", STEPS[step], perEntry, BUDGETS[step]));
+                }
+                total += retained[step];
+                System.out.println(String.format(" %-14s | %,12.1f | %,12d | %,11.1f | %,8d | %-6s ", STEPS[step],
+                        retained[step] / 1048576.0, entries[step], perEntry, BUDGETS[step], over ? "OVER" : "ok"));
+            }
+            System.out.println(String.format(" %-14s | %,12.1f | %,12d | %,11.1f |", "total", total / 1048576.0, count, total / (double) count));
+            if (!regressions.isEmpty()) {
+                throw new IllegalStateException("Footprint regressions: " + String.join("; ", regressions));
+            }
+            System.out.println("OK: every structure is within its footprint budget.");
+        } finally {
+            file.delete();
+        }
+    }
+}
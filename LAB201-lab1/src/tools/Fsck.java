@@ -0,0 +1,257 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.archive.RegistrationArchiveReader;
+import dao.archive.RegistrationArchiveWriter;
+import dao.integrity.IntegrityScanner;
+import dao.integrity.Violation;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import model.Registration;
+import utils.io.BlockFiles;
+
+/**
+ * Command line tool checking the integrity of a registration file and repairing it.
+ * <p>
+ * Commands, run in the directory holding the data files:
+ * </p>
+ * <ul>
+ *   <li>{@code scan [file] [repaired]}: checks every record of a {@code Registrations.dat} file
+ *       or an archive (default {@code Registrations.dat}) with an {@link IntegrityScanner} against
+ *       the mountains of {@code MountainList.csv}, and lists the violations with the offset of
+ *       their record; with a second file name, also writes the repaired records there and the
+ *       records left out into an archive of the same name ending in {@code .rejected},</li>
+ *   <li>{@code check [count]}: corrupts a copy of {@code Registrations.dat} the ways hand edits
+ *       do, checks that the scan reports each corruption at its offset, and that the repaired
+ *       records scan clean.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.Fsck <command> <arguments>}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class Fsck {
+
+    /**
+     * Reads every record of a registration file or an archive, in file order.
+     *
+     * @param fileName the file to read
+     * @return the records, {@code null} ones included
+     * @throws IOException if the file is neither a registration file nor an archive
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Registration> read(String fileName) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(fileName))) {
+            return (List<Registration>) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException | IOException notList) {
+            List<Registration> records = new ArrayList<>();
+            try (RegistrationArchiveReader reader = RegistrationArchiveReader.open(fileName)) {
+                reader.forEachRemaining(records::add);
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Writes records as a registration file.
+     *
+     * @param fileName the file to write
+     * @param records  the records
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(String fileName, List<Registration> records) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(BlockFiles.openOutput(fileName))) {
+            oos.writeObject(new ArrayList<>(records));
+        }
+    }
+
+    /**
+     * Counts violations by kind.
+     */
+    private static Map<Violation.Kind, Integer> byKind(List<Violation> violations) {
+        Map<Violation.Kind, Integer> counts = new EnumMap<>(Violation.Kind.class);
+        for (Violation v : violations) {
+            counts.merge(v.getKind(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Scans a file, lists its violations and optionally writes the repaired records.
+     *
+     * @param fileName the file to scan
+     * @param repaired the file receiving the repaired records, or {@code null}
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void scan(String fileName, String repaired) throws IOException {
+        List<Registration> records = read(fileName);
+        IntegrityScanner scanner = new IntegrityScanner(new MountainDAO().retrieveAll());
+        long start = System.nanoTime();
+        List<Violation> violations = scanner.scan(records);
+        long nanos = System.nanoTime() - start;
+        for (Violation v : violations) {
+            System.out.println(v);
+        }
+        System.out.println(String.format("%,d records scanned on %d cores in %,.1f ms: %,d violations %s.",
+                records.size(), Runtime.getRuntime().availableProcessors(), nanos / 1e6, violations.size(),
+                byKind(violations)));
+        if (repaired == null) {
+            return;
+        }
+        IntegrityScanner.Repair repair = scanner.repair(records);
+        write(repaired, repair.getRecords());
+        try (RegistrationArchiveWriter writer = RegistrationArchiveWriter.open(repaired + ".rejected")) {
+            for (Violation v : repair.getRejected()) {
+                Registration r = records.get(v.getOffset());
+                if (r != null) {
+                    writer.write(r);
+                }
+            }
+        }
+        System.out.println(String.format("Repaired file %s: %,d records kept (%,d fixed), %,d left out to %s.rejected.",
+                repaired, repair.getRecords().size(), repair.getFixed(), repair.getRejected().size(), repaired));
+    }
+
+    /**
+     * Corrupts a copy of the registrations and checks that every corruption is found and repaired.
+     *
+     * @param count the number of corruptions of each kind
+     * @throws IOException if a temporary file cannot be written
+     */
+    private static void check(int count) throws IOException {
+        List<Registration> records = read("Registrations.dat");
+        IntegrityScanner scanner = new IntegrityScanner(new MountainDAO().retrieveAll());
+        int baseline = scanner.scan(records).size();
+        if (baseline > 0) {
+            throw new IllegalStateException(baseline + " violations in Registrations.dat before any corruption; repair it first");
+        }
+        if (records.size() < 20 * count) {
+            throw new IllegalStateException("At least " + 20 * count + " registrations are needed for " + count + " corruptions");
+        }
+        Random random = new Random(47);
+        Set<Integer> used = new HashSet<>();
+        Set<String> expected = new HashSet<>();
+        int half = records.size() / 2;
+        for (int i = 0; i < count; i++) {
+            int fee = pick(random, half, records.size(), used);
+            Registration r = copy(records.get(fee));
+            r.setFee(1);
+            records.set(fee, r);
+            expected.add(fee + " " + Violation.Kind.FEE_MISMATCH);
+
+            int mountain = pick(random, half, records.size(), used);
+            r = copy(records.get(mountain));
+            r.setMountainCode(i % 2 == 0 ? "99" : " 0" + r.getMountainCode());
+            records.set(mountain, r);
+            expected.add(mountain + " " + Violation.Kind.UNKNOWN_MOUNTAIN);
+
+            int format = pick(random, half, records.size(), used);
+            r = copy(records.get(format));
+            r.setName(r.getName().toLowerCase());
+            records.set(format, r);
+            expected.add(format + " " + Violation.Kind.FORMAT);
+
+            int email = pick(random, half, records.size(), used);
+            r = copy(records.get(email));
+            r.setEmail(records.get(random.nextInt(half)).getEmail());
+            records.set(email, r);
+            expected.add(email + " " + Violation.Kind.DUPLICATE_EMAIL);
+
+            int phone = pick(random, half, records.size(), used);
+            r = copy(records.get(phone));
+            String duplicatePhone = records.get(random.nextInt(half)).getPhone();
+            r.setPhone(duplicatePhone);
+            r.setFee(Registration.computeFee(duplicatePhone));
+            records.set(phone, r);
+            expected.add(phone + " " + Violation.Kind.DUPLICATE_PHONE);
+
+            int id = pick(random, half, records.size(), used);
+            records.set(id, records.get(random.nextInt(half)));
+            expected.add(id + " " + Violation.Kind.DUPLICATE_ID);
+
+            int missing = pick(random, half, records.size(), used);
+            records.set(missing, null);
+            expected.add(missing + " " + Violation.Kind.MISSING);
+        }
+
+        long start = System.nanoTime();
+        List<Violation> violations = scanner.scan(records);
+        long nanos = System.nanoTime() - start;
+        Set<String> found = new HashSet<>();
+        for (Violation v : violations) {
+            found.add(v.getOffset() + " " + v.getKind());
+        }
+        expected.removeAll(found);
+        if (!expected.isEmpty()) {
+            throw new IllegalStateException("Corruptions not reported: " + expected);
+        }
+        System.out.println(String.format("%,d corruptions in %,d records found in %,.1f ms: %s.",
+                7 * count, records.size(), nanos / 1e6, byKind(violations)));
+
+        File dir = Files.createTempDirectory("fsck").toFile();
+        File repairedFile = new File(dir, "Registrations.dat");
+        try {
+            IntegrityScanner.Repair repair = scanner.repair(records);
+            write(repairedFile.getPath(), repair.getRecords());
+            List<Violation> left = scanner.scan(read(repairedFile.getPath()));
+            if (!left.isEmpty()) {
+                throw new IllegalStateException(left.size() + " violations left after the repair, first " + left.get(0));
+            }
+            System.out.println(String.format("Repair kept %,d records (%,d fixed), left out %,d; the repaired file scans clean.",
+                    repair.getRecords().size(), repair.getFixed(), repair.getRejected().size()));
+            System.out.println("OK: the scan reports every corruption at its offset and the repair removes them.");
+        } finally {
+            repairedFile.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Picks an unused offset in a range.
+     */
+    private static int pick(Random random, int from, int to, Set<Integer> used) {
+        int offset;
+        do {
+            offset = from + random.nextInt(to - from);
+        } while (!used.add(offset));
+        return offset;
+    }
+
+    /**
+     * Copies a registration, so the corruption does not change the source of a duplicate.
+     */
+    private static Registration copy(Registration r) {
+        return new Registration(r.getStudentId(), r.getName(), r.getEmail(), r.getPhone(), r.getMountainCode());
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args the command and its arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "scan";
+        switch (command) {
+            case "scan":
+                scan(args.length > 1 ? args[1] : "Registrations.dat", args.length > 2 ? args[2] : null);
+                break;
+            case "check":
+                check(args.length > 1 ? Integer.parseInt(args[1]) : 100);
+                break;
+            default:
+                System.out.println("Usage: Fsck scan [file] [repaired] | check [count]");
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import model.Mountain;
+import model.Registration;
+import service.ManagementService;
+import service.ModificationService;
+import service.RetrievalService;
+import utils.audit.AuditTrail;
+import utils.viewUtils.ResponseSink;
+import utils.viewUtils.ResponseViewUitls;
+
+/**
+ * Command line tool measuring how much load the service layer sustains, without the console.
+ * <p>
+ * Run in a directory holding the data files, the tool shares one {@link ManagementService},
+ * {@link ModificationService} and {@link RetrievalService} between worker threads, each running
+ * a weighted mix of operations for the given time. The services display their responses through
+ * a counting {@link ResponseSink} instead of the console. For each operation type it reports the
+ * throughput, the latency percentiles, the bytes allocated per operation and the operations that
+ * failed. The data files are only read, never saved. The changes are not audited unless
+ * {@code -Daudit.enabled=true} is given; they are then recorded in an {@link AuditTrail} in a
+ * temporary directory, deleted after the run, so running both ways shows what auditing costs
+ * without touching the trail of the desk.
+ * </p>
+ * <ul>
+ *   <li>{@code add}: adds a registration with a student ID not in the data,</li>
+ *   <li>{@code update}: changes the name or mountain of a random registration,</li>
+ *   <li>{@code delete}: deletes a registration added by the same worker, confirmed, failing when it has none left,</li>
+ *   <li>{@code name}: displays the registrations of a random name,</li>
+ *   <li>{@code campus}: displays the registrations of a random campus,</li>
+ *   <li>{@code statistics}: displays the statistics by mountain.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.LoadTest [threads] [seconds] [mix]}, the mix
+ * being weights such as {@code add:5,update:5,delete:5,name:50,campus:20,statistics:15}.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class LoadTest {
+
+    /**
+     * The operation types, in the order of the mix and of the report.
+     */
+    private static final String[] OPERATIONS = {"add", "update", "delete", "name", "campus", "statistics"};
+
+    /**
+     * The default weights of the operation types.
+     */
+    private static final String DEFAULT_MIX = "add:5,update:5,delete:5,name:50,campus:20,statistics:15";
+
+    /**
+     * The campuses searched.
+     */
+    private static final String[] CAMPUSES = {"SE", "HE", "DE", "QE", "CE"};
+
+    /**
+     * The thread allocation counter of HotSpot.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The measurements of one operation type by one worker.
+     */
+    private static class Samples {
+        long[] nanos = new long[1 << 12];
+        int count;
+        long bytes;
+        long failures;
+
+        void add(long elapsed, long allocated, boolean ok) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = elapsed;
+            bytes += allocated;
+            failures += ok ? 0 : 1;
+        }
+    }
+
+    /**
+     * The services and data shared by the workers.
+     */
+    private static class Target {
+        final RegistrationDAO rdao;
+        final ManagementService mas;
+        final ModificationService mos;
+        final RetrievalService rs;
+        final List<Registration> existing;
+        final List<String> names;
+        final List<Mountain> mountains;
+
+        Target(RegistrationDAO rdao, MountainDAO mdao, AuditTrail audit) {
+            this.rdao = rdao;
+            this.mas = new ManagementService(rdao, audit);
+            this.mos = new ModificationService(rdao, audit);
+            this.rs = new RetrievalService(rdao, mdao);
+            this.existing = rdao.snapshot();
+            Set<String> distinct = new HashSet<>();
+            for (Registration r : existing) {
+                distinct.add(r.getName());
+            }
+            this.names = new ArrayList<>(distinct);
+            this.mountains = mdao.retrieveAll();
+        }
+    }
+
+    /**
+     * A worker running the mix until a deadline.
+     */
+    private static class Worker extends Thread {
+        private final Target target;
+        private final int[] cumulative;
+        private final List<String> freeIds;
+        private final long deadline;
+        private final SplittableRandom random;
+        private final Samples[] samples = new Samples[OPERATIONS.length];
+        private final ArrayDeque<String> added = new ArrayDeque<>();
+        private int nextId;
+        private Throwable failure;
+
+        Worker(Target target, int[] cumulative, List<String> freeIds, long deadline, long seed) {
+            this.target = target;
+            this.cumulative = cumulative;
+            this.freeIds = freeIds;
+            this.deadline = deadline;
+            this.random = new SplittableRandom(seed);
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = new Samples();
+            }
+        }
+
+        /**
+         * Runs one operation of a type.
+         *
+         * @return whether the operation succeeded
+         */
+        private boolean run(int op) {
+            switch (op) {
+                case 0: {
+                    if (nextId == freeIds.size()) {
+                        return false;
+                    }
+                    String id = freeIds.get(nextId++);
+                    String digits = id.substring(2);
+                    boolean ok = target.mas.add(new Registration(id, "Load Test", "load" + id + "@fpt.edu.vn",
+                            "0" + digits + "777", mountain()));
+                    if (ok) {
+                        added.add(id);
+                    }
+                    return ok;
+                }
+                case 1: {
+                    Registration r = target.rdao.retrieve(target.existing.get(random.nextInt(target.existing.size())).getStudentId());
+                    if (r == null) {
+                        return false;
+                    }
+                    return random.nextBoolean()
+                            ? target.mos.update(1, target.names.get(random.nextInt(target.names.size())), r)
+                            : target.mos.update(4, mountain(), r);
+                }
+                case 2: {
+                    String id = added.poll();
+                    if (id == null) {
+                        return false;
+                    }
+                    Registration prev = target.mas.delete(id);
+                    return prev != null && target.mas.confirmDelete(prev, true);
+                }
+                case 3:
+                    target.rs.displaySearchByName(target.names.get(random.nextInt(target.names.size())));
+                    return true;
+                case 4:
+                    target.rs.displaySearchByCampus(CAMPUSES[random.nextInt(CAMPUSES.length)]);
+                    return true;
+                default:
+                    target.rs.displayStatistic();
+                    return true;
+            }
+        }
+
+        /**
+         * Returns a random mountain code.
+         */
+        private String mountain() {
+            return target.mountains.get(random.nextInt(target.mountains.size())).getCode();
+        }
+
+        @Override
+        public void run() {
+            long thread = getId();
+            try {
+                while (System.nanoTime() < deadline) {
+                    int pick = random.nextInt(cumulative[cumulative.length - 1]);
+                    int op = 0;
+                    while (pick >= cumulative[op]) {
+                        op++;
+                    }
+                    long bytes = THREADS.getThreadAllocatedBytes(thread);
+                    long start = System.nanoTime();
+                    boolean ok = run(op);
+                    long elapsed = System.nanoTime() - start;
+                    samples[op].add(elapsed, THREADS.getThreadAllocatedBytes(thread) - bytes, ok);
+                }
+                while (!added.isEmpty()) {
+                    target.rdao.delete(added.poll());
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Parses the weights of the mix into cumulative weights, in the order of {@link #OPERATIONS}.
+     *
+     * @param mix the weights, such as {@code add:5,name:95}
+     * @return the cumulative weights
+     * @throws IllegalArgumentException if an operation is unknown or no weight is positive
+     */
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            int op = Arrays.asList(OPERATIONS).indexOf(kv[0]);
+            if (op < 0 || kv.length != 2) {
+                throw new IllegalArgumentException("Unknown operation weight " + part + ", expected one of "
+                        + Arrays.toString(OPERATIONS));
+            }
+            weights[op] = Integer.parseInt(kv[1]);
+        }
+        int[] cumulative = new int[weights.length];
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += Math.max(0, weights[i]);
+            cumulative[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The mix has no positive weight");
+        }
+        return cumulative;
+    }
+
+    /**
+     * Returns a percentile of sorted latencies in microseconds.
+     */
+    private static double percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percent / 100 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+
+    /**
+     * Opens the audit trail of the run: a trail in a temporary directory when auditing is
+     * asked for with {@code -Daudit.enabled=true}, otherwise {@link AuditTrail#DISABLED}.
+     *
+     * @return the audit trail of the run
+     * @throws IOException if the temporary directory cannot be created
+     */
+    private static AuditTrail openAudit() throws IOException {
+        if (!Boolean.getBoolean(AuditTrail.ENABLED_PROPERTY)) {
+            return AuditTrail.DISABLED;
+        }
+        return new AuditTrail(Files.createTempDirectory("loadtest-audit").toFile(),
+                Long.getLong(AuditTrail.FILE_KB_PROPERTY, 1024) * 1024, Integer.getInteger(AuditTrail.FILES_PROPERTY, 8),
+                AuditTrail.DEFAULT_CAPACITY, "load-test");
+    }
+
+    /**
+     * Stops the audit trail of the run and deletes its temporary directory.
+     *
+     * @param audit the audit trail of the run
+     */
+    private static void discardAudit(AuditTrail audit) {
+        audit.close();
+        File directory = audit.getDirectory();
+        if (directory == null) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the number of worker threads (default 4), the seconds to run (default 10) and the mix
+     * @throws IOException if the temporary audit directory cannot be created
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int[] cumulative = parseMix(args.length > 2 ? args[2] : DEFAULT_MIX);
+
+        RegistrationDAO rdao = new RegistrationDAO();
+        AuditTrail audit = openAudit();
+        Target target = new Target(rdao, new MountainDAO(), audit);
+        if (target.existing.isEmpty()) {
+            discardAudit(audit);
+            System.out.println("No registrations to update or search in the current directory.");
+            return;
+        }
+        Set<String> taken = new HashSet<>();
+        for (Registration r : target.existing) {
+            taken.add(r.getStudentId().toUpperCase());
+        }
+        List<String> free = new ArrayList<>();
+        for (int n = 999_999; n >= 0 && free.size() < 20_000 * threads; n--) {
+            String id = String.format("QE%06d", n);
+            if (!taken.contains(id)) {
+                free.add(id);
+            }
+        }
+        int perWorker = free.size() / threads;
+
+        LongAdder lines = new LongAdder();
+        LongAdder chars = new LongAdder();
+        ResponseSink previous = ResponseViewUitls.setSink(line -> {
+            lines.increment();
+            chars.add(line.length());
+        });
+        List<Worker> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        try {
+            for (int i = 0; i < threads; i++) {
+                Worker worker = new Worker(target, cumulative, free.subList(i * perWorker, (i + 1) * perWorker), deadline, 42 + i);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Worker worker : workers) {
+                worker.join();
+            }
+        } finally {
+            ResponseViewUitls.setSink(previous);
+            discardAudit(audit);
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("A worker failed", worker.failure);
+            }
+        }
+
+        System.out.println(String.format("%d threads for %d s on %,d registrations; %,d response lines (%,d chars) suppressed.",
+                threads, seconds, target.existing.size(), lines.sum(), chars.sum()));
+        String header = String.format(" %-10s | %10s | %10s | %12s | %12s | %12s | %12s | %12s | %8s ",
+                "Operation", "count", "ops/s", "p50 us", "p90 us", "p99 us", "max us", "bytes/op", "failed");
+        System.out.println(ResponseViewUitls.header(header));
+        long total = 0;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            long[] nanos = new long[0];
+            long bytes = 0;
+            long failures = 0;
+            for (Worker worker : workers) {
+                Samples s = worker.samples[op];
+                int from = nanos.length;
+                nanos = Arrays.copyOf(nanos, from + s.count);
+                System.arraycopy(s.nanos, 0, nanos, from, s.count);
+                bytes += s.bytes;
+                failures += s.failures;
+            }
+            Arrays.sort(nanos);
+            total += nanos.length;
+            System.out.println(String.format(" %-10s | %,10d | %,10.1f | %,12.1f | %,12.1f | %,12.1f | %,12.1f | %,12.0f | %,8d ",
+                    OPERATIONS[op], nanos.length, nanos.length * 1e9 / elapsed, percentile(nanos, 50),
+                    percentile(nanos, 90), percentile(nanos, 99), nanos.length == 0 ? 0 : nanos[nanos.length - 1] / 1e3,
+                    nanos.length == 0 ? 0 : (double) bytes / nanos.length, failures));
+        }
+        System.out.println(ResponseViewUitls.line(header.length()));
+        System.out.println(String.format("Total: %,d operations, %,.1f ops/s.", total, total * 1e9 / elapsed));
+        if (audit.getDirectory() != null) {
+            System.out.println(String.format("Audited to a temporary trail: %,d records written, %,d dropped.",
+                    audit.getWritten(), audit.getDropped()));
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.protocol.BinaryProtocol;
+import dao.protocol.RegistrationClient;
+import dao.protocol.RegistrationServer;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import model.CampusStatistic;
+import model.Mountain;
+import model.Registration;
+import model.Statistic;
+import service.StatisticsView;
+import utils.audit.AuditTrail;
+
+/**
+ * Command line tool measuring the binary protocol server over loopback.
+ * <p>
+ * Run in a directory holding the data files, the tool serves those registrations with a
+ * {@link RegistrationServer} on a free port, then runs client threads for a few seconds in
+ * each combination of pipeline depth (frames in flight per connection) and batch size
+ * (operations per frame). Operations retrieve random registrations, except for the given
+ * share of writes, which add, update and then delete registrations of student IDs not
+ * present in the data. It reports operations per second and the latency percentiles of a
+ * frame, from sending to receiving its response, and checks the statistics answered by the
+ * server against the registrations. Finally it sends a malformed frame, a string whose length
+ * runs past the end of the frame, and checks that the server answers it as malformed and
+ * keeps serving other connections.
+ * </p>
+ * <p>
+ * The data files of the current directory are only read, never saved, and the changes are not
+ * audited.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ProtocolBenchmark [connections] [seconds] [write%]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ProtocolBenchmark {
+
+    /**
+     * The pipeline depths and batch sizes measured.
+     */
+    private static final int[][] SCENARIOS = {{1, 1}, {16, 1}, {1, 64}, {16, 64}};
+
+    /**
+     * One client connection sending operations until a deadline.
+     */
+    private static class Worker extends Thread {
+        private final RegistrationClient client;
+        private final List<String> existing;
+        private final List<String> freeIds;
+        private final String mountain;
+        private final int depth;
+        private final int batch;
+        private final int writePercent;
+        private final long deadline;
+        private final SplittableRandom random;
+        private long[] latencies = new long[1 << 16];
+        private int frames;
+        private long operations;
+        private final long[] statuses = new long[BinaryProtocol.STATUS_MALFORMED + 1];
+        private int writes;
+        private IOException failure;
+
+        Worker(int port, List<String> existing, List<String> freeIds, String mountain, int depth, int batch,
+                int writePercent, long deadline, long seed) throws IOException {
+            this.client = new RegistrationClient("localhost", port);
+            this.existing = existing;
+            this.freeIds = freeIds;
+            this.mountain = mountain;
+            this.depth = depth;
+            this.batch = batch;
+            this.writePercent = writePercent;
+            this.deadline = deadline;
+            this.random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Adds the next operation: a retrieve, or the next step of the add, update, delete cycle.
+         */
+        private void next(RegistrationClient.Request request) {
+            if (random.nextInt(100) >= writePercent || freeIds.isEmpty()) {
+                request.retrieve(existing.get(random.nextInt(existing.size())));
+                return;
+            }
+            String id = freeIds.get((writes / 3) % freeIds.size());
+            String digits = id.substring(2);
+            switch (writes++ % 3) {
+                case 0:
+                    request.add(new Registration(id, "Bench Client", "bench" + id + "@fpt.edu.vn", "0" + digits + "999", mountain));
+                    break;
+                case 1:
+                    request.update(id, new Registration(id, "Bench Client", "bench" + id + "@fpt.edu.vn", "0" + digits + "888", mountain));
+                    break;
+                default:
+                    request.delete(id);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<RegistrationClient.Result> results = new ArrayList<>();
+            try (RegistrationClient c = client) {
+                while (true) {
+                    boolean sending = System.nanoTime() < deadline;
+                    while (sending && c.getInFlight() < depth) {
+                        RegistrationClient.Request request = c.newRequest();
+                        for (int i = 0; i < batch; i++) {
+                            next(request);
+                        }
+                        c.send(request);
+                    }
+                    if (c.getInFlight() == 0) {
+                        return;
+                    }
+                    results.clear();
+                    RegistrationClient.Request done = c.receive(results);
+                    if (frames == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, frames * 2);
+                    }
+                    latencies[frames++] = System.nanoTime() - done.getSentNanos();
+                    operations += results.size();
+                    for (RegistrationClient.Result result : results) {
+                        statuses[result.getStatus()]++;
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Returns the student IDs of a campus that no registration has, from the highest down.
+     *
+     * @param taken the student IDs in use, in upper case
+     * @param count the number of IDs wanted
+     * @return the free IDs
+     */
+    private static List<String> freeIds(Set<String> taken, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int n = 999_999; n >= 0 && ids.size() < count; n--) {
+            String id = String.format("CE%06d", n);
+            if (!taken.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of connections (default 4), the seconds per scenario (default 5)
+     *             and the percentage of writes (default 10)
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int writePercent = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        RegistrationDAO rdao = new RegistrationDAO();
+        MountainDAO mdao = new MountainDAO();
+        List<Mountain> mountains = mdao.retrieveAll();
+        List<String> existing = new ArrayList<>();
+        Set<String> taken = new HashSet<>();
+        for (Registration r : rdao.snapshot()) {
+            existing.add(r.getStudentId());
+            taken.add(r.getStudentId().toUpperCase());
+        }
+        if (existing.isEmpty()) {
+            System.out.println("No registrations to retrieve in the current directory.");
+            return;
+        }
+        List<String> free = freeIds(taken, 1_000 * connections);
+
+        try (RegistrationServer server = new RegistrationServer(rdao, mdao, InetAddress.getLoopbackAddress(), 0,
+                AuditTrail.DISABLED)) {
+            System.out.println(String.format("Serving %,d registrations on port %d; %d connections, %d s per scenario, %d%% writes.",
+                    existing.size(), server.getPort(), connections, seconds, writePercent));
+            System.out.println(" depth | batch |       ops/s |   p50 us |   p90 us |   p99 us | p99.9 us |   max us | not ok ");
+            for (int[] scenario : SCENARIOS) {
+                long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+                List<Worker> workers = new ArrayList<>();
+                for (int i = 0; i < connections; i++) {
+                    workers.add(new Worker(server.getPort(), existing, free.subList(i * 1_000, (i + 1) * 1_000),
+                            mountains.get(i % mountains.size()).getCode(), scenario[0], scenario[1], writePercent,
+                            deadline, 42 + i));
+                }
+                long start = System.nanoTime();
+                for (Worker worker : workers) {
+                    worker.start();
+                }
+                long[] latencies = new long[0];
+                long operations = 0;
+                long notOk = 0;
+                for (Worker worker : workers) {
+                    worker.join();
+                    if (worker.failure != null) {
+                        throw worker.failure;
+                    }
+                    int from = latencies.length;
+                    latencies = Arrays.copyOf(latencies, from + worker.frames);
+                    System.arraycopy(worker.latencies, 0, latencies, from, worker.frames);
+                    operations += worker.operations;
+                    notOk += worker.operations - worker.statuses[BinaryProtocol.STATUS_OK];
+                    if (worker.statuses[BinaryProtocol.STATUS_MALFORMED] > 0) {
+                        throw new IllegalStateException("The server found malformed operations");
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                Arrays.sort(latencies);
+                System.out.println(String.format(" %5d | %5d | %,11.0f | %8.1f | %8.1f | %8.1f | %8.1f | %8.1f | %,6d ",
+                        scenario[0], scenario[1], operations * 1e9 / elapsed, percentile(latencies, 50),
+                        percentile(latencies, 90), percentile(latencies, 99), percentile(latencies, 99.9),
+                        latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e3, notOk));
+            }
+
+            try (RegistrationClient client = new RegistrationClient("localhost", server.getPort())) {
+                List<RegistrationClient.Result> results = new ArrayList<>();
+                client.send(client.newRequest().statistics());
+                client.receive(results);
+                StatisticsView expected = new StatisticsView(rdao.snapshot(), mountains);
+                if (!matches(expected.getStatistics(), results.get(0).getStatistics(),
+                        Statistic::getParticipants, Statistic::getTotalPrice)
+                        || !matches(expected.getCampusStatistics(), results.get(0).getCampusStatistics(),
+                                CampusStatistic::getParticipants, CampusStatistic::getTotalPrice)) {
+                    throw new IllegalStateException("The statistics answered differ from the registrations");
+                }
+            }
+            checkMalformedFrame(server.getPort(), existing.get(0));
+            System.out.println(String.format("OK: %,d frames, %,d operations served; the statistics answered match; a malformed frame is answered without stopping the server.",
+                    server.getFrames(), server.getOperations()));
+        }
+    }
+
+    /**
+     * Sends a frame adding a registration whose first string claims more bytes than the frame
+     * holds, then checks that it is answered as malformed and that a new connection is served.
+     *
+     * @param port      the port of the server
+     * @param studentId a student ID present in the data
+     * @throws IOException if a connection fails
+     */
+    private static void checkMalformedFrame(int port, String studentId) throws IOException {
+        int requestId = 7;
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5_000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(BinaryProtocol.HEADER_BYTES + 3);
+            out.writeInt(requestId);
+            out.writeShort(1);
+            out.writeByte(BinaryProtocol.OP_ADD);
+            out.writeShort(0xFFFF);
+            out.flush();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            in.readInt();
+            int answeredId = in.readInt();
+            int count = in.readShort() & 0xFFFF;
+            byte status = in.readByte();
+            if (answeredId != requestId || count != 1 || status != BinaryProtocol.STATUS_MALFORMED) {
+                throw new IllegalStateException("The malformed frame was answered with status " + status);
+            }
+        }
+        try (RegistrationClient client = new RegistrationClient("localhost", port)) {
+            List<RegistrationClient.Result> results = new ArrayList<>();
+            client.send(client.newRequest().retrieve(studentId));
+            client.receive(results);
+            if (results.get(0).getStatus() != BinaryProtocol.STATUS_OK) {
+                throw new IllegalStateException("The server stopped serving after a malformed frame");
+            }
+        }
+    }
+
+    /**
+     * Compares statistics computed afresh with statistics maintained change by change.
+     * <p>
+     * Fees added and reverted many times may leave a rounding residue, so totals are compared
+     * to the nearest unit; entries without participants are ignored.
+     * </p>
+     *
+     * @param <T>          the statistic type
+     * @param expected     the statistics computed from the registrations
+     * @param actual       the statistics answered by the server
+     * @param participants the accessor of the participants
+     * @param total        the accessor of the total fee
+     * @return {@code true} if the statistics match
+     */
+    private static <T> boolean matches(Map<String, T> expected, Map<String, T> actual,
+            ToIntFunction<T> participants, ToDoubleFunction<T> total) {
+        return covers(expected, actual, participants, total) && covers(actual, expected, participants, total);
+    }
+
+    /**
+     * Checks that every entry with participants has an equal entry in other statistics.
+     *
+     * @param <T>          the statistic type
+     * @param from         the statistics whose entries are looked up
+     * @param in           the statistics searched
+     * @param participants the accessor of the participants
+     * @param total        the accessor of the total fee
+     * @return {@code true} if every entry of {@code from} with participants is in {@code in}
+     */
+    private static <T> boolean covers(Map<String, T> from, Map<String, T> in,
+            ToIntFunction<T> participants, ToDoubleFunction<T> total) {
+        for (Map.Entry<String, T> e : from.entrySet()) {
+            if (participants.applyAsInt(e.getValue()) == 0) {
+                continue;
+            }
+            T other = in.get(e.getKey());
+            if (other == null || participants.applyAsInt(other) != participants.applyAsInt(e.getValue())
+                    || Math.abs(total.applyAsDouble(other) - total.applyAsDouble(e.getValue())) >= 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a percentile of sorted latencies in microseconds.
+     *
+     * @param sorted  the latencies in nanoseconds, sorted
+     * @param percent the percentile
+     * @return the latency at the percentile, in microseconds
+     */
+    private static double percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percent / 100 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+}
@@ -0,0 +1,270 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.replication.ReplicationPrimary;
+import dao.replication.ReplicationReplica;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+import model.Mountain;
+import model.Registration;
+
+/**
+ * Command line tool checking primary/replica replication with several JVMs on one machine.
+ * <p>
+ * Run in a directory holding the data files, the tool serves those registrations as a
+ * {@link ReplicationPrimary} and starts replica JVMs, each in its own temporary directory with
+ * no registrations. It checks that:
+ * </p>
+ * <ul>
+ *   <li>every replica converges to the primary's registrations from a snapshot,</li>
+ *   <li>the replicas follow a stream of random creates, updates and deletes, reporting the
+ *       largest lag observed in changes and milliseconds,</li>
+ *   <li>a replica restarted after a checkpoint catches up from the log tail alone,</li>
+ *   <li>a replica restarted after more changes than the log keeps catches up from a new snapshot.</li>
+ * </ul>
+ * <p>
+ * Registrations are compared by a CRC32 digest of every record in student ID order. The data
+ * files of the current directory are only read, never saved.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ReplicationCheck [replicas] [mutations] [port]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ReplicationCheck {
+
+    /**
+     * The number of changes kept by the primary, small enough for the snapshot path to be tested.
+     */
+    private static final int LOG_CAPACITY = 1_000;
+
+    /**
+     * The number of mutations between two lag samples.
+     */
+    private static final int BATCH = 50;
+
+    /**
+     * The longest wait for the replicas to converge, in milliseconds.
+     */
+    private static final long CONVERGE_MILLIS = 120_000;
+
+    /**
+     * Computes the digest of the registrations of a DAO.
+     *
+     * @param rdao the DAO
+     * @return the CRC32 of every record in student ID order, in hexadecimal
+     */
+    static String digest(RegistrationDAO rdao) {
+        CRC32 crc = new CRC32();
+        for (Registration r : rdao.snapshot()) {
+            crc.update((r.getStudentId() + '|' + r.getName() + '|' + r.getEmail() + '|' + r.getPhone()
+                    + '|' + r.getMountainCode() + '|' + r.getFee() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * A replica JVM driven through its standard streams.
+     */
+    private static class Replica {
+        private final File dir;
+        private final int port;
+        private Process process;
+        private PrintWriter commands;
+        private BufferedReader replies;
+
+        Replica(File dir, int port) {
+            this.dir = dir;
+            this.port = port;
+        }
+
+        void start() throws IOException {
+            process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                    "-cp", System.getProperty("java.class.path"), ReplicationCheck.class.getName(),
+                    "replica", String.valueOf(port))
+                    .directory(dir).redirectErrorStream(true).start();
+            commands = new PrintWriter(process.getOutputStream(), true);
+            replies = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        }
+
+        /**
+         * Sends a command and returns the fields of the reply, skipping any other output.
+         */
+        String[] request(String command) throws IOException {
+            commands.println(command);
+            String line;
+            while ((line = replies.readLine()) != null) {
+                if (line.startsWith("REPLY ")) {
+                    return line.substring(6).split(" ");
+                }
+            }
+            throw new IOException("Replica in " + dir + " exited");
+        }
+
+        void stop() throws IOException, InterruptedException {
+            request("exit");
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Waits until every replica holds the primary's generation and registrations.
+     *
+     * @param rdao     the primary DAO
+     * @param replicas the replicas
+     * @return the time waited in milliseconds
+     */
+    private static long converge(RegistrationDAO rdao, List<Replica> replicas) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        String expected = digest(rdao);
+        for (Replica replica : replicas) {
+            while (true) {
+                String[] state = replica.request("status");
+                if (Long.parseLong(state[0]) == rdao.getGeneration() && state[4].equals(expected)) {
+                    break;
+                }
+                if (System.currentTimeMillis() - start > CONVERGE_MILLIS) {
+                    throw new IllegalStateException("Replica in " + replica.dir + " stuck at generation "
+                            + state[0] + " of " + rdao.getGeneration() + ", digest " + state[4] + " instead of " + expected);
+                }
+                Thread.sleep(20);
+            }
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Applies random mutations to the primary, sampling the replicas' lag after each batch.
+     *
+     * @return the largest lag in changes and in milliseconds
+     */
+    private static long[] mutate(RegistrationDAO rdao, List<Mountain> mountains, SplittableRandom random,
+            int first, int count, List<Replica> replicas) throws IOException {
+        long[] maxLag = new long[2];
+        for (int step = first; step < first + count; step++) {
+            ViewConsistencyCheck.mutate(rdao, mountains, random, step);
+            if ((step - first + 1) % BATCH == 0) {
+                for (Replica replica : replicas) {
+                    String[] state = replica.request("status");
+                    maxLag[0] = Math.max(maxLag[0], rdao.getGeneration() - Long.parseLong(state[0]));
+                    maxLag[1] = Math.max(maxLag[1], Long.parseLong(state[2]));
+                }
+            }
+        }
+        return maxLag;
+    }
+
+    /**
+     * Runs a replica following the primary on a port, answering commands on standard input.
+     *
+     * @param port the port of the primary
+     */
+    private static void runReplica(int port) throws IOException {
+        RegistrationDAO rdao = new RegistrationDAO();
+        ReplicationReplica replica = new ReplicationReplica(rdao, "localhost", port, 0);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        while ((line = in.readLine()) != null) {
+            switch (line) {
+                case "status":
+                    System.out.println("REPLY " + replica.getApplied() + " " + replica.getLagGenerations() + " "
+                            + replica.getLagMillis() + " " + replica.getSnapshots() + " " + digest(rdao));
+                    break;
+                case "checkpoint":
+                    System.out.println("REPLY " + replica.checkpoint());
+                    break;
+                case "exit":
+                    replica.close();
+                    System.out.println("REPLY bye");
+                    return;
+                default:
+                    System.out.println("REPLY unknown");
+            }
+        }
+    }
+
+    /**
+     * Runs the check, or a replica when the first argument is {@code replica}.
+     *
+     * @param args the number of replicas (default 3), of mutations (default 2,000) and the port (default 7071)
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals("replica")) {
+            runReplica(Integer.parseInt(args[1]));
+            return;
+        }
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int mutations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 7071;
+
+        RegistrationDAO rdao = new RegistrationDAO();
+        List<Mountain> mountains = new MountainDAO().retrieveAll();
+        ReplicationPrimary primary = new ReplicationPrimary(rdao, port, LOG_CAPACITY);
+        SplittableRandom random = new SplittableRandom(42);
+        List<Replica> replicas = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                File dir = Files.createTempDirectory("replica-").toFile();
+                Files.copy(new File("MountainList.csv").toPath(), new File(dir, "MountainList.csv").toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                Replica replica = new Replica(dir, port);
+                replica.start();
+                replicas.add(replica);
+            }
+            System.out.println(String.format("%d replicas converged on %,d registrations from snapshots in %,d ms.",
+                    count, rdao.size(), converge(rdao, replicas)));
+
+            long[] lag = mutate(rdao, mountains, random, 1, mutations, replicas);
+            System.out.println(String.format("%,d mutations replicated; largest lag %d changes, %d ms; converged %,d ms after the last.",
+                    mutations, lag[0], lag[1], converge(rdao, replicas)));
+
+            Replica tail = replicas.get(0);
+            tail.request("checkpoint");
+            tail.stop();
+            mutate(rdao, mountains, random, mutations + 1, LOG_CAPACITY / 5, replicas.subList(1, count));
+            tail.start();
+            long waited = converge(rdao, replicas);
+            if (!tail.request("status")[3].equals("0")) {
+                throw new IllegalStateException("Restarted replica needed a snapshot to catch up " + LOG_CAPACITY / 5 + " changes");
+            }
+            System.out.println(String.format("Replica restarted after %d changes caught up from the log tail in %,d ms.",
+                    LOG_CAPACITY / 5, waited));
+
+            if (count > 1) {
+                Replica behind = replicas.get(1);
+                behind.request("checkpoint");
+                behind.stop();
+                mutate(rdao, mountains, random, mutations + LOG_CAPACITY, 2 * LOG_CAPACITY, replicas.subList(0, 1));
+                behind.start();
+                waited = converge(rdao, replicas);
+                if (!behind.request("status")[3].equals("1")) {
+                    throw new IllegalStateException("Restarted replica did not catch up from a snapshot");
+                }
+                System.out.println(String.format("Replica restarted after %d changes, more than the log keeps,"
+                        + " caught up from a snapshot in %,d ms.", 2 * LOG_CAPACITY, waited));
+            }
+            System.out.println("OK: " + primary.getSnapshots() + " snapshots sent, every replica matches the primary.");
+        } finally {
+            for (Replica replica : replicas) {
+                replica.process.destroy();
+                for (File file : replica.dir.listFiles()) {
+                    file.delete();
+                }
+                replica.dir.delete();
+            }
+            primary.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package tools;
+
+import dao.RegistrationDAO;
+import dao.archive.ExternalSorter;
+import dao.season.SeasonPartitions;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import model.Registration;
+
+/**
+ * Command line tool checking season partitions with lazy loading and LRU eviction.
+ * <p>
+ * The tool writes generated seasons into a temporary directory: every season keeps a random
+ * share of the same pool of students, so students register in several seasons. With a memory
+ * budget of about two seasons, it then checks that:
+ * </p>
+ * <ul>
+ *   <li>random lookups, mostly in recent seasons, find exactly the students each season
+ *       kept, loading seasons on first access and evicting the least recently used ones,</li>
+ *   <li>a registration added to a season survives the eviction of that season,</li>
+ *   <li>the students registered in at least three seasons match the generated seasons, the
+ *       report streaming over the seasons within the heap of a few seasons.</li>
+ * </ul>
+ * <p>
+ * Run with a heap smaller than all the seasons together, for instance {@code -Xmx384m}, to see
+ * that they are never all loaded at once.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.SeasonCheck [seasons] [students] [lookups]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class SeasonCheck {
+
+    /**
+     * The least number of seasons of the cross-season report.
+     */
+    private static final int MIN_SEASONS = 3;
+
+    /**
+     * Returns the sum of the peak usage of every heap pool since the last reset.
+     *
+     * @return the peak heap in megabytes
+     */
+    private static double peakHeapMB() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+                pool.resetPeakUsage();
+            }
+        }
+        return peak / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Returns the name of a season.
+     */
+    private static String name(int season) {
+        return String.format("season-%02d", season);
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the number of seasons (default 6), of students in the pool (default 200,000)
+     *             and of lookups (default 300)
+     */
+    public static void main(String[] args) throws IOException {
+        int seasonCount = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+
+        File dir = Files.createTempDirectory("seasons-").toFile();
+        File seasonsDir = new File(dir, SeasonPartitions.DIRECTORY);
+        seasonsDir.mkdirs();
+        List<Registration> pool = DataGenerator.generateRegistrations(students, 13, 7);
+        boolean[][] kept = new boolean[seasonCount][students];
+        long largest = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < seasonCount; s++) {
+            SplittableRandom random = new SplittableRandom(100 + s);
+            double share = 0.4 + 0.5 * random.nextDouble();
+            List<Registration> season = new ArrayList<>();
+            long bytes = 0;
+            for (int i = 0; i < students; i++) {
+                if (random.nextDouble() < share) {
+                    kept[s][i] = true;
+                    season.add(pool.get(i));
+                    bytes += ExternalSorter.estimateBytes(pool.get(i));
+                }
+            }
+            largest = Math.max(largest, bytes);
+            DataGenerator.writeRegistrations(season, new File(seasonsDir, name(s) + ".dat"));
+        }
+        List<String> ids = new ArrayList<>(students);
+        for (Registration r : pool) {
+            ids.add(r.getStudentId());
+        }
+        pool = null;
+        long budget = largest * 5 / 2;
+        System.out.println(String.format("Wrote %d seasons of %,d students in %,d ms; budget %,.1f MB (largest season %,.1f MB).",
+                seasonCount, students, (System.nanoTime() - start) / 1_000_000, budget / 1048576.0, largest / 1048576.0));
+
+        try {
+            SeasonPartitions seasons = new SeasonPartitions(seasonsDir, budget);
+            SplittableRandom random = new SplittableRandom(42);
+            peakHeapMB();
+            start = System.nanoTime();
+            for (int n = 0; n < lookups; n++) {
+                int s = random.nextInt(4) == 0 ? random.nextInt(seasonCount) : seasonCount - 1 - random.nextInt(2);
+                int i = random.nextInt(students);
+                boolean found = seasons.season(name(s)).retrieve(ids.get(i)) != null;
+                if (found != kept[s][i]) {
+                    throw new IllegalStateException(name(s) + " " + (found ? "has" : "lacks") + " student " + ids.get(i));
+                }
+                if (seasons.getResidentBytes() > budget && seasons.getLoaded().size() > 1) {
+                    throw new IllegalStateException("Loaded seasons exceed the budget: " + seasons.getLoaded());
+                }
+            }
+            System.out.println(String.format("%,d lookups in %,d ms: %d loads, %d evictions, %s loaded (%,.1f MB), peak heap %,.0f MB.",
+                    lookups, (System.nanoTime() - start) / 1_000_000, seasons.getLoads(), seasons.getEvictions(),
+                    seasons.getLoaded(), seasons.getResidentBytes() / 1048576.0, peakHeapMB()));
+
+            RegistrationDAO first = seasons.season(name(0));
+            Registration added = new Registration("SE999999", "Season Check", "season.check@fpt.edu.vn", "0912345678", "1");
+            if (!first.create(added)) {
+                throw new IllegalStateException("Cannot add to " + name(0));
+            }
+            int evictions = seasons.getEvictions();
+            for (int s = 1; s < seasonCount && seasons.getLoaded().contains(name(0)); s++) {
+                seasons.season(name(s));
+            }
+            if (seasons.getLoaded().contains(name(0))) {
+                throw new IllegalStateException(name(0) + " was never evicted");
+            }
+            if (seasons.season(name(0)).retrieve(added.getStudentId()) == null) {
+                throw new IllegalStateException("The registration added to " + name(0) + " was lost on eviction");
+            }
+            System.out.println(String.format("A registration added to %s survived its eviction (%d more evictions).",
+                    name(0), seasons.getEvictions() - evictions));
+            seasons.season(name(0)).delete(added.getStudentId());
+            seasons.saveAll();
+
+            Map<String, Integer> expected = new TreeMap<>();
+            for (int i = 0; i < students; i++) {
+                int count = 0;
+                for (int s = 0; s < seasonCount; s++) {
+                    count += kept[s][i] ? 1 : 0;
+                }
+                if (count >= MIN_SEASONS) {
+                    expected.put(ids.get(i).toUpperCase(), count);
+                }
+            }
+            start = System.nanoTime();
+            Map<String, List<String>> report = seasons.studentsInSeasons(MIN_SEASONS);
+            long reportMillis = (System.nanoTime() - start) / 1_000_000;
+            Map<String, Integer> actual = new TreeMap<>();
+            for (Map.Entry<String, List<String>> e : report.entrySet()) {
+                actual.put(e.getKey(), e.getValue().size());
+            }
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("The report finds " + actual.size() + " students instead of " + expected.size());
+            }
+            System.out.println(String.format("%,d students registered in at least %d seasons, found in %,d ms; peak heap %,.0f MB; %s still loaded.",
+                    report.size(), MIN_SEASONS, reportMillis, peakHeapMB(), seasons.getLoaded()));
+            System.out.println("OK: seasons load lazily, evict within the budget and report across seasons.");
+        } finally {
+            for (File file : seasonsDir.listFiles()) {
+                file.delete();
+            }
+            seasonsDir.delete();
+            dir.delete();
+        }
+    }
+}
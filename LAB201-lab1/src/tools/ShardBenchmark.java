@@ -0,0 +1,68 @@
+package tools;
+
+import dao.RegistrationDAO;
+import java.util.function.Supplier;
+import model.Registration;
+
+/**
+ * Command line tool comparing the single registration file with one file per campus.
+ * <p>
+ * Starting from the {@code Registrations.dat} of the current directory, the tool measures loading
+ * and saving the single file, then writes every campus shard, and measures loading the shards, saving
+ * after a change to one campus, and opening one campus on its own. The shards are left in the
+ * directory, so run the tool on a copy of the data generated by {@link DataGenerator}.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ShardBenchmark [campus]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ShardBenchmark {
+
+    /**
+     * Runs a step and prints how long it took.
+     *
+     * @param <T>   the result type
+     * @param label the description of the step
+     * @param step  the step to run
+     * @return the result of the step
+     */
+    private static <T> T time(String label, Supplier<T> step) {
+        System.gc();
+        long start = System.nanoTime();
+        T result = step.get();
+        System.out.println(String.format(" %-36s | %,12.1f ms ", label, (System.nanoTime() - start) / 1e6));
+        return result;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the campus opened on its own (default {@code SE})
+     */
+    public static void main(String[] args) {
+        String campus = args.length > 0 ? args[0] : "SE";
+        System.out.println(String.format(" %-36s | %15s ", "Step", "Time"));
+
+        System.clearProperty(RegistrationDAO.SHARDED_PROPERTY);
+        RegistrationDAO single = time("Load single file", RegistrationDAO::new);
+        time("Save single file", single::save);
+        single = null;
+
+        System.setProperty(RegistrationDAO.SHARDED_PROPERTY, "true");
+        RegistrationDAO migrated = time("Load single file as shards", RegistrationDAO::new);
+        time("Save every shard", migrated::save);
+        migrated = null;
+
+        RegistrationDAO sharded = time("Load shards", RegistrationDAO::new);
+        Registration first = sharded.retrieveAll().get(0);
+        sharded.update(first.getStudentId(), first);
+        time("Save after changing one campus", sharded::save);
+        System.out.println(sharded.getSaveReport());
+        sharded = null;
+
+        RegistrationDAO local = time("Open campus " + campus, () -> new RegistrationDAO(campus));
+        System.out.println(String.format(" %,d registrations in campus %s", local.retrieveAll().size(), campus));
+    }
+}
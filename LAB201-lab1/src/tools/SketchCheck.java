@@ -0,0 +1,225 @@
+package tools;
+
+import dao.RegistrationDAO;
+import dao.query.BitmapAttribute;
+import dao.sketch.CountMinSketch;
+import dao.sketch.HeavyHitters;
+import dao.sketch.HyperLogLog;
+import dao.sketch.RegistrationSketch;
+import dao.sketch.RegistrationSketches;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import model.Registration;
+
+/**
+ * Command line tool checking the probabilistic sketches against exact counts.
+ * <p>
+ * Run in a directory holding {@code Registrations.dat}, the tool copies the registrations into
+ * a DAO of a temporary file and checks that:
+ * </p>
+ * <ul>
+ *   <li>the distinct students, email domains and phone numbers of each campus and of all
+ *       campuses are within three standard errors of the exact counts,</li>
+ *   <li>merging the campuses gives exactly the sketches built over every registration,</li>
+ *   <li>the heavy hitter estimates of mountains and email domains are never below the exact
+ *       counts nor above them by more than the error bound,</li>
+ *   <li>registrations created and deleted afterwards are counted, and the sketches saved
+ *       beside the data are loaded back unchanged instead of being rebuilt.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.SketchCheck [created]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class SketchCheck {
+
+    /**
+     * Checks a distinct count against the exact one.
+     *
+     * @param what   the label of the count
+     * @param sketch the sketch of the distinct values
+     * @param exact  the exact number of distinct values
+     * @return the relative error
+     */
+    private static double checkDistinct(String what, HyperLogLog sketch, int exact) {
+        double error = exact == 0 ? sketch.estimate() : Math.abs(sketch.estimate() - exact) / (double) exact;
+        if (error > 3 * sketch.standardError()) {
+            throw new IllegalStateException(String.format("%s: estimate %,d for %,d distinct values",
+                    what, sketch.estimate(), exact));
+        }
+        return error;
+    }
+
+    /**
+     * Checks the heavy hitter estimates against the exact counts.
+     *
+     * @param what    the label of the values
+     * @param hitters the heavy hitters
+     * @param exact   the exact count of every value
+     */
+    private static void checkHeavyHitters(String what, HeavyHitters hitters, Map<String, Integer> exact) {
+        CountMinSketch counts = hitters.getSketch();
+        for (Map.Entry<String, Integer> e : exact.entrySet()) {
+            long estimate = counts.estimate(e.getKey());
+            if (estimate < e.getValue() || estimate > e.getValue() + counts.errorBound()) {
+                throw new IllegalStateException(String.format("%s %s: estimate %,d for %,d (bound %,d)",
+                        what, e.getKey(), estimate, e.getValue(), counts.errorBound()));
+            }
+        }
+        String top = hitters.top(1).get(0);
+        String exactTop = exact.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey();
+        System.out.println(String.format("%s: top %s (%,d, exact %,d), exact top %s (%,d); %,d values within +%,d.",
+                what, top, counts.estimate(top), exact.get(top), exactTop, exact.get(exactTop), exact.size(),
+                counts.errorBound()));
+    }
+
+    /**
+     * Checks the sketches of each campus and of all campuses against the registrations.
+     *
+     * @param campuses      the sketches by campus
+     * @param registrations the registrations counted
+     * @param history       the registrations counted by the distinct counts, deleted ones included
+     */
+    private static void check(Map<String, RegistrationSketch> campuses, List<Registration> registrations,
+            List<Registration> history) {
+        Map<String, List<Registration>> byCampus = new TreeMap<>();
+        for (Registration r : history) {
+            byCampus.computeIfAbsent(BitmapAttribute.CAMPUS.valueOf(r), c -> new ArrayList<>()).add(r);
+        }
+        byCampus.put("All", history);
+        double worst = 0;
+        for (Map.Entry<String, List<Registration>> e : byCampus.entrySet()) {
+            RegistrationSketch sketch = e.getKey().equals("All")
+                    ? RegistrationSketches.merge(campuses.values()) : campuses.get(e.getKey());
+            worst = Math.max(worst, checkDistinct(e.getKey() + " students", sketch.getStudents(),
+                    distinct(e.getValue(), r -> r.getStudentId().toUpperCase())));
+            worst = Math.max(worst, checkDistinct(e.getKey() + " email domains", sketch.getEmailDomains(),
+                    distinct(e.getValue(), SketchCheck::domainOf)));
+            worst = Math.max(worst, checkDistinct(e.getKey() + " phones", sketch.getPhones(),
+                    distinct(e.getValue(), Registration::getPhone)));
+        }
+        System.out.println(String.format("Distinct counts of %d campuses and all: worst error %.2f%% (standard error %.2f%%).",
+                byCampus.size() - 1, worst * 100, new HyperLogLog().standardError() * 100));
+        RegistrationSketch merged = RegistrationSketches.merge(campuses.values());
+        checkHeavyHitters("Mountains", merged.getMountains(), counts(registrations, Registration::getMountainCode));
+        checkHeavyHitters("Email domains", merged.getEmailDomainCounts(), counts(registrations, SketchCheck::domainOf));
+    }
+
+    private static String domainOf(Registration r) {
+        return r.getEmail().substring(r.getEmail().lastIndexOf('@') + 1).toLowerCase();
+    }
+
+    private static int distinct(List<Registration> registrations, Function<Registration, String> key) {
+        Set<String> values = new HashSet<>();
+        for (Registration r : registrations) {
+            values.add(key.apply(r));
+        }
+        return values.size();
+    }
+
+    private static Map<String, Integer> counts(List<Registration> registrations, Function<Registration, String> key) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Registration r : registrations) {
+            counts.merge(key.apply(r), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the number of registrations created after building the sketches (default 10,000)
+     */
+    public static void main(String[] args) throws IOException {
+        int created = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        List<Registration> registrations = new RegistrationDAO().snapshot();
+        File dir = Files.createTempDirectory("sketches").toFile();
+        File data = new File(dir, "Registrations.dat");
+        try {
+            RegistrationDAO rdao = new RegistrationDAO(data);
+            rdao.install(registrations);
+            long start = System.nanoTime();
+            Map<String, RegistrationSketch> campuses = rdao.getSketches();
+            System.out.println(String.format("Sketches of %,d registrations built in %,d ms.",
+                    registrations.size(), (System.nanoTime() - start) / 1_000_000));
+            check(campuses, registrations, registrations);
+
+            RegistrationSketch global = new RegistrationSketch();
+            for (Registration r : registrations) {
+                global.add(r);
+            }
+            RegistrationSketch merged = RegistrationSketches.merge(campuses.values());
+            if (global.getStudents().estimate() != merged.getStudents().estimate()
+                    || global.getPhones().estimate() != merged.getPhones().estimate()
+                    || global.getEmailDomains().estimate() != merged.getEmailDomains().estimate()) {
+                throw new IllegalStateException("The merged campuses differ from the sketches of every registration");
+            }
+            System.out.println("Merged campus sketches equal the sketches of every registration.");
+
+            List<Registration> history = new ArrayList<>(registrations);
+            Set<String> taken = new HashSet<>();
+            for (Registration r : registrations) {
+                taken.add(r.getStudentId().toUpperCase());
+            }
+            String[] campusCodes = {"SE", "HE", "DE", "QE", "CE"};
+            int n = 0;
+            start = System.nanoTime();
+            for (int i = 0; n < created; i++) {
+                String id = String.format("%s%06d", campusCodes[i % campusCodes.length], 999_999 - i / campusCodes.length);
+                if (taken.contains(id)) {
+                    continue;
+                }
+                Registration r = new Registration(id, "Sketch Check", "sketch" + i + "@sketch" + (i % 7) + ".edu.vn",
+                        String.format("09%08d", 99_999_999 - i), "1");
+                rdao.create(r);
+                history.add(r);
+                n++;
+            }
+            for (int i = 0; i < created / 2; i++) {
+                rdao.delete(history.get(registrations.size() + i).getStudentId());
+            }
+            System.out.println(String.format("%,d registrations created and %,d deleted in %,d ms.",
+                    created, created / 2, (System.nanoTime() - start) / 1_000_000));
+            List<Registration> current = rdao.snapshot();
+            campuses = rdao.getSketches();
+            check(campuses, current, history);
+
+            if (!rdao.save()) {
+                throw new IllegalStateException("The registrations could not be saved");
+            }
+            long bytes = 0;
+            for (String code : campuses.keySet()) {
+                bytes += RegistrationSketches.fileOf(data.getPath(), code).length();
+            }
+            RegistrationSketches reloaded = new RegistrationSketches(data.getPath(), null);
+            if (!reloaded.load(current).isEmpty()) {
+                throw new IllegalStateException("Saved sketches were rebuilt instead of loaded");
+            }
+            for (Map.Entry<String, RegistrationSketch> e : reloaded.copy().entrySet()) {
+                RegistrationSketch before = campuses.get(e.getKey());
+                if (before.getStudents().estimate() != e.getValue().getStudents().estimate()
+                        || before.getRegistrations() != e.getValue().getRegistrations()) {
+                    throw new IllegalStateException("The sketches of " + e.getKey() + " changed when saved");
+                }
+            }
+            System.out.println(String.format("Sketches of %d campuses saved in %,d bytes and loaded back unchanged.",
+                    campuses.size(), bytes));
+            System.out.println("OK: the sketches are within their error bounds, merge per campus and persist.");
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package tools;
+
+import dao.RegistrationDAO;
+import dao.query.SortKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import model.Registration;
+
+/**
+ * Command line tool checking and timing the sorted views of {@link RegistrationDAO}.
+ * <p>
+ * Over the {@code Registrations.dat} of the current directory, the tool lists every
+ * {@link SortKey} in both directions page by page and checks the listing against a sorted copy
+ * of the registrations, and checks that the registration list itself is left in student ID order.
+ * It reports the time of the first page, which builds the view, and the average time of random
+ * pages afterwards. Finally it deletes and restores one registration to check that the views
+ * follow mutations.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.SortBenchmark [page size] [random pages]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class SortBenchmark {
+
+    /**
+     * Lists every registration in the given order, page by page.
+     *
+     * @param rdao       the DAO to list
+     * @param key        the order of the listing
+     * @param descending whether to list in reverse order
+     * @param pageSize   the number of registrations per page
+     * @return the registrations in listing order
+     */
+    private static List<Registration> listAll(RegistrationDAO rdao, SortKey key, boolean descending, int pageSize) {
+        List<Registration> all = new ArrayList<>();
+        List<Registration> page;
+        while (!(page = rdao.retrievePage(key, descending, all.size(), pageSize)).isEmpty()) {
+            all.addAll(page);
+        }
+        return all;
+    }
+
+    /**
+     * Checks that two lists hold the same objects in the same order.
+     *
+     * @param expected the expected registrations
+     * @param actual   the listed registrations
+     * @param what     the description of the listing
+     */
+    private static void checkSame(List<Registration> expected, List<Registration> actual, String what) {
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException(what + ": " + actual.size() + " registrations instead of " + expected.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i) != actual.get(i)) {
+                throw new IllegalStateException(what + ": mismatch at position " + i);
+            }
+        }
+    }
+
+    /**
+     * Checks every order of the DAO against sorted copies of its registrations.
+     *
+     * @param rdao     the DAO to check
+     * @param pageSize the number of registrations per page
+     */
+    private static void checkOrders(RegistrationDAO rdao, int pageSize) {
+        List<Registration> primary = new ArrayList<>(rdao.retrieveAll());
+        for (SortKey key : SortKey.values()) {
+            List<Registration> expected = new ArrayList<>(primary);
+            expected.sort(key.comparator());
+            checkSame(expected, listAll(rdao, key, false, pageSize), key.getLabel());
+            expected.sort(key.comparator().reversed());
+            checkSame(expected, listAll(rdao, key, true, pageSize), key.getLabel() + " descending");
+        }
+        checkSame(primary, rdao.retrieveAll(), "registration list");
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the page size (default 20) and the number of random pages per order (default 10,000)
+     */
+    public static void main(String[] args) {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        RegistrationDAO rdao = new RegistrationDAO();
+        int total = rdao.retrieveAll().size();
+        SplittableRandom random = new SplittableRandom(7);
+        System.out.println(String.format(" %,d registrations, pages of %d", total, pageSize));
+        System.out.println(String.format(" %-13s | %15s | %18s ", "Order", "First page", "Random page"));
+        for (SortKey key : SortKey.values()) {
+            long start = System.nanoTime();
+            rdao.retrievePage(key, false, 0, pageSize);
+            long first = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < pages; i++) {
+                rdao.retrievePage(key, random.nextBoolean(), random.nextInt(Math.max(1, total)), pageSize);
+            }
+            long perPage = (System.nanoTime() - start) / pages;
+            System.out.println(String.format(" %-13s | %,12.1f ms | %,15.2f us ", key.getLabel(), first / 1e6, perPage / 1e3));
+        }
+
+        checkOrders(rdao, Math.max(pageSize, total / 50 + 1));
+        if (total > 0) {
+            Registration removed = rdao.retrieveAll().get(random.nextInt(total));
+            rdao.delete(removed.getStudentId());
+            checkOrders(rdao, Math.max(pageSize, total / 50 + 1));
+            rdao.create(removed);
+            checkOrders(rdao, Math.max(pageSize, total / 50 + 1));
+        }
+        System.out.println(String.format("Every order matches a sorted copy in both directions, before and after a mutation"
+                + " (%,.1f ms spent sorting views).", rdao.getSortNanos() / 1e6));
+    }
+}
@@ -0,0 +1,98 @@
+package tools;
+
+import dao.DAOLoader;
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.query.RegistrationField;
+import dao.query.RegistrationQuery;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import service.RetrievalService;
+import view.MenuView;
+
+/**
+ * Command line tool measuring the startup latency of the registration management program.
+ * <p>
+ * Each round measures two startups over the data files of the current directory:
+ * </p>
+ * <ul>
+ *   <li><b>eager</b>: both DAOs are constructed one after the other before the menu is shown,</li>
+ *   <li><b>lazy</b>: both DAOs are loaded concurrently by {@link DAOLoader} while the menu is shown.</li>
+ * </ul>
+ * <p>
+ * For each startup the tool reports the time to menu (the menu has been rendered) and the time
+ * to first query (a name search has been answered). Generate a large {@code Registrations.dat}
+ * with {@link DataGenerator} first.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.StartupBenchmark [rounds]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class StartupBenchmark {
+
+    /**
+     * The query answered as the first operation.
+     */
+    private static final RegistrationQuery FIRST_QUERY = RegistrationQuery.equal(RegistrationField.NAME, "Nguyen Van An");
+
+    /**
+     * Measures an eager startup.
+     *
+     * @param menu the menu to render
+     * @return the time to menu and the time to first query, in nanoseconds
+     */
+    private static long[] eager(MenuView menu) {
+        long start = System.nanoTime();
+        RegistrationDAO rdao = new RegistrationDAO();
+        MountainDAO mdao = new MountainDAO();
+        menu.displayMenu();
+        long toMenu = System.nanoTime() - start;
+        new RetrievalService(rdao, mdao).search(FIRST_QUERY);
+        return new long[]{toMenu, System.nanoTime() - start};
+    }
+
+    /**
+     * Measures a lazy startup.
+     *
+     * @param menu the menu to render
+     * @return the time to menu and the time to first query, in nanoseconds
+     */
+    private static long[] lazy(MenuView menu) {
+        long start = System.nanoTime();
+        DAOLoader loader = DAOLoader.start();
+        menu.displayMenu();
+        long toMenu = System.nanoTime() - start;
+        new RetrievalService(loader.registrations(), loader.mountains()).search(FIRST_QUERY);
+        return new long[]{toMenu, System.nanoTime() - start};
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of rounds (default 3)
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        PrintStream console = System.out;
+        PrintStream silent = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        MenuView menu = new MenuView();
+
+        console.println(String.format(" %-5s | %-6s | %15s | %21s ", "Round", "Mode", "Time to menu", "Time to first query"));
+        for (int round = 1; round <= rounds; round++) {
+            System.setOut(silent);
+            long[] eager = eager(menu);
+            System.gc();
+            long[] lazy = lazy(menu);
+            System.gc();
+            System.setOut(console);
+            console.println(String.format(" %5d | %-6s | %,12.1f ms | %,18.1f ms ", round, "eager", eager[0] / 1e6, eager[1] / 1e6));
+            console.println(String.format(" %5d | %-6s | %,12.1f ms | %,18.1f ms ", round, "lazy", lazy[0] / 1e6, lazy[1] / 1e6));
+        }
+    }
+}
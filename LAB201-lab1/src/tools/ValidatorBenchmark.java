@@ -0,0 +1,205 @@
+package tools;
+
+import dao.RegistrationDAO;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import model.Registration;
+import utils.inputter.Validator;
+import utils.inputter.Validators;
+
+/**
+ * Command line tool comparing the ways of matching the registration formats.
+ * <p>
+ * For the campus and phone formats, the tool first checks the hand-written matchers
+ * of {@link Validators} against the regular expressions on random inputs close to the formats,
+ * then measures, on the fields of the registrations of the current directory (or generated
+ * ones), the time and allocation per match of {@link String#matches(String)}, of a
+ * precompiled {@link Pattern} and of the registered validator, for those formats and for the
+ * student ID, whose registered validator is the compiled pattern. It ends with the checks of
+ * every field of a registration, as {@link Validators#validate(Registration)} does them.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ValidatorBenchmark [rounds]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ValidatorBenchmark {
+
+    /**
+     * The number of random inputs per format compared with the regular expression.
+     */
+    private static final int FUZZ_INPUTS = 300_000;
+
+    /**
+     * The characters random inputs are made of: digits, campus letters and a few others.
+     */
+    private static final String ALPHABET = "0123456789SHDQCEe8 x.";
+
+    /**
+     * The thread allocation counter of HotSpot.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Prevents the JIT from removing the matches measured.
+     */
+    private static int sink;
+
+    /**
+     * Returns a random input close to a valid one: the valid one with characters replaced,
+     * inserted or removed, or a random string.
+     *
+     * @param valid  a valid input
+     * @param random the random source
+     * @return the input
+     */
+    private static String mutate(String valid, SplittableRandom random) {
+        StringBuilder sb = new StringBuilder(valid);
+        switch (random.nextInt(5)) {
+            case 0:
+                return valid;
+            case 1:
+                sb.setCharAt(random.nextInt(sb.length()), ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                return sb.toString();
+            case 2:
+                sb.insert(random.nextInt(sb.length() + 1), ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                return sb.toString();
+            case 3:
+                sb.deleteCharAt(random.nextInt(sb.length()));
+                return sb.toString();
+            default:
+                sb.setLength(0);
+                for (int i = random.nextInt(16); i > 0; i--) {
+                    sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                }
+                return sb.toString();
+        }
+    }
+
+    /**
+     * Checks that a hand-written matcher agrees with its regular expression on random inputs.
+     *
+     * @param label   the name of the format
+     * @param regex   the regular expression
+     * @param samples valid inputs to start from
+     * @param random  the random source
+     */
+    private static void agree(String label, String regex, List<String> samples, SplittableRandom random) {
+        Pattern pattern = Pattern.compile(regex);
+        Validator validator = Validators.forRegex(regex);
+        int accepted = 0;
+        for (int i = 0; i < FUZZ_INPUTS; i++) {
+            String input = mutate(samples.get(random.nextInt(samples.size())), random);
+            boolean expected = pattern.matcher(input).matches();
+            if (validator.matches(input) != expected) {
+                throw new IllegalStateException("The " + label + " matcher answers " + !expected + " for [" + input + "]");
+            }
+            accepted += expected ? 1 : 0;
+        }
+        System.out.println(String.format("The %s matcher agrees with %s on %,d inputs (%,d valid).",
+                label, regex, FUZZ_INPUTS, accepted));
+    }
+
+    /**
+     * Measures a way of matching over every input and prints the time and allocation per match.
+     *
+     * @param label   the description of the way
+     * @param inputs  the inputs to match
+     * @param rounds  the number of timed passes, after as many warm-up passes
+     * @param matcher the way of matching
+     */
+    private static void measure(String label, List<String> inputs, int rounds, Predicate<String> matcher) {
+        for (int r = 0; r < rounds; r++) {
+            for (String input : inputs) {
+                sink += matcher.test(input) ? 1 : 0;
+            }
+        }
+        long thread = Thread.currentThread().getId();
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String input : inputs) {
+                sink += matcher.test(input) ? 1 : 0;
+            }
+        }
+        long matches = (long) rounds * inputs.size();
+        System.out.println(String.format(" %-36s | %,10.1f ns | %,10.1f B ", label,
+                (double) (System.nanoTime() - start) / matches,
+                (double) (THREADS.getThreadAllocatedBytes(thread) - bytes) / matches));
+    }
+
+    /**
+     * Compares the three ways of matching one format.
+     *
+     * @param label  the name of the format
+     * @param regex  the regular expression
+     * @param inputs the inputs to match
+     * @param rounds the number of timed passes
+     */
+    private static void compare(String label, String regex, List<String> inputs, int rounds) {
+        Pattern pattern = Pattern.compile(regex);
+        Validator validator = Validators.forRegex(regex);
+        measure(label + ": String.matches", inputs, rounds, input -> input.matches(regex));
+        measure(label + ": precompiled Pattern", inputs, rounds, input -> pattern.matcher(input).matches());
+        measure(label + ": registered validator", inputs, rounds, validator::matches);
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of timed passes over the inputs (default 5)
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        List<Registration> registrations = new RegistrationDAO().snapshot();
+        SplittableRandom random = new SplittableRandom(42);
+        if (registrations.size() < 1_000) {
+            registrations = new ArrayList<>();
+            String campuses = "SHDQC";
+            for (int i = 0; i < 100_000; i++) {
+                registrations.add(new Registration(campuses.charAt(random.nextInt(5)) + "E" + (100_000 + random.nextInt(900_000)),
+                        "Student Name", "student" + i + "@fpt.edu.vn", "09" + (10_000_000 + random.nextInt(90_000_000)), "1"));
+            }
+            System.out.println("Fewer than 1,000 registrations in the current directory; using 100,000 generated ones.");
+        }
+        List<String> ids = new ArrayList<>();
+        List<String> campuses = new ArrayList<>();
+        List<String> phones = new ArrayList<>();
+        for (Registration r : registrations) {
+            ids.add(r.getStudentId());
+            campuses.add(r.getStudentId().substring(0, 2));
+            phones.add(r.getPhone());
+        }
+        phones.add("8484012345678");
+
+        agree("campus", Registration.CAMPUS_REGEX, campuses, random);
+        agree("phone", Registration.PHONE_REGEX, phones, random);
+
+        System.out.println(String.format("Matching the fields of %,d registrations, %d passes:", registrations.size(), rounds));
+        System.out.println(String.format(" %-36s | %13s | %12s ", "Format: way", "time/match", "alloc/match"));
+        compare("student ID", Registration.STUDENT_ID_REGEX, ids, rounds);
+        compare("campus", Registration.CAMPUS_REGEX, campuses, rounds);
+        compare("phone", Registration.PHONE_REGEX, phones, rounds);
+        compare("Viettel phone", Registration.VIETTEL_PHONE_REGEX, phones, rounds);
+
+        List<String> rows = new ArrayList<>(registrations.size());
+        for (int i = 0; i < registrations.size(); i++) {
+            rows.add(String.valueOf(i));
+        }
+        List<Registration> all = registrations;
+        measure("registration: String.matches", rows, rounds, row -> {
+            Registration r = all.get(Integer.parseInt(row));
+            return r.getStudentId().matches(Registration.STUDENT_ID_REGEX) & r.getName().matches(Registration.NAME_REGEX)
+                    & r.getEmail().matches(Registration.EMAIL_REGEX) & r.getPhone().matches(Registration.PHONE_REGEX);
+        });
+        measure("registration: validate", rows, rounds,
+                row -> Validators.validate(all.get(Integer.parseInt(row))).isEmpty());
+        System.out.println("(" + sink + " matches)");
+    }
+}
@@ -0,0 +1,201 @@
+package tools;
+
+import dao.MountainDAO;
+import dao.RegistrationDAO;
+import dao.event.RegistrationEvent;
+import dao.event.RegistrationListener;
+import dao.query.RegistrationField;
+import dao.query.RegistrationQuery;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import model.CampusStatistic;
+import model.Mountain;
+import model.Registration;
+import model.Statistic;
+import service.StatisticsView;
+
+/**
+ * Command line tool checking that the incrementally maintained views match a full recompute.
+ * <p>
+ * Over the data files of the current directory, the tool applies random creations, updates and
+ * deletions through {@link RegistrationDAO} and, after each batch, compares:
+ * </p>
+ * <ul>
+ *   <li>the {@link StatisticsView} following the DAO with one recomputed from every registration,</li>
+ *   <li>the answer of each index with a full scan, for values taken from random registrations.</li>
+ * </ul>
+ * <p>
+ * It also checks that an asynchronous listener receives every event, in order. Nothing is saved.
+ * The tool exits with status 1 on the first mismatch.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab1.jar tools.ViewConsistencyCheck [mutations] [seed]}
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class ViewConsistencyCheck {
+
+    /**
+     * The campuses of created registrations.
+     */
+    private static final String[] CAMPUSES = {"CE", "DE", "HE", "QE", "SE"};
+
+    /**
+     * The number of mutations between two comparisons.
+     */
+    private static final int BATCH = 100;
+
+    /**
+     * The number of index lookups compared per field and batch.
+     */
+    private static final int LOOKUPS = 20;
+
+    /**
+     * Reports a mismatch and stops.
+     *
+     * @param message the description of the mismatch
+     */
+    private static void fail(String message) {
+        System.out.println("MISMATCH: " + message);
+        System.exit(1);
+    }
+
+    /**
+     * Compares the maintained statistics with a full recompute.
+     *
+     * @param view          the maintained view
+     * @param registrations the current registrations
+     * @param mountains     the known mountains
+     */
+    private static void compareStatistics(StatisticsView view, List<Registration> registrations, List<Mountain> mountains) {
+        StatisticsView full = new StatisticsView(registrations, mountains);
+        Map<String, Statistic> expected = full.getStatistics();
+        Map<String, Statistic> actual = view.getStatistics();
+        if (!expected.keySet().equals(actual.keySet())) {
+            fail("mountains " + actual.keySet() + " instead of " + expected.keySet());
+        }
+        for (Statistic e : expected.values()) {
+            Statistic a = actual.get(e.getMountainCode());
+            if (a.getParticipants() != e.getParticipants() || Math.abs(a.getTotalPrice() - e.getTotalPrice()) > 0.5) {
+                fail("mountain " + e.getMountainCode() + ": " + a + " instead of " + e);
+            }
+        }
+        Map<String, CampusStatistic> expectedCampuses = full.getCampusStatistics();
+        Map<String, CampusStatistic> actualCampuses = view.getCampusStatistics();
+        if (!expectedCampuses.keySet().equals(actualCampuses.keySet())) {
+            fail("campuses " + actualCampuses.keySet() + " instead of " + expectedCampuses.keySet());
+        }
+        for (CampusStatistic e : expectedCampuses.values()) {
+            CampusStatistic a = actualCampuses.get(e.getCampus());
+            if (a.getParticipants() != e.getParticipants() || Math.abs(a.getTotalPrice() - e.getTotalPrice()) > 0.5) {
+                fail("campus " + e.getCampus() + ": " + a + " instead of " + e);
+            }
+        }
+    }
+
+    /**
+     * Compares index lookups with full scans.
+     *
+     * @param rdao   the DAO to query
+     * @param random the source of sampled registrations
+     */
+    private static void compareIndexes(RegistrationDAO rdao, SplittableRandom random) {
+        List<Registration> all = rdao.retrieveAll();
+        if (all.isEmpty()) {
+            return;
+        }
+        for (RegistrationField field : RegistrationField.values()) {
+            for (int i = 0; i < LOOKUPS; i++) {
+                String value = field.valueOf(all.get(random.nextInt(all.size())));
+                List<Registration> indexed = rdao.query(RegistrationQuery.equal(field, value));
+                List<Registration> scanned = rdao.retrieveList(r -> value.equals(field.valueOf(r)));
+                Set<Registration> found = Collections.newSetFromMap(new IdentityHashMap<>());
+                found.addAll(indexed);
+                if (indexed.size() != scanned.size() || !found.containsAll(scanned)) {
+                    fail(field.getLabel() + " = " + value + ": index returned " + indexed.size()
+                            + ", scan returned " + scanned.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies one random mutation.
+     *
+     * @param rdao      the DAO to mutate
+     * @param mountains the known mountains
+     * @param random    the source of randomness
+     * @param step      the number of the mutation, used for unique new values
+     */
+    static void mutate(RegistrationDAO rdao, List<Mountain> mountains, SplittableRandom random, int step) {
+        List<Registration> all = rdao.retrieveAll();
+        String mountain = mountains.get(random.nextInt(mountains.size())).getCode();
+        int kind = all.isEmpty() ? 0 : random.nextInt(3);
+        if (kind == 0) {
+            String campus = CAMPUSES[random.nextInt(CAMPUSES.length)];
+            rdao.create(new Registration(campus + (900_000 + step), "Check Name " + (char) ('A' + step % 26),
+                    "check" + step + "@fpt.edu.vn", (random.nextBoolean() ? "090" : "077") + (9_000_000 + step), mountain));
+        } else if (kind == 1) {
+            Registration old = all.get(random.nextInt(all.size()));
+            Registration copy = new Registration(old.getStudentId(), old.getName(), old.getEmail(),
+                    random.nextBoolean() ? old.getPhone() : "086" + (8_000_000 + step), mountain);
+            rdao.update(copy.getStudentId(), copy);
+        } else {
+            rdao.delete(all.get(random.nextInt(all.size())).getStudentId());
+        }
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the number of mutations (default 2000, at most 99,999) and the seed (default 42)
+     * @throws InterruptedException if interrupted while waiting for the asynchronous listener
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int mutations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        RegistrationDAO rdao = new RegistrationDAO();
+        MountainDAO mdao = new MountainDAO();
+        List<Mountain> mountains = mdao.retrieveAll();
+        SplittableRandom random = new SplittableRandom(seed);
+
+        StatisticsView view = new StatisticsView(rdao, mdao);
+        AtomicLong lastGeneration = new AtomicLong(rdao.getGeneration());
+        Map<RegistrationEvent.Type, Integer> counts = new HashMap<>();
+        CountDownLatch delivered = new CountDownLatch(mutations);
+        RegistrationListener async = rdao.getEvents().subscribeAsync(event -> {
+            if (event.getGeneration() != lastGeneration.get() + 1) {
+                fail("asynchronous listener received generation " + event.getGeneration()
+                        + " after " + lastGeneration.get());
+            }
+            lastGeneration.set(event.getGeneration());
+            counts.merge(event.getType(), 1, Integer::sum);
+            delivered.countDown();
+        });
+
+        long start = System.nanoTime();
+        compareStatistics(view, rdao.retrieveAll(), mountains);
+        for (int step = 1; step <= mutations; step++) {
+            mutate(rdao, mountains, random, step);
+            if (step % BATCH == 0 || step == mutations) {
+                compareStatistics(view, rdao.retrieveAll(), mountains);
+                compareIndexes(rdao, random);
+            }
+        }
+        if (!delivered.await(30, TimeUnit.SECONDS)) {
+            fail(delivered.getCount() + " events not delivered to the asynchronous listener");
+        }
+        rdao.getEvents().unsubscribe(async);
+        System.out.println(String.format("OK: %d mutations %s over %,d registrations checked in %,.1f ms",
+                mutations, counts, rdao.retrieveAll().size(), (System.nanoTime() - start) / 1e6));
+    }
+}
@@ -0,0 +1,78 @@
+package utils.audit;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Reads the log files of an {@link AuditTrail}, oldest record first.
+ * <p>
+ * A record cut short at the end of a file, as when the desk stopped while writing it, ends that
+ * file without an error.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class AuditLogReader {
+
+    private AuditLogReader() {
+    }
+
+    /**
+     * Lists the log files of a directory from the oldest to the current one.
+     *
+     * @param directory the directory of the log files
+     * @return the existing log files, oldest first
+     */
+    public static List<File> files(File directory) {
+        List<File> files = new ArrayList<>();
+        int age = 0;
+        while (AuditTrail.fileOf(directory, age).isFile()) {
+            files.add(0, AuditTrail.fileOf(directory, age));
+            age++;
+        }
+        return files;
+    }
+
+    /**
+     * Reads the records of every log file of a directory in order, passing the matching ones on.
+     *
+     * @param directory the directory of the log files
+     * @param filter    the condition a record must meet
+     * @param records   receives the matching records, oldest first
+     * @return the number of records read, matching or not
+     * @throws IOException if a file is not an audit log or cannot be read
+     */
+    public static long read(File directory, Predicate<AuditRecord> filter, Consumer<AuditRecord> records) throws IOException {
+        long count = 0;
+        for (File file : files(directory)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+                if (in.readInt() != AuditTrail.MAGIC) {
+                    throw new IOException(file + " is not an audit log!");
+                }
+                while (true) {
+                    AuditRecord record;
+                    try {
+                        record = AuditRecord.readFrom(in);
+                    } catch (EOFException end) {
+                        break;
+                    }
+                    count++;
+                    if (filter.test(record)) {
+                        records.accept(record);
+                    }
+                }
+            } catch (EOFException empty) {
+                // a file created but never written
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,211 @@
+package utils.audit;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One entry of the audit trail: who changed which registration, how and when.
+ * 
+ * @author ho huy
+ */
+public class AuditRecord {
+
+    /**
+     * The audited operations.
+     */
+    public enum Operation {
+        /**
+         * A registration was added.
+         */
+        ADD,
+        /**
+         * One field of a registration was changed.
+         */
+        UPDATE,
+        /**
+         * A registration was deleted.
+         */
+        DELETE,
+        /**
+         * A deletion was undone before being confirmed.
+         */
+        RESTORE
+    }
+
+    /**
+     * The format of the times displayed.
+     */
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    /**
+     * The time of the change, in milliseconds since the epoch.
+     */
+    private final long time;
+
+    /**
+     * The operation.
+     */
+    private final Operation operation;
+
+    /**
+     * The operator who made the change.
+     */
+    private final String operator;
+
+    /**
+     * The student ID of the changed registration.
+     */
+    private final String studentId;
+
+    /**
+     * The changed field, or an empty string when the whole registration changed.
+     */
+    private final String field;
+
+    /**
+     * The value before the change, or an empty string.
+     */
+    private final String before;
+
+    /**
+     * The value after the change, or an empty string.
+     */
+    private final String after;
+
+    /**
+     * Constructs a record.
+     *
+     * @param time      the time of the change, in milliseconds since the epoch
+     * @param operation the operation
+     * @param operator  the operator who made the change
+     * @param studentId the student ID of the changed registration
+     * @param field     the changed field, or {@code null} when the whole registration changed
+     * @param before    the value before the change, or {@code null}
+     * @param after     the value after the change, or {@code null}
+     */
+    public AuditRecord(long time, Operation operation, String operator, String studentId,
+            String field, String before, String after) {
+        this.time = time;
+        this.operation = operation;
+        this.operator = operator;
+        this.studentId = studentId;
+        this.field = field == null ? "" : field;
+        this.before = before == null ? "" : before;
+        this.after = after == null ? "" : after;
+    }
+
+    /**
+     * Writes the record in the binary format of the log files.
+     *
+     * @param out the stream of the log file
+     * @throws IOException if the record cannot be written
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(time);
+        out.writeByte(operation.ordinal());
+        out.writeUTF(operator);
+        out.writeUTF(studentId);
+        out.writeUTF(field);
+        out.writeUTF(before);
+        out.writeUTF(after);
+    }
+
+    /**
+     * Reads a record written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param in the stream of the log file
+     * @return the record
+     * @throws IOException if the record cannot be read, such as {@link java.io.EOFException} at the end
+     */
+    static AuditRecord readFrom(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        int operation = in.readUnsignedByte();
+        if (operation >= Operation.values().length) {
+            throw new IOException("Corrupted audit record!");
+        }
+        return new AuditRecord(time, Operation.values()[operation], in.readUTF(), in.readUTF(),
+                in.readUTF(), in.readUTF(), in.readUTF());
+    }
+
+    /**
+     * Returns the time of the change, in milliseconds since the epoch.
+     *
+     * @return the time of the change, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the operation.
+     *
+     * @return the operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the operator who made the change.
+     *
+     * @return the operator who made the change
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * Returns the student ID of the changed registration.
+     *
+     * @return the student ID of the changed registration
+     */
+    public String getStudentId() {
+        return studentId;
+    }
+
+    /**
+     * Returns the changed field, or an empty string when the whole registration changed.
+     *
+     * @return the changed field, or an empty string when the whole registration changed
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Returns the value before the change, or an empty string.
+     *
+     * @return the value before the change, or an empty string
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * Returns the value after the change, or an empty string.
+     *
+     * @return the value after the change, or an empty string
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Describes the record on one line.
+     *
+     * @return the time, operation, student ID, operator and change
+     */
+    @Override
+    public String toString() {
+        String change = field.isEmpty()
+                ? (before.isEmpty() ? after : before)
+                : field + ": \"" + before + "\" -> \"" + after + "\"";
+        return String.format("%s %-7s %-10s by %-12s %s", TIME_FORMAT.format(Instant.ofEpochMilli(time)),
+                operation, studentId, operator, change);
+    }
+}
@@ -0,0 +1,482 @@
+package utils.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import model.Registration;
+import utils.collection.RingBuffer;
+
+/**
+ * Records every registration change in rotating log files, off the thread making the change.
+ * <p>
+ * {@link #record} only builds the entry and offers it to a {@link RingBuffer}: it never takes a
+ * lock, never waits and never touches a file. A daemon writer drains the buffer into
+ * {@value #FILE_NAME} in the audit directory, flushing whenever the buffer runs empty. An idle
+ * writer naps for doubling times and then sleeps until a record wakes it, so a busy desk
+ * rarely pays for waking it and an idle desk costs no wake-ups at all. When the
+ * file would exceed its size cap, it is renamed {@code audit.1.log}, the older files move up
+ * one number, and the oldest beyond the number of kept files is deleted, so the trail never
+ * takes more than the cap times the number of files. Memory is bounded by the buffer capacity:
+ * entries offered while the buffer is full are dropped and counted, never queued.
+ * </p>
+ * <p>
+ * If a log file cannot be written, the writer reports it and the trail stops writing for good:
+ * the entries still buffered and every later one are dropped and counted, and {@link #isFailed()} tells why the
+ * trail no longer records.
+ * </p>
+ * <p>
+ * The shared trail of the desk is configured by system properties: {@value #ENABLED_PROPERTY}
+ * (default {@code true}), {@value #DIRECTORY_PROPERTY} (default {@value #DEFAULT_DIRECTORY}),
+ * {@value #FILE_KB_PROPERTY} (default 1024), {@value #FILES_PROPERTY} (default 8) and
+ * {@value #OPERATOR_PROPERTY}, the name recorded as the author of the changes (default the
+ * user name).
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class AuditTrail implements Closeable {
+
+    /**
+     * The system property turning the shared trail off when {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "audit.enabled";
+
+    /**
+     * The system property naming the directory of the shared trail.
+     */
+    public static final String DIRECTORY_PROPERTY = "audit.dir";
+
+    /**
+     * The system property setting the size cap of a log file, in kilobytes.
+     */
+    public static final String FILE_KB_PROPERTY = "audit.file.kb";
+
+    /**
+     * The system property setting the number of log files kept.
+     */
+    public static final String FILES_PROPERTY = "audit.files";
+
+    /**
+     * The system property naming the operator recorded as the author of the changes.
+     */
+    public static final String OPERATOR_PROPERTY = "audit.operator";
+
+    /**
+     * The default directory of the shared trail.
+     */
+    public static final String DEFAULT_DIRECTORY = "Audit";
+
+    /**
+     * The file receiving the newest records.
+     */
+    public static final String FILE_NAME = "audit.log";
+
+    /**
+     * The header of every log file, {@code "AUD1"}.
+     */
+    static final int MAGIC = 0x41554431;
+
+    /**
+     * The default number of records the buffer holds.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The first nap of an idle writer; each next one is twice as long.
+     */
+    private static final long FIRST_NAP_NANOS = 100_000;
+
+    /**
+     * The number of naps of an idle writer before it sleeps until a record wakes it.
+     */
+    private static final int NAPS = 7;
+
+    /**
+     * A trail recording nothing, used when auditing is turned off.
+     */
+    public static final AuditTrail DISABLED = new AuditTrail();
+
+    /**
+     * Holds the shared trail, opened on first use.
+     */
+    private static final class Shared {
+        static final AuditTrail TRAIL = open();
+
+        private static AuditTrail open() {
+            if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+                return DISABLED;
+            }
+            AuditTrail trail = new AuditTrail(new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)),
+                    Long.getLong(FILE_KB_PROPERTY, 1024) * 1024, Integer.getInteger(FILES_PROPERTY, 8), DEFAULT_CAPACITY,
+                    System.getProperty(OPERATOR_PROPERTY, System.getProperty("user.name", "unknown")));
+            Runtime.getRuntime().addShutdownHook(new Thread(trail::close, "audit-shutdown"));
+            return trail;
+        }
+    }
+
+    /**
+     * The records waiting to be written, or {@code null} when disabled.
+     */
+    private final RingBuffer<AuditRecord> buffer;
+
+    /**
+     * The directory of the log files.
+     */
+    private final File directory;
+
+    /**
+     * The size cap of a log file, in bytes.
+     */
+    private final long maxFileBytes;
+
+    /**
+     * The number of log files kept, the current one included.
+     */
+    private final int files;
+
+    /**
+     * The operator recorded as the author of the changes.
+     */
+    private final String operator;
+
+    /**
+     * The number of records dropped because the buffer was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The number of records written, only updated by the writer.
+     */
+    private volatile long written;
+
+    /**
+     * The number of log files rotated, only updated by the writer.
+     */
+    private volatile int rotations;
+
+    /**
+     * Whether the trail was closed; the writer then drains the buffer and stops.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Whether the writer stopped because a log file could not be written.
+     */
+    private volatile boolean failed;
+
+    /**
+     * Whether the writer is parked, or about to park, on an empty buffer.
+     */
+    private volatile boolean sleeping;
+
+    /**
+     * The thread writing the records, or {@code null} when disabled.
+     */
+    private final Thread writer;
+
+    /**
+     * The stream of the current log file, only used by the writer.
+     */
+    private DataOutputStream out;
+
+    /**
+     * The size of the current log file, only used by the writer.
+     */
+    private long fileBytes;
+
+    /**
+     * The bytes of the record being written, only used by the writer.
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(256);
+
+    /**
+     * Constructs the trail recording nothing.
+     */
+    private AuditTrail() {
+        this.buffer = null;
+        this.directory = null;
+        this.maxFileBytes = 0;
+        this.files = 0;
+        this.operator = null;
+        this.writer = null;
+    }
+
+    /**
+     * Constructs a trail and starts its writer.
+     *
+     * @param directory    the directory of the log files, created if needed
+     * @param maxFileBytes the size cap of a log file, in bytes
+     * @param files        the number of log files kept, at least 1
+     * @param capacity     the number of records the buffer holds
+     * @param operator     the operator recorded as the author of the changes
+     */
+    public AuditTrail(File directory, long maxFileBytes, int files, int capacity, String operator) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.files = Math.max(1, files);
+        this.operator = operator;
+        this.writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the shared trail of the desk, opening it on first use.
+     *
+     * @return the shared trail, or {@link #DISABLED} if auditing is turned off
+     */
+    public static AuditTrail shared() {
+        return Shared.TRAIL;
+    }
+
+    /**
+     * Describes the values of a registration for a record.
+     *
+     * @param registration the registration
+     * @return its name, email, phone and mountain code
+     */
+    public static String describe(Registration registration) {
+        return registration.getName() + ", " + registration.getEmail() + ", " + registration.getPhone()
+                + ", mountain " + registration.getMountainCode();
+    }
+
+    /**
+     * Records a change without waiting.
+     *
+     * @param operation the operation
+     * @param studentId the student ID of the changed registration
+     * @param field     the changed field, or {@code null} when the whole registration changed
+     * @param before    the value before the change, or {@code null}
+     * @param after     the value after the change, or {@code null}
+     * @return {@code true} if the record was buffered; {@code false} if it was dropped or the trail is off
+     */
+    public boolean record(AuditRecord.Operation operation, String studentId, String field, String before, String after) {
+        if (buffer == null || closed) {
+            return false;
+        }
+        if (failed) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (buffer.offer(new AuditRecord(System.currentTimeMillis(), operation, operator, studentId, field, before, after))) {
+            // The record is published with a release store; the fence keeps the check of a
+            // sleeping writer after it, so the writer either sees the record or gets woken.
+            VarHandle.fullFence();
+            if (sleeping) {
+                LockSupport.unpark(writer);
+            }
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Returns the file of a given age.
+     *
+     * @param directory the directory of the log files
+     * @param age       0 for the current file, 1 for the one before, and so on
+     * @return the log file
+     */
+    static File fileOf(File directory, int age) {
+        return new File(directory, age == 0 ? FILE_NAME : "audit." + age + ".log");
+    }
+
+    /**
+     * Opens the current log file for appending, writing the header of a new file.
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    private void openFile() throws IOException {
+        directory.mkdirs();
+        File file = fileOf(directory, 0);
+        fileBytes = file.length();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16));
+        if (fileBytes == 0) {
+            out.writeInt(MAGIC);
+            fileBytes = Integer.BYTES;
+        }
+    }
+
+    /**
+     * Closes the current log file and shifts every file one age up, deleting the oldest.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    private void rotate() throws IOException {
+        out.close();
+        fileOf(directory, files - 1).delete();
+        for (int age = files - 2; age >= 0; age--) {
+            fileOf(directory, age).renameTo(fileOf(directory, age + 1));
+        }
+        rotations++;
+        openFile();
+    }
+
+    /**
+     * Writes the buffered records until the trail is closed, then the last ones.
+     * <p>
+     * Each record is serialized before it is written, so the file is rotated first when the
+     * record would take it over its cap; only a record larger than the cap fills a file alone.
+     * Once the trail has failed, the records still reaching the buffer are counted as dropped.
+     * </p>
+     */
+    private void drain() {
+        DataOutputStream record = new DataOutputStream(pending);
+        try {
+            openFile();
+        } catch (IOException e) {
+            fail(e);
+        }
+        int naps = 0;
+        while (true) {
+            boolean stopping = closed;
+            AuditRecord next = buffer.poll();
+            if (next == null) {
+                if (stopping) {
+                    break;
+                }
+                if (naps == 0) {
+                    flush();
+                }
+                if (naps < NAPS) {
+                    LockSupport.parkNanos(FIRST_NAP_NANOS << naps++);
+                    continue;
+                }
+                sleeping = true;
+                if (buffer.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+                naps = 0;
+                continue;
+            }
+            naps = 0;
+            if (failed) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            try {
+                pending.reset();
+                next.writeTo(record);
+                if (fileBytes > Integer.BYTES && fileBytes + pending.size() > maxFileBytes) {
+                    rotate();
+                }
+                pending.writeTo(out);
+                fileBytes += pending.size();
+                written++;
+            } catch (IOException e) {
+                fail(e);
+                dropped.incrementAndGet();
+            }
+        }
+        if (!failed) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Flushes the current log file, failing the trail if it cannot be written.
+     */
+    private void flush() {
+        if (failed) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Stops writing for good after a log file could not be written.
+     *
+     * @param e the failure
+     */
+    private void fail(IOException e) {
+        failed = true;
+        System.err.println("The audit trail stopped: " + e.getMessage());
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                // The file is already unusable.
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records and stops the writer; later records are ignored.
+     */
+    @Override
+    public void close() {
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of records written to the log files.
+     *
+     * @return the written count
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Returns the number of records dropped because the buffer was full or the writer failed.
+     *
+     * @return the dropped count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Checks whether the writer stopped because a log file could not be written.
+     *
+     * @return {@code true} if the trail no longer records
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of log files rotated.
+     *
+     * @return the rotation count
+     */
+    public int getRotations() {
+        return rotations;
+    }
+
+    /**
+     * Returns the directory of the log files.
+     *
+     * @return the directory, or {@code null} if the trail is off
+     */
+    public File getDirectory() {
+        return directory;
+    }
+}
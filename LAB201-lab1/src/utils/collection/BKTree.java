@@ -0,0 +1,192 @@
+package utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A Burkhard-Keller tree answering "all elements within distance k" queries under a metric.
+ * <p>
+ * Every child of a node is filed under its distance to the node. By the triangle inequality,
+ * an element within distance {@code k} of the query can only be found under the children whose
+ * distance lies in {@code [d - k, d + k]}, where {@code d} is the distance from the query to the
+ * node, so a search only computes the distance to a small part of the elements.
+ * </p>
+ * <p>
+ * Elements at distance 0 from a node that are not equal to it (for a case-insensitive metric,
+ * the same word with another capitalization) are kept in that node.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ * @author ho huy
+ */
+public class BKTree<E> {
+
+    /**
+     * A node of the tree.
+     *
+     * @param <E> the type of the elements
+     */
+    private static final class Node<E> {
+
+        /**
+         * The elements of the node, all at distance 0 from each other.
+         */
+        final List<E> elements = new ArrayList<>(1);
+
+        /**
+         * The children of the node, by distance to the node.
+         */
+        final Map<Integer, Node<E>> children = new HashMap<>();
+
+        Node(E element) {
+            elements.add(element);
+        }
+    }
+
+    /**
+     * An element found by a search, with its distance to the query.
+     *
+     * @param <E> the type of the element
+     */
+    public static final class Match<E> {
+
+        /**
+         * The element found.
+         */
+        private final E element;
+
+        /**
+         * The distance from the query to the element.
+         */
+        private final int distance;
+
+        Match(E element, int distance) {
+            this.element = element;
+            this.distance = distance;
+        }
+
+        /**
+         * Returns the element found.
+         *
+         * @return the element
+         */
+        public E getElement() {
+            return element;
+        }
+
+        /**
+         * Returns the distance from the query to the element.
+         *
+         * @return the distance
+         */
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * The metric between elements.
+     */
+    private final ToIntBiFunction<? super E, ? super E> metric;
+
+    /**
+     * The root node, or {@code null} if the tree is empty.
+     */
+    private Node<E> root;
+
+    /**
+     * The number of elements in the tree.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty tree.
+     *
+     * @param metric the metric between elements; it must satisfy the triangle inequality
+     */
+    public BKTree(ToIntBiFunction<? super E, ? super E> metric) {
+        this.metric = metric;
+    }
+
+    /**
+     * Adds an element to the tree.
+     *
+     * @param element the element to add
+     * @return {@code true} if the element was added; {@code false} if it was already present
+     */
+    public boolean add(E element) {
+        if (root == null) {
+            root = new Node<>(element);
+            size++;
+            return true;
+        }
+        Node<E> node = root;
+        while (true) {
+            int distance = metric.applyAsInt(element, node.elements.get(0));
+            if (distance == 0) {
+                if (node.elements.contains(element)) {
+                    return false;
+                }
+                node.elements.add(element);
+                size++;
+                return true;
+            }
+            Node<E> child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node<>(element));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds every element within a distance of the query, closest first.
+     *
+     * @param query       the element to search around
+     * @param maxDistance the largest distance accepted
+     * @param order       the order of elements at the same distance
+     * @return the matches, ordered by distance and then by the given order
+     */
+    public List<Match<E>> search(E query, int maxDistance, Comparator<? super E> order) {
+        List<Match<E>> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node<E>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<E> node = pending.pop();
+            int distance = metric.applyAsInt(query, node.elements.get(0));
+            if (distance <= maxDistance) {
+                for (E element : node.elements) {
+                    matches.add(new Match<>(element, distance));
+                }
+            }
+            for (Map.Entry<Integer, Node<E>> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        matches.sort(Comparator.<Match<E>>comparingInt(Match::getDistance)
+                .thenComparing(Match::getElement, order));
+        return matches;
+    }
+
+    /**
+     * Returns the number of elements in the tree.
+     *
+     * @return the element count
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,163 @@
+package utils.collection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache whose entries are stamped with the generation of the data they were computed from.
+ * <p>
+ * The data source bumps a generation counter on every mutation. A lookup only hits when the
+ * entry was stored under the current generation, so stale entries are invalidated without
+ * having to notify the cache from every call site that mutates the data.
+ * </p>
+ * <p>
+ * When the cache is full, the least recently used entry is evicted.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ * 
+ * @author ho huy
+ */
+public class GenerationCache<K, V> {
+
+    /**
+     * A cached value together with the generation it was computed at.
+     */
+    private static class Entry<V> {
+        private final long generation;
+        private final V value;
+
+        Entry(long generation, V value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The maximum number of entries.
+     */
+    private final int capacity;
+
+    /**
+     * The cached entries, in access order.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that found no current entry.
+     */
+    private long misses;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity the maximum number of entries, at least 1
+     */
+    public GenerationCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The cache capacity must be at least 1!");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, GenerationCache.Entry<V>> eldest) {
+                return size() > GenerationCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up the value cached for a key at the given generation.
+     * <p>
+     * An entry stored at an older generation is treated as a miss and dropped.
+     * </p>
+     *
+     * @param key        the key to look up
+     * @param generation the current generation of the data
+     * @return the cached value, or {@code null} on a miss
+     */
+    public synchronized V get(K key, long generation) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.generation != generation) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Stores a value computed at the given generation.
+     *
+     * @param key        the key of the value
+     * @param generation the generation of the data the value was computed from
+     * @param value      the value to cache
+     */
+    public synchronized void put(K key, long generation, V value) {
+        entries.put(key, new Entry<>(generation, value));
+    }
+
+    /**
+     * Removes every entry and resets the hit and miss counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the current number of entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that missed.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there was no lookup
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
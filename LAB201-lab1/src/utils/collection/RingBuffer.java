@@ -0,0 +1,126 @@
+package utils.collection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free queue for many producers and one consumer.
+ * <p>
+ * Each slot carries a sequence number telling whose turn it is: a producer claims the next
+ * position with one compare-and-set on the tail, stores its element and publishes the slot by
+ * advancing its sequence; the consumer takes the element once the slot is published and hands
+ * the slot back to the producers of the next lap. A producer never waits: when the consumer
+ * is a whole lap behind, {@link #offer(Object)} fails at once and the caller decides what to do.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ * 
+ * @author ho huy
+ */
+public class RingBuffer<E> {
+
+    /**
+     * The elements, by position modulo the capacity.
+     */
+    private final Object[] elements;
+
+    /**
+     * The sequence number of each slot: its position when free for a producer, its position
+     * plus one once published for the consumer.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * The capacity minus one, the capacity being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * The next position claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position taken by the consumer, only read and written by the consumer.
+     */
+    private long head;
+
+    /**
+     * Constructs an empty ring buffer.
+     *
+     * @param capacity the largest number of elements held, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The capacity must be from 1 to 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = capacity == 1 ? 1 : size;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element without waiting; may be called from any thread.
+     *
+     * @param element the element to add
+     * @return {@code true} if the element was added; {@code false} if the buffer is full
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) (position & mask);
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[slot] = element;
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+            } else if (lag < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest published element; must only be called from the consumer thread.
+     *
+     * @return the oldest element, or {@code null} if none is published
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int slot = (int) (head & mask);
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E element = (E) elements[slot];
+        elements[slot] = null;
+        sequences.lazySet(slot, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Checks whether no element is published; must only be called from the consumer thread.
+     *
+     * @return {@code true} if {@link #poll()} would return {@code null}
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Returns the largest number of elements held.
+     *
+     * @return the capacity, a power of two
+     */
+    public int getCapacity() {
+        return elements.length;
+    }
+}
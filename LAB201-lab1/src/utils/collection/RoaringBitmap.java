@@ -0,0 +1,509 @@
+package utils.collection;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative integers in the style of Roaring bitmaps.
+ * <p>
+ * The integers are split by their high 16 bits into chunks of 65,536 values. A chunk holding at most
+ * {@value #ARRAY_MAX} values is stored as a sorted array of its low 16 bits (2 bytes per value); a denser
+ * chunk is stored as a plain bitmap of 1,024 words (8 KiB). Intersections work chunk by chunk with the
+ * cheapest algorithm for each pair of representations, and {@link #andCardinality(RoaringBitmap...)}
+ * counts an intersection without building it.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class RoaringBitmap {
+
+    /**
+     * The largest number of values stored in an array chunk.
+     */
+    static final int ARRAY_MAX = 4096;
+
+    /**
+     * The values of one chunk, by their low 16 bits.
+     */
+    private abstract static class Container {
+
+        /**
+         * Adds a value.
+         *
+         * @param x the low 16 bits of the value
+         * @return the container holding the result, possibly converted
+         */
+        abstract Container add(char x);
+
+        /**
+         * Removes a value.
+         *
+         * @param x the low 16 bits of the value
+         * @return the container holding the result, possibly converted
+         */
+        abstract Container remove(char x);
+
+        abstract boolean contains(char x);
+
+        abstract int cardinality();
+
+        /**
+         * Intersects with another container.
+         *
+         * @param other the other container
+         * @return a new container holding the common values
+         */
+        abstract Container and(Container other);
+
+        /**
+         * Counts the values in common with another container.
+         *
+         * @param other the other container
+         * @return the size of the intersection
+         */
+        abstract int andCardinality(Container other);
+
+        /**
+         * Passes every value to a consumer, in ascending order.
+         *
+         * @param high     the high 16 bits of the chunk
+         * @param consumer the consumer of the full values
+         */
+        abstract void forEach(int high, IntConsumer consumer);
+
+        abstract long sizeInBytes();
+    }
+
+    /**
+     * A sparse chunk stored as a sorted array.
+     */
+    private static final class ArrayContainer extends Container {
+
+        char[] values;
+        int cardinality;
+
+        ArrayContainer(int capacity) {
+            values = new char[Math.max(capacity, 4)];
+        }
+
+        @Override
+        Container add(char x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, x);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(x);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = x;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, x);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char x) {
+            return Arrays.binarySearch(values, 0, cardinality, x) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+
+        @Override
+        Container and(Container other) {
+            ArrayContainer result = new ArrayContainer(Math.min(cardinality, other.cardinality()));
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < o.cardinality) {
+                    if (values[i] < o.values[j]) {
+                        i++;
+                    } else if (values[i] > o.values[j]) {
+                        j++;
+                    } else {
+                        result.values[result.cardinality++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result.values[result.cardinality++] = values[i];
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < o.cardinality) {
+                    if (values[i] < o.values[j]) {
+                        i++;
+                    } else if (values[i] > o.values[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 2L * values.length;
+        }
+    }
+
+    /**
+     * A dense chunk stored as a bitmap.
+     */
+    private static final class BitmapContainer extends Container {
+
+        final long[] words = new long[1024];
+        int cardinality;
+
+        @Override
+        Container add(char x) {
+            long bit = 1L << x;
+            if ((words[x >>> 6] & bit) == 0) {
+                words[x >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char x) {
+            long bit = 1L << x;
+            if ((words[x >>> 6] & bit) != 0) {
+                words[x >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality <= ARRAY_MAX / 2) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer(cardinality);
+            forEach(0, x -> array.values[array.cardinality++] = (char) x);
+            return array;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer o = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & o.words[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            BitmapContainer o = (BitmapContainer) other;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                count += Long.bitCount(words[i] & o.words[i]);
+            }
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 8L * words.length;
+        }
+    }
+
+    /**
+     * The high 16 bits of each chunk, in ascending order.
+     */
+    private char[] keys = new char[4];
+
+    /**
+     * The chunks, in the order of their keys.
+     */
+    private Container[] containers = new Container[4];
+
+    /**
+     * The number of chunks.
+     */
+    private int size;
+
+    /**
+     * Finds the position of a chunk.
+     *
+     * @param high the high 16 bits of the chunk
+     * @return the position of the chunk, or {@code -(insertion point) - 1} if absent
+     */
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param x the non-negative value to add
+     */
+    public void add(int x) {
+        char high = (char) (x >>> 16);
+        int i = find(high);
+        if (i < 0) {
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(containers, i, containers, i + 1, size - i);
+            keys[i] = high;
+            containers[i] = new ArrayContainer(4);
+            size++;
+        }
+        containers[i] = containers[i].add((char) x);
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param x the value to remove
+     */
+    public void remove(int x) {
+        int i = find((char) (x >>> 16));
+        if (i < 0) {
+            return;
+        }
+        containers[i] = containers[i].remove((char) x);
+        if (containers[i].cardinality() == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            containers[--size] = null;
+        }
+    }
+
+    /**
+     * Checks whether the set holds a value.
+     *
+     * @param x the value
+     * @return {@code true} if the value is in the set
+     */
+    public boolean contains(int x) {
+        int i = find((char) (x >>> 16));
+        return i >= 0 && containers[i].contains((char) x);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return the cardinality
+     */
+    public int getCardinality() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += containers[i].cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Passes every value to a consumer, in ascending order.
+     *
+     * @param consumer the consumer of the values
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory used by the set.
+     *
+     * @return the approximate size in bytes
+     */
+    public long sizeInBytes() {
+        long bytes = 32 + 6L * keys.length;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Computes the intersection of several sets.
+     *
+     * @param bitmaps the sets to intersect, at least one
+     * @return a new set holding the values common to every set
+     */
+    public static RoaringBitmap and(RoaringBitmap... bitmaps) {
+        RoaringBitmap result = new RoaringBitmap();
+        intersect(bitmaps, (high, container) -> {
+            if (result.size == result.keys.length) {
+                result.keys = Arrays.copyOf(result.keys, result.size * 2);
+                result.containers = Arrays.copyOf(result.containers, result.size * 2);
+            }
+            result.keys[result.size] = high;
+            result.containers[result.size++] = container;
+            return container.cardinality();
+        });
+        return result;
+    }
+
+    /**
+     * Counts the values common to several sets without building their intersection.
+     * <p>
+     * For each chunk present in every set, all but the last container are intersected and the
+     * result is only counted against the last one.
+     * </p>
+     *
+     * @param bitmaps the sets to intersect, at least one
+     * @return the size of the intersection
+     */
+    public static long andCardinality(RoaringBitmap... bitmaps) {
+        return intersect(bitmaps, null);
+    }
+
+    /**
+     * Receives the non-empty chunks of an intersection.
+     */
+    private interface ChunkSink {
+
+        int accept(char high, Container container);
+    }
+
+    /**
+     * Walks the chunks common to every set, smallest set first.
+     *
+     * @param bitmaps the sets to intersect
+     * @param sink    the receiver of each intersected chunk, or {@code null} to count only
+     * @return the size of the intersection
+     */
+    private static long intersect(RoaringBitmap[] bitmaps, ChunkSink sink) {
+        RoaringBitmap[] sets = bitmaps.clone();
+        Arrays.sort(sets, (a, b) -> Integer.compare(a.size, b.size));
+        RoaringBitmap smallest = sets[0];
+        long count = 0;
+        Container[] chunk = new Container[sets.length];
+        chunks:
+        for (int k = 0; k < smallest.size; k++) {
+            char high = smallest.keys[k];
+            chunk[0] = smallest.containers[k];
+            for (int s = 1; s < sets.length; s++) {
+                int i = sets[s].find(high);
+                if (i < 0) {
+                    continue chunks;
+                }
+                chunk[s] = sets[s].containers[i];
+            }
+            if (sink == null) {
+                if (sets.length == 1) {
+                    count += chunk[0].cardinality();
+                    continue;
+                }
+                Container partial = chunk[0];
+                for (int s = 1; s < sets.length - 1 && partial.cardinality() > 0; s++) {
+                    partial = partial.and(chunk[s]);
+                }
+                count += partial.andCardinality(chunk[sets.length - 1]);
+                continue;
+            }
+            Container partial = sets.length == 1 ? copy(chunk[0]) : chunk[0];
+            for (int s = 1; s < sets.length && partial.cardinality() > 0; s++) {
+                partial = partial.and(chunk[s]);
+            }
+            if (partial.cardinality() > 0) {
+                count += sink == null ? partial.cardinality() : sink.accept(high, partial);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies a container, so a result never shares a chunk with an input.
+     *
+     * @param container the container to copy
+     * @return a container holding the same values
+     */
+    private static Container copy(Container container) {
+        return container.and(container);
+    }
+}
@@ -0,0 +1,56 @@
+package utils.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Utility class for selecting the K greatest elements of a collection.
+ * <p>
+ * The selection keeps a bounded min-heap of at most {@code k} elements, so the
+ * cost is O(n log K) instead of the O(n log n) needed to sort the whole input.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class TopK {
+
+    /**
+     * Selects the {@code k} greatest elements of the source according to the given order.
+     * <p>
+     * The heap root is always the smallest of the current candidates, so each new
+     * element only replaces it when it ranks higher. The result is returned in
+     * descending order.
+     * </p>
+     *
+     * @param <E>    the type of the elements
+     * @param source the elements to select from
+     * @param k      the maximum number of elements to return
+     * @param order  the comparator defining the ranking (greater means better)
+     * @return a list of at most {@code k} elements, best first
+     */
+    public static <E> List<E> select(Iterable<E> source, int k, Comparator<? super E> order) {
+        List<E> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+
+        PriorityQueue<E> heap = new PriorityQueue<>(Math.min(k, 64), order);
+        for (E e : source) {
+            if (heap.size() < k) {
+                heap.offer(e);
+            } else if (order.compare(e, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(e);
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
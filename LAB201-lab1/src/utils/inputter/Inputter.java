@@ -47,7 +47,7 @@ public class Inputter {
         while (true) {
             System.out.format(format, param);
             input = sc.nextLine();
-            if (!input.matches(YN_REGEX)) {
+            if (!Validators.matches(input, YN_REGEX)) {
                 System.out.format(errorMSG, "boolean input for question", "The input format must be in [y/n]!");
             } else {
                 break;
@@ -130,7 +130,8 @@ public class Inputter {
      * <p>
      * If the provided regex equals the predefined {@link #NAME_REGEX}, a specific error message
      * regarding the length requirement is displayed. Otherwise, a generic error message is shown
-     * if the input does not match the regex.
+     * if the input does not match the regex. Each attempt is matched once, with the validator
+     * registered for the regex (see {@link Validators}).
      * </p>
      *
      * @param fieldName the name of the field for which input is requested
@@ -138,12 +139,14 @@ public class Inputter {
      * @return the string entered by the user that matches the given regular expression
      */
     public static String inputMatchPattern(String fieldName, String regex) {
+        Validator validator = Validators.forRegex(regex);
         while (true) {
             System.out.format(inputMSG, fieldName);
             String input = sc.nextLine().trim();
-            if (!input.matches(regex) && regex.equals(NAME_REGEX)) {
+            boolean matches = validator.matches(input);
+            if (!matches && regex.equals(NAME_REGEX)) {
                 System.out.format(errorMSG, fieldName, "The " + fieldName + " must have the length between 2 to 20 characters!");
-            } else if (!input.matches(regex)) {
+            } else if (!matches) {
                 System.out.format(errorMSG, fieldName, "Input must match the pattern for " + fieldName + '!');
             } else {
                 System.out.println();
@@ -0,0 +1,18 @@
+package utils.inputter;
+
+/**
+ * Checks whether a whole input matches a format, as {@link String#matches(String)} does.
+ * 
+ * @author ho huy
+ */
+@FunctionalInterface
+public interface Validator {
+
+    /**
+     * Checks whether the whole input matches the format.
+     *
+     * @param input the input to check
+     * @return {@code true} if the input matches
+     */
+    boolean matches(CharSequence input);
+}
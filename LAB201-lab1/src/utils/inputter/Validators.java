@@ -0,0 +1,156 @@
+package utils.inputter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import model.Registration;
+import untils.acceptable.RegistrationAcceptable;
+
+/**
+ * Registry of the {@link Validator}s of the input formats, by regular expression.
+ * <p>
+ * {@link String#matches(String)} compiles its pattern on every call. The registry compiles each
+ * regular expression once, on first use, and keeps the compiled {@link Pattern}.
+ * {@link RegistrationAcceptable#CAMPUS_REGEX} and {@link RegistrationAcceptable#PHONE_REGEX} are
+ * registered with hand-written matchers instead, which check the characters in place and allocate
+ * nothing; {@code tools.ValidatorBenchmark} measures them several times faster than the compiled
+ * patterns. The student ID is left to its compiled pattern, which a matcher did not reliably beat.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public final class Validators {
+
+    /**
+     * The validators by regular expression.
+     */
+    private static final Map<String, Validator> REGISTRY = new ConcurrentHashMap<>();
+
+    static {
+        REGISTRY.put(RegistrationAcceptable.CAMPUS_REGEX, Validators::isCampus);
+        REGISTRY.put(RegistrationAcceptable.PHONE_REGEX, Validators::isPhone);
+    }
+
+    private Validators() {
+    }
+
+    /**
+     * Returns the validator of a regular expression, compiling it on first use.
+     *
+     * @param regex the regular expression
+     * @return the validator matching whole inputs against the expression
+     */
+    public static Validator forRegex(String regex) {
+        Validator validator = REGISTRY.get(regex);
+        if (validator == null) {
+            Pattern pattern = Pattern.compile(regex);
+            validator = REGISTRY.computeIfAbsent(regex, r -> input -> pattern.matcher(input).matches());
+        }
+        return validator;
+    }
+
+    /**
+     * Checks whether a whole input matches a regular expression.
+     *
+     * @param input the input to check
+     * @param regex the regular expression
+     * @return {@code true} if the input matches
+     */
+    public static boolean matches(CharSequence input, String regex) {
+        return forRegex(regex).matches(input);
+    }
+
+    /**
+     * Checks whether a character is a campus letter, one of {@code S H D Q C}.
+     *
+     * @param c the character
+     * @return {@code true} if it is a campus letter
+     */
+    private static boolean isCampusLetter(char c) {
+        return c == 'S' || c == 'H' || c == 'D' || c == 'Q' || c == 'C';
+    }
+
+    /**
+     * Checks whether a character is an ASCII digit, as {@code \d} and {@code [0-9]} match.
+     *
+     * @param c the character
+     * @return {@code true} if it is a digit
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Matches {@link RegistrationAcceptable#CAMPUS_REGEX}: a campus letter and {@code E}.
+     *
+     * @param input the input to check
+     * @return {@code true} if the input is a campus code
+     */
+    public static boolean isCampus(CharSequence input) {
+        return input.length() == 2 && isCampusLetter(input.charAt(0)) && input.charAt(1) == 'E';
+    }
+
+    /**
+     * Matches {@link RegistrationAcceptable#PHONE_REGEX}: one or more prefixes {@code 84} or
+     * {@code 0} and a digit, then eight digits.
+     * <p>
+     * Every character is a digit, so the number of prefixes follows from the length: a phone
+     * has an even length of at least ten, and each two-digit prefix before the last eight
+     * digits is {@code 84} or starts with {@code 0}.
+     * </p>
+     *
+     * @param input the input to check
+     * @return {@code true} if the input is a phone number
+     */
+    public static boolean isPhone(CharSequence input) {
+        int length = input.length();
+        if (length < 10 || length % 2 != 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!isDigit(input.charAt(i))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < length - 8; i += 2) {
+            if (input.charAt(i) != '0' && (input.charAt(i) != '8' || input.charAt(i + 1) != '4')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks every field of a registration against its format and reports all the errors.
+     * <p>
+     * The mountain code is not checked: whether it exists depends on the loaded mountains.
+     * </p>
+     *
+     * @param registration the registration to check
+     * @return one message per invalid field, empty if every field is valid
+     */
+    public static List<String> validate(Registration registration) {
+        List<String> errors = new ArrayList<>(0);
+        check(errors, "student ID", registration.getStudentId(), RegistrationAcceptable.STUDENT_ID_REGEX);
+        check(errors, "student name", registration.getName(), RegistrationAcceptable.NAME_REGEX);
+        check(errors, "student email", registration.getEmail(), RegistrationAcceptable.EMAIL_REGEX);
+        check(errors, "student phone", registration.getPhone(), RegistrationAcceptable.PHONE_REGEX);
+        return errors;
+    }
+
+    /**
+     * Adds an error message when a field does not match its format.
+     *
+     * @param errors    the messages reported so far
+     * @param fieldName the name of the field
+     * @param value     the value of the field
+     * @param regex     the format of the field
+     */
+    private static void check(List<String> errors, String fieldName, String value, String regex) {
+        if (value == null || !matches(value, regex)) {
+            errors.add("The " + fieldName + " [" + value + "] does not match the pattern for " + fieldName + '!');
+        }
+    }
+}
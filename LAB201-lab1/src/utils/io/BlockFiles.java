@@ -0,0 +1,97 @@
+package utils.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Opens data files that may or may not be block-compressed.
+ * <p>
+ * Compression on save is optional and chosen with the {@value #LEVEL_PROPERTY} system
+ * property (a deflate level from 0 to 9); without it files are written uncompressed as
+ * before. Loading detects the container header, so compressed and old uncompressed files
+ * are both read transparently.
+ * </p>
+ *
+ * @author ho huy
+ */
+public final class BlockFiles {
+
+    /**
+     * The system property holding the deflate level used when saving.
+     */
+    public static final String LEVEL_PROPERTY = "data.compression.level";
+
+    /**
+     * The buffer size of the file streams.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BlockFiles() {
+    }
+
+    /**
+     * Returns the configured deflate level.
+     *
+     * @return the level from 0 to 9, or {@code null} if files are saved uncompressed
+     */
+    public static Integer level() {
+        return Integer.getInteger(LEVEL_PROPERTY);
+    }
+
+    /**
+     * Opens a data file for reading, inflating it if it is block-compressed.
+     *
+     * @param fileName the file to read
+     * @return a buffered stream over the file contents
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream openInput(String fileName) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(fileName), BUFFER_SIZE);
+        in.mark(4);
+        int magic;
+        try {
+            magic = new DataInputStream(in).readInt();
+        } catch (IOException e) {
+            magic = 0;
+        }
+        in.reset();
+        return magic == BlockDeflaterOutputStream.MAGIC ? new BlockInflaterInputStream(in) : in;
+    }
+
+    /**
+     * Opens a data file for writing, block-compressed if a level is configured.
+     *
+     * @param fileName the file to write
+     * @return a buffered stream into the file
+     * @throws IOException if the file cannot be created
+     */
+    public static OutputStream openOutput(String fileName) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName), BUFFER_SIZE);
+        Integer level = level();
+        return level == null ? out : new BlockDeflaterOutputStream(out, level);
+    }
+
+    /**
+     * Describes a finished save for display.
+     *
+     * @param fileName the file that was written
+     * @param out      the stream returned by {@link #openOutput(String)}, already closed
+     * @param nanos    the total time of the save, in nanoseconds
+     * @return a one-line report of size, ratio and timings
+     */
+    public static String report(String fileName, OutputStream out, long nanos) {
+        if (out instanceof BlockDeflaterOutputStream) {
+            BlockDeflaterOutputStream block = (BlockDeflaterOutputStream) out;
+            return String.format("%s: %,d -> %,d bytes (%.1f%%) in %d blocks, deflate %,.1f ms, save %,.1f ms",
+                    fileName, block.getRawBytes(), block.getStoredBytes(), block.getRatio() * 100,
+                    block.getBlocks(), block.getDeflateNanos() / 1e6, nanos / 1e6);
+        }
+        return String.format("%s: uncompressed, save %,.1f ms", fileName, nanos / 1e6);
+    }
+}
@@ -0,0 +1,102 @@
+package utils.jfr;
+
+import java.io.File;
+import java.util.Collection;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a DAO loading or saving its data files.
+ * <p>
+ * The event is begun before the files are opened and finished once they are read or
+ * written. Unless a recording enables it, finishing costs a single check, and the sizes of
+ * the files are only looked up for events that are committed.
+ * </p>
+ *
+ * @author ho huy
+ */
+@Name("lab201.registrations.DataFile")
+@Label("Data File")
+@Category({"LAB201", "Registrations"})
+@Description("A DAO loading or saving its data files")
+@StackTrace(false)
+public class DataFileEvent extends Event {
+
+    /**
+     * The loading operation.
+     */
+    public static final String LOAD = "load";
+
+    /**
+     * The saving operation.
+     */
+    public static final String SAVE = "save";
+
+    /**
+     * The DAO reading or writing the files.
+     */
+    @Label("DAO")
+    public String dao;
+
+    /**
+     * The operation, {@value #LOAD} or {@value #SAVE}.
+     */
+    @Label("Operation")
+    public String operation;
+
+    /**
+     * The names of the files, separated by commas.
+     */
+    @Label("Files")
+    public String files;
+
+    /**
+     * The number of records read or written.
+     */
+    @Label("Records")
+    public int records;
+
+    /**
+     * The size of the files on disk after the operation.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Whether the operation succeeded.
+     */
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    /**
+     * Commits the event if a recording enables it and its duration passes the threshold.
+     *
+     * @param dao       the DAO reading or writing the files
+     * @param operation the operation, {@link #LOAD} or {@link #SAVE}
+     * @param fileNames the names of the files read or written
+     * @param records   the number of records read or written
+     * @param succeeded whether the operation succeeded
+     */
+    public void finish(String dao, String operation, Collection<String> fileNames, int records, boolean succeeded) {
+        if (!shouldCommit()) {
+            return;
+        }
+        long size = 0;
+        for (String fileName : fileNames) {
+            size += new File(fileName).length();
+        }
+        this.dao = dao;
+        this.operation = operation;
+        this.files = String.join(", ", fileNames);
+        this.records = records;
+        this.bytes = size;
+        this.succeeded = succeeded;
+        commit();
+    }
+}
@@ -0,0 +1,76 @@
+package utils.jfr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import utils.viewUtils.ResponseViewUitls;
+
+/**
+ * Starts a flight recording of the application when asked for at startup.
+ * <p>
+ * Recording is off unless the {@value #PROPERTY} system property names the file to write, for
+ * instance {@code -Djfr.record=registrations.jfr}. The recording then uses the bundled
+ * {@value #SETTINGS} configuration, which captures the {@link DataFileEvent} and
+ * {@link ServiceEvent} events with garbage collection, heap and CPU samples, and it is
+ * written to the file when the application exits. The same configuration can be given to
+ * the JVM instead, with
+ * {@code -XX:StartFlightRecording=settings=src/utils/jfr/registrations.jfc,filename=registrations.jfr}.
+ * </p>
+ * <p>
+ * The flight recorder API is why the project targets JDK 11.
+ * </p>
+ *
+ * @author ho huy
+ */
+public final class FlightRecording {
+
+    /**
+     * The system property naming the recording file.
+     */
+    public static final String PROPERTY = "jfr.record";
+
+    /**
+     * The bundled recording configuration, beside this class.
+     */
+    public static final String SETTINGS = "registrations.jfc";
+
+    /**
+     * Prevents instantiation.
+     */
+    private FlightRecording() {
+    }
+
+    /**
+     * Starts the recording if the {@value #PROPERTY} system property is set.
+     *
+     * @return the recording started, or {@code null} if recording is off or cannot start
+     */
+    public static Recording startIfRequested() {
+        String file = System.getProperty(PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        try (InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS)) {
+            if (in == null) {
+                throw new IOException(SETTINGS + " is not bundled");
+            }
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            Recording recording = new Recording(Configuration.create(reader));
+            recording.setName("LAB201 registrations");
+            recording.setToDisk(true);
+            recording.setDestination(Paths.get(file));
+            recording.setDumpOnExit(true);
+            recording.start();
+            return recording;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            ResponseViewUitls.displayError("start the flight recording", String.valueOf(e.getMessage()));
+            return null;
+        }
+    }
+}
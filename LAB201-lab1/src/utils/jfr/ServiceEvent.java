@@ -0,0 +1,91 @@
+package utils.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a search or a statistics computation by a service.
+ * <p>
+ * Unless a recording enables it, finishing the event costs a single check and the query is
+ * not even turned into text.
+ * </p>
+ *
+ * @author ho huy
+ */
+@Name("lab201.registrations.Service")
+@Label("Service Operation")
+@Category({"LAB201", "Registrations"})
+@Description("A search or statistics computation by a registration service")
+@StackTrace(false)
+public class ServiceEvent extends Event {
+
+    /**
+     * The searching operation.
+     */
+    public static final String SEARCH = "search";
+
+    /**
+     * The statistics operation.
+     */
+    public static final String STATISTICS = "statistics";
+
+    /**
+     * The sketch analytics operation.
+     */
+    public static final String SKETCHES = "sketches";
+
+    /**
+     * The service performing the operation.
+     */
+    @Label("Service")
+    public String service;
+
+    /**
+     * The operation performed.
+     */
+    @Label("Operation")
+    public String operation;
+
+    /**
+     * The query searched, or what the statistics are about.
+     */
+    @Label("Query")
+    public String query;
+
+    /**
+     * The number of records, names or groups found.
+     */
+    @Label("Results")
+    public int results;
+
+    /**
+     * Whether the results were served from a cache or an already materialized view.
+     */
+    @Label("Cached")
+    public boolean cached;
+
+    /**
+     * Commits the event if a recording enables it and its duration passes the threshold.
+     *
+     * @param service   the service performing the operation
+     * @param operation the operation performed
+     * @param query     the query searched, turned into text only if the event is committed
+     * @param results   the number of records, names or groups found
+     * @param cached    whether the results were served from a cache or an already materialized view
+     */
+    public void finish(String service, String operation, Object query, int results, boolean cached) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.service = service;
+        this.operation = operation;
+        this.query = String.valueOf(query);
+        this.results = results;
+        this.cached = cached;
+        commit();
+    }
+}
@@ -0,0 +1,65 @@
+package utils.pool;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizing pool for low-cardinality string values.
+ * <p>
+ * Fields such as the mountain code only take a handful of distinct values, but every
+ * deserialized or newly created record holds its own {@code String} instance. Passing
+ * those values through {@link #canonical(String)} collapses equal strings into one
+ * shared instance.
+ * </p>
+ * <p>
+ * Both the keys and the values of the pool are weakly referenced, so a code that is
+ * no longer used by any record can be garbage collected. Unlike {@link String#intern()},
+ * the pool lives on the regular heap and is not shared with the rest of the JVM.
+ * </p>
+ * 
+ * @author ho huy
+ */
+public class StringPool {
+
+    /**
+     * The pooled strings, mapping each value to a weak reference to its canonical instance.
+     */
+    private static final Map<String, WeakReference<String>> POOL = new WeakHashMap<>();
+
+    /**
+     * Returns the canonical instance of the given string.
+     * <p>
+     * If an equal string is already pooled, that instance is returned; otherwise the
+     * given string becomes the canonical instance.
+     * </p>
+     *
+     * @param value the string to canonicalize
+     * @return the canonical instance equal to {@code value}, or {@code null} if {@code value} is {@code null}
+     */
+    public static String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (POOL) {
+            WeakReference<String> ref = POOL.get(value);
+            String pooled = ref == null ? null : ref.get();
+            if (pooled != null) {
+                return pooled;
+            }
+            POOL.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /**
+     * Returns the number of distinct strings currently held by the pool.
+     *
+     * @return the pool size
+     */
+    public static int size() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package utils.text;
+
+/**
+ * Utility class computing edit distances between strings.
+ * 
+ * @author ho huy
+ */
+public class EditDistance {
+
+    /**
+     * Computes the Levenshtein distance between two strings, ignoring case.
+     * <p>
+     * The distance is the minimum number of single-character insertions, deletions and
+     * substitutions turning one string into the other. It is computed with two rows of the
+     * dynamic programming table, in O(|a| * |b|) time and O(|b|) space.
+     * </p>
+     *
+     * @param a the first string
+     * @param b the second string
+     * @return the edit distance between the strings
+     */
+    public static int levenshteinIgnoreCase(CharSequence a, CharSequence b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = Character.toLowerCase(a.charAt(i - 1));
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == Character.toLowerCase(b.charAt(j - 1)) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,32 @@
+package utils.viewUtils;
+
+/**
+ * Receives the lines displayed by the services through {@link ResponseViewUitls}.
+ * <p>
+ * The console sink is the default. A load test installs {@link #DISCARD} or a counting sink so
+ * printing does not dominate the measurements.
+ * </p>
+ * 
+ * @author ho huy
+ */
+@FunctionalInterface
+public interface ResponseSink {
+
+    /**
+     * Prints each line on the console as it is displayed.
+     */
+    ResponseSink CONSOLE = line -> System.out.println(line);
+
+    /**
+     * Drops every line.
+     */
+    ResponseSink DISCARD = line -> {
+    };
+
+    /**
+     * Receives one displayed line.
+     *
+     * @param line the line, without its line separator
+     */
+    void println(String line);
+}
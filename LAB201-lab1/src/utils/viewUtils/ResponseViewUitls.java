@@ -6,6 +6,10 @@ package utils.viewUtils;
  * This class includes methods to generate separator lines, headers, and to display
  * both response and error messages on the console.
  * </p>
+ * <p>
+ * Every displayed line goes through the installed {@link ResponseSink}, the console unless
+ * {@link #setSink(ResponseSink)} replaced it.
+ * </p>
  * 
  * @author ho huy
  */
@@ -15,6 +19,32 @@ public class ResponseViewUitls {
      * The default length for the display line.
      */
     public static final int DISPLAY_LENGTH = 107;
+
+    /**
+     * The sink receiving every displayed line.
+     */
+    private static volatile ResponseSink sink = ResponseSink.CONSOLE;
+
+    /**
+     * Installs the sink receiving every displayed line.
+     *
+     * @param newSink the new sink
+     * @return the sink previously installed
+     */
+    public static ResponseSink setSink(ResponseSink newSink) {
+        ResponseSink previous = sink;
+        sink = newSink;
+        return previous;
+    }
+
+    /**
+     * Displays one line through the installed sink, as {@link System#out} would print the object.
+     *
+     * @param line the line to display
+     */
+    public static void print(Object line) {
+        sink.println(String.valueOf(line));
+    }
     
     /**
      * Creates a line string consisting of '-' characters using the default length ({@link #DISPLAY_LENGTH}).
@@ -63,8 +93,8 @@ public class ResponseViewUitls {
      * @param action the action message to be displayed
      */
     public static void displayResponse(String action) {
-        System.out.println("");
-        System.out.println(">>" + action);
+        print("");
+        print(">>" + action);
     }
     
     /**
@@ -74,8 +104,8 @@ public class ResponseViewUitls {
      * @param reason the reason for the failure
      */
     public static void displayError(String action, String reason) {
-        System.out.println("");
-        System.out.println(">>Fail to " + action);
-        System.out.println("Reason: " + reason);
+        print("");
+        print(">>Fail to " + action);
+        print("Reason: " + reason);
     }
 }
@@ -42,6 +42,13 @@ public class MenuView {
         "Search Participants by Name.",
         "Filter Data by Campus.",
         "Statistics of Registration Numbers by Location.",
+        "Leaderboards of Mountains and Campuses.",
+        "Search Cache Statistics.",
+        "Fuzzy Search Participants by Name.",
+        "Filter by Campus, Mountain and Carrier.",
+        "Display Sorted Registered List by Page.",
+        "Replication Status.",
+        "Students Registered in Several Seasons.",
         "Save Data to File.",
         "Exit the Program."
     };
@@ -70,7 +77,7 @@ public class MenuView {
      * @param choice the number representing the chosen menu option
      */
     public void displayChoice(int choice) {
-        if (choice >= 1 && choice <= 9) {
+        if (choice >= 1 && choice <= menu.length) {
             displayLine();
             System.out.println(">>" + menu[choice - 1]);
         }
@@ -1,16 +1,17 @@
 package dao;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import model.Customer;
+import utils.io.BlockFiles;
+import utils.jfr.DataFileEvent;
 
 /**
  * Data Access Object (DAO) class for managing Customer objects.
@@ -20,6 +21,7 @@ public class CustomerDAO implements Serializable {
     
     private static final String FILE_NAME = "customer.dat"; // File to store customer data
     private Map<String, Customer> map; // Stores customers with their unique code as key
+    private transient String saveReport; // Size, compression ratio and timings of the last save
 
     /**
      * Constructor initializes the customer map by loading data from file.
@@ -34,25 +36,48 @@ public class CustomerDAO implements Serializable {
      * @return A map containing customer data or an empty map if an error occurs.
      */
     public Map<String, Customer> load() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            return (HashMap<String, Customer>) ois.readObject();
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(FILE_NAME))) {
+            Map<String, Customer> read = (HashMap<String, Customer>) ois.readObject();
+            event.finish("CustomerDAO", DataFileEvent.LOAD, FILE_NAME, read.size(), true);
+            return read;
         } catch (IOException | ClassNotFoundException e) {
+            event.finish("CustomerDAO", DataFileEvent.LOAD, FILE_NAME, 0, false);
             return new HashMap<>();
         }
     }
     
     /**
-     * Saves the current customer data to a file.
+     * Saves the current customer data to a file, block-compressed when a level is configured.
      * 
      * @return true if saving is successful, false otherwise.
      */
     public boolean save() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        long start = System.nanoTime();
+        OutputStream written;
+        try (OutputStream out = BlockFiles.openOutput(FILE_NAME);
+                ObjectOutputStream oos = new ObjectOutputStream(out)) {
             oos.writeObject(map);
-            return true;
+            written = out;
         } catch (IOException e) {
+            event.finish("CustomerDAO", DataFileEvent.SAVE, FILE_NAME, 0, false);
             return false;
         }
+        saveReport = BlockFiles.report(FILE_NAME, written, System.nanoTime() - start);
+        event.finish("CustomerDAO", DataFileEvent.SAVE, FILE_NAME, map.size(), true);
+        return true;
+    }
+    
+    /**
+     * Retrieves the size, compression ratio and timings of the last save.
+     * 
+     * @return The report of the last save, or null if nothing has been saved.
+     */
+    public String getSaveReport() {
+        return saveReport;
     }
     
     /**
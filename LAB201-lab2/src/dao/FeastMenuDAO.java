@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import model.FeastMenu;
+import utils.jfr.DataFileEvent;
 
 /**
  * DAO class for managing FeastMenu data, loaded from a CSV file.
@@ -36,6 +37,8 @@ public class FeastMenuDAO {
      * @return A map containing feast menu items indexed by their unique code.
      */
     private Map<String, FeastMenu> load() {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
         Map<String, FeastMenu> read = new HashMap<>();
         String line;
 
@@ -47,8 +50,9 @@ public class FeastMenuDAO {
                 FeastMenu fm = lineToFeastMenu(line);
                 read.put(fm.getCode(), fm);
             }
+            event.finish("FeastMenuDAO", DataFileEvent.LOAD, FILE_NAME, read.size(), true);
         } catch (IOException e) {
-            // Handle error (could log it if needed)
+            event.finish("FeastMenuDAO", DataFileEvent.LOAD, FILE_NAME, read.size(), false);
         }
         return read;
     }
@@ -1,13 +1,14 @@
 package dao;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import model.FeastOrder;
+import utils.io.BlockFiles;
+import utils.jfr.DataFileEvent;
 
 /**
  * Data Access Object (DAO) for managing FeastOrder data.
@@ -22,6 +23,9 @@ public class FeastOrderDAO {
     /** List of FeastOrder objects */
     private List<FeastOrder> list;
 
+    /** Size, compression ratio and timings of the last save, or null if nothing has been saved */
+    private String saveReport;
+
     /**
      * Constructor that initializes the list by loading data from the file.
      */
@@ -36,25 +40,48 @@ public class FeastOrderDAO {
      * @return List of FeastOrder objects
      */
     public List<FeastOrder> load() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            return (ArrayList<FeastOrder>) ois.readObject();
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        try (ObjectInputStream ois = new ObjectInputStream(BlockFiles.openInput(FILE_NAME))) {
+            List<FeastOrder> read = (ArrayList<FeastOrder>) ois.readObject();
+            event.finish("FeastOrderDAO", DataFileEvent.LOAD, FILE_NAME, read.size(), true);
+            return read;
         } catch (IOException | ClassNotFoundException e) {
+            event.finish("FeastOrderDAO", DataFileEvent.LOAD, FILE_NAME, 0, false);
             return new ArrayList<>();
         }
     }
 
     /**
-     * Saves the current list of feast orders to the file.
+     * Saves the current list of feast orders to the file, block-compressed when a level is configured.
      *
      * @return true if saving was successful, false otherwise
      */
     public boolean save() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
+        DataFileEvent event = new DataFileEvent();
+        event.begin();
+        long start = System.nanoTime();
+        OutputStream written;
+        try (OutputStream out = BlockFiles.openOutput(FILE_NAME);
+                ObjectOutputStream oos = new ObjectOutputStream(out)) {
             oos.writeObject(list);
-            return true;
+            written = out;
         } catch (IOException e) {
+            event.finish("FeastOrderDAO", DataFileEvent.SAVE, FILE_NAME, 0, false);
             return false;
         }
+        saveReport = BlockFiles.report(FILE_NAME, written, System.nanoTime() - start);
+        event.finish("FeastOrderDAO", DataFileEvent.SAVE, FILE_NAME, list.size(), true);
+        return true;
+    }
+
+    /**
+     * Retrieves the size, compression ratio and timings of the last save.
+     *
+     * @return the report of the last save, or null if nothing has been saved
+     */
+    public String getSaveReport() {
+        return saveReport;
     }
 
     /**
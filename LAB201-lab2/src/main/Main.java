@@ -2,12 +2,14 @@ package main;
 
 import controller.CliController;
 import java.util.Locale;
+import utils.jfr.FlightRecording;
 
 /**
  * Entry point of the application.
  * <p>
  * This class initializes the application by setting the default locale to US
- * and starting the command-line interface (CLI) controller.
+ * and starting the command-line interface (CLI) controller. A flight recording is
+ * started first when asked for with {@code -Djfr.record=<file>}, see {@link FlightRecording}.
  * </p>
  */
 public class Main {
@@ -21,6 +23,9 @@ public class Main {
         // Set the default locale to US for consistent formatting
         Locale.setDefault(Locale.US);
         
+        // Start the flight recording before any data file is loaded, when asked for
+        FlightRecording.startIfRequested();
+        
         // Create and start the CLI controller
         CliController cc = new CliController();
         cc.start();
@@ -15,6 +15,8 @@ import model.FeastMenu;
 import model.FeastOrder;
 import utils.InputterUtils;
 import utils.MapperUtils;
+import utils.jfr.OrderMappingEvent;
+import utils.jfr.ServiceEvent;
 import utils.rules.CustomerRules;
 
 /**
@@ -37,16 +39,20 @@ public class RetrievalService {
     }
     
     /**
-     * Maps a FeastOrder object to a FeastOrderDTO object.
+     * Maps a FeastOrder object to a FeastOrderDTO object, recorded as an {@link OrderMappingEvent}.
      * 
      * @param feastOrder The feast order to map.
      * @return The corresponding FeastOrderDTO object.
      */
     private FeastOrderDTO mapToDTO(FeastOrder feastOrder){
+        OrderMappingEvent event = new OrderMappingEvent();
+        event.begin();
         Customer customer = cdao.getCustomerByCode(feastOrder.getCustomerCode());
         FeastMenu feastMenu = fmdao.getFeastMenuByCode(feastOrder.getFeastMenuCode());
         int id = fodao.getId(feastOrder) + 1;
-        return MapperUtils.toFeastOrderDTO(id, feastOrder, customer, feastMenu);
+        FeastOrderDTO dto = MapperUtils.toFeastOrderDTO(id, feastOrder, customer, feastMenu);
+        event.finish(id, feastOrder.getCustomerCode(), feastOrder.getFeastMenuCode(), fodao.getList().size());
+        return dto;
     }
     
     /**
@@ -60,21 +66,27 @@ public class RetrievalService {
     }
     
     /**
-     * Retrieves a filtered and mapped list of objects.
+     * Retrieves a filtered and mapped list of objects, recorded as a {@link ServiceEvent}.
      * 
      * @param <E> The type of the elements in the source list.
      * @param <D> The type of the elements in the resulting list.
+     * @param operation The name of the listing or search, for the event.
+     * @param query The value searched, or an empty string for a listing.
      * @param list The list of elements to process.
      * @param mapper The function to map elements.
      * @param condition The filter condition.
      * @return A sorted list of mapped and filtered elements.
      */
-    private <E, D> List<D> retrieve(List<E> list, Function<E, D> mapper, Predicate<D> condition){
-        return list.stream()
+    private <E, D> List<D> retrieve(String operation, String query, List<E> list, Function<E, D> mapper, Predicate<D> condition){
+        ServiceEvent event = new ServiceEvent();
+        event.begin();
+        List<D> found = list.stream()
                 .map(mapper)
                 .filter(condition)
                 .sorted()
                 .collect(Collectors.toList());
+        event.finish("RetrievalService", operation, query, list.size(), found.size());
+        return found;
     }
     
     /**
@@ -84,6 +96,7 @@ public class RetrievalService {
      */
     public List<CustomerDTO> retrieveAllCustomer(){
         return retrieve(
+                "list customers", "",
                 cdao.getList(), 
                 c -> MapperUtils.toCustomerDTO(c),
                 c -> true
@@ -97,6 +110,7 @@ public class RetrievalService {
      */
     public List<FeastMenu> retrieveAllFeastMenu(){
         return retrieve(
+                "list feast menus", "",
                 fmdao.getList(), 
                 c -> c,
                 c -> true
@@ -110,6 +124,7 @@ public class RetrievalService {
      */
     public List<FeastOrderDTO> retrieveAllFeastOrder(){
         return retrieve(
+                "list feast orders", "",
                 fodao.getList(), 
                 f -> mapToDTO(f),
                 f -> true
@@ -125,12 +140,14 @@ public class RetrievalService {
         String input = InputterUtils.inputName(2, 25);
         if(isFullName(input)){
             return retrieve(
+                    "search customers by full name", input,
                     cdao.getList(), 
                     c -> mapToDTO(c), 
                     c -> c.getCustomerName().contains(input)
             );
         }
         return retrieve(
+                "search customers by first name", input,
                 cdao.getList(), 
                 c -> mapToDTO(c),
                 c -> c.getFirstName().contains(input)
@@ -146,6 +163,7 @@ public class RetrievalService {
         String phoneNum = InputterUtils.inputWithPattern("phone number", CustomerRules.Acceptable.PHONE_REGEX);
         
         return retrieve(
+                "search customers by phone", phoneNum,
                 cdao.getList(),
                 c -> mapToDTO(c),
                 c -> c.getPhoneNumber().equals(phoneNum)
@@ -161,6 +179,7 @@ public class RetrievalService {
         String customerName = InputterUtils.inputName(2, 25);
         
         return retrieve(
+                "search feast orders by customer", customerName,
                 fodao.getList(),
                 f -> mapToDTO(f),
                 f -> f.getCustomerName().equals(customerName)
@@ -29,11 +29,13 @@ public class SaveService {
             ResponseViewUtils.displayError("save customer list", "Internal error!");
             return false;
         }
+        ResponseViewUtils.displayResponse(cdao.getSaveReport());
         
         if(!fodao.save()){
             ResponseViewUtils.displayError("save feast order list", "Internal error!");
             return false;
         }
+        ResponseViewUtils.displayResponse(fodao.getSaveReport());
         
         return true;
     }
@@ -0,0 +1,319 @@
+package tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import model.Customer;
+import model.FeastMenu;
+import model.FeastOrder;
+import utils.rules.CustomerRules;
+import utils.rules.FeastMenuRules;
+
+/**
+ * Command line tool generating synthetic data files for the feast order management program.
+ * <p>
+ * The tool writes {@code customer.dat}, {@code feast_order.dat} and {@code FeastMenu.csv} in the exact
+ * formats read by {@code CustomerDAO}, {@code FeastOrderDAO} and {@code FeastMenuDAO}. Customers satisfy
+ * {@link CustomerRules}, menu codes satisfy {@link FeastMenuRules}, every order refers to an existing
+ * customer and menu, and no two orders share the same customer, menu and date.
+ * </p>
+ * <p>
+ * Generation is split into fixed-size chunks, each with its own random stream derived from the seed,
+ * so the chunks run in parallel while the output only depends on the seed and the arguments.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp LAB201-lab2.jar tools.DataGenerator [-c customers] [-f orders] [-m menus] [-s seed] [-o directory]}
+ * </p>
+ */
+public class DataGenerator {
+
+    /** The customer code prefixes. */
+    private static final char[] CODE_PREFIXES = {'C', 'G', 'K'};
+
+    /** The maximum number of customers, bounded by the four digits of a customer code per prefix. */
+    public static final int MAX_CUSTOMERS = CODE_PREFIXES.length * 10_000;
+
+    /** The maximum number of feast menus, bounded by the three digits of a menu code. */
+    public static final int MAX_MENUS = 1_000;
+
+    /** The number of records generated by each parallel task. */
+    private static final int CHUNK_SIZE = 65_536;
+
+    /** The first event date of the generated orders. */
+    private static final LocalDate FIRST_EVENT_DATE = LocalDate.of(2030, 1, 1);
+
+    private static final String[] LAST_NAMES = {
+        "Nguyen", "Tran", "Le", "Pham", "Hoang", "Huynh", "Phan", "Vu", "Vo", "Dang", "Bui", "Do", "Ho", "Ngo"
+    };
+
+    private static final String[] MIDDLE_NAMES = {
+        "Van", "Thi", "Minh", "Duc", "Ngoc", "Thanh", "Huu", "Gia"
+    };
+
+    private static final String[] FIRST_NAMES = {
+        "An", "Binh", "Chau", "Dung", "Giang", "Ha", "Hieu", "Huy", "Khanh", "Lan", "Linh", "Long",
+        "Mai", "Nam", "Nhi", "Phuc", "Quan", "Son", "Tam", "Thao", "Trang", "Tuan", "Viet", "Yen"
+    };
+
+    private static final String[] DOMAINS = {"gmail.com", "outlook.com", "yahoo.com", "fpt.com.vn"};
+
+    private static final String[] PHONE_PREFIXES = {"03", "05", "07", "08", "09"};
+
+    private static final String[] EVENTS = {"Wedding party", "Birthday party", "Company party", "Meeting party", "Anniversary party"};
+
+    private static final String[] STARTERS = {"Crab soup", "Spring rolls", "Banana flower salad", "Beef salad", "Pumpkin soup"};
+
+    private static final String[] MAINS = {"Boiled chicken", "Beef stew", "Seafood hotpot", "Steamed shrimp", "Roast duck", "Grilled fish"};
+
+    private static final String[] DESSERTS = {"Flan", "Fruit", "Coconut jelly", "Orange mousse", "Sweet soup"};
+
+    /**
+     * Generates the given number of customers.
+     * <p>
+     * Customer {@code i} takes its code prefix from {@code i / 10000} and its number from {@code i % 10000},
+     * and the last eight digits of its phone number from {@code i}, which makes codes and phones unique.
+     * </p>
+     *
+     * @param count the number of customers, at most {@link #MAX_CUSTOMERS}
+     * @param seed  the seed of the random streams
+     * @return the generated customers, in code order
+     */
+    public static List<Customer> generateCustomers(int count, long seed) {
+        if (count < 1 || count > MAX_CUSTOMERS) {
+            throw new IllegalArgumentException("The number of customers must be between 1 and " + MAX_CUSTOMERS + "!");
+        }
+        Customer[] out = new Customer[count];
+        chunks(count, seed, (i, random) -> {
+            String code = CODE_PREFIXES[i / 10_000] + digits(i % 10_000, 4);
+            String first = pick(FIRST_NAMES, random);
+            String last = pick(LAST_NAMES, random);
+            String name = last + " " + pick(MIDDLE_NAMES, random) + " " + first;
+            String email = (first + "." + last).toLowerCase() + i + "@" + pick(DOMAINS, random);
+            String phone = pick(PHONE_PREFIXES, random) + digits(i, 8);
+            out[i] = new Customer(code, name, email, phone);
+        });
+        return Arrays.asList(out);
+    }
+
+    /**
+     * Generates the given number of feast menus with codes {@code PW001} onwards.
+     *
+     * @param count the number of menus, at most {@link #MAX_MENUS}
+     * @param seed  the seed of the random stream
+     * @return the generated menus, in code order
+     */
+    public static List<FeastMenu> generateMenus(int count, long seed) {
+        if (count < 1 || count > MAX_MENUS) {
+            throw new IllegalArgumentException("The number of menus must be between 1 and " + MAX_MENUS + "!");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        List<FeastMenu> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String code = "PW" + digits((i + 1) % MAX_MENUS, 3);
+            String name = pick(EVENTS, random) + " " + digits(i / EVENTS.length + 1, 2);
+            double price = 1_500_000 + random.nextInt(50) * 50_000;
+            String[] ingredients = {
+                "Starter: " + pick(STARTERS, random) + "; " + pick(STARTERS, random),
+                "Main course: " + pick(MAINS, random) + "; " + pick(MAINS, random),
+                "Dessert: " + pick(DESSERTS, random)
+            };
+            list.add(new FeastMenu(code, name, price, ingredients));
+        }
+        return list;
+    }
+
+    /**
+     * Generates the given number of feast orders for the given customers and menus.
+     * <p>
+     * Order {@code i} belongs to customer {@code i % customers}; the quotient selects the menu and the
+     * event date, so no two orders share the same customer, menu and date.
+     * </p>
+     *
+     * @param count     the number of orders
+     * @param customers the customers the orders belong to
+     * @param menus     the menus the orders refer to
+     * @param seed      the seed of the random streams
+     * @return the generated orders
+     */
+    public static List<FeastOrder> generateOrders(int count, List<Customer> customers, List<FeastMenu> menus, long seed) {
+        int perDay = customers.size() * menus.size();
+        String[] dates = new String[count / perDay + 1];
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/uuuu");
+        for (int d = 0; d < dates.length; d++) {
+            dates[d] = FIRST_EVENT_DATE.plusDays(d).format(formatter);
+        }
+
+        FeastOrder[] out = new FeastOrder[count];
+        chunks(count, seed + 1, (i, random) -> {
+            int k = i / customers.size();
+            out[i] = new FeastOrder(
+                    customers.get(i % customers.size()).getCode(),
+                    menus.get(k % menus.size()).getCode(),
+                    dates[k / menus.size()],
+                    1 + random.nextInt(50));
+        });
+        return new ArrayList<>(Arrays.asList(out));
+    }
+
+    /**
+     * A generator of record {@code i} from the random stream of its chunk.
+     */
+    private interface RecordGenerator {
+        void generate(int i, SplittableRandom random);
+    }
+
+    /**
+     * Runs a record generator over {@code count} records, one parallel task per chunk.
+     */
+    private static void chunks(int count, long seed, RecordGenerator generator) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + chunk);
+            int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                generator.generate(i, random);
+            }
+        });
+    }
+
+    /**
+     * Writes customers in the format of {@code customer.dat}.
+     *
+     * @param list the customers to write
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCustomers(List<Customer> list, File file) throws IOException {
+        HashMap<String, Customer> map = new HashMap<>();
+        for (Customer c : list) {
+            map.put(c.getCode(), c);
+        }
+        writeObject(map, file);
+    }
+
+    /**
+     * Writes feast orders in the format of {@code feast_order.dat}.
+     *
+     * @param list the orders to write
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeOrders(List<FeastOrder> list, File file) throws IOException {
+        writeObject(list instanceof ArrayList ? list : new ArrayList<>(list), file);
+    }
+
+    /**
+     * Writes feast menus in the format of {@code FeastMenu.csv}, including its byte order mark.
+     *
+     * @param list the menus to write
+     * @param file the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeMenus(List<FeastMenu> list, File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("\uFEFFCode,Name,Price,Ingredients");
+            writer.newLine();
+            for (FeastMenu m : list) {
+                String[] ingredients = m.getIngredients();
+                writer.write(String.format("%s,%s,%.0f,\"+ %s#+ %s#+ %s\"",
+                        m.getCode(), m.getName(), m.getPrice(), ingredients[0], ingredients[1], ingredients[2]));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Serializes one object to a file through a buffered stream.
+     */
+    private static void writeObject(Object object, File file) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            oos.writeObject(object);
+        }
+    }
+
+    /**
+     * Picks a random element of an array.
+     */
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Formats a non-negative number with leading zeros, without the cost of {@link String#format}.
+     */
+    private static String digits(int value, int width) {
+        char[] out = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Runs the generator.
+     *
+     * @param args {@code -c} number of customers (default 30,000), {@code -f} number of feast orders
+     *             (default 1,000,000), {@code -m} number of menus (default 6), {@code -s} seed (default 42),
+     *             {@code -o} output directory (default current)
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int customers = MAX_CUSTOMERS;
+        int orders = 1_000_000;
+        int menus = 6;
+        long seed = 42;
+        File dir = new File(".");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-c":
+                    customers = Integer.parseInt(args[i + 1].replace("_", ""));
+                    break;
+                case "-f":
+                    orders = Integer.parseInt(args[i + 1].replace("_", ""));
+                    break;
+                case "-m":
+                    menus = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-s":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "-o":
+                    dir = new File(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        dir.mkdirs();
+
+        long start = System.nanoTime();
+        List<Customer> customerList = generateCustomers(customers, seed);
+        List<FeastMenu> menuList = generateMenus(menus, seed);
+        List<FeastOrder> orderList = generateOrders(orders, customerList, menuList, seed);
+        long generated = System.nanoTime();
+        writeCustomers(customerList, new File(dir, "customer.dat"));
+        writeMenus(menuList, new File(dir, "FeastMenu.csv"));
+        writeOrders(orderList, new File(dir, "feast_order.dat"));
+        long written = System.nanoTime();
+
+        System.out.println(String.format("Generated %,d customers, %,d menus and %,d orders in %,d ms, written in %,d ms.",
+                customers, menus, orders, (generated - start) / 1_000_000, (written - generated) / 1_000_000));
+    }
+}
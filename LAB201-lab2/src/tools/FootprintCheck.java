@@ -0,0 +1,183 @@
+package tools;
+
+import dao.CustomerDAO;
+import dao.FeastMenuDAO;
+import dao.FeastOrderDAO;
+import dto.FeastOrderDTO;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import model.Customer;
+import model.FeastMenu;
+import model.FeastOrder;
+import utils.MapperUtils;
+
+/**
+ * Command line tool guarding the heap footprint of customers, feast menus and orders against regressions.
+ * <p>
+ * The tool generates the data files with {@link DataGenerator} into a temporary directory, then
+ * measures in a second JVM started there, since the DAOs read their files from the working directory.
+ * The customers, feast menus and feast orders are loaded through {@link CustomerDAO},
+ * {@link FeastMenuDAO} and {@link FeastOrderDAO}, then every order is mapped to its
+ * {@link FeastOrderDTO} as the order listing does, which shows what the copies made by the
+ * listings cost. After each step the heap retained since the previous one is measured once the
+ * garbage collector has settled, and divided by the number of records of the step.
+ * </p>
+ * <p>
+ * Each step has a budget in bytes per record, set about 15% above the footprint measured with the
+ * default sizes; a step over its budget fails the check. Hash tables grow by doubling, so other
+ * sizes may differ by a few bytes per record. The figures are steadier with a
+ * single-threaded collector, for instance {@code -XX:+UseSerialGC}; the JVM options of the tool are
+ * passed on to the measuring JVM.
+ * </p>
+ * <p>
+ * Usage: {@code java -Xmx2g -cp LAB201-lab2.jar tools.FootprintCheck [orders] [customers] [menus]}
+ * </p>
+ */
+public class FootprintCheck {
+
+    /**
+     * The argument running the measurement in the current directory.
+     */
+    private static final String MEASURE = "measure";
+
+    /**
+     * The largest number of collections run to let the heap settle.
+     */
+    private static final int MAX_COLLECTIONS = 8;
+
+    /**
+     * The names of the steps.
+     */
+    private static final String[] STEPS = {"customers", "feast menus", "feast orders", "order DTOs"};
+
+    /**
+     * The budget of each step, in bytes per record.
+     */
+    private static final int[] BUDGETS = {380, 507, 43, 152};
+
+    /**
+     * Returns the heap in use once the garbage collector has settled.
+     *
+     * @return the used heap in bytes
+     */
+    private static long settledHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < MAX_COLLECTIONS; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used - used / 1000) {
+                return Math.min(now, used);
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * Loads the data files of the current directory step by step and checks the footprint of every step.
+     */
+    private static void measure() {
+        long before = settledHeap();
+        CustomerDAO cdao = new CustomerDAO();
+        long[] retained = new long[STEPS.length];
+        long after = settledHeap();
+        retained[0] = after - before;
+        before = after;
+
+        FeastMenuDAO fmdao = new FeastMenuDAO();
+        after = settledHeap();
+        retained[1] = after - before;
+        before = after;
+
+        FeastOrderDAO fodao = new FeastOrderDAO();
+        after = settledHeap();
+        retained[2] = after - before;
+        before = after;
+
+        List<FeastOrder> orders = fodao.getList();
+        List<FeastOrderDTO> dtos = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            FeastOrder order = orders.get(i);
+            Customer customer = cdao.getCustomerByCode(order.getCustomerCode());
+            FeastMenu menu = fmdao.getFeastMenuByCode(order.getFeastMenuCode());
+            dtos.add(MapperUtils.toFeastOrderDTO(i + 1, order, customer, menu));
+        }
+        after = settledHeap();
+        retained[3] = after - before;
+
+        int[] records = {cdao.getMap().size(), fmdao.getMap().size(), orders.size(), dtos.size()};
+        System.out.println(String.format("Heap retained by %,d customers, %,d feast menus and %,d feast orders:",
+                records[0], records[1], records[2]));
+        System.out.println(String.format(" %-12s | %12s | %10s | %12s | %8s | %-6s ",
+                "Structure", "Retained MB", "Records", "Bytes/record", "Budget", "Status"));
+        List<String> regressions = new ArrayList<>();
+        for (int step = 0; step < STEPS.length; step++) {
+            double perRecord = retained[step] / (double) Math.max(1, records[step]);
+            boolean over = perRecord > BUDGETS[step];
+            if (over) {
+                regressions.add(String.format("%s %.1f > %d bytes/record", STEPS[step], perRecord, BUDGETS[step]));
+            }
+            System.out.println(String.format(" %-12s | %,12.1f | %,10d | %,12.1f | %,8d | %-6s ", STEPS[step],
+                    retained[step] / 1048576.0, records[step], perRecord, BUDGETS[step], over ? "OVER" : "ok"));
+        }
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Footprint regressions: " + String.join("; ", regressions));
+        }
+        System.out.println("OK: every structure is within its footprint budget.");
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the number of feast orders (default 1,000,000), of customers (default 30,000)
+     *             and of feast menus (default 1,000)
+     * @throws IOException if the data files cannot be written
+     * @throws InterruptedException if interrupted while waiting for the measuring JVM
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals(MEASURE)) {
+            measure();
+            return;
+        }
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int customers = args.length > 1 ? Integer.parseInt(args[1]) : DataGenerator.MAX_CUSTOMERS;
+        int menus = args.length > 2 ? Integer.parseInt(args[2]) : DataGenerator.MAX_MENUS;
+
+        File dir = Files.createTempDirectory("footprint-").toFile();
+        try {
+            List<Customer> customerList = DataGenerator.generateCustomers(customers, 42);
+            List<FeastMenu> menuList = DataGenerator.generateMenus(menus, 42);
+            DataGenerator.writeCustomers(customerList, new File(dir, "customer.dat"));
+            DataGenerator.writeMenus(menuList, new File(dir, "FeastMenu.csv"));
+            DataGenerator.writeOrders(DataGenerator.generateOrders(orders, customerList, menuList, 42),
+                    new File(dir, "feast_order.dat"));
+
+            List<String> command = new ArrayList<>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            List<String> classPath = new ArrayList<>();
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                classPath.add(new File(entry).getAbsolutePath());
+            }
+            command.add("-cp");
+            command.add(String.join(File.pathSeparator, classPath));
+            command.add(FootprintCheck.class.getName());
+            command.add(MEASURE);
+            Process process = new ProcessBuilder(command).directory(dir).inheritIO().start();
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("The footprint check failed, see above.");
+            }
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package utils.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that writes a block-compressed container.
+ * <p>
+ * Written bytes are collected into blocks of a fixed size and each block is deflated on its
+ * own, so a reader can inflate several blocks at the same time. A block that does not shrink
+ * is stored as is. The container layout is:
+ * </p>
+ * <pre>
+ *   int  magic        {@link #MAGIC}
+ *   byte version      {@link #VERSION}
+ *   byte level        the deflate level used
+ *   int  block size   the size of every block but the last
+ *   block*            int raw length, int stored length, stored bytes
+ *   int  0            end of the container
+ * </pre>
+ * A block whose stored length equals its raw length holds the raw bytes.
+ */
+public class BlockDeflaterOutputStream extends OutputStream {
+
+    /**
+     * The first four bytes of every container ("BLKZ").
+     */
+    public static final int MAGIC = 0x424C4B5A;
+
+    /**
+     * The container version written by this class.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * The default block size, 256 KiB.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    /**
+     * The stream the container is written to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The deflater reused for every block.
+     */
+    private final Deflater deflater;
+
+    /**
+     * The bytes of the block being filled.
+     */
+    private final byte[] block;
+
+    /**
+     * The deflated bytes of the block being written.
+     */
+    private final byte[] compressed;
+
+    /**
+     * The number of bytes in the block being filled.
+     */
+    private int count;
+
+    /**
+     * The number of raw bytes written so far.
+     */
+    private long rawBytes;
+
+    /**
+     * The number of container bytes written so far, including headers.
+     */
+    private long storedBytes;
+
+    /**
+     * The number of blocks written so far.
+     */
+    private int blocks;
+
+    /**
+     * The time spent deflating, in nanoseconds.
+     */
+    private long deflateNanos;
+
+    /**
+     * Whether the stream has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a stream with the default block size and writes the container header.
+     *
+     * @param out   the stream to write to
+     * @param level the deflate level, from 0 to 9
+     * @throws IOException if the header cannot be written
+     */
+    public BlockDeflaterOutputStream(OutputStream out, int level) throws IOException {
+        this(out, level, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a stream and writes the container header.
+     *
+     * @param out       the stream to write to
+     * @param level     the deflate level, from 0 to 9
+     * @param blockSize the number of raw bytes per block
+     * @throws IOException if the header cannot be written
+     */
+    public BlockDeflaterOutputStream(OutputStream out, int level, int blockSize) throws IOException {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + level);
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.out = new DataOutputStream(out);
+        this.deflater = new Deflater(level);
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize];
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeByte(level);
+        this.out.writeInt(blockSize);
+        storedBytes = 10;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            writeBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == block.length) {
+                writeBlock();
+            }
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Deflates and writes the block being filled, storing it raw if it does not shrink.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    private void writeBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        deflater.reset();
+        deflater.setInput(block, 0, count);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished() && length < count) {
+            length += deflater.deflate(compressed, length, count - length);
+        }
+        boolean shrunk = deflater.finished() && length < count;
+        deflateNanos += System.nanoTime() - start;
+
+        out.writeInt(count);
+        if (shrunk) {
+            out.writeInt(length);
+            out.write(compressed, 0, length);
+        } else {
+            out.writeInt(count);
+            out.write(block, 0, count);
+            length = count;
+        }
+        rawBytes += count;
+        storedBytes += 8 + length;
+        blocks++;
+        count = 0;
+    }
+
+    /**
+     * Writes the block being filled, which makes the container end on a block boundary,
+     * and flushes the underlying stream.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes the last block and the end marker, then closes the underlying stream.
+     *
+     * @throws IOException if the container cannot be completed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            out.writeInt(0);
+            storedBytes += 4;
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the number of raw bytes written so far.
+     *
+     * @return the raw byte count
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Returns the number of container bytes written so far.
+     *
+     * @return the stored byte count
+     */
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * Returns the number of blocks written so far.
+     *
+     * @return the block count
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the time spent deflating so far.
+     *
+     * @return the deflate time in nanoseconds
+     */
+    public long getDeflateNanos() {
+        return deflateNanos;
+    }
+
+    /**
+     * Returns the stored size as a fraction of the raw size.
+     *
+     * @return the compression ratio, or 1 if nothing was written
+     */
+    public double getRatio() {
+        return rawBytes == 0 ? 1 : (double) storedBytes / rawBytes;
+    }
+}
@@ -0,0 +1,232 @@
+package utils.io;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An input stream that reads a container written by {@link BlockDeflaterOutputStream}.
+ * <p>
+ * Blocks are read from the underlying stream in order, and a window of upcoming blocks is
+ * inflated ahead of the reader on a shared pool of daemon threads, so several blocks are
+ * inflated at the same time while only a bounded number of them is held in memory.
+ * </p>
+ */
+public class BlockInflaterInputStream extends InputStream {
+
+    /**
+     * The number of inflating threads.
+     */
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of blocks read ahead of the reader.
+     */
+    private static final int WINDOW = 2 * THREADS + 1;
+
+    /**
+     * The shared pool that inflates blocks.
+     */
+    private static final ExecutorService INFLATERS = Executors.newFixedThreadPool(THREADS, task -> {
+        Thread thread = new Thread(task, "block-inflater");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The stream the container is read from.
+     */
+    private final DataInputStream in;
+
+    /**
+     * The blocks read ahead, in order.
+     */
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+    /**
+     * The time spent inflating on every thread, in nanoseconds.
+     */
+    private final AtomicLong inflateNanos = new AtomicLong();
+
+    /**
+     * The block being served to the reader.
+     */
+    private byte[] current = new byte[0];
+
+    /**
+     * The position of the next byte in the current block.
+     */
+    private int position;
+
+    /**
+     * Whether the end marker has been read.
+     */
+    private boolean ended;
+
+    /**
+     * The number of blocks read so far.
+     */
+    private int blocks;
+
+    /**
+     * Constructs a stream and reads the container header.
+     *
+     * @param in the stream to read from
+     * @throws IOException if the stream does not start with a supported container header
+     */
+    public BlockInflaterInputStream(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != BlockDeflaterOutputStream.MAGIC) {
+            throw new IOException("Not a block-compressed stream");
+        }
+        byte version = this.in.readByte();
+        if (version != BlockDeflaterOutputStream.VERSION) {
+            throw new IOException("Unsupported block-compressed stream version: " + version);
+        }
+        this.in.readByte(); // level, only needed by the writer
+        this.in.readInt(); // block size, every block carries its own length
+    }
+
+    /**
+     * Reads block records until the window is full or the end marker is reached, submitting
+     * each compressed block to the inflating pool.
+     *
+     * @throws IOException if a block record cannot be read
+     */
+    private void fill() throws IOException {
+        while (!ended && pending.size() < WINDOW) {
+            int rawLength = in.readInt();
+            if (rawLength == 0) {
+                ended = true;
+                break;
+            }
+            int storedLength = in.readInt();
+            if (rawLength < 0 || storedLength < 0 || storedLength > rawLength) {
+                throw new IOException("Corrupt block header at block " + blocks);
+            }
+            byte[] stored = new byte[storedLength];
+            in.readFully(stored);
+            blocks++;
+            if (storedLength == rawLength) {
+                pending.add(CompletableFuture.completedFuture(stored));
+            } else {
+                pending.add(CompletableFuture.supplyAsync(() -> inflate(stored, rawLength), INFLATERS));
+            }
+        }
+    }
+
+    /**
+     * Inflates one block.
+     *
+     * @param stored    the deflated bytes
+     * @param rawLength the expected number of inflated bytes
+     * @return the inflated bytes
+     */
+    private byte[] inflate(byte[] stored, int rawLength) {
+        long start = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new CompletionException(new IOException("Truncated block"));
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new CompletionException(new IOException("Corrupt block", e));
+        } finally {
+            inflater.end();
+            inflateNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Makes the next block current once the current one is used up.
+     *
+     * @return {@code false} if the container has no more bytes
+     * @throws IOException if a block cannot be read or inflated
+     */
+    private boolean advance() throws IOException {
+        while (position == current.length) {
+            fill();
+            CompletableFuture<byte[]> next = pending.poll();
+            if (next == null) {
+                return false;
+            }
+            try {
+                current = next.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException
+                        ? (IOException) e.getCause()
+                        : new IOException(e.getCause());
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return advance() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!advance()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pending.clear();
+        in.close();
+    }
+
+    /**
+     * Returns the number of blocks read so far.
+     *
+     * @return the block count
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the time spent inflating so far, summed over every thread.
+     *
+     * @return the inflate time in nanoseconds
+     */
+    public long getInflateNanos() {
+        return inflateNanos.get();
+    }
+}
@@ -0,0 +1,95 @@
+package utils.jfr;
+
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a DAO loading or saving its data file.
+ * <p>
+ * The event is begun before the file is opened and finished once it is read or written.
+ * Unless a recording enables it, finishing costs a single check, and the size of the file is
+ * only looked up for events that are committed.
+ * </p>
+ */
+@Name("lab201.feast.DataFile")
+@Label("Data File")
+@Category({"LAB201", "Feast Orders"})
+@Description("A DAO loading or saving its data file")
+@StackTrace(false)
+public class DataFileEvent extends Event {
+
+    /**
+     * The loading operation.
+     */
+    public static final String LOAD = "load";
+
+    /**
+     * The saving operation.
+     */
+    public static final String SAVE = "save";
+
+    /**
+     * The DAO reading or writing the file.
+     */
+    @Label("DAO")
+    public String dao;
+
+    /**
+     * The operation, {@value #LOAD} or {@value #SAVE}.
+     */
+    @Label("Operation")
+    public String operation;
+
+    /**
+     * The name of the file.
+     */
+    @Label("File")
+    public String file;
+
+    /**
+     * The number of records read or written.
+     */
+    @Label("Records")
+    public int records;
+
+    /**
+     * The size of the file on disk after the operation.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Whether the operation succeeded.
+     */
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    /**
+     * Commits the event if a recording enables it and its duration passes the threshold.
+     *
+     * @param dao       the DAO reading or writing the file
+     * @param operation the operation, {@link #LOAD} or {@link #SAVE}
+     * @param fileName  the name of the file read or written
+     * @param records   the number of records read or written
+     * @param succeeded whether the operation succeeded
+     */
+    public void finish(String dao, String operation, String fileName, int records, boolean succeeded) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.dao = dao;
+        this.operation = operation;
+        this.file = fileName;
+        this.records = records;
+        this.bytes = new File(fileName).length();
+        this.succeeded = succeeded;
+        commit();
+    }
+}
@@ -0,0 +1,67 @@
+package utils.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a feast order being mapped to its DTO.
+ * <p>
+ * Mapping looks up the customer, the feast menu and the position of the order, so one event
+ * is begun per order. The bundled configuration only keeps the slow ones, see
+ * {@link FlightRecording}; the total of a listing is in its {@link ServiceEvent}.
+ * </p>
+ */
+@Name("lab201.feast.OrderMapping")
+@Label("Order Mapping")
+@Category({"LAB201", "Feast Orders"})
+@Description("A feast order mapped to its DTO")
+@StackTrace(false)
+public class OrderMappingEvent extends Event {
+
+    /**
+     * The position of the order, starting at 1.
+     */
+    @Label("Order ID")
+    public int orderId;
+
+    /**
+     * The code of the customer who placed the order.
+     */
+    @Label("Customer Code")
+    public String customerCode;
+
+    /**
+     * The code of the feast menu ordered.
+     */
+    @Label("Feast Menu Code")
+    public String feastMenuCode;
+
+    /**
+     * The number of orders the position was looked up in.
+     */
+    @Label("Orders")
+    public int orders;
+
+    /**
+     * Commits the event if a recording enables it and its duration passes the threshold.
+     *
+     * @param orderId       the position of the order, starting at 1
+     * @param customerCode  the code of the customer who placed the order
+     * @param feastMenuCode the code of the feast menu ordered
+     * @param orders        the number of orders the position was looked up in
+     */
+    public void finish(int orderId, String customerCode, String feastMenuCode, int orders) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.orderId = orderId;
+        this.customerCode = customerCode;
+        this.feastMenuCode = feastMenuCode;
+        this.orders = orders;
+        commit();
+    }
+}
@@ -0,0 +1,73 @@
+package utils.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a listing or search by a service.
+ * <p>
+ * Unless a recording enables it, finishing the event costs a single check.
+ * </p>
+ */
+@Name("lab201.feast.Service")
+@Label("Service Operation")
+@Category({"LAB201", "Feast Orders"})
+@Description("A listing or search by a feast order service")
+@StackTrace(false)
+public class ServiceEvent extends Event {
+
+    /**
+     * The service performing the operation.
+     */
+    @Label("Service")
+    public String service;
+
+    /**
+     * The operation performed.
+     */
+    @Label("Operation")
+    public String operation;
+
+    /**
+     * The value searched, or an empty string for a listing.
+     */
+    @Label("Query")
+    public String query;
+
+    /**
+     * The number of records scanned.
+     */
+    @Label("Records")
+    public int records;
+
+    /**
+     * The number of records found.
+     */
+    @Label("Results")
+    public int results;
+
+    /**
+     * Commits the event if a recording enables it and its duration passes the threshold.
+     *
+     * @param service   the service performing the operation
+     * @param operation the operation performed
+     * @param query     the value searched, or an empty string for a listing
+     * @param records   the number of records scanned
+     * @param results   the number of records found
+     */
+    public void finish(String service, String operation, String query, int records, int results) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.service = service;
+        this.operation = operation;
+        this.query = query;
+        this.records = records;
+        this.results = results;
+        commit();
+    }
+}